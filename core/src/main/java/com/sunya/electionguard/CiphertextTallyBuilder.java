@@ -1,12 +1,16 @@
 package com.sunya.electionguard;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
 import com.google.common.flogger.FluentLogger;
 import com.sunya.electionguard.publish.ElectionContext;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -15,7 +19,8 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.Collectors;
 
 import static com.sunya.electionguard.BallotBox.State;
@@ -27,7 +32,7 @@ import static com.sunya.electionguard.InternalManifest.ContestWithPlaceholders;
 
 /**
  * A mutable builder of CiphertextTally.
- * Note that we cant tally, save results, then start another process and continue.
+ * A long accumulation can periodically save a Checkpoint, and another process can resume from it.
  * LOOK could get rid of the parallelization stuff until we get clear what is needed.
  */
 public class CiphertextTallyBuilder {
@@ -44,6 +49,36 @@ public class CiphertextTallyBuilder {
   /** An encrypted representation of each contest and selection for all the cast ballots. */
   final Map<String, Contest> contests; // Map(CONTEST_ID, CiphertextTallyContest)
 
+  /** The index of each selection into a ProductAccumulator. */
+  private final Map<String, Integer> selection_index; // Map(SELECTION_ID, index)
+
+  /** The number of ballots read by batch_append, including ones not added to the tally. */
+  private long ballots_read;
+
+  /** The cast ballots added since the last checkpoint, in the order they were added. */
+  private final List<String> uncheckpointed_ids = new ArrayList<>();
+
+  /** Runs the parallel accumulation. */
+  private final TaskExecutor executor;
+
+  /**
+   * The state of an accumulation in progress, so that it can be resumed after a failure.
+   * To keep each checkpoint proportional to the checkpoint interval, it has only the cast ballots added since the
+   * previous one; the Checkpointer appends them to the ones it already saved. A Checkpoint read back to resume
+   * has all of them, ie newBallotIds.size() == castBallotCount.
+   */
+  public record Checkpoint(
+          CiphertextTally tally, // the running selection products
+          List<String> newBallotIds, // the cast ballots added to the tally since the previous checkpoint
+          long castBallotCount, // the number of cast ballots in the tally
+          long ballotsRead) {  // the number of submitted ballots already read
+  }
+
+  /** Persists the Checkpoints made by batch_append. */
+  public interface Checkpointer {
+    void checkpoint(Checkpoint checkpoint) throws IOException;
+  }
+
   /**
    * Constructor
    * @param object_id unique id for the CiphertextTally
@@ -51,12 +86,52 @@ public class CiphertextTallyBuilder {
    * @param context the election context
    */
   public CiphertextTallyBuilder(String object_id, InternalManifest manifest, ElectionContext context) {
+    this(object_id, manifest, context, TaskExecutor.getDefault());
+  }
+
+  /**
+   * Constructor
+   * @param object_id unique id for the CiphertextTally
+   * @param manifest the election manifest
+   * @param context the election context
+   * @param executor runs the parallel accumulation
+   */
+  public CiphertextTallyBuilder(String object_id, InternalManifest manifest, ElectionContext context, TaskExecutor executor) {
+    this.executor = executor;
     this.object_id = object_id;
     this.manifest = manifest;
     this.context = context;
     this.cast_ballot_ids = new HashSet<>();
     this.spoiled_ballot_ids = new HashSet<>(); // LOOK since we skip spoiled ballots, not really needed to track them.
     this.contests = build_contests(this.manifest);
+    this.selection_index = new HashMap<>();
+    for (Contest contest : this.contests.values()) {
+      for (String selection_id : contest.selections.keySet()) {
+        this.selection_index.put(selection_id, this.selection_index.size());
+      }
+    }
+  }
+
+  /**
+   * Constructor that resumes from a Checkpoint.
+   * Continue with batch_append() on the submitted ballots after the first checkpoint.ballotsRead().
+   */
+  public CiphertextTallyBuilder(String object_id, InternalManifest manifest, ElectionContext context, Checkpoint checkpoint) {
+    this(object_id, manifest, context, checkpoint, TaskExecutor.getDefault());
+  }
+
+  /** Constructor that resumes from a Checkpoint, using the given executor. */
+  public CiphertextTallyBuilder(String object_id, InternalManifest manifest, ElectionContext context, Checkpoint checkpoint,
+                                TaskExecutor executor) {
+    this(object_id, manifest, context, executor);
+    Preconditions.checkArgument(checkpoint.newBallotIds().size() == checkpoint.castBallotCount(),
+            "Checkpoint has %s of its %s cast ballot ids", checkpoint.newBallotIds().size(), checkpoint.castBallotCount());
+    if (!merge(object_id, checkpoint.tally(), checkpoint.newBallotIds())) {
+      throw new IllegalArgumentException("Checkpoint does not match this election");
+    }
+    // already saved
+    this.uncheckpointed_ids.clear();
+    this.ballots_read = checkpoint.ballotsRead();
   }
 
   /** Build the object graph for the tally from the InternalManifest. */
@@ -77,31 +152,97 @@ public class CiphertextTallyBuilder {
 
   /**
    * Append a collection of Ballots to the tally, parallelized over these ballots, for each selection.
+   * @return the number of ballots added to the tally, or -1 if the accumulation failed and nothing was added.
    */
   public int batch_append(Iterable<SubmittedBallot> ballotsIterable) {
-    // Map(SELECTION_ID, Map(BALLOT_ID, Ciphertext)
-    Map<String, Map<String, ElGamal.Ciphertext>> cast_ballot_selections = new HashMap<>();
+    return batch_append(ballotsIterable, 0, null);
+  }
+
+  /**
+   * Append a collection of Ballots to the tally, parallelized over these ballots, for each selection.
+   * Every checkpointInterval ballots, the ballots read so far are accumulated and a Checkpoint is made.
+   * To be able to resume, ballotsIterable must be all of the submitted ballots, in file order.
+   *
+   * @param checkpointInterval accumulate and checkpoint after this many ballots are read; if 0, only at the end.
+   * @param checkpointer persist the Checkpoint, or null to not checkpoint.
+   * @return the number of ballots added to the tally, or -1 if an accumulation failed or a checkpoint could not be
+   *   written. Then the last checkpoint that was made is where to resume, and no more checkpoints were made.
+   */
+  public int batch_append(Iterable<SubmittedBallot> ballotsIterable, int checkpointInterval, @Nullable Checkpointer checkpointer) {
+    // collect the ballots so they can be accumulated in parallel
+    List<SubmittedBallot> cast_ballots = new ArrayList<>();
+    Set<String> batch_ids = new HashSet<>();
 
-    // Find all the ballots for each selection.
-    AtomicInteger count = new AtomicInteger();
+    int count = 0;
+    int pending = 0;
     for (SubmittedBallot ballot : ballotsIterable) {
-      if (ballot.state == State.CAST && !cast_ballot_ids.contains(ballot.object_id()) &&
+      if (ballot.state == State.CAST && !cast_ballot_ids.contains(ballot.object_id()) && !batch_ids.contains(ballot.object_id()) &&
                       BallotValidations.ballot_is_valid_for_election(ballot, this.manifest, this.context)) {
-        // collect the selections so they can be accumulated in parallel
-        for (CiphertextBallot.Contest contest : ballot.contests) {
-          for (CiphertextBallot.Selection selection : contest.selections) {
-            Map<String, ElGamal.Ciphertext> map2 = cast_ballot_selections.computeIfAbsent(selection.object_id(), map1 -> new HashMap<>());
-            map2.put(ballot.object_id(), selection.ciphertext());
-          }
+        cast_ballots.add(ballot);
+        batch_ids.add(ballot.object_id());
+      }
+      this.ballots_read++;
+      pending++;
+
+      if (checkpointInterval > 0 && pending >= checkpointInterval) {
+        if (!this.accumulate_batch(cast_ballots, pending)) {
+          return -1;
+        }
+        count += cast_ballots.size();
+        cast_ballots.clear();
+        batch_ids.clear();
+        pending = 0;
+        if (!checkpoint(checkpointer)) {
+          return -1;
         }
-        this.cast_ballot_ids.add(ballot.object_id());
-        count.incrementAndGet();
       }
     }
 
-    // heres where the tallies are actually accumulated, in parellel over the selections
-    boolean ok = this.execute_accumulate(cast_ballot_selections);
-    return ok ? count.get() : 0;
+    // heres where the tallies are actually accumulated, in parallel over the ballots
+    if (!this.accumulate_batch(cast_ballots, pending)) {
+      return -1;
+    }
+    count += cast_ballots.size();
+    if (!checkpoint(checkpointer)) {
+      return -1;
+    }
+    return count;
+  }
+
+  /**
+   * Accumulate a batch of batch_append, and only if that succeeds, record its ballots as cast.
+   * Otherwise un-read the batch, so the state is back to the last checkpoint.
+   */
+  private boolean accumulate_batch(List<SubmittedBallot> cast_ballots, int nread) {
+    if (!this.execute_accumulate(cast_ballots)) {
+      logger.atWarning().log("accumulate failed for %d ballots after %d ballots read", cast_ballots.size(), this.ballots_read - nread);
+      this.ballots_read -= nread;
+      return false;
+    }
+    for (SubmittedBallot ballot : cast_ballots) {
+      this.cast_ballot_ids.add(ballot.object_id());
+      this.uncheckpointed_ids.add(ballot.object_id());
+    }
+    return true;
+  }
+
+  /**
+   * Must only be called when all of cast_ballot_ids have been accumulated.
+   * @return false if the checkpoint could not be written.
+   */
+  private boolean checkpoint(@Nullable Checkpointer checkpointer) {
+    if (checkpointer == null) {
+      return true;
+    }
+    try {
+      checkpointer.checkpoint(new Checkpoint(build(), List.copyOf(this.uncheckpointed_ids),
+              this.cast_ballot_ids.size(), this.ballots_read));
+      this.uncheckpointed_ids.clear();
+      return true;
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("checkpoint failed after %d ballots", this.ballots_read);
+      return false;
+    }
   }
 
   /** Append a ballot to the tally. Potentially parellizable over this ballot's selections. */
@@ -147,79 +288,136 @@ public class CiphertextTallyBuilder {
 
       Contest use_contest = this.contests.get(contest.contestId);
       // Potentially parellizable over this ballot's selections.
-      if (!use_contest.accumulate_contest(contest.selections)) {
+      if (!use_contest.accumulate_contest(contest.selections, this.executor)) {
         return false;
       }
       this.contests.put(contest.contestId, use_contest);
     }
     this.cast_ballot_ids.add(ballot.object_id());
+    this.uncheckpointed_ids.add(ballot.object_id());
     return true;
   }
 
-  @Immutable
-  private static class AccumOverBallotsTuple {
-    final String selection_id;
-    final ElGamal.Ciphertext ciphertext; // accumulation over ballots
+  /**
+   * Called from batch_append(), accumulate the ballots with a fork-join tree reduction:
+   * the ballots are split into chunks, each chunk is multiplied into a mutable ProductAccumulator,
+   * and the chunk products are multiplied together. So all cores are used, no matter how few selections there are.
+   *
+   * @param ballots the valid cast ballots to add to the tally.
+   * @return true if added, false if the accumulation failed and nothing was changed.
+   */
+  private boolean execute_accumulate(List<SubmittedBallot> ballots) {
+    if (ballots.isEmpty()) {
+      return true;
+    }
+    ForkJoinPool pool = this.executor.pool();
+    int chunkSize = Math.max(MIN_CHUNK_SIZE, ballots.size() / (CHUNKS_PER_THREAD * pool.getParallelism()));
+    ProductAccumulator result;
+    try {
+      result = pool.invoke(new AccumulateTask(this.selection_index, ballots, 0, ballots.size(), chunkSize));
+    } catch (RuntimeException e) {
+      logger.atWarning().withCause(e).log("execute_accumulate failed");
+      return false;
+    }
 
-    public AccumOverBallotsTuple(String selection_id, ElGamal.Ciphertext ciphertext) {
-      this.selection_id = selection_id;
-      this.ciphertext = ciphertext;
+    for (Contest contest : this.contests.values()) {
+      for (Selection selection : contest.selections.values()) {
+        ElGamal.Ciphertext product = result.ciphertext(this.selection_index.get(selection.object_id()));
+        if (product != null) {
+          selection.elgamal_accumulate(product);
+        }
+      }
     }
+    return true;
   }
 
-  //// Allow _accumulate to be run in parallel
-  @Immutable
-  static class RunAccumulateOverBallots implements Callable<AccumOverBallotsTuple> {
-    final String selection_id;
-    final ImmutableMap<String, ElGamal.Ciphertext> ballot_selections; // Map(BALLOT_ID, Ciphertext)
-
-    public RunAccumulateOverBallots(String selection_id, Map<String, ElGamal.Ciphertext> ballot_selections) {
-      this.selection_id = selection_id;
-      this.ballot_selections = ImmutableMap.copyOf(ballot_selections);
+  private static final int MIN_CHUNK_SIZE = 16;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /** Accumulate the ballots in [start, end), splitting in half until the range is no bigger than chunkSize. */
+  private static class AccumulateTask extends RecursiveTask<ProductAccumulator> {
+    final Map<String, Integer> selection_index;
+    final List<SubmittedBallot> ballots;
+    final int start;
+    final int end;
+    final int chunkSize;
+
+    AccumulateTask(Map<String, Integer> selection_index, List<SubmittedBallot> ballots, int start, int end, int chunkSize) {
+      this.selection_index = selection_index;
+      this.ballots = ballots;
+      this.start = start;
+      this.end = end;
+      this.chunkSize = chunkSize;
     }
 
     @Override
-    public AccumOverBallotsTuple call() {
-      // ok to do this is parallel , all state is local to this class
-      ElGamal.Ciphertext ciphertext = ElGamal.elgamal_add(Iterables.toArray(ballot_selections.values(), ElGamal.Ciphertext.class));
-      return new AccumOverBallotsTuple(selection_id, ciphertext);
+    protected ProductAccumulator compute() {
+      if (end - start <= chunkSize) {
+        ProductAccumulator accum = new ProductAccumulator(selection_index.size());
+        for (int i = start; i < end; i++) {
+          for (CiphertextBallot.Contest contest : ballots.get(i).contests) {
+            for (CiphertextBallot.Selection selection : contest.selections) {
+              Integer idx = selection_index.get(selection.object_id());
+              if (idx != null) { // skip placeholders
+                accum.multiply(idx, selection.ciphertext());
+              }
+            }
+          }
+        }
+        return accum;
+      }
+
+      int mid = (start + end) >>> 1;
+      AccumulateTask left = new AccumulateTask(selection_index, ballots, start, mid, chunkSize);
+      AccumulateTask right = new AccumulateTask(selection_index, ballots, mid, end, chunkSize);
+      left.fork();
+      ProductAccumulator rightResult = right.compute();
+      return rightResult.multiply(left.join());
     }
   }
 
   /**
-   * Called from batch_append(), process each inner map in parallel.
-   *
-   * @param ciphertext_selections_by_selection_id For each selection, the set of ballots for that selection.
-   *                                              Map(SELECTION_ID, Map(BALLOT_ID, Ciphertext)
-   * @return always return true.
+   * Mutable product of ciphertexts for each selection, indexed by selection_index.
+   * Avoids making a new ElGamal.Ciphertext for every multiply. Not thread safe.
    */
-  private boolean execute_accumulate(
-          Map<String, Map<String, ElGamal.Ciphertext>> ciphertext_selections_by_selection_id) {
-
-    List<RunAccumulateOverBallots> tasks =
-            ciphertext_selections_by_selection_id.entrySet().stream()
-                    .map(entry -> new RunAccumulateOverBallots(entry.getKey(), entry.getValue()))
-                    .toList();
-
-    Scheduler<AccumOverBallotsTuple> scheduler = new Scheduler<>();
-    // This line is the only parallel processing
-    List<AccumOverBallotsTuple> result_set = scheduler.schedule(tasks, true);
+  static class ProductAccumulator {
+    private final BigInteger[] pads;
+    private final BigInteger[] datas;
+
+    ProductAccumulator(int nselections) {
+      // null means nothing has been accumulated
+      this.pads = new BigInteger[nselections];
+      this.datas = new BigInteger[nselections];
+    }
 
-    // Turn result_set into a Map(SELECTION_ID, Ciphertext)
-    Map<String, ElGamal.Ciphertext> result_dict = result_set.stream()
-            .collect(Collectors.toMap(t -> t.selection_id, t -> t.ciphertext));
+    void multiply(int idx, ElGamal.Ciphertext ciphertext) {
+      pads[idx] = mult(pads[idx], ciphertext.pad().getBigInt());
+      datas[idx] = mult(datas[idx], ciphertext.data().getBigInt());
+    }
 
-    for (Contest contest : this.contests.values()) {
-      for (Map.Entry<String, Selection> entry2 : contest.selections.entrySet()) {
-        String selection_id = entry2.getKey();
-        Selection selection = entry2.getValue();
-        if (result_dict.containsKey(selection_id)) {
-          selection.elgamal_accumulate(result_dict.get(selection_id));
+    /** Multiply other into this one. */
+    ProductAccumulator multiply(ProductAccumulator other) {
+      for (int idx = 0; idx < pads.length; idx++) {
+        if (other.pads[idx] != null) {
+          pads[idx] = mult(pads[idx], other.pads[idx]);
+          datas[idx] = mult(datas[idx], other.datas[idx]);
         }
       }
+      return this;
+    }
+
+    private static BigInteger mult(@Nullable BigInteger accum, BigInteger factor) {
+      return (accum == null) ? factor : accum.multiply(factor).mod(Group.getPrimes().largePrime);
     }
 
-    return true; // always true
+    /** The accumulated product for the selection, or null if nothing was accumulated. */
+    @Nullable
+    ElGamal.Ciphertext ciphertext(int idx) {
+      if (pads[idx] == null) {
+        return null;
+      }
+      return new ElGamal.Ciphertext(Group.int_to_p_unchecked(pads[idx]), Group.int_to_p_unchecked(datas[idx]));
+    }
   }
 
   /** Build the immutable CiphertextTally. */
@@ -229,6 +427,66 @@ public class CiphertextTallyBuilder {
             this.contests.entrySet().stream().collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue().build())));
   }
 
+  /** Build the PartialCiphertextTally for this shard, which can be merged with other shards. */
+  public PartialCiphertextTally buildPartial(String shardId) {
+    return new PartialCiphertextTally(shardId, build(), this.cast_ballot_ids);
+  }
+
+  /**
+   * Merge a partial tally from another shard into this tally, by multiplying the selection accumulations.
+   * The partial tally must have been made from the same manifest, and must not contain any ballots already tallied.
+   * @return true if merged, false if nothing was changed.
+   */
+  public boolean merge(PartialCiphertextTally partial) {
+    return merge(partial.shardId(), partial.tally, partial.ballotIds);
+  }
+
+  private boolean merge(String shardId, CiphertextTally tally, Collection<String> ballotIds) {
+    Set<String> duplicates = ballotIds.stream()
+            .filter(id -> this.cast_ballot_ids.contains(id) || this.spoiled_ballot_ids.contains(id))
+            .collect(Collectors.toSet());
+    if (!duplicates.isEmpty()) {
+      logger.atWarning().log("merge cannot add shard %s, %d ballots already tallied, eg %s",
+              shardId, duplicates.size(), duplicates.iterator().next());
+      return false;
+    }
+
+    // validate everything before changing anything
+    for (CiphertextTally.Contest partialContest : tally.contests.values()) {
+      Contest contest = this.contests.get(partialContest.object_id());
+      if (contest == null || !contest.description_hash.equals(partialContest.contestDescriptionHash)) {
+        logger.atWarning().log("merge cannot add shard %s, mismatched contest %s", shardId, partialContest.object_id());
+        return false;
+      }
+      if (!contest.selections.keySet().equals(partialContest.selections.keySet())) {
+        logger.atWarning().log("merge cannot add shard %s, mismatched selections for contest %s", shardId, partialContest.object_id());
+        return false;
+      }
+      for (CiphertextTally.Selection partialSelection : partialContest.selections.values()) {
+        Selection selection = contest.selections.get(partialSelection.object_id());
+        if (!selection.description_hash().equals(partialSelection.description_hash())) {
+          logger.atWarning().log("merge cannot add shard %s, mismatched selection %s", shardId, partialSelection.object_id());
+          return false;
+        }
+      }
+    }
+
+    for (CiphertextTally.Contest partialContest : tally.contests.values()) {
+      Contest contest = this.contests.get(partialContest.object_id());
+      for (CiphertextTally.Selection partialSelection : partialContest.selections.values()) {
+        contest.selections.get(partialSelection.object_id()).elgamal_accumulate(partialSelection.ciphertext());
+      }
+    }
+    this.cast_ballot_ids.addAll(ballotIds);
+    this.uncheckpointed_ids.addAll(ballotIds);
+    return true;
+  }
+
+  /** The number of cast ballots in the tally. */
+  public int castBallotCount() {
+    return this.cast_ballot_ids.size();
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////////////////////////////
 
   /**
@@ -253,7 +511,7 @@ public class CiphertextTallyBuilder {
     }
 
     /** Accumulate the contest selections of an individual ballot into this tally. Potentially parellizable over selections.*/
-    private boolean accumulate_contest(List<CiphertextBallot.Selection> contest_selections) {
+    private boolean accumulate_contest(List<CiphertextBallot.Selection> contest_selections, TaskExecutor executor) {
       if (contest_selections.isEmpty()) {
         logger.atWarning().log("accumulate cannot add missing selections for contest %s", this.object_id);
         return false;
@@ -280,9 +538,8 @@ public class CiphertextTallyBuilder {
                       .map(entry -> new RunAccumulateSelections(entry.getKey(), entry.getValue(), contest_selections))
                       .toList();
 
-      Scheduler<AccumSelectionsTuple> scheduler = new Scheduler<>();
       // this line is the only parallel processing
-      List<AccumSelectionsTuple> results = scheduler.schedule(tasks, true);
+      List<AccumSelectionsTuple> results = executor.invokeAll(tasks);
 
       for (AccumSelectionsTuple tuple : results) {
         if (tuple.ciphertext == null) {
@@ -2,45 +2,81 @@ package com.sunya.electionguard;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.flogger.FluentLogger;
 import com.sunya.electionguard.publish.ElectionContext;
 
+import javax.annotation.Nullable;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.sunya.electionguard.DecryptionShare.KeyAndSelection;
 import static com.sunya.electionguard.Group.ElementModP;
 import static com.sunya.electionguard.Group.ElementModQ;
 import static com.sunya.electionguard.Group.div_p;
 
-/** Static methods for decryption with shares. */
+/**
+ * Static methods for decryption with shares.
+ * The selections of a tally or a batch of ballots are decrypted together in chunks, in parallel in a ForkJoinPool,
+ * with the divisions in each chunk sharing a single modular inverse.
+ */
 public class DecryptWithShares {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  /** Largest number of selections decrypted together, sharing one modular inverse. */
+  static final int CHUNK_SIZE = 100;
+  /** Smallest number of selections decrypted together. */
+  static final int MIN_CHUNK_SIZE = 8;
+  /** Number of spoiled ballots whose selections are decrypted together. */
+  static final int BALLOT_BATCH_SIZE = 100;
 
   /** Decrypt a collection of ciphertext spoiled ballots into decrypted plaintext tallies. */
   public static List<PlaintextTally> decrypt_spoiled_ballots(
           Iterable<SubmittedBallot> ballots,
           Map<String, Map<String, DecryptionShare>> shares, // MAP(AVAILABLE_GUARDIAN_ID, Map(BALLOT_ID, DecryptionShare))
           ElectionContext context) {
+    return decrypt_spoiled_ballots(ballots, shares, context, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Decrypt a collection of ciphertext spoiled ballots into decrypted plaintext tallies.
+   * Ballots that fail to decrypt are logged and left out.
+   *
+   * @param pool decrypt in parallel in this pool, or if null, sequentially in the calling thread.
+   */
+  public static List<PlaintextTally> decrypt_spoiled_ballots(
+          Iterable<SubmittedBallot> ballots,
+          Map<String, Map<String, DecryptionShare>> shares, // MAP(AVAILABLE_GUARDIAN_ID, Map(BALLOT_ID, DecryptionShare))
+          ElectionContext context,
+          @Nullable ForkJoinPool pool) {
 
     List<PlaintextTally> result = new ArrayList<>();
-    for (SubmittedBallot ballot : ballots) {
-      HashMap<String, DecryptionShare> ballot_shares = new HashMap<>();
-      for (Map.Entry<String, Map<String, DecryptionShare>> entry : shares.entrySet()) {
-        Map<String, DecryptionShare> map2 = entry.getValue();
-        Preconditions.checkArgument(map2.containsKey(ballot.object_id()));
-        ballot_shares.put(entry.getKey(), map2.get(ballot.object_id()));
+    Iterator<List<SubmittedBallot>> batches = Iterators.partition(ballots.iterator(), BALLOT_BATCH_SIZE);
+    while (batches.hasNext()) {
+      List<Decryptable> batch = new ArrayList<>();
+      for (SubmittedBallot ballot : batches.next()) {
+        HashMap<String, DecryptionShare> ballot_shares = new HashMap<>();
+        for (Map.Entry<String, Map<String, DecryptionShare>> entry : shares.entrySet()) {
+          Map<String, DecryptionShare> map2 = entry.getValue();
+          Preconditions.checkArgument(map2.containsKey(ballot.object_id()));
+          ballot_shares.put(entry.getKey(), map2.get(ballot.object_id()));
+        }
+        batch.add(Decryptable.createFrom(ballot, ballot_shares));
       }
 
-      Optional<PlaintextTally> decrypted_ballot =
-              decrypt_ballot(ballot, ballot_shares, context.extendedHash());
-      if (decrypted_ballot.isEmpty()) {
-        logger.atWarning().log("Failed to decrypt ciphertext spoiled ballots %s", ballot.object_id());
-      } else {
-        result.add(decrypted_ballot.get());
+      List<Optional<PlaintextTally>> decrypted = decrypt_all(batch, context.extendedHash(), pool);
+      for (int i = 0; i < batch.size(); i++) {
+        if (decrypted.get(i).isEmpty()) {
+          logger.atWarning().log("Failed to decrypt ciphertext spoiled ballots %s", batch.get(i).object_id());
+        } else {
+          result.add(decrypted.get(i).get());
+        }
       }
     }
 
@@ -59,23 +95,30 @@ public class DecryptWithShares {
           CiphertextTally tally,
           Map<String, DecryptionShare> shares, // Map(AVAILABLE_GUARDIAN_ID, DecryptionShare)
           ElectionContext context) {
+    return decrypt_tally(tally, shares, context, ForkJoinPool.commonPool());
+  }
 
-    Map<String, PlaintextTally.Contest> contests = new HashMap<>();
-    for (CiphertextTally.Contest tallyContest : tally.contests.values()) {
-      Optional<PlaintextTally.Contest> pc = decrypt_contest_with_decryption_shares(
-              CiphertextContest.createFrom(tallyContest), shares, context.extendedHash());
-      if (pc.isEmpty()) {
-        logger.atWarning().log("contest: %s failed to decrypt with shares", tallyContest.object_id());
-        return Optional.empty();
-      }
-      contests.put(tallyContest.object_id(), pc.get());
-    }
+  /**
+   * Decrypt the CiphertextTally into a PlaintextTally.
+   *
+   * @param tally:   The CiphertextTally to decrypt
+   * @param shares:  The guardian Decryption Shares for all guardians
+   * @param context: the CiphertextElectionContext
+   * @param pool:    decrypt in parallel in this pool, or if null, sequentially in the calling thread.
+   * @return A PlaintextTally or None if there is an error
+   */
+  public static Optional<PlaintextTally> decrypt_tally(
+          CiphertextTally tally,
+          Map<String, DecryptionShare> shares, // Map(AVAILABLE_GUARDIAN_ID, DecryptionShare)
+          ElectionContext context,
+          @Nullable ForkJoinPool pool) {
 
-    if (contests.isEmpty()) {
+    if (tally.contests.isEmpty()) {
       return Optional.empty();
-    } else {
-      return Optional.of(new PlaintextTally(tally.object_id(), contests));
     }
+    List<CiphertextContest> contests = tally.contests.values().stream().map(CiphertextContest::createFrom).toList();
+    Decryptable decryptable = new Decryptable(tally.object_id(), contests, shares);
+    return decrypt_all(List.of(decryptable), context.extendedHash(), pool).get(0);
   }
 
 
@@ -87,21 +130,40 @@ public class DecryptWithShares {
           Iterable<SubmittedBallot> ballots,
           Map<String, Map<String, DecryptionShare>> shares, // MAP(AVAILABLE_GUARDIAN_ID, Map(BALLOT_ID, DecryptionShare))
           ElectionContext context) {
+    return decrypt_ballots(ballots, shares, context, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Decrypt a collection of ciphertext spoiled ballots into Map(BALLOT_ID, PlaintextTally).
+   * Returns empty if any ballot fails to decrypt.
+   *
+   * @param pool decrypt in parallel in this pool, or if null, sequentially in the calling thread.
+   */
+  public static Optional<Map<String, PlaintextTally>> decrypt_ballots(
+          Iterable<SubmittedBallot> ballots,
+          Map<String, Map<String, DecryptionShare>> shares, // MAP(AVAILABLE_GUARDIAN_ID, Map(BALLOT_ID, DecryptionShare))
+          ElectionContext context,
+          @Nullable ForkJoinPool pool) {
 
     Map<String, PlaintextTally> result = new HashMap<>();
-    for (SubmittedBallot ballot : ballots) {
-      HashMap<String, DecryptionShare> ballot_shares = new HashMap<>();
-      for (Map.Entry<String, Map<String, DecryptionShare>> entry : shares.entrySet()) {
-        Map<String, DecryptionShare> map2 = entry.getValue();
-        ballot_shares.put(entry.getKey(), map2.get(ballot.object_id()));
+    Iterator<List<SubmittedBallot>> batches = Iterators.partition(ballots.iterator(), BALLOT_BATCH_SIZE);
+    while (batches.hasNext()) {
+      List<Decryptable> batch = new ArrayList<>();
+      for (SubmittedBallot ballot : batches.next()) {
+        HashMap<String, DecryptionShare> ballot_shares = new HashMap<>();
+        for (Map.Entry<String, Map<String, DecryptionShare>> entry : shares.entrySet()) {
+          Map<String, DecryptionShare> map2 = entry.getValue();
+          ballot_shares.put(entry.getKey(), map2.get(ballot.object_id()));
+        }
+        batch.add(Decryptable.createFrom(ballot, ballot_shares));
       }
 
-      Optional<PlaintextTally> decrypted_tally =
-              decrypt_ballot(ballot, ballot_shares, context.extendedHash());
-      if (decrypted_tally.isEmpty()) {
-         return Optional.empty();
+      for (Optional<PlaintextTally> decrypted_tally : decrypt_all(batch, context.extendedHash(), pool)) {
+        if (decrypted_tally.isEmpty()) {
+          return Optional.empty();
+        }
+        result.put(decrypted_tally.get().tallyId, decrypted_tally.get());
       }
-      result.put(ballot.object_id(), decrypted_tally.get());
     }
 
     return Optional.of(result);
@@ -113,21 +175,139 @@ public class DecryptWithShares {
           Map<String, DecryptionShare> shares,
           ElementModQ extended_base_hash) {
 
-    Map<String, PlaintextTally.Contest> plaintext_contests = new HashMap<>();
+    return decrypt_all(List.of(Decryptable.createFrom(ballot, shares)), extended_base_hash, ForkJoinPool.commonPool()).get(0);
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////////////////////////////////
+  // chunked decryption
+
+  /** A tally or ballot to be decrypted, with its shares: Map(AVAILABLE_GUARDIAN_ID, DecryptionShare). */
+  private record Decryptable(String object_id, List<CiphertextContest> contests, Map<String, DecryptionShare> shares) {
+    static Decryptable createFrom(SubmittedBallot ballot, Map<String, DecryptionShare> shares) {
+      List<CiphertextContest> contests = ballot.contests.stream().map(CiphertextContest::createFrom).toList();
+      return new Decryptable(ballot.object_id(), contests, shares);
+    }
+  }
+
+  /** One selection of the decryptable at index owner, with its shares: Map(AVAILABLE_GUARDIAN_ID, KeyAndSelection). */
+  private record SelectionTask(int owner, String contestId, CiphertextSelection selection, Map<String, KeyAndSelection> shares) {}
+
+  /**
+   * Decrypt all the selections of the decryptables together, in chunks.
+   * @return the decrypted tallies, in the same order; empty if any selection of that decryptable failed.
+   */
+  private static List<Optional<PlaintextTally>> decrypt_all(
+          List<Decryptable> decryptables,
+          ElementModQ extended_base_hash,
+          @Nullable ForkJoinPool pool) {
+
+    // flatten the selections across contests and decryptables
+    List<SelectionTask> tasks = new ArrayList<>();
+    for (int owner = 0; owner < decryptables.size(); owner++) {
+      Decryptable decryptable = decryptables.get(owner);
+      Map<String, Map<String, KeyAndSelection>> sharesBySelection = shares_by_selection(decryptable.shares());
+      for (CiphertextContest contest : decryptable.contests()) {
+        for (CiphertextSelection selection : contest.selections) {
+          if (selection.isPlaceholderSelection) {
+            continue;
+          }
+          Map<String, KeyAndSelection> tally_shares = sharesBySelection.getOrDefault(selection.object_id(), Map.of());
+          tasks.add(new SelectionTask(owner, contest.object_id, selection, tally_shares));
+        }
+      }
+    }
+
+    List<List<SelectionTask>> chunks = Lists.partition(tasks, chunk_size(tasks.size(), pool));
+    List<List<Optional<PlaintextTally.Selection>>> decrypted =
+            SelectionBatches.process(pool, chunks.size(), i -> decrypt_chunk(chunks.get(i), extended_base_hash));
 
-    for (CiphertextBallot.Contest ballotContest : ballot.contests) {
-      Optional<PlaintextTally.Contest> plaintext_contest = decrypt_contest_with_decryption_shares(
-              CiphertextContest.createFrom(ballotContest),
-              shares,
-              extended_base_hash);
-      if (plaintext_contest.isEmpty()) {
-        logger.atWarning().log("contest: %s failed to decrypt with shares", ballotContest.contestId);
-        return Optional.empty();
+    // Map(CONTEST_ID, Map(SELECTION_ID, PlaintextTally.Selection)) for each decryptable
+    List<Map<String, Map<String, PlaintextTally.Selection>>> selections = new ArrayList<>();
+    for (Decryptable decryptable : decryptables) {
+      Map<String, Map<String, PlaintextTally.Selection>> contests = new HashMap<>();
+      decryptable.contests().forEach(contest -> contests.put(contest.object_id, new HashMap<>()));
+      selections.add(contests);
+    }
+    boolean[] failed = new boolean[decryptables.size()];
+    Iterator<SelectionTask> taskIter = tasks.iterator();
+    for (List<Optional<PlaintextTally.Selection>> chunk : decrypted) {
+      for (Optional<PlaintextTally.Selection> plaintext_selection : chunk) {
+        SelectionTask task = taskIter.next();
+        if (plaintext_selection.isEmpty()) {
+          logger.atWarning().log("could not decrypt tally for contest %s", task.contestId());
+          failed[task.owner()] = true;
+        } else {
+          selections.get(task.owner()).get(task.contestId()).put(task.selection().object_id(), plaintext_selection.get());
+        }
       }
-      plaintext_contests.put(ballotContest.contestId, plaintext_contest.get());
     }
 
-    return Optional.of(new PlaintextTally(ballot.object_id(), plaintext_contests));
+    List<Optional<PlaintextTally>> result = new ArrayList<>();
+    for (int owner = 0; owner < decryptables.size(); owner++) {
+      if (failed[owner]) {
+        result.add(Optional.empty());
+        continue;
+      }
+      Map<String, PlaintextTally.Contest> plaintext_contests = new HashMap<>();
+      selections.get(owner).forEach((contestId, contest_selections) ->
+              plaintext_contests.put(contestId, new PlaintextTally.Contest(contestId, contest_selections)));
+      result.add(Optional.of(new PlaintextTally(decryptables.get(owner).object_id(), plaintext_contests)));
+    }
+    return result;
+  }
+
+  /** Index the shares by selection: Map(SELECTION_ID, Map(AVAILABLE_GUARDIAN_ID, KeyAndSelection)). */
+  private static Map<String, Map<String, KeyAndSelection>> shares_by_selection(
+          Map<String, DecryptionShare> shares) { // Map(AVAILABLE_GUARDIAN_ID, DecryptionShare)
+
+    // same as calling DecryptionShare.get_tally_shares_for_selection for each selection, without rescanning the shares
+    Map<String, Map<String, KeyAndSelection>> result = new HashMap<>();
+    for (DecryptionShare share : shares.values()) {
+      for (DecryptionShare.CiphertextDecryptionContest contest : share.contests.values()) {
+        for (DecryptionShare.CiphertextDecryptionSelection selection : contest.selections().values()) {
+          result.computeIfAbsent(selection.selectionId(), k -> new HashMap<>())
+                  .put(share.guardian_id, new KeyAndSelection(share.public_key, selection));
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Small enough chunks to keep all the threads of the pool busy, large enough to amortize the inverse. */
+  static int chunk_size(int ntasks, @Nullable ForkJoinPool pool) {
+    if (pool == null) {
+      return CHUNK_SIZE;
+    }
+    int perThread = ntasks / (4 * pool.getParallelism());
+    return Math.max(MIN_CHUNK_SIZE, Math.min(CHUNK_SIZE, perThread));
+  }
+
+  /** Decrypt a chunk of selections, computing 𝑀 = 𝐵⁄(∏𝑀𝑖) mod 𝑝 with one modular inverse for the whole chunk. */
+  private static List<Optional<PlaintextTally.Selection>> decrypt_chunk(List<SelectionTask> chunk, ElementModQ extended_base_hash) {
+    int n = chunk.size();
+    boolean[] valid = new boolean[n];
+    BigInteger[] products = new BigInteger[n];
+    for (int i = 0; i < n; i++) {
+      SelectionTask task = chunk.get(i);
+      valid[i] = shares_are_valid(task.selection(), task.shares(), extended_base_hash);
+      // accumulate all of the shares calculated for the selection
+      products[i] = valid[i] ? Group.mult_pi(task.shares().values().stream()
+              .map(t -> t.decryption().share().getBigInt()).toArray(BigInteger[]::new)) : BigInteger.ONE;
+    }
+    BigInteger[] inverses = Group.mult_inv_pi(products);
+
+    List<Optional<PlaintextTally.Selection>> result = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      if (!valid[i]) {
+        result.add(Optional.empty());
+        continue;
+      }
+      SelectionTask task = chunk.get(i);
+      ElGamal.Ciphertext ciphertext = task.selection().ciphertext();
+      ElementModP decrypted_value = Group.int_to_p_unchecked(Group.mult_pi(ciphertext.data().getBigInt(), inverses[i]));
+      result.add(Optional.of(make_selection(task.selection(), task.shares(), decrypted_value)));
+    }
+    return result;
   }
 
   /**
@@ -181,15 +361,8 @@ public class DecryptWithShares {
           ElementModQ extended_base_hash,
           boolean suppress_validity_check) {
 
-    if (!suppress_validity_check) {
-      // Verify that all of the shares are computed correctly
-      for (KeyAndSelection tuple : shares.values()) {
-        // verify we have a proof or recovered parts
-        if (!tuple.decryption().is_valid(selection.ciphertext(), tuple.public_key(), extended_base_hash)) {
-          logger.atWarning().log("share: %s has invalid proof or recovered parts", tuple.decryption().selectionId());
-          return Optional.empty();
-        }
-      }
+    if (!suppress_validity_check && !shares_are_valid(selection, shares, extended_base_hash)) {
+      return Optional.empty();
     }
 
     // accumulate all of the shares calculated for the selection
@@ -199,17 +372,42 @@ public class DecryptWithShares {
 
     // Calculate 𝑀 = 𝐵⁄(∏𝑀𝑖) mod 𝑝.
     ElementModP decrypted_value = div_p(selection.ciphertext().data(), all_shares_product_M);
+    return Optional.of(make_selection(selection, shares, decrypted_value));
+  }
+
+  /** Verify that all of the shares are computed correctly. */
+  private static boolean shares_are_valid(
+          CiphertextSelection selection,
+          Map<String, KeyAndSelection> shares, // Map(AVAILABLE_GUARDIAN_ID, KeyAndSelection)
+          ElementModQ extended_base_hash) {
+
+    for (KeyAndSelection tuple : shares.values()) {
+      // verify we have a proof or recovered parts
+      if (!tuple.decryption().is_valid(selection.ciphertext(), tuple.public_key(), extended_base_hash)) {
+        logger.atWarning().log("share: %s has invalid proof or recovered parts", tuple.decryption().selectionId());
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Take the discrete log of the decrypted value 𝑀 and make the PlaintextTally.Selection. */
+  private static PlaintextTally.Selection make_selection(
+          CiphertextSelection selection,
+          Map<String, KeyAndSelection> shares, // Map(AVAILABLE_GUARDIAN_ID, KeyAndSelection)
+          ElementModP decrypted_value) {
+
     Integer dlogM = Dlog.discrete_log(decrypted_value);
 
     // [share for (guardian_id, (public_key, share))in shares.items()],
     List<DecryptionShare.CiphertextDecryptionSelection> selections =
             shares.values().stream().map(t -> t.decryption()).toList();
-    return Optional.of(new PlaintextTally.Selection(
+    return new PlaintextTally.Selection(
             selection.object_id(),
             dlogM,
             decrypted_value,
             selection.ciphertext(),
             selections
-    ));
+    );
   }
 }
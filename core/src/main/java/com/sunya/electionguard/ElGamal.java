@@ -155,12 +155,18 @@ public class ElGamal {
    */
   public static Ciphertext elgamal_add(Ciphertext... ciphertexts) {
     Preconditions.checkArgument(ciphertexts.length > 0, "Must have one or more ciphertexts for elgamal_add");
+    if (ciphertexts.length == 1) {
+      return ciphertexts[0];
+    }
 
-    Ciphertext result = ciphertexts[0];
+    // accumulate the products, only make one Ciphertext at the end
+    BigInteger pad = ciphertexts[0].pad.getBigInt();
+    BigInteger data = ciphertexts[0].data.getBigInt();
     for (int i = 1; i < ciphertexts.length; i++) {
       Ciphertext next = ciphertexts[i];
-      result = new Ciphertext(Group.mult_p(result.pad, next.pad), Group.mult_p(result.data, next.data));
+      pad = Group.mult_pi(pad, next.pad.getBigInt());
+      data = Group.mult_pi(data, next.data.getBigInt());
     }
-    return result;
+    return new Ciphertext(int_to_p_unchecked(pad), int_to_p_unchecked(data));
   }
 }
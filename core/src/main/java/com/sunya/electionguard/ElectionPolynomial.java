@@ -1,6 +1,8 @@
 package com.sunya.electionguard;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 
 import javax.annotation.Nullable;
@@ -160,20 +162,39 @@ public class ElectionPolynomial {
     return value_output.equals(commitment_output);
   }
 
+  /** g^P(coordinate) keyed by the guardian's commitments and the coordinate. */
+  private record GPcoordinateKey(ImmutableList<ElementModP> coefficient_commitments, BigInteger coordinate) {}
+
+  private static final int GP_CACHE_SIZE = 10_000;
+  private static final Cache<GPcoordinateKey, ElementModP> gPcoordinateCache =
+          CacheBuilder.newBuilder().maximumSize(GP_CACHE_SIZE).build();
+
   /**
-   * Compute g^P(coordinate).
+   * Compute g^P(coordinate) = Prod_j K_j^(coordinate^j), with the exponents reduced mod q.
+   * The same guardian's commitments are evaluated at the same coordinate for every backup verification and every
+   * recovery public key, so results are cached.
    *
    * @param coordinate              Polynomial coordinate.
-   * @param coefficient_commitments Commitments for coefficients of polynomial (K_ij)
+   * @param coefficient_commitments Commitments for coefficients of polynomial (K_ij), in the subgroup of order q.
    */
   public static ElementModP compute_gPcoordinate(BigInteger coordinate, List<ElementModP> coefficient_commitments) {
+    GPcoordinateKey key = new GPcoordinateKey(ImmutableList.copyOf(coefficient_commitments), coordinate);
+    ElementModP result = gPcoordinateCache.getIfPresent(key);
+    if (result == null) {
+      result = evaluate_gPcoordinate(coordinate, key.coefficient_commitments());
+      gPcoordinateCache.put(key, result);
+    }
+    return result;
+  }
+
+  private static ElementModP evaluate_gPcoordinate(BigInteger coordinate, List<ElementModP> coefficient_commitments) {
+    BigInteger q = Group.getPrimes().smallPrime;
+    BigInteger x = coordinate.mod(q);
     ElementModP result = Group.ONE_MOD_P;
-    int count = 0;
+    BigInteger exponent = BigInteger.ONE; // x^j mod q
     for (ElementModP commitment : coefficient_commitments) {
-      ElementModP exponent = Group.int_to_p_unchecked(Group.pow_pi(coordinate, BigInteger.valueOf(count)));
-      ElementModP factor = Group.pow_p(commitment, exponent);
-      result = Group.mult_p(result, factor);
-      count++;
+      result = Group.mult_p(result, Group.int_to_p_unchecked(Group.pow_pi(commitment.elem, exponent)));
+      exponent = exponent.multiply(x).mod(q);
     }
     return result;
   }
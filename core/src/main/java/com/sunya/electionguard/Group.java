@@ -291,6 +291,32 @@ public class Group {
     return int_to_p_unchecked(elem.elem.modInverse(primes.largePrime));
   }
 
+  /**
+   * Compute the multiplicative inverses mod p of all elements, using a single modInverse (Montgomery's trick).
+   * @param elems Zero or more nonzero elements in [1,P).
+   * @return the inverses, in the same order.
+   */
+  public static BigInteger[] mult_inv_pi(BigInteger[] elems) {
+    int n = elems.length;
+    BigInteger[] result = new BigInteger[n];
+    if (n == 0) {
+      return result;
+    }
+    // prefix[i] = elems[0] * ... * elems[i]
+    BigInteger[] prefix = new BigInteger[n];
+    prefix[0] = elems[0];
+    for (int i = 1; i < n; i++) {
+      prefix[i] = prefix[i - 1].multiply(elems[i]).mod(primes.largePrime);
+    }
+    BigInteger inverse = prefix[n - 1].modInverse(primes.largePrime);
+    for (int i = n - 1; i > 0; i--) {
+      result[i] = inverse.multiply(prefix[i - 1]).mod(primes.largePrime);
+      inverse = inverse.multiply(elems[i]).mod(primes.largePrime);
+    }
+    result[0] = inverse;
+    return result;
+  }
+
   // https://www.electionguard.vote/spec/0.95.0/9_Verifier_construction/#modular-exponentiation
   /** Compute b^e mod p. */
   static ElementModP pow_p(ElementModP b, ElementModP e) {
@@ -0,0 +1,70 @@
+package com.sunya.electionguard;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSortedSet;
+import com.sunya.electionguard.core.UInt256;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * The encrypted tally of one shard of the cast ballots, eg from one precinct or one accumulating process.
+ * Partial tallies over disjoint sets of ballots are merged with CiphertextTallyBuilder.merge().
+ */
+@Immutable
+public class PartialCiphertextTally {
+  /** Identifies the shard, eg the precinct or machine that did the accumulation. */
+  private final String shardId;
+  /** The accumulation over just the ballots in this shard. */
+  public final CiphertextTally tally;
+  /** The ids of the cast ballots included in the tally, sorted. */
+  public final ImmutableSortedSet<String> ballotIds;
+  /** Hash of the sorted ballot ids. */
+  public final UInt256 ballotIdsDigest;
+
+  public PartialCiphertextTally(String shardId, CiphertextTally tally, Collection<String> ballotIds) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(shardId));
+    this.shardId = shardId;
+    this.tally = Preconditions.checkNotNull(tally);
+    this.ballotIds = ImmutableSortedSet.copyOf(ballotIds);
+    this.ballotIdsDigest = ballotIdsDigest(this.ballotIds);
+  }
+
+  public String shardId() {
+    return shardId;
+  }
+
+  public int ballotCount() {
+    return ballotIds.size();
+  }
+
+  /** The digest of a collection of ballot ids, independent of their order. */
+  public static UInt256 ballotIdsDigest(Collection<String> ballotIds) {
+    return UInt256.fromModQ(Hash.hash_elems(ImmutableSortedSet.copyOf(ballotIds).asList()));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    PartialCiphertextTally that = (PartialCiphertextTally) o;
+    return shardId.equals(that.shardId) && tally.equals(that.tally) && ballotIds.equals(that.ballotIds);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(shardId, tally, ballotIds);
+  }
+
+  @Override
+  public String toString() {
+    return "PartialCiphertextTally{" +
+            "shardId='" + shardId + '\'' +
+            ", tally=" + tally.object_id() +
+            ", ballotCount=" + ballotIds.size() +
+            ", ballotIdsDigest=" + ballotIdsDigest +
+            '}';
+  }
+}
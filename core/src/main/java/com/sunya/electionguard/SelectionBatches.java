@@ -0,0 +1,120 @@
+package com.sunya.electionguard;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * Flattens the selections of all the contests of a tally or of a collection of ballots into one list,
+ * and processes them in adaptively sized batches in a work-stealing pool, with no barrier between contests.
+ */
+public class SelectionBatches {
+  /** Split until a batch has at most this many tasks per thread of the pool. */
+  private static final int BATCHES_PER_THREAD = 4;
+
+  /**
+   * One selection to process.
+   * @param owner index of the tally or ballot in the list passed to flatten().
+   */
+  public record Item(int owner, CiphertextContest contest, CiphertextSelection selection) {}
+
+  /** Flatten the selections of each owner's contests, in order. */
+  public static List<Item> flatten(List<? extends Iterable<CiphertextContest>> owners) {
+    List<Item> result = new ArrayList<>();
+    for (int owner = 0; owner < owners.size(); owner++) {
+      for (CiphertextContest contest : owners.get(owner)) {
+        for (CiphertextSelection selection : contest.selections) {
+          result.add(new Item(owner, contest, selection));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Group the results of the flattened items by owner and contest.
+   * @param nowners the number of owners passed to flatten().
+   * @param items the flattened items.
+   * @param results the result for each item, in the same order.
+   * @return for each owner, Map(CONTEST_ID, Map(SELECTION_ID, result)), or empty if any of its results are empty.
+   */
+  public static <R> List<Optional<Map<String, Map<String, R>>>> group(
+          int nowners, List<Item> items, List<Optional<R>> results) {
+
+    List<Map<String, Map<String, R>>> grouped = new ArrayList<>(nowners);
+    for (int owner = 0; owner < nowners; owner++) {
+      grouped.add(new HashMap<>());
+    }
+    boolean[] failed = new boolean[nowners];
+    for (int i = 0; i < items.size(); i++) {
+      Item item = items.get(i);
+      Map<String, R> contest = grouped.get(item.owner()).computeIfAbsent(item.contest().object_id, k -> new HashMap<>());
+      Optional<R> result = results.get(i);
+      if (result.isEmpty()) {
+        failed[item.owner()] = true;
+      } else {
+        contest.put(item.selection().object_id(), result.get());
+      }
+    }
+
+    List<Optional<Map<String, Map<String, R>>>> answer = new ArrayList<>(nowners);
+    for (int owner = 0; owner < nowners; owner++) {
+      answer.add(failed[owner] ? Optional.empty() : Optional.of(grouped.get(owner)));
+    }
+    return answer;
+  }
+
+  /**
+   * Compute each of the n results, in parallel in the pool if not null, else sequentially in the calling thread.
+   * The index range is split recursively until the batches are small enough to keep all the threads busy;
+   * idle threads steal the remaining batches. Results are in index order.
+   */
+  public static <T> List<T> process(@Nullable ForkJoinPool pool, int n, IntFunction<T> task) {
+    Object[] results = new Object[n];
+    if (pool == null || n < 2) {
+      for (int i = 0; i < n; i++) {
+        results[i] = task.apply(i);
+      }
+    } else {
+      int threshold = Math.max(1, n / (BATCHES_PER_THREAD * pool.getParallelism()));
+      pool.invoke(new BatchAction(task, results, 0, n, threshold));
+    }
+    @SuppressWarnings("unchecked")
+    List<T> list = (List<T>) Arrays.asList(results);
+    return list;
+  }
+
+  private static class BatchAction extends RecursiveAction {
+    private final IntFunction<?> task;
+    private final Object[] results;
+    private final int start, end, threshold;
+
+    BatchAction(IntFunction<?> task, Object[] results, int start, int end, int threshold) {
+      this.task = task;
+      this.results = results;
+      this.start = start;
+      this.end = end;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= threshold) {
+        for (int i = start; i < end; i++) {
+          results[i] = task.apply(i);
+        }
+        return;
+      }
+      int mid = (start + end) >>> 1;
+      invokeAll(new BatchAction(task, results, start, mid, threshold),
+              new BatchAction(task, results, mid, end, threshold));
+    }
+  }
+}
@@ -0,0 +1,273 @@
+package com.sunya.electionguard;
+
+import com.google.common.base.Preconditions;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs the parallel work of the tally and decryption.
+ * CPU-bound work runs in a work-stealing ForkJoinPool; Callable tasks, eg remote calls, run in a
+ * separate executor, which may use virtual threads. All threads are daemons, so there is nothing to shut down
+ * unless the process wants to release the threads early with close().
+ * <p>
+ * Pass an instance to the classes that do parallel work; getDefault() is used when none is given.
+ */
+public class TaskExecutor implements AutoCloseable {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static TaskExecutor defaultExecutor;
+
+  /** The shared default, with parallelism = number of available processors. */
+  public static synchronized TaskExecutor getDefault() {
+    if (defaultExecutor == null) {
+      defaultExecutor = builder().setName("TaskExecutor").build();
+    }
+    return defaultExecutor;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final String name;
+  private final int parallelism;
+  private final boolean virtualThreads;
+  private final ForkJoinPool pool;
+  private final ListeningExecutorService executor;
+
+  // metrics
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong totalLatencyNanos = new AtomicLong();
+  private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+  private TaskExecutor(Builder builder) {
+    this.name = builder.name;
+    this.parallelism = builder.parallelism;
+    this.pool = new ForkJoinPool(parallelism, forkJoinThreadFactory(name), null, false);
+    ExecutorService virtual = builder.virtualThreads ? newVirtualThreadExecutor() : null;
+    this.virtualThreads = virtual != null;
+    this.executor = MoreExecutors.listeningDecorator(virtual != null ? virtual :
+            Executors.newFixedThreadPool(parallelism,
+                    new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build()));
+  }
+
+  /** The work-stealing pool for CPU-bound work. */
+  public ForkJoinPool pool() {
+    return pool;
+  }
+
+  /** The executor for Callable tasks. Tasks submitted directly are not counted in the metrics. */
+  public ListeningExecutorService executor() {
+    return executor;
+  }
+
+  public int parallelism() {
+    return parallelism;
+  }
+
+  public boolean usesVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * Compute task(i) for i in [0, n) in adaptively sized batches in the pool. Results are in index order.
+   * @see SelectionBatches#process
+   */
+  public <T> List<T> process(int n, IntFunction<T> task) {
+    queued.addAndGet(n);
+    long submitted = System.nanoTime();
+    return SelectionBatches.process(this.pool, n, i -> {
+      queued.decrementAndGet();
+      return measureUnchecked(submitted, () -> task.apply(i));
+    });
+  }
+
+  /**
+   * Submit the tasks to the executor. Cancelling the returned future cancels the tasks that have not finished.
+   * @return a future for the results, in the same order as the tasks.
+   */
+  public <T> ListenableFuture<List<T>> submitAll(List<? extends Callable<T>> tasks) {
+    List<ListenableFuture<T>> futures = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      queued.incrementAndGet();
+      long submitted = System.nanoTime();
+      futures.add(executor.submit(() -> {
+        queued.decrementAndGet();
+        return measure(submitted, task);
+      }));
+    }
+    return Futures.allAsList(futures);
+  }
+
+  /** Run the tasks in the executor and wait for all of them. Results are in the same order as the tasks. */
+  public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+    return invokeAll(tasks, null);
+  }
+
+  /**
+   * Run the tasks in the executor and wait for all of them, at most timeout.
+   * If the timeout expires or a task fails, the unfinished tasks are cancelled.
+   *
+   * @param timeout wait at most this long, or if null, wait indefinitely.
+   * @return the results, in the same order as the tasks.
+   * @throws RuntimeException if a task fails, the timeout expires, or the calling thread is interrupted.
+   */
+  public <T> List<T> invokeAll(List<? extends Callable<T>> tasks, @Nullable Duration timeout) {
+    ListenableFuture<List<T>> results = submitAll(tasks);
+    try {
+      return (timeout == null) ? results.get() : results.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      results.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (TimeoutException e) {
+      results.cancel(true);
+      throw new RuntimeException(String.format("%s tasks did not finish in %s", name, timeout), e);
+    } catch (ExecutionException e) {
+      results.cancel(true);
+      logger.atWarning().withCause(e.getCause()).log("%s task failed", name);
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private <T> T measure(long submitted, Callable<T> task) throws Exception {
+    running.incrementAndGet();
+    try {
+      T result = task.call();
+      completed.incrementAndGet();
+      return result;
+    } catch (Throwable t) {
+      failed.incrementAndGet();
+      throw t;
+    } finally {
+      running.decrementAndGet();
+      long latency = System.nanoTime() - submitted;
+      totalLatencyNanos.addAndGet(latency);
+      maxLatencyNanos.accumulate(latency);
+    }
+  }
+
+  private <T> T measureUnchecked(long submitted, Supplier<T> task) {
+    try {
+      return measure(submitted, (Callable<T>) task::get);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * A snapshot of the metrics.
+   * @param queued tasks submitted but not yet started.
+   * @param running tasks started but not yet finished.
+   * @param completed tasks that finished normally.
+   * @param failed tasks that threw an exception.
+   * @param meanLatency mean time from submission to finish.
+   * @param maxLatency longest time from submission to finish.
+   */
+  public record Metrics(int queued, int running, long completed, long failed, Duration meanLatency, Duration maxLatency) {
+    @Override
+    public String toString() {
+      return String.format("queued=%d running=%d completed=%d failed=%d meanLatency=%s maxLatency=%s",
+              queued, running, completed, failed, meanLatency, maxLatency);
+    }
+  }
+
+  public Metrics metrics() {
+    long finished = completed.get() + failed.get();
+    long mean = finished == 0 ? 0 : totalLatencyNanos.get() / finished;
+    return new Metrics(queued.get(), running.get(), completed.get(), failed.get(),
+            Duration.ofNanos(mean), Duration.ofNanos(maxLatencyNanos.get()));
+  }
+
+  /** Release the threads. Running tasks are interrupted. */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TaskExecutor{%s parallelism=%d virtualThreads=%s %s}", name, parallelism, virtualThreads, metrics());
+  }
+
+  private static ForkJoinPool.ForkJoinWorkerThreadFactory forkJoinThreadFactory(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName(name + "-fj-" + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /** Virtual threads need Java 21; returns null if they are not available in this JVM. */
+  @Nullable
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      logger.atWarning().log("virtual threads are not available in Java %s, using platform threads",
+              System.getProperty("java.version"));
+      return null;
+    }
+  }
+
+  public static class Builder {
+    private String name = "TaskExecutor";
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean virtualThreads = false;
+
+    /** Prefix of the thread names. */
+    public Builder setName(String name) {
+      this.name = Preconditions.checkNotNull(name);
+      return this;
+    }
+
+    /** Number of threads, default is the number of available processors. */
+    public Builder setParallelism(int parallelism) {
+      Preconditions.checkArgument(parallelism > 0);
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /** Run the Callable tasks in virtual threads, for I/O bound work like remote calls. Needs Java 21. */
+    public Builder setVirtualThreads(boolean virtualThreads) {
+      this.virtualThreads = virtualThreads;
+      return this;
+    }
+
+    public TaskExecutor build() {
+      return new TaskExecutor(this);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.sunya.electionguard.decrypting;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Sends requests on a bidirectional gRpc stream, only as fast as the server accepts them,
+ * and collects the responses in the order they arrive.
+ */
+class ChunkedStreamCall<ReqT, RespT> implements ClientResponseObserver<ReqT, RespT> {
+
+  /**
+   * Start the call.
+   * @param chunks the requests, created lazily as the stream is ready for them.
+   * @param call eg asyncStub::partialDecryptStream
+   * @return the responses, completed when the server closes the stream.
+   */
+  static <ReqT, RespT> ListenableFuture<List<RespT>> start(
+          Iterator<ReqT> chunks,
+          Function<StreamObserver<RespT>, StreamObserver<ReqT>> call) {
+    ChunkedStreamCall<ReqT, RespT> streamCall = new ChunkedStreamCall<>(chunks);
+    call.apply(streamCall);
+    return streamCall.result;
+  }
+
+  private final Iterator<ReqT> chunks;
+  private final List<RespT> responses = new ArrayList<>();
+  private final SettableFuture<List<RespT>> result = SettableFuture.create();
+  private ClientCallStreamObserver<ReqT> requestStream;
+  private boolean sentAll;
+
+  private ChunkedStreamCall(Iterator<ReqT> chunks) {
+    this.chunks = chunks;
+  }
+
+  @Override
+  public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+    this.requestStream = requestStream;
+    requestStream.setOnReadyHandler(this::sendWhileReady);
+    result.addListener(() -> {
+      if (result.isCancelled()) {
+        requestStream.cancel("cancelled by client", null);
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  // Called by gRpc when the stream starts, and whenever it can take more messages.
+  private synchronized void sendWhileReady() {
+    if (sentAll) {
+      return;
+    }
+    try {
+      while (requestStream.isReady() && chunks.hasNext()) {
+        requestStream.onNext(chunks.next());
+      }
+      if (!chunks.hasNext()) {
+        sentAll = true;
+        requestStream.onCompleted();
+      }
+    } catch (RuntimeException e) {
+      sentAll = true;
+      requestStream.cancel("failed to make request", e);
+      result.setException(e);
+    }
+  }
+
+  @Override
+  public synchronized void onNext(RespT value) {
+    responses.add(value);
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    result.setException(t);
+  }
+
+  @Override
+  public synchronized void onCompleted() {
+    result.set(responses);
+  }
+}
@@ -1,8 +1,13 @@
 package com.sunya.electionguard.decrypting;
 
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sunya.electionguard.AvailableGuardian;
 import com.sunya.electionguard.CiphertextTally;
 import com.sunya.electionguard.DecryptWithShares;
@@ -11,20 +16,33 @@ import com.sunya.electionguard.ElectionPolynomial;
 import com.sunya.electionguard.Group;
 import com.sunya.electionguard.PlaintextTally;
 import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.TaskExecutor;
+import com.sunya.electionguard.publish.CloseableIterable;
+import com.sunya.electionguard.publish.CloseableIterator;
 import com.sunya.electionguard.publish.ElectionRecord;
 
 import javax.annotation.Nullable;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 /**
  * Orchestrates the decryption of encrypted Tallies and Ballots with remote Guardians. Mutable.
  * Replaces DecryptionMediator in the main library.
+ * <p>
+ * The shares, including the compensated shares for missing guardians, are requested from all the available
+ * guardians concurrently, so the time to decrypt is about the time of the slowest guardian.
  */
 public class DecryptingMediator {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
@@ -49,6 +67,12 @@ public class DecryptingMediator {
   // Map<ALL_GUARDIAN_ID, Map<BALLOT_ID, DecryptionShare>>
   private final Map<String, Map<String, DecryptionShare>> ballot_shares = new HashMap<>();
 
+  private final Executor executor;
+  private final Progress progress;
+
+  /** The number of spoiled ballots that decrypt_spoiled_ballots() decrypts at a time. */
+  public static final int DEFAULT_SPOILED_BATCH_SIZE = 100;
+
   // Map(AVAILABLE_GUARDIAN_ID, ElementModQ)
   private Map<String, Group.ElementModQ> lagrange_coefficients;
   private List<AvailableGuardian> guardianStates;
@@ -57,6 +81,29 @@ public class DecryptingMediator {
                             CiphertextTally encryptedTally,
                             Iterable<SubmittedBallot> spoiled_ballots,
                             Map<String, Group.ElementModP> guardianPublicKeys) {
+    this(electionRecord, encryptedTally, spoiled_ballots, guardianPublicKeys, TaskExecutor.getDefault().executor(), Progress.LOG);
+  }
+
+  public DecryptingMediator(ElectionRecord electionRecord,
+                            CiphertextTally encryptedTally,
+                            Iterable<SubmittedBallot> spoiled_ballots,
+                            Map<String, Group.ElementModP> guardianPublicKeys,
+                            Progress progress) {
+    this(electionRecord, encryptedTally, spoiled_ballots, guardianPublicKeys, TaskExecutor.getDefault().executor(), progress);
+  }
+
+  /**
+   * @param executor runs the requests to the trustees, and validates their proofs. Owned by the caller.
+   *   The other constructors use the shared TaskExecutor.getDefault().executor(), which is bounded and never needs
+   *   to be shut down.
+   * @param progress notified as each trustee's share completes.
+   */
+  public DecryptingMediator(ElectionRecord electionRecord,
+                            CiphertextTally encryptedTally,
+                            Iterable<SubmittedBallot> spoiled_ballots,
+                            Map<String, Group.ElementModP> guardianPublicKeys,
+                            Executor executor,
+                            Progress progress) {
     Preconditions.checkNotNull(electionRecord);
     Preconditions.checkNotNull(encryptedTally);
     Preconditions.checkNotNull(spoiled_ballots);
@@ -67,10 +114,20 @@ public class DecryptingMediator {
     this.ciphertext_tally = encryptedTally;
     this.ciphertext_ballots = spoiled_ballots;
     this.guardianPublicKeys = guardianPublicKeys;
+    this.executor = Preconditions.checkNotNull(executor);
+    this.progress = Preconditions.checkNotNull(progress);
 
     this.missingGuardians = new HashSet<>(guardianPublicKeys.keySet());
   }
 
+  /** Notified as each trustee's share completes. Called from the executor's threads. */
+  public interface Progress {
+    Progress LOG = (trusteeId, what, elapsed) ->
+            logger.atInfo().log("trustee %s finished %s in %s", trusteeId, what, elapsed);
+
+    void completed(String trusteeId, String what, Duration elapsed);
+  }
+
   @Nullable
   public List<AvailableGuardian> getAvailableGuardians() {
     return this.guardianStates;
@@ -78,7 +135,8 @@ public class DecryptingMediator {
 
   /**
    * Announce that a Guardian is present and participating in the decryption.
-   * A Decryption Share will be generated for the Guardian.
+   * The Decryption Shares are requested from all the announced Guardians at the same time,
+   * when the tally or spoiled ballots are decrypted.
    * <p>
    * @param guardian: The guardian who will participate in the decryption.
    * @return true on "success".
@@ -89,26 +147,16 @@ public class DecryptingMediator {
       logger.atInfo().log("guardian %s already announced", guardian.id());
       return false;
     }
-
-    // LOOK Compute the Decryption Share for the guardian, right now. Should be a separate step??
-    DecryptionShare tally_share =
-            RemoteDecryptions.computeDecryptionShareForTally(guardian, this.ciphertext_tally, this.electionRecord);
-    this.tally_shares.put(guardian.id(), tally_share);
-
-    // LOOK Compute the spoiled ballot decryption shares. Should be a separate step??
-    Optional<Map<String, DecryptionShare>> ballot_shares =
-            RemoteDecryptions.computeDecryptionShareForBallots(guardian, this.ciphertext_ballots, this.electionRecord);
-    if (ballot_shares.isEmpty()) {
-      logger.atWarning().log("announce could not generate spoiled ballot decryption share for %s", guardian.id());
+    if (this.lagrange_coefficients != null) {
+      logger.atWarning().log("guardian %s announced after decryption started", guardian.id());
       return false;
     }
-    this.ballot_shares.put(guardian.id(), ballot_shares.get());
 
-    // Mark guardian in attendance and check their keys
+    // Mark guardian in attendance
     this.available_guardians.put(guardian.id(), guardian);
     this.missingGuardians.remove(guardian.id());
 
-    return true; // this.validate_missing_guardian_keys(guardian);
+    return true;
   }
 
   // Decrypt the tally.
@@ -122,110 +170,130 @@ public class DecryptingMediator {
     }
     compute_lagrange_coefficients();
 
-    // If all Guardians are present decrypt the tally
-    if (this.available_guardians.size() == this.electionRecord.numberOfGuardians()) {
-      return DecryptWithShares.decrypt_tally(
-              this.ciphertext_tally,
-              this.tally_shares,
-              this.electionRecord);
+    // The shares of the available guardians, and the compensated shares of the missing guardians
+    if (!this.compute_tally_shares()) {
+      return Optional.empty();
     }
-
-    // If guardians are missing, compensate
-    this.compute_missing_shares_for_tally();
     if (this.tally_shares.size() != this.electionRecord.numberOfGuardians()) {
       logger.atWarning().log("get plaintext tally failed with share length mismatch");
       return Optional.empty();
     }
 
-    // The tally_shares have been augmented with missing guardians. Can now decrypt.
     return DecryptWithShares.decrypt_tally(
             this.ciphertext_tally,
             this.tally_shares,
             this.electionRecord);
   }
 
-  private void compute_missing_shares_for_tally() {
-    Map<String, DecryptionShare> missing_tally_shares = new HashMap<>(); // Map(MISSING_GUARDIAN_ID, DecryptionShare)
+  /**
+   * Request all the tally shares that we dont already have, from all the available guardians at once.
+   * Each available guardian gets one request for its own share, and one for all the missing guardians.
+   * Then reconstruct the shares of the missing guardians.
+   */
+  private boolean compute_tally_shares() {
+    List<String> missing = missing_guardians_needed(this.tally_shares.keySet());
+    if (missing == null) {
+      return false;
+    }
 
-    for (String missing_guardian_id : this.missingGuardians) {
-      Group.ElementModP missing_public_key = this.guardianPublicKeys.get(missing_guardian_id);
-      if (missing_public_key == null) {
-        logger.atWarning().log("compute_missing_shares_for_tally has no public key for missing_guardian %s", missing_guardian_id);
-        return;
+    // Map(AVAILABLE_GUARDIAN_ID, DecryptionShare)
+    Map<String, ListenableFuture<DecryptionShare>> direct = new HashMap<>();
+    // Map(AVAILABLE_GUARDIAN_ID, Map(MISSING_GUARDIAN_ID, CompensatedDecryptionShare))
+    Map<String, ListenableFuture<Map<String, DecryptionShare.CompensatedDecryptionShare>>> compensated = new HashMap<>();
+
+    for (DecryptingTrusteeIF available_guardian : this.available_guardians.values()) {
+      if (!this.tally_shares.containsKey(available_guardian.id())) {
+        direct.put(available_guardian.id(), track(available_guardian.id(), "tally share",
+                RemoteDecryptions.computeDecryptionShareForTallyAsync(
+                        available_guardian, this.ciphertext_tally, this.electionRecord, this.executor)));
       }
-      if (this.tally_shares.containsKey(missing_guardian_id)) {
-        continue;
+      if (!missing.isEmpty()) {
+        compensated.put(available_guardian.id(), track(available_guardian.id(), "tally shares compensating for " + missing,
+                RemoteDecryptions.computeCompensatedDecryptionSharesForTallyAsync(
+                        available_guardian, missing, this.ciphertext_tally, this.electionRecord, this.executor)));
       }
+    }
 
-      Optional<Map<String, DecryptionShare.CompensatedDecryptionShare>> compensated_shares =
-              this.get_compensated_shares_for_tally(missing_guardian_id);
-      if (compensated_shares.isEmpty()) {
-        logger.atWarning().log("compute_missing_shares_for_tally failed compensating for %s", missing_guardian_id);
-        return;
+    try {
+      for (Map.Entry<String, ListenableFuture<DecryptionShare>> entry : direct.entrySet()) {
+        this.tally_shares.put(entry.getKey(), entry.getValue().get());
       }
 
-      DecryptionShare missing_decryption_share = RemoteDecryptions.reconstruct_decryption_share_for_tally(
-              missing_guardian_id,
-              missing_public_key,
-              this.ciphertext_tally,
-              compensated_shares.get(),
-              this.lagrange_coefficients);
-      missing_tally_shares.put(missing_guardian_id, missing_decryption_share);
-    }
+      Map<String, Map<String, DecryptionShare.CompensatedDecryptionShare>> byGuardian = new HashMap<>();
+      for (Map.Entry<String, ListenableFuture<Map<String, DecryptionShare.CompensatedDecryptionShare>>> entry : compensated.entrySet()) {
+        byGuardian.put(entry.getKey(), entry.getValue().get());
+      }
 
-    if (missing_tally_shares.isEmpty()) {
-      logger.atWarning().log("get plaintext tally failed: missing_tally_shares is empty");
-      return;
+      // reconstruct the missing guardians' shares in parallel
+      Map<String, ListenableFuture<DecryptionShare>> reconstructed = new HashMap<>();
+      for (String missing_guardian_id : missing) {
+        // Map(AVAILABLE_GUARDIAN_ID, CompensatedDecryptionShare)
+        Map<String, DecryptionShare.CompensatedDecryptionShare> compensated_shares = new HashMap<>();
+        byGuardian.forEach((available_guardian_id, shares) -> compensated_shares.put(available_guardian_id, shares.get(missing_guardian_id)));
+        reconstructed.put(missing_guardian_id, Futures.submit(() ->
+                RemoteDecryptions.reconstruct_decryption_share_for_tally(
+                        missing_guardian_id,
+                        this.guardianPublicKeys.get(missing_guardian_id),
+                        this.ciphertext_tally,
+                        compensated_shares,
+                        this.lagrange_coefficients), this.executor));
+      }
+      for (Map.Entry<String, ListenableFuture<DecryptionShare>> entry : reconstructed.entrySet()) {
+        this.tally_shares.put(entry.getKey(), entry.getValue().get());
+      }
+      return true;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.atWarning().log("compute_tally_shares interrupted");
+    } catch (ExecutionException e) {
+      logger.atWarning().withCause(e.getCause()).log("compute_tally_shares failed");
     }
+    cancel(direct.values());
+    cancel(compensated.values());
+    return false;
+  }
 
-    // Add the newly calculated shares
-    this.tally_shares.putAll(missing_tally_shares);
+  /** The missing guardians whose shares are not in have, or null if one of them has no public key. */
+  @Nullable
+  private List<String> missing_guardians_needed(Set<String> have) {
+    List<String> result = new ArrayList<>();
+    for (String missing_guardian_id : this.missingGuardians) {
+      if (have.contains(missing_guardian_id)) {
+        continue;
+      }
+      if (!this.guardianPublicKeys.containsKey(missing_guardian_id)) {
+        logger.atWarning().log("no public key for missing_guardian %s", missing_guardian_id);
+        return null;
+      }
+      result.add(missing_guardian_id);
+    }
+    return result;
   }
 
   /**
-   * Compensate for a missing guardian by reconstructing the share using the available guardians.
-   * <p>
-   * @param missing_guardian_id: the guardian that failed to `announce`.
-   * @return a collection of `CompensatedTallyDecryptionShare` generated from all available guardians
-   * These are also stored in this.compensated_decryption_shares.
+   * Decrypt all the spoiled ballots, DEFAULT_SPOILED_BATCH_SIZE at a time, so only the shares of one batch are held
+   * in memory. The decrypted ballots are all returned at once; to write them as they are decrypted,
+   * use decrypt_spoiled_ballots(batchSize).
    */
-  @VisibleForTesting
-  Optional<Map<String, DecryptionShare.CompensatedDecryptionShare>> get_compensated_shares_for_tally(
-          String missing_guardian_id) {
-
-    Map<String, DecryptionShare.CompensatedDecryptionShare> compensated_decryptions = new HashMap<>();
-    // Loop through each of the available guardians and calculate decryption shares for the missing guardian
-    for (DecryptingTrusteeIF available_guardian : this.available_guardians.values()) {
-      DecryptionShare.CompensatedDecryptionShare tally_share = RemoteDecryptions.computeCompensatedDecryptionShareForTally(
-              available_guardian,
-              missing_guardian_id,
-              this.ciphertext_tally,
-              this.electionRecord);
-        compensated_decryptions.put(available_guardian.id(), tally_share);
-    }
-
-    // Verify that we generated the correct number of partials
-    if (compensated_decryptions.size() != this.available_guardians.size()) {
-      logger.atWarning().log("compensate mismatch partial decryptions for missing guardian %s", missing_guardian_id);
+  public Optional<List<PlaintextTally>> decrypt_spoiled_ballots() {
+    if (!has_quorum()) {
       return Optional.empty();
-    } else {
-      return Optional.of(compensated_decryptions);
     }
-  }
-
-  /** You must call get_plaintext_tally() first. */
-  public Optional<List<PlaintextTally>> decrypt_spoiled_ballots() {
-    if (!compute_ballot_shares()){
+    List<PlaintextTally> result = new ArrayList<>();
+    try (CloseableIterator<PlaintextTally> decrypted = decrypt_spoiled_ballots(DEFAULT_SPOILED_BATCH_SIZE).iterator()) {
+      decrypted.forEachRemaining(result::add);
+    } catch (IllegalStateException e) {
+      logger.atWarning().withCause(e).log("decrypt_spoiled_ballots failed");
       return Optional.empty();
     }
-
-    // LOOK must augment this.ballot_shares with missing guardians
-    return Optional.of(DecryptWithShares.decrypt_spoiled_ballots(this.ciphertext_ballots, this.ballot_shares, this.electionRecord));
+    return Optional.of(result);
   }
 
   /**
    * Get the plaintext spoiled ballots for the election by composing each Guardian's
    * decrypted representation of each selection into a decrypted representation.
+   * Holds the shares of all the spoiled ballots in memory.
    * @return Map(BALLOT_ID, PlaintextTally)
    */
   public Optional<Map<String, PlaintextTally>> get_plaintext_ballots() {
@@ -239,31 +307,155 @@ public class DecryptingMediator {
             this.electionRecord);
   }
 
+  /**
+   * Decrypt the spoiled ballots one batch at a time, as the returned Iterable is iterated,
+   * eg by Publisher.writeSpoiledBallots(). The shares for a batch are requested from all the guardians at once,
+   * and dropped once the batch is decrypted, so memory use is bounded by the batch size, not the number of ballots.
+   * Throws IllegalStateException during iteration if a batch cannot be decrypted.
+   * The spoiled ballots are read until the iterator reaches the end, fails, or is closed.
+   */
+  public CloseableIterable<PlaintextTally> decrypt_spoiled_ballots(int batchSize) {
+    Preconditions.checkArgument(batchSize > 0);
+    return () -> new SpoiledBatchIterator(batchSize);
+  }
+
+  private class SpoiledBatchIterator extends AbstractIterator<PlaintextTally> implements CloseableIterator<PlaintextTally> {
+    final Iterator<SubmittedBallot> ballots = ciphertext_ballots.iterator();
+    final Iterator<List<SubmittedBallot>> batches;
+    Iterator<PlaintextTally> current = Collections.emptyIterator();
+
+    SpoiledBatchIterator(int batchSize) {
+      this.batches = Iterators.partition(ballots, batchSize);
+    }
+
+    @Override
+    protected PlaintextTally computeNext() {
+      try {
+        while (!current.hasNext()) {
+          if (!batches.hasNext()) {
+            close();
+            return endOfData();
+          }
+          current = decrypt_spoiled_batch(batches.next()).iterator();
+        }
+        return current.next();
+      } catch (RuntimeException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @Override
+    public void close() {
+      if (ballots instanceof CloseableIterator<SubmittedBallot> closeable) {
+        closeable.close();
+      }
+    }
+  }
+
+  private List<PlaintextTally> decrypt_spoiled_batch(List<SubmittedBallot> batch) {
+    // Map(ALL_GUARDIAN_ID, Map(BALLOT_ID, DecryptionShare)) for just this batch
+    Map<String, Map<String, DecryptionShare>> batch_shares = new HashMap<>();
+    if (!has_quorum() || !compute_ballot_shares(batch, batch_shares)) {
+      throw new IllegalStateException(String.format("failed to decrypt spoiled ballots %s to %s",
+              batch.get(0).object_id(), batch.get(batch.size() - 1).object_id()));
+    }
+    List<PlaintextTally> result = DecryptWithShares.decrypt_spoiled_ballots(batch, batch_shares, this.electionRecord);
+    if (result.size() != batch.size()) {
+      throw new IllegalStateException(String.format("failed to decrypt %d of %d spoiled ballots",
+              batch.size() - result.size(), batch.size()));
+    }
+    return result;
+  }
+
   private boolean compute_ballot_shares() {
+    return has_quorum() && compute_ballot_shares(this.ciphertext_ballots, this.ballot_shares);
+  }
+
+  private boolean has_quorum() {
     // Make sure a Quorum of Guardians have announced
     if (this.available_guardians.size() < this.electionRecord.quorum()) {
       logger.atWarning().log("cannot decrypt with less than quorum available guardians");
       return false;
     }
+    compute_lagrange_coefficients();
+    return true;
+  }
 
-    // If guardians are missing, for each ballot compute compensated ballot_shares, add to this.ballot_shares
-    if (this.available_guardians.size() < this.electionRecord.numberOfGuardians()) {
-      for (SubmittedBallot ballot : this.ciphertext_ballots) { // LOOK running through ballots
-        if (this.count_ballot_shares(ballot.object_id()) < this.electionRecord.numberOfGuardians()) {
-          this.compute_missing_shares_for_ballot(ballot);
-        }
-        if (this.count_ballot_shares(ballot.object_id()) != this.electionRecord.numberOfGuardians()) {
-          logger.atWarning().log("decrypt_spoiled_ballots failed with share length mismatch");
-          return false;
-        }
+  /**
+   * Request the ballot shares that are not already in ballot_shares from all the available guardians at once.
+   * Each guardian works through the ballots in order, one request per ballot: the direct shares one at a time, and the
+   * compensated shares with at most RemoteDecryptions.MAX_BALLOTS_IN_FLIGHT requests outstanding.
+   * Then reconstruct the shares of the missing guardians, and add them to ballot_shares.
+   */
+  private boolean compute_ballot_shares(
+          Iterable<SubmittedBallot> ballots,
+          Map<String, Map<String, DecryptionShare>> ballot_shares) { // Map(ALL_GUARDIAN_ID, Map(BALLOT_ID, DecryptionShare))
+
+    List<String> missing = missing_guardians_needed(ballot_shares.keySet());
+    if (missing == null) {
+      return false;
+    }
+
+    // Map(AVAILABLE_GUARDIAN_ID, Map(BALLOT_ID, DecryptionShare))
+    Map<String, ListenableFuture<Map<String, DecryptionShare>>> direct = new HashMap<>();
+    // Map(AVAILABLE_GUARDIAN_ID, Map(MISSING_GUARDIAN_ID, Map(BALLOT_ID, CompensatedDecryptionShare)))
+    Map<String, ListenableFuture<Map<String, Map<String, DecryptionShare.CompensatedDecryptionShare>>>> compensated = new HashMap<>();
+
+    for (DecryptingTrusteeIF available_guardian : this.available_guardians.values()) {
+      if (!ballot_shares.containsKey(available_guardian.id())) {
+        direct.put(available_guardian.id(), track(available_guardian.id(), "spoiled ballot shares",
+                Futures.submit(() -> RemoteDecryptions.computeDecryptionShareForBallots(
+                        available_guardian, ballots, this.electionRecord).orElseThrow(), this.executor)));
+      }
+      if (!missing.isEmpty()) {
+        compensated.put(available_guardian.id(), track(available_guardian.id(), "spoiled ballot shares compensating for " + missing,
+                Futures.submit(() -> RemoteDecryptions.computeCompensatedDecryptionSharesForBallots(
+                        available_guardian, missing, ballots, this.electionRecord), this.executor)));
+      }
+    }
+
+    try {
+      for (Map.Entry<String, ListenableFuture<Map<String, DecryptionShare>>> entry : direct.entrySet()) {
+        ballot_shares.put(entry.getKey(), entry.getValue().get());
+      }
+
+      Map<String, Map<String, Map<String, DecryptionShare.CompensatedDecryptionShare>>> byAvailable = new HashMap<>();
+      for (Map.Entry<String, ListenableFuture<Map<String, Map<String, DecryptionShare.CompensatedDecryptionShare>>>> entry : compensated.entrySet()) {
+        byAvailable.put(entry.getKey(), entry.getValue().get());
+      }
+      for (String missing_guardian_id : missing) {
+        // Map(AVAILABLE_GUARDIAN_ID, Map(BALLOT_ID, CompensatedDecryptionShare))
+        Map<String, Map<String, DecryptionShare.CompensatedDecryptionShare>> byGuardian = new HashMap<>();
+        byAvailable.forEach((available_guardian_id, shares) -> byGuardian.put(available_guardian_id, shares.get(missing_guardian_id)));
+        ballot_shares.put(missing_guardian_id, reconstruct_missing_shares_for_ballots(missing_guardian_id, ballots, byGuardian));
+      }
+      return check_ballot_shares(ballots, ballot_shares);
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.atWarning().log("compute_ballot_shares interrupted");
+    } catch (ExecutionException e) {
+      logger.atWarning().withCause(e.getCause()).log("compute_ballot_shares failed");
+    }
+    cancel(direct.values());
+    cancel(compensated.values());
+    return false;
+  }
+
+  private boolean check_ballot_shares(Iterable<SubmittedBallot> ballots, Map<String, Map<String, DecryptionShare>> ballot_shares) {
+    for (SubmittedBallot ballot : ballots) { // LOOK running through ballots
+      if (count_ballot_shares(ballot.object_id(), ballot_shares) != this.electionRecord.numberOfGuardians()) {
+        logger.atWarning().log("decrypt_spoiled_ballots failed with share length mismatch");
+        return false;
       }
     }
     return true;
   }
 
-  private int count_ballot_shares(String ballot_id) {
+  private static int count_ballot_shares(String ballot_id, Map<String, Map<String, DecryptionShare>> ballot_shares) {
     int count = 0;
-    for (Map<String, DecryptionShare> shares : this.ballot_shares.values()) {
+    for (Map<String, DecryptionShare> shares : ballot_shares.values()) {
       if (shares.containsKey(ballot_id)) {
         count += 1;
       }
@@ -271,58 +463,50 @@ public class DecryptingMediator {
     return count;
   }
 
-  private void compute_missing_shares_for_ballot(SubmittedBallot ballot) {
-    for (String missing_guardian_id : this.missingGuardians) {
-      Group.ElementModP missing_public_key = this.guardianPublicKeys.get(missing_guardian_id);
-      if (missing_public_key == null) {
-        logger.atWarning().log("compute_missing_shares_for_tally has no public key for missing_guardian %s", missing_guardian_id);
-        return;
+  // Map(BALLOT_ID, DecryptionShare)
+  private Map<String, DecryptionShare> reconstruct_missing_shares_for_ballots(
+          String missing_guardian_id,
+          Iterable<SubmittedBallot> ballots,
+          Map<String, Map<String, DecryptionShare.CompensatedDecryptionShare>> byGuardian) {
+
+    Group.ElementModP missing_public_key = this.guardianPublicKeys.get(missing_guardian_id);
+    Map<String, DecryptionShare> result = new HashMap<>();
+    for (SubmittedBallot ballot : ballots) {
+      // Map(AVAILABLE_GUARDIAN_ID, CompensatedDecryptionShare)
+      Map<String, DecryptionShare.CompensatedDecryptionShare> compensated_shares = new HashMap<>();
+      for (Map.Entry<String, Map<String, DecryptionShare.CompensatedDecryptionShare>> entry : byGuardian.entrySet()) {
+        DecryptionShare.CompensatedDecryptionShare share = entry.getValue().get(ballot.object_id());
+        if (share != null) {
+          compensated_shares.put(entry.getKey(), share);
+        }
       }
-
-      Optional<Map<String, DecryptionShare.CompensatedDecryptionShare>> compensated_shares =
-              this.get_compensated_shares_for_ballot(ballot, missing_guardian_id);
-      if (compensated_shares.isEmpty()) {
-        logger.atWarning().log("get plaintext ballot failed compensating for %s", missing_guardian_id);
-        return;
+      if (compensated_shares.size() != this.available_guardians.size()) {
+        logger.atWarning().log("compensate mismatch partial decryptions for missing guardian %s ballot %s",
+                missing_guardian_id, ballot.object_id());
+        continue;
       }
 
-      DecryptionShare missing_decryption_share = RemoteDecryptions.reconstruct_decryption_share_for_ballot(
+      result.put(ballot.object_id(), RemoteDecryptions.reconstruct_decryption_share_for_ballot(
               missing_guardian_id,
               missing_public_key,
               ballot,
-              compensated_shares.get(),
-              this.lagrange_coefficients);
-
-      // LOOK ballot_shares now include missing_ballots
-      Map<String, DecryptionShare> guardian_shares = this.ballot_shares.computeIfAbsent(missing_guardian_id, k -> new HashMap<>());
-      guardian_shares.put(ballot.object_id(), missing_decryption_share);
-
-      this.ballot_shares.get(missing_guardian_id).put(ballot.object_id(), missing_decryption_share);
+              compensated_shares,
+              this.lagrange_coefficients));
     }
+    return result;
   }
 
-  private Optional<Map<String, DecryptionShare.CompensatedDecryptionShare>> get_compensated_shares_for_ballot(
-          SubmittedBallot ballot, String missing_guardian_id) {
-
-    Map<String, DecryptionShare.CompensatedDecryptionShare> compensated_decryptions = new HashMap<>();
-
-    // Loop through each of the available guardians and calculate decryption shares for the missing one
-    for (DecryptingTrusteeIF available_guardian : this.available_guardians.values()) {
-      DecryptionShare.CompensatedDecryptionShare ballot_share = RemoteDecryptions.computeCompensatedDecryptionShareForBallot(
-              available_guardian,
-              missing_guardian_id,
-              ballot,
-              this.electionRecord);
-        compensated_decryptions.put(available_guardian.id(), ballot_share);
-    }
+  // The returned future completes after progress has been notified.
+  private <T> ListenableFuture<T> track(String trusteeId, String what, ListenableFuture<T> future) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    return Futures.transform(future, result -> {
+      progress.completed(trusteeId, what, stopwatch.elapsed());
+      return result;
+    }, MoreExecutors.directExecutor());
+  }
 
-    // Verify that we generated the correct number of partials
-    if (compensated_decryptions.size() != this.available_guardians.size()) {
-      logger.atWarning().log("compensate mismatch partial decryptions for missing guardian %s", missing_guardian_id);
-      return Optional.empty();
-    } else {
-      return Optional.of(compensated_decryptions);
-    }
+  private static void cancel(Collection<? extends Future<?>> futures) {
+    futures.forEach(f -> f.cancel(true));
   }
 
   private void compute_lagrange_coefficients() {
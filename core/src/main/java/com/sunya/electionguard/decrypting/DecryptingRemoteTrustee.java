@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.net.ServerSocket;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 /** A Remote Trustee with a DecryptingTrustee delegate, communicating over gRpc. */
@@ -38,6 +39,12 @@ public class DecryptingRemoteTrustee extends DecryptingTrusteeServiceGrpc.Decryp
     @Parameter(names = {"-serverPort"}, order = 3, description = "The DecryptingRemote server port")
     int serverPort = 17711;
 
+    @Parameter(names = {"-nthreads"}, order = 4, description = "Number of threads used to decrypt (default = number of cores)")
+    int nthreads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = {"-verifyFraction"}, order = 5, description = "Fraction of the decryption proofs to self-verify, 0.0 to 1.0")
+    double verifyFraction = 1.0;
+
     @Parameter(names = {"-h", "--help"}, order = 9, description = "Display this help and exit", help = true)
     boolean help = false;
 
@@ -84,7 +91,9 @@ public class DecryptingRemoteTrustee extends DecryptingTrusteeServiceGrpc.Decryp
 
     // Now start up our own 'DecryptingRemoteTrustee' Service
     try {
-      DecryptingRemoteTrustee trustee = new DecryptingRemoteTrustee(cmdLine.trusteeFile);
+      DecryptingTrustee.DecryptOptions options = new DecryptingTrustee.DecryptOptions(
+              cmdLine.nthreads > 1 ? new ForkJoinPool(cmdLine.nthreads) : null, cmdLine.verifyFraction);
+      DecryptingRemoteTrustee trustee = new DecryptingRemoteTrustee(cmdLine.trusteeFile, options);
 
       if (cmdLine.serverPort != 0) {
         // register with the DecryptingRemote "server".
@@ -165,9 +174,15 @@ public class DecryptingRemoteTrustee extends DecryptingTrusteeServiceGrpc.Decryp
 
   ////////////////////////////////////////////////////////////////////////////////
   private final DecryptingTrustee delegate;
+  private final DecryptingTrustee.DecryptOptions options;
 
   DecryptingRemoteTrustee(String trusteeFile) throws IOException {
+    this(trusteeFile, DecryptingTrustee.DecryptOptions.DEFAULT);
+  }
+
+  DecryptingRemoteTrustee(String trusteeFile, DecryptingTrustee.DecryptOptions options) throws IOException {
     this.delegate = TrusteeFromProto.readTrustee(trusteeFile);
+    this.options = options;
     System.out.printf("DecryptingTrustee= %s%n", this.delegate);
   }
 
@@ -178,7 +193,34 @@ public class DecryptingRemoteTrustee extends DecryptingTrusteeServiceGrpc.Decryp
   @Override
   public void compensatedDecrypt(DecryptingTrusteeProto.CompensatedDecryptionRequest request,
                                  StreamObserver<DecryptingTrusteeProto.CompensatedDecryptionResponse> responseObserver) {
+    responseObserver.onNext(compensatedDecrypt(request));
+    responseObserver.onCompleted();
+  }
+
+  /** Each chunk is decrypted as it arrives, and its results sent back before the next one is read. */
+  @Override
+  public StreamObserver<DecryptingTrusteeProto.CompensatedDecryptionRequest> compensatedDecryptStream(
+          StreamObserver<DecryptingTrusteeProto.CompensatedDecryptionResponse> responseObserver) {
 
+    return new StreamObserver<>() {
+      @Override
+      public void onNext(DecryptingTrusteeProto.CompensatedDecryptionRequest request) {
+        responseObserver.onNext(compensatedDecrypt(request));
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        logger.atWarning().withCause(t).log("DecryptingRemoteTrustee compensatedDecryptStream cancelled");
+      }
+
+      @Override
+      public void onCompleted() {
+        responseObserver.onCompleted();
+      }
+    };
+  }
+
+  private DecryptingTrusteeProto.CompensatedDecryptionResponse compensatedDecrypt(DecryptingTrusteeProto.CompensatedDecryptionRequest request) {
     DecryptingTrusteeProto.CompensatedDecryptionResponse.Builder response = DecryptingTrusteeProto.CompensatedDecryptionResponse.newBuilder();
     try {
       List<ElGamal.Ciphertext > texts = request.getTextList().stream()
@@ -189,7 +231,8 @@ public class DecryptingRemoteTrustee extends DecryptingTrusteeServiceGrpc.Decryp
               request.getMissingGuardianId(),
               texts,
               CommonConvert.importElementModQ(request.getExtendedBaseHash()),
-              null);
+              null,
+              options);
 
       List<DecryptingTrusteeProto.CompensatedDecryptionResult> protos = tuples.stream()
               .map(this::convertDecryptionProofRecovery)
@@ -201,9 +244,7 @@ public class DecryptingRemoteTrustee extends DecryptingTrusteeServiceGrpc.Decryp
       String mess = t.getMessage() != null ? t.getMessage() : "Unknown";
       response.setError(mess);
     }
-
-    responseObserver.onNext(response.build());
-    responseObserver.onCompleted();
+    return response.build();
   }
 
   private DecryptingTrusteeProto.CompensatedDecryptionResult convertDecryptionProofRecovery(DecryptionProofRecovery tuple) {
@@ -217,7 +258,34 @@ public class DecryptingRemoteTrustee extends DecryptingTrusteeServiceGrpc.Decryp
   @Override
   public void partialDecrypt(DecryptingTrusteeProto.PartialDecryptionRequest request,
                                  StreamObserver<DecryptingTrusteeProto.PartialDecryptionResponse> responseObserver) {
+    responseObserver.onNext(partialDecrypt(request));
+    responseObserver.onCompleted();
+  }
+
+  /** Each chunk is decrypted as it arrives, and its results sent back before the next one is read. */
+  @Override
+  public StreamObserver<DecryptingTrusteeProto.PartialDecryptionRequest> partialDecryptStream(
+          StreamObserver<DecryptingTrusteeProto.PartialDecryptionResponse> responseObserver) {
+
+    return new StreamObserver<>() {
+      @Override
+      public void onNext(DecryptingTrusteeProto.PartialDecryptionRequest request) {
+        responseObserver.onNext(partialDecrypt(request));
+      }
 
+      @Override
+      public void onError(Throwable t) {
+        logger.atWarning().withCause(t).log("DecryptingRemoteTrustee partialDecryptStream cancelled");
+      }
+
+      @Override
+      public void onCompleted() {
+        responseObserver.onCompleted();
+      }
+    };
+  }
+
+  private DecryptingTrusteeProto.PartialDecryptionResponse partialDecrypt(DecryptingTrusteeProto.PartialDecryptionRequest request) {
     DecryptingTrusteeProto.PartialDecryptionResponse.Builder response = DecryptingTrusteeProto.PartialDecryptionResponse.newBuilder();
     try {
       List<ElGamal.Ciphertext > texts = request.getTextList().stream()
@@ -226,7 +294,8 @@ public class DecryptingRemoteTrustee extends DecryptingTrusteeServiceGrpc.Decryp
       List<BallotBox.DecryptionProofTuple> tuples = delegate.partialDecrypt(
               texts,
               CommonConvert.importElementModQ(request.getExtendedBaseHash()),
-              null);
+              null,
+              options);
 
       List<DecryptingTrusteeProto.PartialDecryptionResult> protos = tuples.stream()
               .map(this::convertDecryptionProofTuple)
@@ -238,9 +307,7 @@ public class DecryptingRemoteTrustee extends DecryptingTrusteeServiceGrpc.Decryp
       String mess = t.getMessage() != null ? t.getMessage() : "Unknown";
       response.setError(mess);
     }
-
-    responseObserver.onNext(response.build());
-    responseObserver.onCompleted();
+    return response.build();
   }
 
   private DecryptingTrusteeProto.PartialDecryptionResult convertDecryptionProofTuple(BallotBox.DecryptionProofTuple tuple) {
@@ -2,7 +2,12 @@ package com.sunya.electionguard.decrypting;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sunya.electionguard.BallotBox;
 import com.sunya.electionguard.ElGamal;
 import com.sunya.electionguard.Group;
@@ -16,12 +21,23 @@ import io.grpc.ManagedChannelBuilder;
 import io.grpc.StatusRuntimeException;
 
 import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /** A Remote Trustee client proxy, communicating over gRpc. */
 class DecryptingRemoteTrusteeProxy implements DecryptingTrusteeIF  {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  /** Maximum number of texts in one message, keeps the responses well under the gRPC 4 Mb message limit. */
+  static final int CHUNK_SIZE = 1000;
+  /** Decrypting a large tally can take a while. */
+  static final Duration DEFAULT_DEADLINE = Duration.ofMinutes(10);
 
   @Override
   public String id() {
@@ -44,30 +60,107 @@ class DecryptingRemoteTrusteeProxy implements DecryptingTrusteeIF  {
           List<ElGamal.Ciphertext> text,
           Group.ElementModQ extended_base_hash,
           @Nullable Group.ElementModQ nonce_seed) { // LOOK currently ignoring
-
     try {
-      List<CommonProto.ElGamalCiphertext> texts = text.stream()
-              .map(CommonConvert::publishCiphertext)
+      // the call has a deadline, so this does not wait forever
+      return compensatedDecryptAsync(missing_guardian_id, text, extended_base_hash, nonce_seed, MoreExecutors.directExecutor()).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.atSevere().log("compensatedDecrypt interrupted");
+      return ImmutableList.of();
+    } catch (ExecutionException e) {
+      logger.atSevere().withCause(e.getCause()).log("compensatedDecrypt failed");
+      return ImmutableList.of();
+    }
+  }
+
+  /**
+   * Uses the gRPC future stub, so no thread is held while the remote trustee is working.
+   * More than CHUNK_SIZE texts are streamed in chunks, so the trustee can start working before all have arrived.
+   * The call fails if it does not finish within the deadline.
+   */
+  @Override
+  public ListenableFuture<List<DecryptionProofRecovery>> compensatedDecryptAsync(
+          String missing_guardian_id,
+          List<ElGamal.Ciphertext> text,
+          Group.ElementModQ extended_base_hash,
+          @Nullable Group.ElementModQ nonce_seed,
+          Executor executor) {
+
+    CommonProto.ElementModQ hash = CommonConvert.publishElementModQ(extended_base_hash);
+    if (text.size() <= chunkSize) {
+      return Futures.transform(futureStub().compensatedDecrypt(makeCompensatedRequest(missing_guardian_id, text, hash)),
+              response -> convertCompensatedResponses(ImmutableList.of(response)), executor);
+    }
+
+    Iterator<DecryptingTrusteeProto.CompensatedDecryptionRequest> chunks = Iterators.transform(
+            Lists.partition(text, chunkSize).iterator(), chunk -> makeCompensatedRequest(missing_guardian_id, chunk, hash));
+    return Futures.transform(ChunkedStreamCall.start(chunks, asyncStub()::compensatedDecryptStream),
+            this::convertCompensatedResponses, executor);
+  }
+
+  /**
+   * All the missing guardians are sent as chunks on one stream, in order.
+   * If there are no more than CHUNK_SIZE texts, each missing guardian is a unary call instead.
+   */
+  @Override
+  public ListenableFuture<Map<String, List<DecryptionProofRecovery>>> compensatedDecryptAllAsync(
+          List<String> missing_guardian_ids,
+          List<ElGamal.Ciphertext> text,
+          Group.ElementModQ extended_base_hash,
+          @Nullable Group.ElementModQ nonce_seed,
+          Executor executor) {
+
+    if (text.size() <= chunkSize) {
+      List<ListenableFuture<List<DecryptionProofRecovery>>> futures = missing_guardian_ids.stream()
+              .map(missing -> compensatedDecryptAsync(missing, text, extended_base_hash, nonce_seed, executor))
               .toList();
+      return Futures.transform(Futures.allAsList(futures), results -> {
+        Map<String, List<DecryptionProofRecovery>> result = new HashMap<>();
+        for (int i = 0; i < missing_guardian_ids.size(); i++) {
+          result.put(missing_guardian_ids.get(i), results.get(i));
+        }
+        return result;
+      }, MoreExecutors.directExecutor());
+    }
 
-      DecryptingTrusteeProto.CompensatedDecryptionRequest.Builder request = DecryptingTrusteeProto.CompensatedDecryptionRequest.newBuilder()
-              .setMissingGuardianId(missing_guardian_id)
-              .addAllText(texts)
-              .setExtendedBaseHash(CommonConvert.publishElementModQ(extended_base_hash));
+    CommonProto.ElementModQ hash = CommonConvert.publishElementModQ(extended_base_hash);
+    List<List<ElGamal.Ciphertext>> textChunks = Lists.partition(text, chunkSize);
+    Iterator<DecryptingTrusteeProto.CompensatedDecryptionRequest> chunks = missing_guardian_ids.stream()
+            .flatMap(missing -> textChunks.stream().map(chunk -> makeCompensatedRequest(missing, chunk, hash)))
+            .iterator();
 
-      DecryptingTrusteeProto.CompensatedDecryptionResponse response = blockingStub.compensatedDecrypt(request.build());
-      if (!response.getError().isEmpty()) {
-        logger.atSevere().log("compensatedDecrypt failed: %s", response.getError());
-        return ImmutableList.of();
+    return Futures.transform(ChunkedStreamCall.start(chunks, asyncStub()::compensatedDecryptStream), responses -> {
+      int nchunks = textChunks.size();
+      if (responses.size() != nchunks * missing_guardian_ids.size()) {
+        throw new IllegalStateException(String.format("compensatedDecrypt %s returned %d responses, expected %d",
+                trusteeId, responses.size(), nchunks * missing_guardian_ids.size()));
       }
-      return response.getResultsList().stream()
-              .map(this::convertDecryptionProofRecovery)
-              .toList();
+      Map<String, List<DecryptionProofRecovery>> result = new HashMap<>();
+      for (int i = 0; i < missing_guardian_ids.size(); i++) {
+        result.put(missing_guardian_ids.get(i), convertCompensatedResponses(responses.subList(i * nchunks, (i + 1) * nchunks)));
+      }
+      return result;
+    }, executor);
+  }
 
-    } catch (StatusRuntimeException e) {
-      logger.atSevere().withCause(e).log("compensatedDecrypt failed");
-      return ImmutableList.of();
+  private DecryptingTrusteeProto.CompensatedDecryptionRequest makeCompensatedRequest(
+          String missing_guardian_id, List<ElGamal.Ciphertext> text, CommonProto.ElementModQ hash) {
+    return DecryptingTrusteeProto.CompensatedDecryptionRequest.newBuilder()
+            .setMissingGuardianId(missing_guardian_id)
+            .addAllText(text.stream().map(CommonConvert::publishCiphertext).toList())
+            .setExtendedBaseHash(hash)
+            .build();
+  }
+
+  private List<DecryptionProofRecovery> convertCompensatedResponses(List<DecryptingTrusteeProto.CompensatedDecryptionResponse> responses) {
+    List<DecryptionProofRecovery> result = new ArrayList<>();
+    for (DecryptingTrusteeProto.CompensatedDecryptionResponse response : responses) {
+      if (!response.getError().isEmpty()) {
+        throw new IllegalStateException(String.format("compensatedDecrypt %s failed: %s", trusteeId, response.getError()));
+      }
+      response.getResultsList().forEach(proto -> result.add(convertDecryptionProofRecovery(proto)));
     }
+    return result;
   }
 
   private DecryptionProofRecovery convertDecryptionProofRecovery(DecryptingTrusteeProto.CompensatedDecryptionResult proto) {
@@ -83,27 +176,58 @@ class DecryptingRemoteTrusteeProxy implements DecryptingTrusteeIF  {
           Group.ElementModQ extended_base_hash,
           @Nullable Group.ElementModQ nonce_seed) { // LOOK currently ignoring
     try {
-      List<CommonProto.ElGamalCiphertext> texts = text.stream()
-              .map(CommonConvert::publishCiphertext)
-              .toList();
+      // the call has a deadline, so this does not wait forever
+      return partialDecryptAsync(text, extended_base_hash, nonce_seed, MoreExecutors.directExecutor()).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.atSevere().log("partialDecrypt interrupted");
+      return ImmutableList.of();
+    } catch (ExecutionException e) {
+      logger.atSevere().withCause(e.getCause()).log("partialDecrypt failed");
+      return ImmutableList.of();
+    }
+  }
+
+  /**
+   * Uses the gRPC future stub, so no thread is held while the remote trustee is working.
+   * More than CHUNK_SIZE texts are streamed in chunks, so the trustee can start working before all have arrived.
+   * The call fails if it does not finish within the deadline.
+   */
+  @Override
+  public ListenableFuture<List<BallotBox.DecryptionProofTuple>> partialDecryptAsync(
+          List<ElGamal.Ciphertext> text,
+          Group.ElementModQ extended_base_hash,
+          @Nullable Group.ElementModQ nonce_seed,
+          Executor executor) {
+
+    CommonProto.ElementModQ hash = CommonConvert.publishElementModQ(extended_base_hash);
+    if (text.size() <= chunkSize) {
+      return Futures.transform(futureStub().partialDecrypt(makePartialRequest(text, hash)),
+              response -> convertPartialResponses(ImmutableList.of(response)), executor);
+    }
 
-      DecryptingTrusteeProto.PartialDecryptionRequest.Builder request = DecryptingTrusteeProto.PartialDecryptionRequest.newBuilder()
-              .addAllText(texts)
-              .setExtendedBaseHash(CommonConvert.publishElementModQ(extended_base_hash));
+    Iterator<DecryptingTrusteeProto.PartialDecryptionRequest> chunks = Iterators.transform(
+            Lists.partition(text, chunkSize).iterator(), chunk -> makePartialRequest(chunk, hash));
+    return Futures.transform(ChunkedStreamCall.start(chunks, asyncStub()::partialDecryptStream),
+            this::convertPartialResponses, executor);
+  }
+
+  private DecryptingTrusteeProto.PartialDecryptionRequest makePartialRequest(List<ElGamal.Ciphertext> text, CommonProto.ElementModQ hash) {
+    return DecryptingTrusteeProto.PartialDecryptionRequest.newBuilder()
+            .addAllText(text.stream().map(CommonConvert::publishCiphertext).toList())
+            .setExtendedBaseHash(hash)
+            .build();
+  }
 
-      DecryptingTrusteeProto.PartialDecryptionResponse response = blockingStub.partialDecrypt(request.build());
+  private List<BallotBox.DecryptionProofTuple> convertPartialResponses(List<DecryptingTrusteeProto.PartialDecryptionResponse> responses) {
+    List<BallotBox.DecryptionProofTuple> result = new ArrayList<>();
+    for (DecryptingTrusteeProto.PartialDecryptionResponse response : responses) {
       if (!response.getError().isEmpty()) {
-        logger.atSevere().log("partialDecrypt failed: %s", response.getError());
-        return ImmutableList.of();
+        throw new IllegalStateException(String.format("partialDecrypt %s failed: %s", trusteeId, response.getError()));
       }
-      return response.getResultsList().stream()
-              .map(this::convertDecryptionProofTuple)
-              .toList();
-
-    } catch (StatusRuntimeException e) {
-      logger.atSevere().withCause(e).log("partialDecrypt failed: ");
-      return ImmutableList.of();
+      response.getResultsList().forEach(proto -> result.add(convertDecryptionProofTuple(proto)));
     }
+    return result;
   }
 
   private BallotBox.DecryptionProofTuple convertDecryptionProofTuple(DecryptingTrusteeProto.PartialDecryptionResult proto) {
@@ -115,7 +239,7 @@ class DecryptingRemoteTrusteeProxy implements DecryptingTrusteeIF  {
   boolean finish(boolean allOk) {
     try {
       CommonRpcProto.FinishRequest request = CommonRpcProto.FinishRequest.newBuilder().setAllOk(allOk).build();
-      CommonRpcProto.ErrorResponse response = blockingStub.finish(request);
+      CommonRpcProto.ErrorResponse response = blockingStub().finish(request);
       if (!response.getError().isEmpty()) {
         logger.atSevere().log("commit failed: %s", response.getError());
         return false;
@@ -129,6 +253,19 @@ class DecryptingRemoteTrusteeProxy implements DecryptingTrusteeIF  {
     }
   }
 
+  /** Each call gets its own deadline, counted from when the call is made. */
+  private DecryptingTrusteeServiceGrpc.DecryptingTrusteeServiceBlockingStub blockingStub() {
+    return blockingStub.withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private DecryptingTrusteeServiceGrpc.DecryptingTrusteeServiceFutureStub futureStub() {
+    return futureStub.withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private DecryptingTrusteeServiceGrpc.DecryptingTrusteeServiceStub asyncStub() {
+    return asyncStub.withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
   boolean shutdown() {
     try {
       channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
@@ -145,18 +282,28 @@ class DecryptingRemoteTrusteeProxy implements DecryptingTrusteeIF  {
   private final Group.ElementModP electionPublicKey;
   private final ManagedChannel channel;
   private final DecryptingTrusteeServiceGrpc.DecryptingTrusteeServiceBlockingStub blockingStub;
+  private final DecryptingTrusteeServiceGrpc.DecryptingTrusteeServiceFutureStub futureStub;
+  private final DecryptingTrusteeServiceGrpc.DecryptingTrusteeServiceStub asyncStub;
+  private final int chunkSize;
+  private final Duration deadline;
 
   static Builder builder() {
     return new Builder();
   }
 
-  private DecryptingRemoteTrusteeProxy(String trusteeId, int xCoordinate, Group.ElementModP electionPublicKey, ManagedChannel channel) {
+  private DecryptingRemoteTrusteeProxy(String trusteeId, int xCoordinate, Group.ElementModP electionPublicKey,
+                                       ManagedChannel channel, int chunkSize, Duration deadline) {
     this.trusteeId = Preconditions.checkNotNull(trusteeId);
     Preconditions.checkArgument(xCoordinate > 0);
     this.xCoordinate = xCoordinate;
     this.electionPublicKey = Preconditions.checkNotNull(electionPublicKey);
     this.channel = Preconditions.checkNotNull(channel);
+    Preconditions.checkArgument(chunkSize > 0);
     this.blockingStub = DecryptingTrusteeServiceGrpc.newBlockingStub(channel);
+    this.futureStub = DecryptingTrusteeServiceGrpc.newFutureStub(channel);
+    this.asyncStub = DecryptingTrusteeServiceGrpc.newStub(channel);
+    this.chunkSize = chunkSize;
+    this.deadline = Preconditions.checkNotNull(deadline);
   }
 
   static class Builder {
@@ -164,6 +311,8 @@ class DecryptingRemoteTrusteeProxy implements DecryptingTrusteeIF  {
     String target;
     int xCoordinate;
     Group.ElementModP electionPublicKey;
+    int chunkSize = CHUNK_SIZE;
+    Duration deadline = DEFAULT_DEADLINE;
 
     Builder setTrusteeId(String trusteeId) {
       this.trusteeId = trusteeId;
@@ -185,6 +334,18 @@ class DecryptingRemoteTrusteeProxy implements DecryptingTrusteeIF  {
       return this;
     }
 
+    Builder setChunkSize(int chunkSize) {
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /** Each call to the remote trustee fails if it does not finish within the deadline. */
+    Builder setDeadline(Duration deadline) {
+      Preconditions.checkArgument(!deadline.isNegative() && !deadline.isZero());
+      this.deadline = deadline;
+      return this;
+    }
+
     DecryptingRemoteTrusteeProxy build() {
       ManagedChannel channel = ManagedChannelBuilder.forTarget(target)
               .usePlaintext()
@@ -192,7 +353,7 @@ class DecryptingRemoteTrusteeProxy implements DecryptingTrusteeIF  {
               // .enableFullStreamDecompression()
               // .maxInboundMessageSize(MAX_MESSAGE)
               .build();
-      return new DecryptingRemoteTrusteeProxy(trusteeId, xCoordinate, electionPublicKey, channel);
+      return new DecryptingRemoteTrusteeProxy(trusteeId, xCoordinate, electionPublicKey, channel, chunkSize, deadline);
     }
   }
 }
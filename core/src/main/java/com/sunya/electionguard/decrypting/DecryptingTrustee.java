@@ -5,19 +5,18 @@ import com.google.common.flogger.FluentLogger;
 import com.sunya.electionguard.BallotBox;
 import com.sunya.electionguard.ChaumPedersen;
 import com.sunya.electionguard.ElGamal;
+import com.sunya.electionguard.ElectionPolynomial;
 import com.sunya.electionguard.Group;
+import com.sunya.electionguard.SelectionBatches;
 import com.sunya.electionguard.keyceremony.KeyCeremony2;
 
 import javax.annotation.Nullable;
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 
-import static com.sunya.electionguard.Group.ONE_MOD_P;
-import static com.sunya.electionguard.Group.ONE_MOD_Q;
-import static com.sunya.electionguard.Group.mult_p;
-import static com.sunya.electionguard.Group.pow_p;
 import static com.sunya.electionguard.Group.rand_q;
 
 /**
@@ -57,6 +56,24 @@ public record DecryptingTrustee(
 
   ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+  /**
+   * Controls how a batch of texts is decrypted.
+   * @param pool decrypt the texts in parallel in this pool, or if null, sequentially in the calling thread.
+   * @param verifyFraction fraction of the proofs, chosen at random, that are verified before returning:
+   *                       1.0 = all (the default), 0.0 = none.
+   */
+  public record DecryptOptions(@Nullable ForkJoinPool pool, double verifyFraction) {
+    public static final DecryptOptions DEFAULT = new DecryptOptions(ForkJoinPool.commonPool(), 1.0);
+
+    public DecryptOptions {
+      Preconditions.checkArgument(verifyFraction >= 0.0 && verifyFraction <= 1.0);
+    }
+
+    boolean verifyNext() {
+      return verifyFraction >= 1.0 || (verifyFraction > 0.0 && ThreadLocalRandom.current().nextDouble() < verifyFraction);
+    }
+  }
+
   /**
    * Compute a partial decryption of an elgamal encryption.
    *
@@ -71,37 +88,48 @@ public record DecryptingTrustee(
           List<ElGamal.Ciphertext> texts,
           Group.ElementModQ extended_base_hash,
           @Nullable Group.ElementModQ nonce_seed) {
+    return partialDecrypt(texts, extended_base_hash, nonce_seed, DecryptOptions.DEFAULT);
+  }
 
-    if (nonce_seed == null) {
-      nonce_seed = rand_q();
-    }
+  /** Compute a partial decryption of each text, using the given DecryptOptions. Results are in the same order as texts. */
+  public List<BallotBox.DecryptionProofTuple> partialDecrypt(
+          List<ElGamal.Ciphertext> texts,
+          Group.ElementModQ extended_base_hash,
+          @Nullable Group.ElementModQ nonce_seed,
+          DecryptOptions options) {
+
+    Group.ElementModQ seed = (nonce_seed == null) ? rand_q() : nonce_seed;
+    return SelectionBatches.process(options.pool(), texts.size(),
+            i -> partialDecrypt(texts.get(i), extended_base_hash, seed, options.verifyNext()));
+  }
 
-    List<BallotBox.DecryptionProofTuple> results = new ArrayList<>();
-    for (ElGamal.Ciphertext text : texts) {
-      // 𝑀_i = 𝐴^𝑠𝑖 mod 𝑝
-      Group.ElementModP partial_decryption = text.partial_decrypt(this.election_keypair.secret_key());
-      // 𝑀_i = 𝐴^𝑠𝑖 mod 𝑝 and 𝐾𝑖 = 𝑔^𝑠𝑖 mod 𝑝
-      ChaumPedersen.ChaumPedersenProof proof = ChaumPedersen.make_chaum_pedersen(
-              text,
-              this.election_keypair.secret_key(),
-              partial_decryption,
-              nonce_seed,
-              extended_base_hash);
-
-      boolean valid = proof.is_valid(text, this.election_keypair.public_key(), partial_decryption, extended_base_hash);
-      if (!valid) {
-        logger.atWarning().log(
-                String.format(" partialDecrypt invalid proof for %s = %s%n ", this.id, proof) +
-                        String.format("   message = %s %n ", text) +
-                        String.format("   public_key = %s %n ", this.election_keypair.public_key().toShortString()) +
-                        String.format("   partial_decryption = %s %n ", partial_decryption.toShortString()) +
-                        String.format("   extended_base_hash = %s %n ", extended_base_hash)
-        );
-        // throw new IllegalArgumentException(String.format("PartialDecrypt invalid proof for %s", this.id));
-      }
-      results.add(new BallotBox.DecryptionProofTuple(partial_decryption, proof));
+  private BallotBox.DecryptionProofTuple partialDecrypt(
+          ElGamal.Ciphertext text,
+          Group.ElementModQ extended_base_hash,
+          Group.ElementModQ nonce_seed,
+          boolean verify) {
+
+    // 𝑀_i = 𝐴^𝑠𝑖 mod 𝑝
+    Group.ElementModP partial_decryption = text.partial_decrypt(this.election_keypair.secret_key());
+    // 𝑀_i = 𝐴^𝑠𝑖 mod 𝑝 and 𝐾𝑖 = 𝑔^𝑠𝑖 mod 𝑝
+    ChaumPedersen.ChaumPedersenProof proof = ChaumPedersen.make_chaum_pedersen(
+            text,
+            this.election_keypair.secret_key(),
+            partial_decryption,
+            nonce_seed,
+            extended_base_hash);
+
+    if (verify && !proof.is_valid(text, this.election_keypair.public_key(), partial_decryption, extended_base_hash)) {
+      logger.atWarning().log(
+              String.format(" partialDecrypt invalid proof for %s = %s%n ", this.id, proof) +
+                      String.format("   message = %s %n ", text) +
+                      String.format("   public_key = %s %n ", this.election_keypair.public_key().toShortString()) +
+                      String.format("   partial_decryption = %s %n ", partial_decryption.toShortString()) +
+                      String.format("   extended_base_hash = %s %n ", extended_base_hash)
+      );
+      // throw new IllegalArgumentException(String.format("PartialDecrypt invalid proof for %s", this.id));
     }
-    return results;
+    return new BallotBox.DecryptionProofTuple(partial_decryption, proof);
   }
 
   /**
@@ -121,10 +149,18 @@ public record DecryptingTrustee(
           List<ElGamal.Ciphertext> texts,
           Group.ElementModQ extended_base_hash,
           @Nullable Group.ElementModQ nonce_seed) {
+    return compensatedDecrypt(missing_guardian_id, texts, extended_base_hash, nonce_seed, DecryptOptions.DEFAULT);
+  }
 
-    if (nonce_seed == null) {
-      nonce_seed = rand_q();
-    }
+  /** Compute a compensated partial decryption of each text, using the given DecryptOptions. Results are in the same order as texts. */
+  public List<DecryptionProofRecovery> compensatedDecrypt(
+          String missing_guardian_id,
+          List<ElGamal.Ciphertext> texts,
+          Group.ElementModQ extended_base_hash,
+          @Nullable Group.ElementModQ nonce_seed,
+          DecryptOptions options) {
+
+    Group.ElementModQ seed = (nonce_seed == null) ? rand_q() : nonce_seed;
 
     KeyCeremony2.PartialKeyBackup backup = this.otherGuardianPartialKeyBackups.get(missing_guardian_id);
     if (backup == null) {
@@ -133,36 +169,46 @@ public record DecryptingTrustee(
       throw new IllegalStateException(mess);
     }
 
+    // computed once for all the texts
     Group.ElementModP recovered = recoverPublicKey(missing_guardian_id);
-    List<DecryptionProofRecovery> results = new ArrayList<>();
-    for (ElGamal.Ciphertext text : texts) {
-      // 𝑀_{𝑖,l} = 𝐴^P𝑖_{l}
-      Group.ElementModP partial_decryption = text.partial_decrypt(backup.coordinate());
-
-      // 𝑀_{𝑖,l} = 𝐴^𝑠𝑖 mod 𝑝 and 𝐾𝑖 = 𝑔^𝑠𝑖 mod 𝑝
-      ChaumPedersen.ChaumPedersenProof proof = ChaumPedersen.make_chaum_pedersen(
-              text,
-              backup.coordinate(),
-              partial_decryption,
-              nonce_seed,
-              extended_base_hash);
-
-      boolean valid = proof.is_valid(text, recovered, partial_decryption, extended_base_hash);
-      if (!valid) {
-        logger.atWarning().log(
-                String.format(" compensatedDecrypt invalid proof for %s = %s%n ", this.id, proof) +
-                        String.format("   message = %s %n ", text) +
-                        String.format("   public_key = %s %n ", recovered.toShortString()) +
-                        String.format("   partial_decryption = %s %n ", partial_decryption.toShortString()) +
-                        String.format("   extended_base_hash = %s %n ", extended_base_hash)
-        );
-        throw new IllegalArgumentException(String.format("CompensatedDecrypt invalid proof for %s missing = %s",
-                this.id, missing_guardian_id));
-      }
-
-      results.add(new DecryptionProofRecovery(partial_decryption, proof, recovered));
+    return SelectionBatches.process(options.pool(), texts.size(),
+            i -> compensatedDecrypt(missing_guardian_id, backup, recovered, texts.get(i), extended_base_hash, seed,
+                    options.verifyNext()));
+  }
+
+  private DecryptionProofRecovery compensatedDecrypt(
+          String missing_guardian_id,
+          KeyCeremony2.PartialKeyBackup backup,
+          Group.ElementModP recovered,
+          ElGamal.Ciphertext text,
+          Group.ElementModQ extended_base_hash,
+          Group.ElementModQ nonce_seed,
+          boolean verify) {
+
+    // 𝑀_{𝑖,l} = 𝐴^P𝑖_{l}
+    Group.ElementModP partial_decryption = text.partial_decrypt(backup.coordinate());
+
+    // 𝑀_{𝑖,l} = 𝐴^𝑠𝑖 mod 𝑝 and 𝐾𝑖 = 𝑔^𝑠𝑖 mod 𝑝
+    ChaumPedersen.ChaumPedersenProof proof = ChaumPedersen.make_chaum_pedersen(
+            text,
+            backup.coordinate(),
+            partial_decryption,
+            nonce_seed,
+            extended_base_hash);
+
+    if (verify && !proof.is_valid(text, recovered, partial_decryption, extended_base_hash)) {
+      logger.atWarning().log(
+              String.format(" compensatedDecrypt invalid proof for %s = %s%n ", this.id, proof) +
+                      String.format("   message = %s %n ", text) +
+                      String.format("   public_key = %s %n ", recovered.toShortString()) +
+                      String.format("   partial_decryption = %s %n ", partial_decryption.toShortString()) +
+                      String.format("   extended_base_hash = %s %n ", extended_base_hash)
+      );
+      throw new IllegalArgumentException(String.format("CompensatedDecrypt invalid proof for %s missing = %s",
+              this.id, missing_guardian_id));
     }
-    return results;
+
+    return new DecryptionProofRecovery(partial_decryption, proof, recovered);
   }
 
   /** Compute the recovery public key for a given guardian. */
@@ -174,18 +220,9 @@ public record DecryptingTrustee(
       logger.atSevere().log(mess);
       throw new IllegalStateException(mess);
     }
-    Group.ElementModQ xcoordQ = Group.int_to_q_unchecked(BigInteger.valueOf(this.xCoordinate));
-
 
     // compute the recovery public key, corresponding to the secret share Pi(l)
     // K_ij^(l^j) for j in 0..k-1.  K_ij is coefficients[j].public_key
-    Group.ElementModP result = ONE_MOD_P;
-    Group.ElementModQ exponent = ONE_MOD_Q;
-    for (Group.ElementModP commitment : otherCommitments) {
-      result = mult_p(result, pow_p(commitment, exponent));
-      exponent = Group.mult_q(exponent, xcoordQ);
-    }
-
-    return result;
+    return ElectionPolynomial.compute_gPcoordinate(BigInteger.valueOf(this.xCoordinate), otherCommitments);
   }
 }
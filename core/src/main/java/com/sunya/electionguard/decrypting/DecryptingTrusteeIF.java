@@ -1,11 +1,16 @@
 package com.sunya.electionguard.decrypting;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.sunya.electionguard.BallotBox;
 import com.sunya.electionguard.ElGamal;
 import com.sunya.electionguard.Group;
 
 import javax.annotation.Nullable;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 public interface DecryptingTrusteeIF {
   /** Guardian id. */
@@ -26,4 +31,43 @@ public interface DecryptingTrusteeIF {
           Group.ElementModQ extended_base_hash,
           @Nullable Group.ElementModQ nonce_seed);
 
+  /** Asynchronous compensatedDecrypt. By default, runs the blocking call on the executor. */
+  default ListenableFuture<List<DecryptionProofRecovery>> compensatedDecryptAsync(
+          String missing_guardian_id,
+          List<ElGamal.Ciphertext> texts,
+          Group.ElementModQ extended_base_hash,
+          @Nullable Group.ElementModQ nonce_seed,
+          Executor executor) {
+    return Futures.submit(() -> compensatedDecrypt(missing_guardian_id, texts, extended_base_hash, nonce_seed), executor);
+  }
+
+  /**
+   * Compensated decryptions of the same texts for several missing guardians, in one request.
+   * By default, runs the blocking calls on the executor.
+   * @return Map(MISSING_GUARDIAN_ID, results)
+   */
+  default ListenableFuture<Map<String, List<DecryptionProofRecovery>>> compensatedDecryptAllAsync(
+          List<String> missing_guardian_ids,
+          List<ElGamal.Ciphertext> texts,
+          Group.ElementModQ extended_base_hash,
+          @Nullable Group.ElementModQ nonce_seed,
+          Executor executor) {
+    return Futures.submit(() -> {
+      Map<String, List<DecryptionProofRecovery>> result = new HashMap<>();
+      for (String missing_guardian_id : missing_guardian_ids) {
+        result.put(missing_guardian_id, compensatedDecrypt(missing_guardian_id, texts, extended_base_hash, nonce_seed));
+      }
+      return result;
+    }, executor);
+  }
+
+  /** Asynchronous partialDecrypt. By default, runs the blocking call on the executor. */
+  default ListenableFuture<List<BallotBox.DecryptionProofTuple>> partialDecryptAsync(
+          List<ElGamal.Ciphertext> texts,
+          Group.ElementModQ extended_base_hash,
+          @Nullable Group.ElementModQ nonce_seed,
+          Executor executor) {
+    return Futures.submit(() -> partialDecrypt(texts, extended_base_hash, nonce_seed), executor);
+  }
+
 }
@@ -2,6 +2,9 @@ package com.sunya.electionguard.decrypting;
 
 import com.google.common.base.Preconditions;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sunya.electionguard.BallotBox;
 import com.sunya.electionguard.CiphertextBallot;
 import com.sunya.electionguard.CiphertextContest;
@@ -18,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 import static com.sunya.electionguard.DecryptionShare.CiphertextCompensatedDecryptionContest;
 import static com.sunya.electionguard.DecryptionShare.CiphertextCompensatedDecryptionSelection;
@@ -29,6 +33,9 @@ import static com.sunya.electionguard.DecryptionShare.CompensatedDecryptionShare
 public class RemoteDecryptions {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
+  /** The most compensated ballot requests that are outstanding to one guardian at a time. */
+  static final int MAX_BALLOTS_IN_FLIGHT = 8;
+
   ////////////////////////////////////////////////////////////////////////////
   // decryption shares
 
@@ -46,13 +53,45 @@ public class RemoteDecryptions {
           ElectionContext context) {
 
     // Get all the Ciphertext that need to be decrypted, and do so in one call
+    List<ElGamal.Ciphertext> texts = tallyTexts(tally);
+    List<BallotBox.DecryptionProofTuple> results = guardian.partialDecrypt(texts, context.extendedHash(), null);
+    return makeTallyShare(guardian, tally, context, texts.size(), results);
+  }
+
+  /**
+   * Same as computeDecryptionShareForTally, but does not wait for the guardian to respond.
+   * The proofs are validated on the executor.
+   */
+  public static ListenableFuture<DecryptionShare> computeDecryptionShareForTallyAsync(
+          DecryptingTrusteeIF guardian,
+          CiphertextTally tally,
+          ElectionContext context,
+          Executor executor) {
+
+    List<ElGamal.Ciphertext> texts = tallyTexts(tally);
+    return Futures.transform(
+            guardian.partialDecryptAsync(texts, context.extendedHash(), null, executor),
+            results -> makeTallyShare(guardian, tally, context, texts.size(), results),
+            executor);
+  }
+
+  private static List<ElGamal.Ciphertext> tallyTexts(CiphertextTally tally) {
     List<ElGamal.Ciphertext> texts = new ArrayList<>();
     for (CiphertextTally.Contest tallyContest : tally.contests.values()) {
       for (CiphertextSelection selection : tallyContest.selections.values()) {
         texts.add(selection.ciphertext());
       }
     }
-    List<BallotBox.DecryptionProofTuple> results = guardian.partialDecrypt(texts, context.extendedHash(), null);
+    return texts;
+  }
+
+  private static DecryptionShare makeTallyShare(
+          DecryptingTrusteeIF guardian,
+          CiphertextTally tally,
+          ElectionContext context,
+          int ntexts,
+          List<BallotBox.DecryptionProofTuple> results) {
+    checkResults(guardian, ntexts, results);
 
     // Create the guardian's DecryptionShare for the tally
     int count = 0;
@@ -61,7 +100,7 @@ public class RemoteDecryptions {
 
       Map<String, CiphertextDecryptionSelection> selections = new HashMap<>();
       for (CiphertextSelection tallySelection : tallyContest.selections.values()) {
-        BallotBox.DecryptionProofTuple tuple = results.get(count);
+        BallotBox.DecryptionProofTuple tuple = results.get(count++);
         if (tuple.proof.is_valid(tallySelection.ciphertext(), guardian.electionPublicKey(),
                 tuple.decryption, context.extendedHash())) {
 
@@ -72,9 +111,9 @@ public class RemoteDecryptions {
                   Optional.of(tuple.proof),
                   Optional.empty());
           selections.put(tallySelection.object_id(), share);
-          count++;
         } else {
-          // LOOK?
+          logger.atWarning().log("invalid partial decryption proof from %s for selection %s",
+                  guardian.id(), tallySelection.object_id());
         }
       }
 
@@ -120,13 +159,9 @@ public class RemoteDecryptions {
           ElectionContext context) {
 
     // Get all the Ciphertext that need to be decrypted, and do so in one call
-    List<ElGamal.Ciphertext> texts = new ArrayList<>();
-    for (CiphertextBallot.Contest ballotContest : ballot.contests) {
-      for (CiphertextBallot.Selection ballotSelection : ballotContest.selections) {
-        texts.add(ballotSelection.ciphertext());
-      }
-    }
+    List<ElGamal.Ciphertext> texts = ballotTexts(ballot);
     List<BallotBox.DecryptionProofTuple> results = guardian.partialDecrypt(texts, context.extendedHash(), null);
+    checkResults(guardian, texts.size(), results);
 
     // Create the guardian's DecryptionShare for the ballot
     int count = 0;
@@ -135,7 +170,7 @@ public class RemoteDecryptions {
 
       Map<String, CiphertextDecryptionSelection> selections = new HashMap<>();
       for (CiphertextBallot.Selection ballotSelection : ballotContest.selections) {
-        BallotBox.DecryptionProofTuple tuple = results.get(count);
+        BallotBox.DecryptionProofTuple tuple = results.get(count++);
         if (tuple.proof.is_valid(ballotSelection.ciphertext(), guardian.electionPublicKey(),
                 tuple.decryption, context.extendedHash())) {
 
@@ -146,9 +181,9 @@ public class RemoteDecryptions {
                   Optional.of(tuple.proof),
                   Optional.empty());
           selections.put(ballotSelection.object_id(), share);
-          count++;
         } else {
-          // LOOK?
+          logger.atWarning().log("invalid partial decryption proof from %s for ballot %s selection %s",
+                  guardian.id(), ballot.object_id(), ballotSelection.object_id());
         }
       }
 
@@ -164,6 +199,23 @@ public class RemoteDecryptions {
             contests);
   }
 
+  private static List<ElGamal.Ciphertext> ballotTexts(SubmittedBallot ballot) {
+    List<ElGamal.Ciphertext> texts = new ArrayList<>();
+    for (CiphertextBallot.Contest ballotContest : ballot.contests) {
+      for (CiphertextBallot.Selection selection : ballotContest.selections) {
+        texts.add(selection.ciphertext());
+      }
+    }
+    return texts;
+  }
+
+  /** A remote trustee returns an empty list on failure. */
+  private static void checkResults(DecryptingTrusteeIF guardian, int ntexts, List<?> results) {
+    if (results.size() != ntexts) {
+      throw new IllegalStateException(String.format("guardian %s returned %d results for %d texts",
+              guardian.id(), results.size(), ntexts));
+    }
+  }
 
   /////////////////////////////////////////////////////////////////////////////////////////////
   // compensated decryption shares
@@ -183,17 +235,48 @@ public class RemoteDecryptions {
           ElectionContext context) {
 
     // Get all the Ciphertext that need to be decrypted, and do so in one call
-    List<ElGamal.Ciphertext> texts = new ArrayList<>();
-    for (CiphertextTally.Contest tallyContest : tally.contests.values()) {
-      for (CiphertextSelection selection : tallyContest.selections.values()) {
-        texts.add(selection.ciphertext());
-      }
-    }
+    List<ElGamal.Ciphertext> texts = tallyTexts(tally);
     List<DecryptionProofRecovery> results = guardian.compensatedDecrypt(
             missing_guardian_id,
             texts,
             context.extendedHash(),
             null);
+    return makeCompensatedTallyShare(guardian, missing_guardian_id, tally, context, texts.size(), results);
+  }
+
+  /**
+   * Compute a guardian's compensated decryption shares of the tally for all the missing guardians, in one request.
+   * @return Map(MISSING_GUARDIAN_ID, CompensatedDecryptionShare)
+   */
+  public static ListenableFuture<Map<String, CompensatedDecryptionShare>> computeCompensatedDecryptionSharesForTallyAsync(
+          DecryptingTrusteeIF guardian,
+          List<String> missing_guardian_ids,
+          CiphertextTally tally,
+          ElectionContext context,
+          Executor executor) {
+
+    List<ElGamal.Ciphertext> texts = tallyTexts(tally);
+    return Futures.transform(
+            guardian.compensatedDecryptAllAsync(missing_guardian_ids, texts, context.extendedHash(), null, executor),
+            resultMap -> {
+              Map<String, CompensatedDecryptionShare> shares = new HashMap<>();
+              for (String missing_guardian_id : missing_guardian_ids) {
+                shares.put(missing_guardian_id, makeCompensatedTallyShare(guardian, missing_guardian_id, tally, context,
+                        texts.size(), resultMap.getOrDefault(missing_guardian_id, List.of())));
+              }
+              return shares;
+            },
+            executor);
+  }
+
+  private static CompensatedDecryptionShare makeCompensatedTallyShare(
+          DecryptingTrusteeIF guardian,
+          String missing_guardian_id,
+          CiphertextTally tally,
+          ElectionContext context,
+          int ntexts,
+          List<DecryptionProofRecovery> results) {
+    checkResults(guardian, ntexts, results);
 
     // Create the guardian's DecryptionShare for the tally
     int count = 0;
@@ -202,7 +285,7 @@ public class RemoteDecryptions {
 
       Map<String, CiphertextCompensatedDecryptionSelection> selections = new HashMap<>();
       for (CiphertextSelection tallySelection : tallyContest.selections.values()) {
-        DecryptionProofRecovery tuple = results.get(count);
+        DecryptionProofRecovery tuple = results.get(count++);
 
         if (tuple.proof().is_valid(
                 tallySelection.ciphertext(),
@@ -219,9 +302,9 @@ public class RemoteDecryptions {
                   tuple.proof());
 
           selections.put(tallySelection.object_id(), share);
-          count++;
         } else {
-          // LOOK?
+          logger.atWarning().log("invalid compensated decryption proof from %s for %s selection %s",
+                  guardian.id(), missing_guardian_id, tallySelection.object_id());
         }
       }
 
@@ -242,6 +325,45 @@ public class RemoteDecryptions {
             contests);
   }
 
+  /**
+   * Compute a guardian's compensated decryption shares for a list of ballots, for all the missing guardians.
+   * There is one request to the guardian for each ballot, with at most MAX_BALLOTS_IN_FLIGHT outstanding.
+   * @return Map(MISSING_GUARDIAN_ID, Map(BALLOT_ID, CompensatedDecryptionShare))
+   */
+  public static Map<String, Map<String, CompensatedDecryptionShare>> computeCompensatedDecryptionSharesForBallots(
+          DecryptingTrusteeIF guardian,
+          List<String> missing_guardian_ids,
+          Iterable<SubmittedBallot> ballots,
+          ElectionContext context) {
+
+    List<SubmittedBallot> ballotList = new ArrayList<>();
+    List<Integer> ntexts = new ArrayList<>();
+    List<ListenableFuture<Map<String, List<DecryptionProofRecovery>>>> futures = new ArrayList<>();
+    for (SubmittedBallot ballot : ballots) {
+      if (futures.size() >= MAX_BALLOTS_IN_FLIGHT) {
+        // wait for the oldest request before sending another; the rest are gathered below
+        Futures.getUnchecked(futures.get(futures.size() - MAX_BALLOTS_IN_FLIGHT));
+      }
+      List<ElGamal.Ciphertext> texts = ballotTexts(ballot);
+      ballotList.add(ballot);
+      ntexts.add(texts.size());
+      futures.add(guardian.compensatedDecryptAllAsync(
+              missing_guardian_ids, texts, context.extendedHash(), null, MoreExecutors.directExecutor()));
+    }
+    List<Map<String, List<DecryptionProofRecovery>>> resultMaps = Futures.getUnchecked(Futures.allAsList(futures));
+
+    Map<String, Map<String, CompensatedDecryptionShare>> shares = new HashMap<>();
+    missing_guardian_ids.forEach(id -> shares.put(id, new HashMap<>()));
+    for (int i = 0; i < ballotList.size(); i++) {
+      SubmittedBallot ballot = ballotList.get(i);
+      for (String missing_guardian_id : missing_guardian_ids) {
+        shares.get(missing_guardian_id).put(ballot.object_id(), makeCompensatedBallotShare(guardian, missing_guardian_id,
+                ballot, context, ntexts.get(i), resultMaps.get(i).getOrDefault(missing_guardian_id, List.of())));
+      }
+    }
+    return shares;
+  }
+
   /**
    * Compute a guardian's share of a compensated decryption for a single ballot.
    * <p>
@@ -257,26 +379,32 @@ public class RemoteDecryptions {
           ElectionContext context) {
 
     // Get all the Ciphertext that need to be decrypted, and do so in one call
-    List<ElGamal.Ciphertext> texts = new ArrayList<>();
-    for (CiphertextBallot.Contest ballotContest : ballot.contests) {
-      for (CiphertextBallot.Selection selection : ballotContest.selections) {
-        texts.add(selection.ciphertext());
-      }
-    }
+    List<ElGamal.Ciphertext> texts = ballotTexts(ballot);
     List<DecryptionProofRecovery> results = guardian.compensatedDecrypt(
             missing_guardian_id,
             texts,
             context.extendedHash(),
             null);
+    return makeCompensatedBallotShare(guardian, missing_guardian_id, ballot, context, texts.size(), results);
+  }
 
-    // Create the guardian's DecryptionShare for the tally
+  private static CompensatedDecryptionShare makeCompensatedBallotShare(
+          DecryptingTrusteeIF guardian,
+          String missing_guardian_id,
+          SubmittedBallot ballot,
+          ElectionContext context,
+          int ntexts,
+          List<DecryptionProofRecovery> results) {
+    checkResults(guardian, ntexts, results);
+
+    // Create the guardian's DecryptionShare for the ballot
     int count = 0;
     Map<String, CiphertextCompensatedDecryptionContest> contests = new HashMap<>();
     for (CiphertextBallot.Contest ballotContest : ballot.contests) {
 
       Map<String, CiphertextCompensatedDecryptionSelection> selections = new HashMap<>();
       for (CiphertextBallot.Selection selection : ballotContest.selections) {
-        DecryptionProofRecovery tuple = results.get(count);
+        DecryptionProofRecovery tuple = results.get(count++);
 
         if (tuple.proof().is_valid(
                 selection.ciphertext(),
@@ -293,9 +421,9 @@ public class RemoteDecryptions {
                   tuple.proof());
 
           selections.put(selection.object_id(), share);
-          count++;
         } else {
-          // LOOK?
+          logger.atWarning().log("invalid compensated decryption proof from %s for %s ballot %s selection %s",
+                  guardian.id(), missing_guardian_id, ballot.object_id(), selection.object_id());
         }
       }
 
@@ -14,7 +14,6 @@ import com.sunya.electionguard.ElectionConstants;
 import com.sunya.electionguard.Group;
 import com.sunya.electionguard.InternalManifest;
 import com.sunya.electionguard.PlaintextTally;
-import com.sunya.electionguard.Scheduler;
 import com.sunya.electionguard.input.CiphertextTallyInputValidation;
 import com.sunya.electionguard.input.ManifestInputValidation;
 import com.sunya.electionguard.protoconvert.CommonConvert;
@@ -30,6 +29,7 @@ import io.grpc.ServerBuilder;
 import io.grpc.stub.StreamObserver;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -74,6 +74,12 @@ public class RunDecryptingMediator {
     @Parameter(names = {"-decryptSpoiled"}, order = 3, description = "Decrypt the spoiled ballots")
     boolean decryptSpoiled = false;
 
+    @Parameter(names = {"-spoiledBatchSize"}, order = 4, description = "Number of spoiled ballots decrypted at a time")
+    int spoiledBatchSize = DecryptingMediator.DEFAULT_SPOILED_BATCH_SIZE;
+
+    @Parameter(names = {"-deadline"}, order = 5, description = "Seconds to wait for each call to a remote guardian")
+    int deadlineSecs = 600;
+
     @Parameter(names = {"-h", "--help"}, order = 9, description = "Display this help and exit", help = true)
     boolean help = false;
 
@@ -127,7 +133,8 @@ public class RunDecryptingMediator {
       }
 
       decryptor = new RunDecryptingMediator(consumer, electionRecord, tallyResult,
-              cmdLine.encryptDir, cmdLine.outputDir, cmdLine.navailable, cmdLine.decryptSpoiled, publisher);
+              cmdLine.encryptDir, cmdLine.outputDir, cmdLine.navailable, cmdLine.decryptSpoiled, cmdLine.spoiledBatchSize,
+              Duration.ofSeconds(cmdLine.deadlineSecs), publisher);
       decryptor.start(cmdLine.port);
 
       System.out.print("Waiting for guardians to register: elapsed seconds = ");
@@ -153,7 +160,6 @@ public class RunDecryptingMediator {
       if (decryptor != null) {
         decryptor.shutdownRemoteTrustees(allOk);
       }
-      Scheduler.shutdown();
     }
 
     System.exit(allOk ? 0 : 1);
@@ -208,18 +214,20 @@ public class RunDecryptingMediator {
   final int quorum;
   final List<DecryptingRemoteTrusteeProxy> trusteeProxies = Collections.synchronizedList(new ArrayList<>());
   boolean startedDecryption = false;
-  boolean decryptSpoiled;
+  final boolean decryptSpoiled;
+  final int spoiledBatchSize;
+  final Duration deadline;
   TallyResult tallyResult;
 
   CiphertextTally encryptedTally;
   PlaintextTally decryptedTally;
-  List<PlaintextTally> spoiledDecryptedTallies;
+  DecryptingMediator mediator;
   List<AvailableGuardian> availableGuardians;
   final Publisher publisher;
 
   RunDecryptingMediator(Consumer consumer, ElectionRecord electionRecord, TallyResult tallyResult,
                         String encryptDir, String outputDir,
-                        int navailable, boolean decryptSpoiled, Publisher publisher) {
+                        int navailable, boolean decryptSpoiled, int spoiledBatchSize, Duration deadline, Publisher publisher) {
     this.consumer = consumer;
     this.electionRecord = electionRecord;
     this.encryptDir = encryptDir;
@@ -227,6 +235,8 @@ public class RunDecryptingMediator {
     this.navailable = navailable;
     this.publisher = publisher;
     this.decryptSpoiled = decryptSpoiled;
+    this.spoiledBatchSize = spoiledBatchSize;
+    this.deadline = deadline;
     this.nguardians = electionRecord.numberOfGuardians();
     this.quorum = electionRecord.quorum();
     this.tallyResult = tallyResult;
@@ -279,7 +289,7 @@ public class RunDecryptingMediator {
     System.out.printf("%nAccumulate tally%n");
     InternalManifest metadata = new InternalManifest(this.electionRecord.manifest());
     CiphertextTallyBuilder ciphertextTally = new CiphertextTallyBuilder("DecryptingMediatorRunner", metadata, electionRecord);
-    int nballots = ciphertextTally.batch_append(electionRecord.submittedBallots());
+    int nballots = ciphertextTally.batch_append(electionRecord.submittedBallotCiphertexts());
     this.encryptedTally = ciphertextTally.build();
     System.out.printf(" done accumulating %d ballots in the tally%n", nballots);
   }
@@ -292,11 +302,13 @@ public class RunDecryptingMediator {
     Map<String, Group.ElementModP> guardianPublicKeys = electionRecord.guardians().stream().collect(
             Collectors.toMap(guardian -> guardian.getGuardianId(), guardian -> guardian.publicKey()));
 
-    DecryptingMediator mediator = new DecryptingMediator(
+    this.mediator = new DecryptingMediator(
             this.electionRecord,
             this.encryptedTally,
             this.decryptSpoiled ? consumer.iterateSpoiledBallots() : ImmutableList.of(),
-            guardianPublicKeys);
+            guardianPublicKeys,
+            (trusteeId, what, elapsed) -> System.out.printf("  Guardian %s finished %s in %d secs%n",
+                    trusteeId, what, elapsed.toSeconds()));
 
     int count = 0;
     for (DecryptingRemoteTrusteeProxy guardian : this.trusteeProxies) {
@@ -313,12 +325,6 @@ public class RunDecryptingMediator {
     // Here's where the ciphertext Tally is decrypted.
     this.decryptedTally = mediator.get_plaintext_tally().orElseThrow();
 
-    // Here's where the spoiled ballots are decrypted.
-    if (this.decryptSpoiled) {
-      this.spoiledDecryptedTallies = mediator.decrypt_spoiled_ballots().orElseThrow();
-      System.out.printf("SpoiledBallotAndTally = %d%n", spoiledDecryptedTallies.size());
-    }
-
     this.availableGuardians = mediator.getAvailableGuardians();
     System.out.printf("Done decrypting tally%n%n");
   }
@@ -354,6 +360,13 @@ public class RunDecryptingMediator {
     );
 
     publisher.writeDecryptionResults(results);
+
+    // Here's where the spoiled ballots are decrypted, a batch at a time as they are written.
+    if (this.decryptSpoiled) {
+      System.out.printf("Decrypt spoiled ballots in batches of %d%n", this.spoiledBatchSize);
+      publisher.writeSpoiledBallots(mediator.decrypt_spoiled_ballots(this.spoiledBatchSize));
+      System.out.printf("Done decrypting spoiled ballots%n");
+    }
     publisher.copyAcceptedBallots(inputDir);
   }
 
@@ -370,6 +383,7 @@ public class RunDecryptingMediator {
     builder.setUrl(request.getRemoteUrl());
     builder.setXCoordinate(request.getGuardianXCoordinate());
     builder.setElectionPublicKey(CommonConvert.importElementModP(request.getPublicKey()));
+    builder.setDeadline(this.deadline);
     DecryptingRemoteTrusteeProxy trustee = builder.build();
     trusteeProxies.add(trustee);
     return trustee;
@@ -20,6 +20,7 @@ import io.grpc.stub.StreamObserver;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
@@ -60,6 +61,9 @@ public class KeyCeremonyRemote {
     @Parameter(names = {"-port"}, order = 4, description = "The port to run the server on")
     int port = 17111;
 
+    @Parameter(names = {"-deadline"}, order = 5, description = "Seconds to wait for each call to a remote guardian")
+    int deadlineSecs = 60;
+
     @Parameter(names = {"-h", "--help"}, order = 9, description = "Display this help and exit", help = true)
     boolean help = false;
 
@@ -105,7 +109,7 @@ public class KeyCeremonyRemote {
       }
 
       ElectionConfig config = new ElectionConfig(election.getManifest(), cmdLine.nguardians, cmdLine.quorum);
-      keyCeremony = new KeyCeremonyRemote(config, cmdLine.outputDir);
+      keyCeremony = new KeyCeremonyRemote(config, cmdLine.outputDir, Duration.ofSeconds(cmdLine.deadlineSecs));
       keyCeremony.start(cmdLine.port);
 
       System.out.print("Waiting for guardians to register: elapsed seconds = ");
@@ -170,11 +174,13 @@ public class KeyCeremonyRemote {
   final int nguardians;
   final int quorum;
   final Publisher publisher;
+  final Duration deadline;
   final List<KeyCeremonyRemoteTrusteeProxy> trusteeProxies = Collections.synchronizedList(new ArrayList<>());
   boolean startedKeyCeremony = false;
 
-  KeyCeremonyRemote(ElectionConfig config, String outputDir) throws IOException {
+  KeyCeremonyRemote(ElectionConfig config, String outputDir, Duration deadline) throws IOException {
     this.config = config;
+    this.deadline = deadline;
     this.manifest = config.getManifest();
     this.nguardians = config.getNumberOfGuardians();
     this.quorum = config.getQuorum();
@@ -254,6 +260,7 @@ public class KeyCeremonyRemote {
     builder.setUrl(url);
     builder.setCoordinate(coordinate);
     builder.setQuorum(this.quorum);
+    builder.setDeadline(this.deadline);
     KeyCeremonyRemoteTrusteeProxy trustee = builder.build();
     trusteeProxies.add(trustee);
     return trustee;
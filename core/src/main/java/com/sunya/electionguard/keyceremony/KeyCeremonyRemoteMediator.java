@@ -1,11 +1,16 @@
 package com.sunya.electionguard.keyceremony;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sunya.electionguard.ElectionCryptoContext;
 import com.sunya.electionguard.Group;
 import com.sunya.electionguard.GuardianRecord;
 import com.sunya.electionguard.Hash;
 import com.sunya.electionguard.Manifest;
+import com.sunya.electionguard.TaskExecutor;
 import com.sunya.electionguard.core.UInt256;
 import com.sunya.electionguard.publish.Publisher;
 import electionguard.ballot.ElectionConfig;
@@ -22,6 +27,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 
 import static java.util.Collections.emptyMap;
 
@@ -32,6 +38,7 @@ public class KeyCeremonyRemoteMediator {
   final Manifest election;
   final int quorum;
   final List<KeyCeremonyTrusteeIF> trusteeProxies;
+  final TaskExecutor executor;
 
   final Map<String, KeyCeremony2.PublicKeySet> publicKeysMap = new HashMap<>();
   final List<Guardian> guardianRecords = new ArrayList<>();
@@ -42,9 +49,16 @@ public class KeyCeremonyRemoteMediator {
 
   public KeyCeremonyRemoteMediator(Manifest election, int quorum,
                                    List<KeyCeremonyTrusteeIF> trusteeProxies) {
+    this(election, quorum, trusteeProxies, TaskExecutor.getDefault());
+  }
+
+  /** The trustee calls of each round are made concurrently; blocking calls run in the executor. */
+  public KeyCeremonyRemoteMediator(Manifest election, int quorum,
+                                   List<KeyCeremonyTrusteeIF> trusteeProxies, TaskExecutor executor) {
     this.election = election;
     this.quorum = quorum;
-    this.trusteeProxies = trusteeProxies;
+    this.trusteeProxies = ImmutableList.copyOf(trusteeProxies);
+    this.executor = executor;
     System.out.printf("  KeyCeremonyRemoteMediator %d Guardians, quorum = %d%n", this.trusteeProxies.size(), this.quorum);
 
     HashSet<String> ids = new HashSet<>();
@@ -104,21 +118,47 @@ public class KeyCeremonyRemoteMediator {
   /**
    * Round 1. Each guardian shares their public keys with all the other guardians
    * Each guardian validates the other guardian's commitments against their proof.
+   * All the calls are made concurrently; each guardian's keys are sent on as soon as they arrive.
    * Return true on success.
    */
   public boolean round1() {
-    boolean fail = false;
+    List<ListenableFuture<Optional<KeyCeremony2.PublicKeySet>>> sent = new ArrayList<>();
+    List<ListenableFuture<List<String>>> received = new ArrayList<>();
     for (KeyCeremonyTrusteeIF trustee : trusteeProxies) {
-      Optional<KeyCeremony2.PublicKeySet> publicKeysO = trustee.sendPublicKeys();
+      ListenableFuture<Optional<KeyCeremony2.PublicKeySet>> publicKeysF = trustee.sendPublicKeysAsync(executor.executor());
+      sent.add(publicKeysF);
+      // one could gather all PublicKeySets and send all at once, for 2*n, rather than n*n total messages.
+      received.add(Futures.transformAsync(publicKeysF, publicKeysO -> {
+        if (publicKeysO.isEmpty()) {
+          return Futures.immediateFuture(ImmutableList.of());
+        }
+        List<ListenableFuture<String>> errors = new ArrayList<>();
+        for (KeyCeremonyTrusteeIF recipient : trusteeProxies) {
+          if (!trustee.id().equals(recipient.id())) {
+            errors.add(recipient.receivePublicKeysAsync(publicKeysO.get(), executor.executor()));
+          }
+        }
+        return Futures.allAsList(errors);
+      }, MoreExecutors.directExecutor()));
+    }
+    if (await("Round1", received).isEmpty()) {
+      return false;
+    }
+
+    boolean fail = false;
+    for (int i = 0; i < trusteeProxies.size(); i++) {
+      KeyCeremonyTrusteeIF trustee = trusteeProxies.get(i);
+      Optional<KeyCeremony2.PublicKeySet> publicKeysO = Futures.getUnchecked(sent.get(i));
       if (publicKeysO.isEmpty()) {
         fail = true;
       } else {
         KeyCeremony2.PublicKeySet publicKeys = publicKeysO.get();
         this.publicKeysMap.put(publicKeys.ownerId(), publicKeys);
-        // one could gather all PublicKeySets and send all at once, for 2*n, rather than n*n total messages.
+        List<String> errors = Futures.getUnchecked(received.get(i));
+        int count = 0;
         for (KeyCeremonyTrusteeIF recipient : trusteeProxies) {
           if (!trustee.id().equals(recipient.id())) {
-            String error = recipient.receivePublicKeys(publicKeys);
+            String error = errors.get(count++);
             if (!error.isEmpty()) {
               System.out.printf("PublicKey Commitments: '%s' failed to validate '%s', error = '%s'%n", recipient.id(), trustee.id(), error);
               fail = true;
@@ -133,33 +173,44 @@ public class KeyCeremonyRemoteMediator {
   /**
    * Round 2. Each guardian shares partial key backups with each of the other guardians,
    * Each guardian verifies their own backups.
+   * All n * (n-1) backups are requested concurrently; each one is sent on for verification as soon as it arrives.
    * Return true on success.
    */
   public boolean round2(List<KeyCeremony2.PartialKeyVerification> failures) {
-    boolean fail = false;
+    List<KeyCeremonyTrusteeIF> senders = new ArrayList<>();
+    List<KeyCeremonyTrusteeIF> recipients = new ArrayList<>();
+    List<ListenableFuture<Optional<KeyCeremony2.PartialKeyVerification>>> verifications = new ArrayList<>();
     for (KeyCeremonyTrusteeIF trustee : trusteeProxies) {
       // one could gather all KeyBackups and send all at once, for 2*n, rather than 2*n*n total messages.
       for (KeyCeremonyTrusteeIF recipient : trusteeProxies) {
         if (!trustee.id().equals(recipient.id())) {
           // Each guardian T_i then publishes the encryption E_l(P_i(l)) for every other guardian T_l
           // This is the ElectionPartialKeyBackup
-          Optional<KeyCeremony2.PartialKeyBackup> backupO = trustee.sendPartialKeyBackup(recipient.id());
-          if (backupO.isEmpty()) {
-            fail = true;
-          } else {
-            KeyCeremony2.PartialKeyBackup backup = backupO.get();
-            Optional<KeyCeremony2.PartialKeyVerification> verifyO = recipient.verifyPartialKeyBackup(backup);
-            if (verifyO.isEmpty()) {
-              fail = true;
-            } else {
-              KeyCeremony2.PartialKeyVerification verify = verifyO.get();
-              if (!verify.error().isEmpty()) {
-                System.out.printf("Guardian %s backup challenged by Guardian %s error = '%s'%n",
-                        trustee.id(), recipient.id(), verify.error());
-                failures.add(verify);
-              }
-            }
-          }
+          senders.add(trustee);
+          recipients.add(recipient);
+          verifications.add(Futures.transformAsync(trustee.sendPartialKeyBackupAsync(recipient.id(), executor.executor()),
+                  backupO -> backupO.isEmpty() ? Futures.immediateFuture(Optional.empty()) :
+                          recipient.verifyPartialKeyBackupAsync(backupO.get(), executor.executor()),
+                  MoreExecutors.directExecutor()));
+        }
+      }
+    }
+    Optional<List<Optional<KeyCeremony2.PartialKeyVerification>>> results = await("Round2", verifications);
+    if (results.isEmpty()) {
+      return false;
+    }
+
+    boolean fail = false;
+    for (int i = 0; i < verifications.size(); i++) {
+      Optional<KeyCeremony2.PartialKeyVerification> verifyO = results.get().get(i);
+      if (verifyO.isEmpty()) {
+        fail = true;
+      } else {
+        KeyCeremony2.PartialKeyVerification verify = verifyO.get();
+        if (!verify.error().isEmpty()) {
+          System.out.printf("Guardian %s backup challenged by Guardian %s error = '%s'%n",
+                  senders.get(i).id(), recipients.get(i).id(), verify.error());
+          failures.add(verify);
         }
       }
     }
@@ -169,11 +220,13 @@ public class KeyCeremonyRemoteMediator {
   /**
    * Round 3. For any partial backup verification failures, each challenged guardian broadcasts its response to the challenge.
    * The mediator verifies the challenge. In point to point, each guardian would validate.
+   * The challenges are sent concurrently.
    * Return true on success.
    */
   public boolean round3(List<KeyCeremony2.PartialKeyVerification> failures) {
     boolean fail = false;
     // Each Guardian verifies all other Guardians' partial key backup
+    List<ListenableFuture<Optional<KeyCeremony2.PartialKeyVerification>>> challenges = new ArrayList<>();
     for (KeyCeremony2.PartialKeyVerification failure : failures) {
       // LOOK when/why does verifyPartialKeyBackup fail, but verifyPartialKeyChallenge succeed?
       //  when the designated Guardian is lying or mistaken?
@@ -186,47 +239,69 @@ public class KeyCeremonyRemoteMediator {
       if (challengedO.isEmpty()) {
         System.out.printf("generatingGuardianId %s not found in trusteeProxies%n", failure.generatingGuardianId());
         fail = true;
+        challenges.add(Futures.immediateFuture(Optional.empty()));
       } else {
         KeyCeremonyTrusteeIF challenged = challengedO.get();
-        Optional<KeyCeremony2.PartialKeyChallengeResponse> responseO = challenged.sendBackupChallenge(failure.designatedGuardianId());
-        if (responseO.isEmpty()) {
+        challenges.add(Futures.transform(challenged.sendBackupChallengeAsync(failure.designatedGuardianId(), executor.executor()),
+                responseO -> responseO.map(this::verifyChallengeResponse), executor.executor()));
+      }
+    }
+    Optional<List<Optional<KeyCeremony2.PartialKeyVerification>>> results = await("Round3", challenges);
+    if (results.isEmpty()) {
+      return false;
+    }
+
+    for (int i = 0; i < failures.size(); i++) {
+      KeyCeremony2.PartialKeyVerification failure = failures.get(i);
+      Optional<KeyCeremony2.PartialKeyVerification> challengeVerifyO = results.get().get(i);
+      if (challengeVerifyO.isEmpty()) {
+        fail = true;
+      } else {
+        KeyCeremony2.PartialKeyVerification challenge_verify = challengeVerifyO.get();
+        if (!challenge_verify.error().isEmpty()) {
+          System.out.printf("***FAILED to validate Guardian %s backup that was challenged by Guardian %s error = %s%n",
+                  failure.generatingGuardianId(), failure.designatedGuardianId(), challenge_verify.error());
           fail = true;
         } else {
-          KeyCeremony2.PartialKeyChallengeResponse response = responseO.get();
-
-          // If guardian T_i fails to produce a suitable P_i(l) that match both the published encryption and the above equation, it should be
-          // excluded from the election and the key generation process should be restarted with an
-          // alternate guardian. If, however, the published P_i(l) satisfy both the published
-          // encryption and the equation above, the claim of malfeasance is dismissed and the key
-          // generation process continues undeterred.
-          KeyCeremony2.PublicKeySet challengedGuardianKeys = publicKeysMap.get(response.generatingGuardianId());
-          KeyCeremony2.PartialKeyVerification challenge_verify = KeyCeremony2.verifyElectionPartialKeyChallenge(response, challengedGuardianKeys.coefficientCommitments());
-          if (!challenge_verify.error().isEmpty()) {
-            System.out.printf("***FAILED to validate Guardian %s backup that was challenged by Guardian %s error = %s%n",
-                    failure.generatingGuardianId(), failure.designatedGuardianId(), challenge_verify.error());
-            fail = true;
-          } else {
-            System.out.printf("***SUCCESS validate Guardian %s backup that was challenged by Guardian %s%n",
-                    failure.generatingGuardianId(), failure.designatedGuardianId());
-          }
+          System.out.printf("***SUCCESS validate Guardian %s backup that was challenged by Guardian %s%n",
+                  failure.generatingGuardianId(), failure.designatedGuardianId());
         }
       }
     }
     return !fail;
   }
 
+  // If guardian T_i fails to produce a suitable P_i(l) that match both the published encryption and the above equation, it should be
+  // excluded from the election and the key generation process should be restarted with an
+  // alternate guardian. If, however, the published P_i(l) satisfy both the published
+  // encryption and the equation above, the claim of malfeasance is dismissed and the key
+  // generation process continues undeterred.
+  private KeyCeremony2.PartialKeyVerification verifyChallengeResponse(KeyCeremony2.PartialKeyChallengeResponse response) {
+    KeyCeremony2.PublicKeySet challengedGuardianKeys = publicKeysMap.get(response.generatingGuardianId());
+    return KeyCeremony2.verifyElectionPartialKeyChallenge(response, challengedGuardianKeys.coefficientCommitments());
+  }
+
   /**
    * Round 4. All guardians compute and send their joint election public key.
    * If they agree, then key ceremony is a success.
+   * The requests are sent concurrently.
    * Return true on success.
    */
   public boolean round4() {
+    List<ListenableFuture<Optional<Group.ElementModP>>> calls = trusteeProxies.stream()
+            .map(sender -> sender.sendJointPublicKeyAsync(executor.executor()))
+            .toList();
+    Optional<List<Optional<Group.ElementModP>>> results = await("Round4", calls);
+    if (results.isEmpty()) {
+      return false;
+    }
+
     boolean fail = false;
     boolean allMatch = true;
-
     SortedMap<String, Group.ElementModP> jointKeys = new TreeMap<>();
-    for (KeyCeremonyTrusteeIF sender : trusteeProxies) {
-      Optional<Group.ElementModP> jointKeyO = sender.sendJointPublicKey();
+    for (int i = 0; i < trusteeProxies.size(); i++) {
+      KeyCeremonyTrusteeIF sender = trusteeProxies.get(i);
+      Optional<Group.ElementModP> jointKeyO = results.get().get(i);
       if (jointKeyO.isEmpty()) {
         fail = true;
       } else {
@@ -251,6 +326,26 @@ public class KeyCeremonyRemoteMediator {
     return !fail && allMatch;
   }
 
+  /**
+   * The barrier between rounds: wait for all the calls of a round to finish.
+   * Each remote call has its own deadline, so this does not wait forever on an unresponsive guardian.
+   * @return the results in the same order as the calls, or empty if any call failed.
+   */
+  private <T> Optional<List<T>> await(String round, List<ListenableFuture<T>> calls) {
+    ListenableFuture<List<T>> all = Futures.allAsList(calls);
+    try {
+      return Optional.of(all.get());
+    } catch (InterruptedException e) {
+      all.cancel(true);
+      Thread.currentThread().interrupt();
+      logger.atSevere().log("%s interrupted", round);
+      return Optional.empty();
+    } catch (ExecutionException e) {
+      logger.atSevere().withCause(e.getCause()).log("%s failed", round);
+      return Optional.empty();
+    }
+  }
+
   public boolean makeCoefficientValidationSets() {
     // The hashing is order dependent, use the x coordinate to sort.
     List<KeyCeremony2.PublicKeySet> sorted = this.publicKeysMap.values().stream()
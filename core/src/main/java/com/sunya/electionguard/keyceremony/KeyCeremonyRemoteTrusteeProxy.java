@@ -1,6 +1,10 @@
 package com.sunya.electionguard.keyceremony;
 
+import com.google.common.base.Preconditions;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sunya.electionguard.Group;
 import com.sunya.electionguard.SchnorrProof;
 import com.sunya.electionguard.protoconvert.CommonConvert;
@@ -11,16 +15,20 @@ import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.StatusRuntimeException;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import static electionguard.protogen.RemoteKeyCeremonyTrusteeServiceGrpc.RemoteKeyCeremonyTrusteeServiceBlockingStub;
+import static electionguard.protogen.RemoteKeyCeremonyTrusteeServiceGrpc.RemoteKeyCeremonyTrusteeServiceFutureStub;
 
 /** A Remote Trustee client proxy, communicating over gRpc. */
 class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private static final int MAX_MESSAGE = 51 * 1000 * 1000; // 51 Mb
+  static final Duration DEFAULT_DEADLINE = Duration.ofMinutes(1);
 
   @Override
   public String id() {
@@ -36,19 +44,7 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
   public Optional<KeyCeremony2.PublicKeySet> sendPublicKeys() {
     try {
       logger.atInfo().log("%s sendPublicKeys", id());
-      RemoteKeyCeremonyTrusteeProto.PublicKeySetRequest request = RemoteKeyCeremonyTrusteeProto.PublicKeySetRequest.getDefaultInstance();
-      RemoteKeyCeremonyTrusteeProto.PublicKeySet response = blockingStub.sendPublicKeys(request);
-      if (!response.getError().isEmpty()) {
-        logger.atSevere().log("sendPublicKeys failed: %s", response.getError());
-        return Optional.empty();
-      }
-      List<SchnorrProof> proofs = response.getCoefficientProofsList().stream()
-              .map(CommonConvert::importSchnorrProof)
-              .toList();
-      return Optional.of(new KeyCeremony2.PublicKeySet(
-              response.getOwnerId(),
-              response.getGuardianXCoordinate(),
-              proofs));
+      return convertPublicKeySet(blockingStub().sendPublicKeys(RemoteKeyCeremonyTrusteeProto.PublicKeySetRequest.getDefaultInstance()));
 
     } catch (StatusRuntimeException e) {
       logger.atSevere().withCause(e).log("sendPublicKeys failed: ");
@@ -56,20 +52,34 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
     }
   }
 
+  @Override
+  public ListenableFuture<Optional<KeyCeremony2.PublicKeySet>> sendPublicKeysAsync(Executor executor) {
+    logger.atInfo().log("%s sendPublicKeysAsync", id());
+    ListenableFuture<Optional<KeyCeremony2.PublicKeySet>> result = Futures.transform(
+            futureStub().sendPublicKeys(RemoteKeyCeremonyTrusteeProto.PublicKeySetRequest.getDefaultInstance()),
+            this::convertPublicKeySet, executor);
+    return catching(result, "sendPublicKeys", Optional.empty());
+  }
+
+  private Optional<KeyCeremony2.PublicKeySet> convertPublicKeySet(RemoteKeyCeremonyTrusteeProto.PublicKeySet response) {
+    if (!response.getError().isEmpty()) {
+      logger.atSevere().log("sendPublicKeys failed: %s", response.getError());
+      return Optional.empty();
+    }
+    List<SchnorrProof> proofs = response.getCoefficientProofsList().stream()
+            .map(CommonConvert::importSchnorrProof)
+            .toList();
+    return Optional.of(new KeyCeremony2.PublicKeySet(
+            response.getOwnerId(),
+            response.getGuardianXCoordinate(),
+            proofs));
+  }
+
   @Override
   public String receivePublicKeys(KeyCeremony2.PublicKeySet keyset) {
     try {
       logger.atInfo().log("%s receivePublicKeys from %s", id(), keyset.ownerId());
-      RemoteKeyCeremonyTrusteeProto.PublicKeySet.Builder request = RemoteKeyCeremonyTrusteeProto.PublicKeySet.newBuilder();
-      request.setOwnerId(keyset.ownerId())
-              .setGuardianXCoordinate(keyset.guardianXCoordinate());
-      keyset.coefficientProofs().forEach(p -> request.addCoefficientProofs(CommonConvert.publishSchnorrProof(p)));
-
-      CommonRpcProto.ErrorResponse response = blockingStub.receivePublicKeys(request.build());
-      if (!response.getError().isEmpty()) {
-        logger.atSevere().log("receivePublicKeys failed: '%s'", response.getError());
-      }
-      return response.getError();
+      return convertReceiveResponse(blockingStub().receivePublicKeys(makePublicKeySet(keyset)));
 
     } catch (StatusRuntimeException e) {
       logger.atSevere().withCause(e).log("receivePublicKeys StatusRuntimeException: ");
@@ -77,17 +87,36 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
     }
   }
 
+  @Override
+  public ListenableFuture<String> receivePublicKeysAsync(KeyCeremony2.PublicKeySet keyset, Executor executor) {
+    logger.atInfo().log("%s receivePublicKeysAsync from %s", id(), keyset.ownerId());
+    ListenableFuture<String> result = Futures.transform(futureStub().receivePublicKeys(makePublicKeySet(keyset)),
+            this::convertReceiveResponse, executor);
+    return Futures.catching(result, StatusRuntimeException.class, e -> {
+      logger.atSevere().withCause(e).log("receivePublicKeys StatusRuntimeException: ");
+      return "receivePublicKeys StatusRuntimeException: " + e.getMessage();
+    }, MoreExecutors.directExecutor());
+  }
+
+  private RemoteKeyCeremonyTrusteeProto.PublicKeySet makePublicKeySet(KeyCeremony2.PublicKeySet keyset) {
+    RemoteKeyCeremonyTrusteeProto.PublicKeySet.Builder request = RemoteKeyCeremonyTrusteeProto.PublicKeySet.newBuilder();
+    request.setOwnerId(keyset.ownerId())
+            .setGuardianXCoordinate(keyset.guardianXCoordinate());
+    keyset.coefficientProofs().forEach(p -> request.addCoefficientProofs(CommonConvert.publishSchnorrProof(p)));
+    return request.build();
+  }
+
+  private String convertReceiveResponse(CommonRpcProto.ErrorResponse response) {
+    if (!response.getError().isEmpty()) {
+      logger.atSevere().log("receivePublicKeys failed: '%s'", response.getError());
+    }
+    return response.getError();
+  }
+
   @Override
   public Optional<KeyCeremony2.PartialKeyBackup> sendPartialKeyBackup(String guardianId) {
     try {
-      RemoteKeyCeremonyTrusteeProto.PartialKeyBackupRequest request = RemoteKeyCeremonyTrusteeProto.PartialKeyBackupRequest.newBuilder().setGuardianId(guardianId).build();
-      RemoteKeyCeremonyTrusteeProto.PartialKeyBackup response = blockingStub.sendPartialKeyBackup(request);
-      return Optional.of(new KeyCeremony2.PartialKeyBackup(
-              response.getGeneratingGuardianId(),
-              response.getDesignatedGuardianId(),
-              response.getDesignatedGuardianXCoordinate(),
-              CommonConvert.importElementModQ(response.getCoordinate()),
-              response.getError()));
+      return convertPartialKeyBackup(blockingStub().sendPartialKeyBackup(makePartialKeyBackupRequest(guardianId)));
 
     } catch (StatusRuntimeException e) {
       logger.atSevere().withCause(e).log("sendPartialKeyBackup failed: ");
@@ -95,20 +124,31 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
     }
   }
 
+  @Override
+  public ListenableFuture<Optional<KeyCeremony2.PartialKeyBackup>> sendPartialKeyBackupAsync(String guardianId, Executor executor) {
+    ListenableFuture<Optional<KeyCeremony2.PartialKeyBackup>> result = Futures.transform(
+            futureStub().sendPartialKeyBackup(makePartialKeyBackupRequest(guardianId)),
+            this::convertPartialKeyBackup, executor);
+    return catching(result, "sendPartialKeyBackup", Optional.empty());
+  }
+
+  private RemoteKeyCeremonyTrusteeProto.PartialKeyBackupRequest makePartialKeyBackupRequest(String guardianId) {
+    return RemoteKeyCeremonyTrusteeProto.PartialKeyBackupRequest.newBuilder().setGuardianId(guardianId).build();
+  }
+
+  private Optional<KeyCeremony2.PartialKeyBackup> convertPartialKeyBackup(RemoteKeyCeremonyTrusteeProto.PartialKeyBackup response) {
+    return Optional.of(new KeyCeremony2.PartialKeyBackup(
+            response.getGeneratingGuardianId(),
+            response.getDesignatedGuardianId(),
+            response.getDesignatedGuardianXCoordinate(),
+            CommonConvert.importElementModQ(response.getCoordinate()),
+            response.getError()));
+  }
+
   @Override
   public Optional<KeyCeremony2.PartialKeyVerification> verifyPartialKeyBackup(KeyCeremony2.PartialKeyBackup backup) {
     try {
-      RemoteKeyCeremonyTrusteeProto.PartialKeyBackup.Builder request = RemoteKeyCeremonyTrusteeProto.PartialKeyBackup.newBuilder();
-      request.setGeneratingGuardianId(backup.generatingGuardianId())
-              .setDesignatedGuardianId(backup.designatedGuardianId())
-              .setDesignatedGuardianXCoordinate(backup.designatedGuardianXCoordinate())
-              .setCoordinate(CommonConvert.publishElementModQ(backup.coordinate()));
-
-      RemoteKeyCeremonyTrusteeProto.PartialKeyVerification response = blockingStub.verifyPartialKeyBackup(request.build());
-      return Optional.of(new KeyCeremony2.PartialKeyVerification(
-              response.getGeneratingGuardianId(),
-              response.getDesignatedGuardianId(),
-              response.getError()));
+      return convertPartialKeyVerification(blockingStub().verifyPartialKeyBackup(makePartialKeyBackup(backup)));
 
     } catch (StatusRuntimeException e) {
       logger.atSevere().withCause(e).log("verifyPartialKeyBackup failed: ");
@@ -116,18 +156,36 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
     }
   }
 
+  @Override
+  public ListenableFuture<Optional<KeyCeremony2.PartialKeyVerification>> verifyPartialKeyBackupAsync(
+          KeyCeremony2.PartialKeyBackup backup, Executor executor) {
+    ListenableFuture<Optional<KeyCeremony2.PartialKeyVerification>> result = Futures.transform(
+            futureStub().verifyPartialKeyBackup(makePartialKeyBackup(backup)),
+            this::convertPartialKeyVerification, executor);
+    return catching(result, "verifyPartialKeyBackup", Optional.empty());
+  }
+
+  private RemoteKeyCeremonyTrusteeProto.PartialKeyBackup makePartialKeyBackup(KeyCeremony2.PartialKeyBackup backup) {
+    RemoteKeyCeremonyTrusteeProto.PartialKeyBackup.Builder request = RemoteKeyCeremonyTrusteeProto.PartialKeyBackup.newBuilder();
+    request.setGeneratingGuardianId(backup.generatingGuardianId())
+            .setDesignatedGuardianId(backup.designatedGuardianId())
+            .setDesignatedGuardianXCoordinate(backup.designatedGuardianXCoordinate())
+            .setCoordinate(CommonConvert.publishElementModQ(backup.coordinate()));
+    return request.build();
+  }
+
+  private Optional<KeyCeremony2.PartialKeyVerification> convertPartialKeyVerification(
+          RemoteKeyCeremonyTrusteeProto.PartialKeyVerification response) {
+    return Optional.of(new KeyCeremony2.PartialKeyVerification(
+            response.getGeneratingGuardianId(),
+            response.getDesignatedGuardianId(),
+            response.getError()));
+  }
+
   @Override
   public Optional<KeyCeremony2.PartialKeyChallengeResponse> sendBackupChallenge(String guardianId) {
     try {
-      RemoteKeyCeremonyTrusteeProto.PartialKeyChallenge request = RemoteKeyCeremonyTrusteeProto.PartialKeyChallenge.newBuilder().setGuardianId(guardianId).build();
-      RemoteKeyCeremonyTrusteeProto.PartialKeyChallengeResponse response = blockingStub.sendBackupChallenge(request);
-       return Optional.of(new KeyCeremony2.PartialKeyChallengeResponse(
-              response.getGeneratingGuardianId(),
-              response.getDesignatedGuardianId(),
-              response.getDesignatedGuardianXCoordinate(),
-              CommonConvert.importElementModQ(response.getCoordinate()),
-              response.getError()));
-
+      return convertChallengeResponse(blockingStub().sendBackupChallenge(makeChallenge(guardianId)));
 
     } catch (StatusRuntimeException e) {
       logger.atSevere().withCause(e).log("sendBackupChallenge failed: ");
@@ -135,16 +193,33 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
     }
   }
 
+  @Override
+  public ListenableFuture<Optional<KeyCeremony2.PartialKeyChallengeResponse>> sendBackupChallengeAsync(
+          String guardianId, Executor executor) {
+    ListenableFuture<Optional<KeyCeremony2.PartialKeyChallengeResponse>> result = Futures.transform(
+            futureStub().sendBackupChallenge(makeChallenge(guardianId)),
+            this::convertChallengeResponse, executor);
+    return catching(result, "sendBackupChallenge", Optional.empty());
+  }
+
+  private RemoteKeyCeremonyTrusteeProto.PartialKeyChallenge makeChallenge(String guardianId) {
+    return RemoteKeyCeremonyTrusteeProto.PartialKeyChallenge.newBuilder().setGuardianId(guardianId).build();
+  }
+
+  private Optional<KeyCeremony2.PartialKeyChallengeResponse> convertChallengeResponse(
+          RemoteKeyCeremonyTrusteeProto.PartialKeyChallengeResponse response) {
+    return Optional.of(new KeyCeremony2.PartialKeyChallengeResponse(
+            response.getGeneratingGuardianId(),
+            response.getDesignatedGuardianId(),
+            response.getDesignatedGuardianXCoordinate(),
+            CommonConvert.importElementModQ(response.getCoordinate()),
+            response.getError()));
+  }
+
   @Override
   public Optional<Group.ElementModP> sendJointPublicKey() {
     try {
-      RemoteKeyCeremonyTrusteeProto.JointPublicKeyRequest request = RemoteKeyCeremonyTrusteeProto.JointPublicKeyRequest.getDefaultInstance();
-      RemoteKeyCeremonyTrusteeProto.JointPublicKeyResponse response = blockingStub.sendJointPublicKey(request);
-      if (!response.getError().isEmpty()) {
-        logger.atSevere().log("sendJointPublicKey failed: %s", response.getError());
-        return Optional.empty();
-      }
-      return Optional.ofNullable(CommonConvert.importElementModP(response.getJointPublicKey()));
+      return convertJointPublicKey(blockingStub().sendJointPublicKey(RemoteKeyCeremonyTrusteeProto.JointPublicKeyRequest.getDefaultInstance()));
 
     } catch (StatusRuntimeException e) {
       logger.atSevere().withCause(e).log("sendJointPublicKey failed: ");
@@ -152,9 +227,42 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
     }
   }
 
+  @Override
+  public ListenableFuture<Optional<Group.ElementModP>> sendJointPublicKeyAsync(Executor executor) {
+    ListenableFuture<Optional<Group.ElementModP>> result = Futures.transform(
+            futureStub().sendJointPublicKey(RemoteKeyCeremonyTrusteeProto.JointPublicKeyRequest.getDefaultInstance()),
+            this::convertJointPublicKey, executor);
+    return catching(result, "sendJointPublicKey", Optional.empty());
+  }
+
+  private Optional<Group.ElementModP> convertJointPublicKey(RemoteKeyCeremonyTrusteeProto.JointPublicKeyResponse response) {
+    if (!response.getError().isEmpty()) {
+      logger.atSevere().log("sendJointPublicKey failed: %s", response.getError());
+      return Optional.empty();
+    }
+    return Optional.ofNullable(CommonConvert.importElementModP(response.getJointPublicKey()));
+  }
+
+  /** A failed call, including an expired deadline, is logged and becomes the failed value, as in the blocking calls. */
+  private <T> ListenableFuture<T> catching(ListenableFuture<T> result, String what, T failed) {
+    return Futures.catching(result, StatusRuntimeException.class, e -> {
+      logger.atSevere().withCause(e).log("%s %s failed: ", id(), what);
+      return failed;
+    }, MoreExecutors.directExecutor());
+  }
+
+  /** Each call gets its own deadline, counted from when the call is made. */
+  private RemoteKeyCeremonyTrusteeServiceBlockingStub blockingStub() {
+    return blockingStub.withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private RemoteKeyCeremonyTrusteeServiceFutureStub futureStub() {
+    return futureStub.withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
   boolean saveState() {
     try {
-      CommonRpcProto.ErrorResponse response = blockingStub.saveState(com.google.protobuf.Empty.getDefaultInstance());
+      CommonRpcProto.ErrorResponse response = blockingStub().saveState(com.google.protobuf.Empty.getDefaultInstance());
       if (!response.getError().isEmpty()) {
         logger.atSevere().log("saveState failed: %s", response.getError());
         return false;
@@ -171,7 +279,7 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
   boolean finish(boolean allOk) {
     try {
       CommonRpcProto.FinishRequest request = CommonRpcProto.FinishRequest.newBuilder().setAllOk(allOk).build();
-      CommonRpcProto.ErrorResponse response = blockingStub.finish(request);
+      CommonRpcProto.ErrorResponse response = blockingStub().finish(request);
       if (!response.getError().isEmpty()) {
         logger.atSevere().log("commit failed: %s", response.getError());
         return false;
@@ -201,6 +309,8 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
   private final int quorum;
   private final ManagedChannel channel;
   private final RemoteKeyCeremonyTrusteeServiceBlockingStub blockingStub;
+  private final RemoteKeyCeremonyTrusteeServiceFutureStub futureStub;
+  private final Duration deadline;
 
   public int quorum() {
     return quorum;
@@ -211,12 +321,14 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
   }
 
   /** Construct client for accessing HelloWorld server using the existing channel. */
-  private KeyCeremonyRemoteTrusteeProxy(String trusteeId, int coordinate, int quorum, ManagedChannel channel) {
+  private KeyCeremonyRemoteTrusteeProxy(String trusteeId, int coordinate, int quorum, ManagedChannel channel, Duration deadline) {
     this.trusteeId = trusteeId;
     this.coordinate = coordinate;
     this.quorum = quorum;
     this.channel = channel;
+    this.deadline = deadline;
     blockingStub = RemoteKeyCeremonyTrusteeServiceGrpc.newBlockingStub(channel);
+    futureStub = RemoteKeyCeremonyTrusteeServiceGrpc.newFutureStub(channel);
   }
 
   static class Builder {
@@ -224,6 +336,7 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
     String target;
     int coordinate;
     int quorum;
+    Duration deadline = DEFAULT_DEADLINE;
 
     Builder setTrusteeId(String trusteeId) {
       this.trusteeId = trusteeId;
@@ -245,12 +358,19 @@ class KeyCeremonyRemoteTrusteeProxy implements KeyCeremonyTrusteeIF {
       return this;
     }
 
+    /** Each call to the remote trustee fails if it does not finish within the deadline. */
+    Builder setDeadline(Duration deadline) {
+      Preconditions.checkArgument(!deadline.isNegative() && !deadline.isZero());
+      this.deadline = deadline;
+      return this;
+    }
+
     KeyCeremonyRemoteTrusteeProxy build() {
       ManagedChannel channel = ManagedChannelBuilder.forTarget(target)
               .usePlaintext()
               .enableFullStreamDecompression()
               .maxInboundMessageSize(MAX_MESSAGE).usePlaintext().build();
-      return new KeyCeremonyRemoteTrusteeProxy(trusteeId, coordinate, quorum, channel);
+      return new KeyCeremonyRemoteTrusteeProxy(trusteeId, coordinate, quorum, channel, deadline);
     }
   }
 }
@@ -11,9 +11,9 @@ import com.sunya.electionguard.SchnorrProof;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import java.math.BigInteger;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.sunya.electionguard.Group.ElementModP;
 import static com.sunya.electionguard.Group.ElementModQ;
@@ -21,7 +21,7 @@ import static com.sunya.electionguard.Group.rand_q;
 
 /**
  * A Trustee/Guardian used in the KeyCeremony, with secrets hidden as much as possible.
- * Mutable.
+ * Mutable, and thread-safe, since the mediator sends the messages of each round concurrently.
  * This object must not be used with untrusted code.
  */
 public class KeyCeremonyTrustee {
@@ -58,9 +58,9 @@ public class KeyCeremonyTrustee {
     this.xCoordinate = xCoordinate;
 
     this.guardianSecrets = GuardianSecrets.generate(quorum, nonce_seed);
-    this.allGuardianPublicKeys = new HashMap<>();
-    this.otherGuardianPartialKeyBackups = new HashMap<>();
-    this.myPartialKeyBackups = new HashMap<>();
+    this.allGuardianPublicKeys = new ConcurrentHashMap<>();
+    this.otherGuardianPartialKeyBackups = new ConcurrentHashMap<>();
+    this.myPartialKeyBackups = new ConcurrentHashMap<>();
 
     // allGuardianPublicKeys include itself.
     this.allGuardianPublicKeys.put(id, this.sharePublicKeys());
@@ -1,8 +1,11 @@
 package com.sunya.electionguard.keyceremony;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.sunya.electionguard.Group;
 
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 /** The interface to KeyCeremonyTrustee. */
 public interface KeyCeremonyTrusteeIF {
@@ -29,4 +32,37 @@ public interface KeyCeremonyTrusteeIF {
 
   /** Each guardian computes their joint election public key. */
   Optional<Group.ElementModP> sendJointPublicKey();
+
+  /** Asynchronous sendPublicKeys. By default, runs the blocking call on the executor. */
+  default ListenableFuture<Optional<KeyCeremony2.PublicKeySet>> sendPublicKeysAsync(Executor executor) {
+    return Futures.submit(this::sendPublicKeys, executor);
+  }
+
+  /** Asynchronous receivePublicKeys. By default, runs the blocking call on the executor. */
+  default ListenableFuture<String> receivePublicKeysAsync(KeyCeremony2.PublicKeySet keyset, Executor executor) {
+    return Futures.submit(() -> receivePublicKeys(keyset), executor);
+  }
+
+  /** Asynchronous sendPartialKeyBackup. By default, runs the blocking call on the executor. */
+  default ListenableFuture<Optional<KeyCeremony2.PartialKeyBackup>> sendPartialKeyBackupAsync(
+          String otherGuardianId, Executor executor) {
+    return Futures.submit(() -> sendPartialKeyBackup(otherGuardianId), executor);
+  }
+
+  /** Asynchronous verifyPartialKeyBackup. By default, runs the blocking call on the executor. */
+  default ListenableFuture<Optional<KeyCeremony2.PartialKeyVerification>> verifyPartialKeyBackupAsync(
+          KeyCeremony2.PartialKeyBackup backup, Executor executor) {
+    return Futures.submit(() -> verifyPartialKeyBackup(backup), executor);
+  }
+
+  /** Asynchronous sendBackupChallenge. By default, runs the blocking call on the executor. */
+  default ListenableFuture<Optional<KeyCeremony2.PartialKeyChallengeResponse>> sendBackupChallengeAsync(
+          String guardianId, Executor executor) {
+    return Futures.submit(() -> sendBackupChallenge(guardianId), executor);
+  }
+
+  /** Asynchronous sendJointPublicKey. By default, runs the blocking call on the executor. */
+  default ListenableFuture<Optional<Group.ElementModP>> sendJointPublicKeyAsync(Executor executor) {
+    return Futures.submit(this::sendJointPublicKey, executor);
+  }
 }
@@ -1,7 +1,10 @@
 package com.sunya.electionguard.protoconvert;
 
 import com.sunya.electionguard.CiphertextTally;
+import com.sunya.electionguard.CiphertextTallyBuilder;
+import com.sunya.electionguard.PartialCiphertextTally;
 
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -17,6 +20,37 @@ public class CiphertextTallyFromProto {
             tally.getTallyId(), contests);
   }
 
+  public static PartialCiphertextTally importPartialCiphertextTally(CiphertextTallyProto.PartialCiphertextTally proto) {
+    PartialCiphertextTally partial = new PartialCiphertextTally(
+            proto.getShardId(),
+            importCiphertextTally(proto.getTally()),
+            proto.getBallotIdsList());
+
+    if (partial.ballotCount() != proto.getBallotCount()) {
+      throw new IllegalStateException(String.format("PartialCiphertextTally %s has %d ballot ids but ballot_count = %d",
+              proto.getShardId(), partial.ballotCount(), proto.getBallotCount()));
+    }
+    if (!partial.ballotIdsDigest.equals(CommonConvert.importUInt256(proto.getBallotIdsDigest()))) {
+      throw new IllegalStateException(String.format("PartialCiphertextTally %s ballot_ids_digest does not match ballot_ids",
+              proto.getShardId()));
+    }
+    return partial;
+  }
+
+  /** @param ballotIds all the ballot ids read from the TallyCheckpointBallots of the checkpoint. */
+  public static CiphertextTallyBuilder.Checkpoint importTallyCheckpoint(CiphertextTallyProto.TallyCheckpoint proto,
+                                                                        List<String> ballotIds) {
+    if (ballotIds.size() != proto.getBallotCount()) {
+      throw new IllegalStateException(String.format("TallyCheckpoint has %d ballot ids but ballot_count = %d",
+              ballotIds.size(), proto.getBallotCount()));
+    }
+    return new CiphertextTallyBuilder.Checkpoint(
+            importCiphertextTally(proto.getTally()),
+            ballotIds,
+            proto.getBallotCount(),
+            proto.getBallotsRead());
+  }
+
   static CiphertextTally.Contest convertContest(CiphertextTallyProto.CiphertextTallyContest proto) {
     Map<String, CiphertextTally.Selection> selections = proto.getSelectionsList().stream()
             .collect(Collectors.toMap(t -> t.getSelectionId(), t -> convertSelection(t)));
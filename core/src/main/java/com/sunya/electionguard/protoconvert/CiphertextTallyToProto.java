@@ -1,6 +1,8 @@
 package com.sunya.electionguard.protoconvert;
 
 import com.sunya.electionguard.CiphertextTally;
+import com.sunya.electionguard.CiphertextTallyBuilder;
+import com.sunya.electionguard.PartialCiphertextTally;
 
 import java.util.Map;
 
@@ -19,6 +21,31 @@ public class CiphertextTallyToProto {
     return builder.build();
   }
 
+  public static CiphertextTallyProto.PartialCiphertextTally publishPartialCiphertextTally(PartialCiphertextTally partial) {
+    CiphertextTallyProto.PartialCiphertextTally.Builder builder = CiphertextTallyProto.PartialCiphertextTally.newBuilder();
+    builder.setShardId(partial.shardId());
+    builder.setTally(publishCiphertextTally(partial.tally));
+    builder.addAllBallotIds(partial.ballotIds);
+    builder.setBallotCount(partial.ballotCount());
+    builder.setBallotIdsDigest(CommonConvert.publishUInt256(partial.ballotIdsDigest));
+    return builder.build();
+  }
+
+  /** @param ballotIdsLength the length of the ballot ids file, once this checkpoint's ids are appended to it. */
+  public static CiphertextTallyProto.TallyCheckpoint publishTallyCheckpoint(CiphertextTallyBuilder.Checkpoint checkpoint,
+                                                                             long ballotIdsLength) {
+    CiphertextTallyProto.TallyCheckpoint.Builder builder = CiphertextTallyProto.TallyCheckpoint.newBuilder();
+    builder.setTally(publishCiphertextTally(checkpoint.tally()));
+    builder.setBallotsRead(checkpoint.ballotsRead());
+    builder.setBallotCount(checkpoint.castBallotCount());
+    builder.setBallotIdsLength(ballotIdsLength);
+    return builder.build();
+  }
+
+  public static CiphertextTallyProto.TallyCheckpointBallots publishTallyCheckpointBallots(CiphertextTallyBuilder.Checkpoint checkpoint) {
+    return CiphertextTallyProto.TallyCheckpointBallots.newBuilder().addAllBallotIds(checkpoint.newBallotIds()).build();
+  }
+
   static CiphertextTallyProto.CiphertextTallyContest convertContest(CiphertextTally.Contest contest) {
     CiphertextTallyProto.CiphertextTallyContest.Builder builder = CiphertextTallyProto.CiphertextTallyContest.newBuilder();
     builder.setContestId(contest.object_id());
@@ -1,6 +1,7 @@
 package com.sunya.electionguard.protoconvert;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import com.sunya.electionguard.ChaumPedersen;
 import com.sunya.electionguard.ElGamal;
 import com.sunya.electionguard.Group;
@@ -16,6 +17,9 @@ import com.sunya.electionguard.core.UInt256;
 import electionguard.protogen.*;
 
 public class CommonConvert {
+  // big enough for an ElementModP of 4096 bits, with its sign byte
+  private static final int SCRATCH_SIZE = 1024;
+  private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
 
   @Nullable
   static <T, U> List<U> convertList(@Nullable List<T> from, Function<T, U> converter) {
@@ -25,6 +29,21 @@ public class CommonConvert {
   /////////////////////////////////////////////////////////////////////////////////////////
   // from proto
 
+  /**
+   * The unsigned big-endian integer in value. Copies value into a per-thread scratch array rather than a new array,
+   * since BigInteger copies it again into its own magnitude. When the proto was parsed with aliasing, value is a
+   * view of the input buffer, so this is the only copy.
+   */
+  static BigInteger importBigInteger(ByteString value) {
+    int size = value.size();
+    if (size > SCRATCH_SIZE) {
+      return new BigInteger(1, value.toByteArray());
+    }
+    byte[] buffer = scratch.get();
+    value.copyTo(buffer, 0);
+    return new BigInteger(1, buffer, 0, size);
+  }
+
   @Nullable
   public static UInt256 importUInt256(@Nullable CommonProto.UInt256 modQ) {
     if (modQ == null || modQ.getValue().isEmpty()) {
@@ -46,7 +65,7 @@ public class CommonConvert {
     if (modQ == null || modQ.getValue().isEmpty()) {
       return null;
     }
-    BigInteger elem = new BigInteger(1, modQ.getValue().toByteArray());
+    BigInteger elem = importBigInteger(modQ.getValue());
     return Group.int_to_q(elem).orElseThrow();
   }
   
@@ -55,7 +74,7 @@ public class CommonConvert {
     if (modQ == null || modQ.getValue().isEmpty()) {
       return null;
     }
-    BigInteger elem = new BigInteger(1, modQ.getValue().toByteArray());
+    BigInteger elem = importBigInteger(modQ.getValue());
     return Group.int_to_q(elem).orElseThrow();
   }
 
@@ -64,7 +83,7 @@ public class CommonConvert {
     if (modP == null || modP.getValue().isEmpty()) {
       return null;
     }
-    BigInteger elem = new BigInteger(1, modP.getValue().toByteArray());
+    BigInteger elem = importBigInteger(modP.getValue());
     return Group.int_to_p(elem).orElseThrow();
   }
 
@@ -119,27 +138,36 @@ public class CommonConvert {
   /////////////////////////////////////////////////////////////////////////////////////////
   // to proto
 
+  /**
+   * The BigInteger as a ByteString, in the two's-complement encoding of toByteArray(). That returns a new
+   * array that nothing else holds, so it is wrapped rather than copied.
+   */
+  static ByteString publishBigInteger(BigInteger value) {
+    return UnsafeByteOperations.unsafeWrap(value.toByteArray());
+  }
+
   public static CommonProto.UInt256 publishUInt256(UInt256 modQ) {
     CommonProto.UInt256.Builder builder = CommonProto.UInt256.newBuilder();
-    builder.setValue(ByteString.copyFrom(modQ.toBytes().array()));
+    // val() is the UInt256's own array, which its holder can still change, so copy it
+    builder.setValue(ByteString.copyFrom(modQ.val()));
     return builder.build();
   }
 
   public static CommonProto.UInt256 publishUInt256fromQ(Group.ElementModQ modQ) {
     CommonProto.UInt256.Builder builder = CommonProto.UInt256.newBuilder();
-    builder.setValue(ByteString.copyFrom(modQ.getBigInt().toByteArray()));
+    builder.setValue(publishBigInteger(modQ.getBigInt()));
     return builder.build();
   }
 
   public static CommonProto.ElementModQ publishElementModQ(Group.ElementModQ modQ) {
     CommonProto.ElementModQ.Builder builder = CommonProto.ElementModQ.newBuilder();
-    builder.setValue(ByteString.copyFrom(modQ.getBigInt().toByteArray()));
+    builder.setValue(publishBigInteger(modQ.getBigInt()));
     return builder.build();
   }
 
   public static CommonProto.ElementModP publishElementModP(Group.ElementModP modP) {
     CommonProto.ElementModP.Builder builder = CommonProto.ElementModP.newBuilder();
-    builder.setValue(ByteString.copyFrom(modP.getBigInt().toByteArray()));
+    builder.setValue(publishBigInteger(modP.getBigInt()));
     return builder.build();
   }
 
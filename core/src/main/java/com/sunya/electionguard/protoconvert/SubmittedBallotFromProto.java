@@ -37,6 +37,20 @@ public class SubmittedBallotFromProto {
             convertBallotState(ballot.getState()));
   }
 
+  /** A SubmittedBallot without proofs, for the tally and ballot aggregation, which only need the ciphertexts. */
+  public static SubmittedBallot translateFromProto(CiphertextBallotProto.SubmittedBallotCiphertexts ballot) {
+    return new SubmittedBallot(
+            ballot.getBallotId(),
+            ballot.getBallotStyleId(),
+            CommonConvert.importUInt256toQ(ballot.getManifestHash()),
+            CommonConvert.importUInt256toQ(ballot.getCodeSeed()),
+            convertList(ballot.getContestsList(), SubmittedBallotFromProto::convertContest),
+            CommonConvert.importUInt256toQ(ballot.getCode()),
+            ballot.getTimestamp(),
+            CommonConvert.importUInt256toQ(ballot.getCryptoHash()),
+            convertBallotState(ballot.getState()));
+  }
+
   static BallotBox.State convertBallotState(CiphertextBallotProto.SubmittedBallot.BallotState type) {
     return BallotBox.State.valueOf(type.name());
   }
@@ -52,6 +66,17 @@ public class SubmittedBallotFromProto {
             Optional.ofNullable(convertConstantProof(contest.getProof())));
   }
 
+  static CiphertextBallot.Contest convertContest(CiphertextBallotProto.CiphertextContestCiphertexts contest) {
+    return new CiphertextBallot.Contest(
+            contest.getContestId(),
+            contest.getSequenceOrder(),
+            CommonConvert.importUInt256toQ(contest.getContestHash()),
+            convertList(contest.getSelectionsList(), SubmittedBallotFromProto::convertSelection),
+            CommonConvert.importUInt256toQ(contest.getCryptoHash()),
+            Optional.empty(),
+            Optional.empty());
+  }
+
   static CiphertextBallot.Selection convertSelection(CiphertextBallotProto.CiphertextBallotSelection selection) {
     return new CiphertextBallot.Selection(
             selection.getSelectionId(),
@@ -65,6 +90,19 @@ public class SubmittedBallotFromProto {
             Optional.ofNullable(CommonConvert.importHashedCiphertext(selection.getExtendedData())));
   }
 
+  static CiphertextBallot.Selection convertSelection(CiphertextBallotProto.CiphertextSelectionCiphertext selection) {
+    return new CiphertextBallot.Selection(
+            selection.getSelectionId(),
+            selection.getSequenceOrder(),
+            CommonConvert.importUInt256toQ(selection.getSelectionHash()),
+            CommonConvert.importCiphertext(selection.getCiphertext()),
+            CommonConvert.importUInt256toQ(selection.getCryptoHash()),
+            selection.getIsPlaceholderSelection(),
+            Optional.empty(),
+            Optional.empty(),
+            Optional.empty());
+  }
+
   @Nullable
   static ChaumPedersen.ConstantChaumPedersenProof convertConstantProof(@Nullable CiphertextBallotProto.ConstantChaumPedersenProof proof) {
     if (proof == null) {
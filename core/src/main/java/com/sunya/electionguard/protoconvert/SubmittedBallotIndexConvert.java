@@ -0,0 +1,121 @@
+package com.sunya.electionguard.protoconvert;
+
+import com.sunya.electionguard.publish.SubmittedBallotIndex;
+import com.sunya.electionguard.publish.SubmittedBallotShards;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import electionguard.protogen.CiphertextBallotProto;
+
+public class SubmittedBallotIndexConvert {
+
+  public static SubmittedBallotIndex read(Path file) throws IOException {
+    CiphertextBallotProto.SubmittedBallotIndex proto;
+    try (BufferedInputStream inp = new BufferedInputStream(new FileInputStream(file.toFile()))) {
+      proto = CiphertextBallotProto.SubmittedBallotIndex.parseFrom(inp);
+    }
+    return importSubmittedBallotIndex(proto);
+  }
+
+  /**
+   * Write the index to a temporary file, force it to disk, then rename it, so that a crash while
+   * writing never leaves a partial index.
+   */
+  public static void write(SubmittedBallotIndex index, Path file) throws IOException {
+    CiphertextBallotProto.SubmittedBallotIndex proto = publishSubmittedBallotIndex(index);
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+      proto.writeTo(out);
+      out.getFD().sync();
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public static SubmittedBallotIndex importSubmittedBallotIndex(CiphertextBallotProto.SubmittedBallotIndex proto) {
+    List<SubmittedBallotIndex.Entry> entries = new ArrayList<>(proto.getEntriesCount());
+    for (CiphertextBallotProto.SubmittedBallotIndexEntry entry : proto.getEntriesList()) {
+      entries.add(new SubmittedBallotIndex.Entry(
+              entry.getBallotId(),
+              entry.getOffset(),
+              SubmittedBallotFromProto.convertBallotState(entry.getState()),
+              entry.getBallotStyleId(),
+              CommonConvert.importUInt256toQ(entry.getCode())));
+    }
+    return new SubmittedBallotIndex(proto.getFileSize(), entries);
+  }
+
+  /** The index entry of a submitted ballot whose record starts at offset. */
+  public static SubmittedBallotIndex.Entry importEntry(CiphertextBallotProto.SubmittedBallot ballot, long offset) {
+    return new SubmittedBallotIndex.Entry(
+            ballot.getBallotId(),
+            offset,
+            SubmittedBallotFromProto.convertBallotState(ballot.getState()),
+            ballot.getBallotStyleId(),
+            CommonConvert.importUInt256toQ(ballot.getCode()));
+  }
+
+  public static CiphertextBallotProto.SubmittedBallotIndex publishSubmittedBallotIndex(SubmittedBallotIndex index) {
+    CiphertextBallotProto.SubmittedBallotIndex.Builder builder = CiphertextBallotProto.SubmittedBallotIndex.newBuilder();
+    builder.setFileSize(index.fileSize());
+    for (SubmittedBallotIndex.Entry entry : index.entries()) {
+      builder.addEntries(CiphertextBallotProto.SubmittedBallotIndexEntry.newBuilder()
+              .setBallotId(entry.ballotId())
+              .setOffset(entry.offset())
+              .setState(SubmittedBallotToProto.convertBallotState(entry.state()))
+              .setBallotStyleId(entry.ballotStyleId())
+              .setCode(CommonConvert.publishUInt256fromQ(entry.code())));
+    }
+    return builder.build();
+  }
+
+  public static SubmittedBallotShards readShards(Path file) throws IOException {
+    CiphertextBallotProto.SubmittedBallotShards proto;
+    try (FileInputStream inp = new FileInputStream(file.toFile())) {
+      proto = CiphertextBallotProto.SubmittedBallotShards.parseFrom(inp);
+    }
+    return importSubmittedBallotShards(proto);
+  }
+
+  /** Write the shard manifest to a temporary file, force it to disk, then rename it. */
+  public static void writeShards(SubmittedBallotShards shards, Path file) throws IOException {
+    CiphertextBallotProto.SubmittedBallotShards proto = publishSubmittedBallotShards(shards);
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+      proto.writeTo(out);
+      out.getFD().sync();
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public static SubmittedBallotShards importSubmittedBallotShards(CiphertextBallotProto.SubmittedBallotShards proto) {
+    List<SubmittedBallotShards.Shard> shards = new ArrayList<>();
+    for (CiphertextBallotProto.SubmittedBallotShard shard : proto.getShardsList()) {
+      shards.add(new SubmittedBallotShards.Shard(
+              shard.getShardId(),
+              shard.getNballots(),
+              shard.getFileSize(),
+              CommonConvert.importUInt256(shard.getDigest())));
+    }
+    return new SubmittedBallotShards(shards);
+  }
+
+  public static CiphertextBallotProto.SubmittedBallotShards publishSubmittedBallotShards(SubmittedBallotShards shards) {
+    CiphertextBallotProto.SubmittedBallotShards.Builder builder = CiphertextBallotProto.SubmittedBallotShards.newBuilder();
+    for (SubmittedBallotShards.Shard shard : shards.shards()) {
+      builder.addShards(CiphertextBallotProto.SubmittedBallotShard.newBuilder()
+              .setShardId(shard.shardId())
+              .setNballots(shard.nballots())
+              .setFileSize(shard.fileSize())
+              .setDigest(CommonConvert.publishUInt256(shard.digest())));
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,109 @@
+package com.sunya.electionguard.protoconvert;
+
+import com.sunya.electionguard.ElGamal;
+import com.sunya.electionguard.verifier.VerificationState;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import electionguard.protogen.VerificationProto;
+
+public class VerificationStateConvert {
+
+  public static VerificationState read(Path file) throws IOException {
+    VerificationProto.VerificationState proto;
+    try (FileInputStream inp = new FileInputStream(file.toFile())) {
+      proto = VerificationProto.VerificationState.parseFrom(inp);
+    }
+    return importVerificationState(proto);
+  }
+
+  /**
+   * Write the state to a temporary file, force it to disk, then rename it, so that a crash while
+   * writing never leaves a partial state.
+   */
+  public static void write(VerificationState state, Path file) throws IOException {
+    VerificationProto.VerificationState proto = publishVerificationState(state);
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+      proto.writeTo(out);
+      out.getFD().sync();
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public static VerificationState importVerificationState(VerificationProto.VerificationState proto) {
+    List<VerificationState.BallotResult> ballots = new ArrayList<>();
+    for (VerificationProto.BallotVerification ballot : proto.getBallotsList()) {
+      ballots.add(new VerificationState.BallotResult(
+              ballot.getBallotId(),
+              ballot.getOffset(),
+              CommonConvert.importElementModQ(ballot.getCode()),
+              ballot.getEncryptionOk(),
+              ballot.getLimitsOk(),
+              ballot.getChainOk(),
+              ballot.getNcontests(),
+              ballot.getNselections()));
+    }
+    Map<String, ElGamal.Ciphertext> products = new HashMap<>();
+    for (VerificationProto.SelectionProduct product : proto.getSelectionProductsList()) {
+      products.put(product.getKey(), CommonConvert.importCiphertext(product.getProduct()));
+    }
+    Map<String, VerificationState.ArtifactResult> artifacts = new HashMap<>();
+    for (VerificationProto.ArtifactVerification artifact : proto.getArtifactsList()) {
+      artifacts.put(artifact.getBoxId(), new VerificationState.ArtifactResult(
+              CommonConvert.importUInt256(artifact.getDigest()), artifact.getOk()));
+    }
+    return new VerificationState(
+            proto.getNextOffset(),
+            proto.hasBallotFileDigest() ? CommonConvert.importUInt256(proto.getBallotFileDigest()) : null,
+            ballots,
+            products,
+            proto.getNcast(),
+            CommonConvert.importElementModQ(proto.getChainHead()),
+            artifacts);
+  }
+
+  public static VerificationProto.VerificationState publishVerificationState(VerificationState state) {
+    VerificationProto.VerificationState.Builder builder = VerificationProto.VerificationState.newBuilder();
+    builder.setNextOffset(state.nextOffset());
+    if (state.ballotFileDigest() != null) {
+      builder.setBallotFileDigest(CommonConvert.publishUInt256(state.ballotFileDigest()));
+    }
+    for (VerificationState.BallotResult ballot : state.ballots()) {
+      builder.addBallots(VerificationProto.BallotVerification.newBuilder()
+              .setBallotId(ballot.ballotId())
+              .setOffset(ballot.offset())
+              .setCode(CommonConvert.publishElementModQ(ballot.code()))
+              .setEncryptionOk(ballot.encryptionOk())
+              .setLimitsOk(ballot.limitsOk())
+              .setChainOk(ballot.chainOk())
+              .setNcontests(ballot.ncontests())
+              .setNselections(ballot.nselections()));
+    }
+    for (Map.Entry<String, ElGamal.Ciphertext> product : state.selectionProducts().entrySet()) {
+      builder.addSelectionProducts(VerificationProto.SelectionProduct.newBuilder()
+              .setKey(product.getKey())
+              .setProduct(CommonConvert.publishCiphertext(product.getValue())));
+    }
+    builder.setNcast(state.ncast());
+    if (state.chainHead() != null) {
+      builder.setChainHead(CommonConvert.publishElementModQ(state.chainHead()));
+    }
+    for (Map.Entry<String, VerificationState.ArtifactResult> artifact : state.artifacts().entrySet()) {
+      builder.addArtifacts(VerificationProto.ArtifactVerification.newBuilder()
+              .setBoxId(artifact.getKey())
+              .setDigest(CommonConvert.publishUInt256(artifact.getValue().digest()))
+              .setOk(artifact.getValue().ok()));
+    }
+    return builder.build();
+  }
+}
@@ -43,7 +43,10 @@ public interface CloseableIterator<T> extends Iterator<T>, Closeable {
   @Override
   void close();
 
-  /** Could be parallel. */
+  /**
+   * Sequential unless overridden. The Consumer iterators over ballot files split at record boundaries,
+   * so that stream().parallel() reads and converts the ballots on all cores.
+   */
   default Spliterator<T> spliterator() {
     return Spliterators.spliterator(this, 0, 0);
   }
@@ -0,0 +1,357 @@
+package com.sunya.electionguard.publish;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import electionguard.protogen.CiphertextBallotProto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A file of length-delimited protobuf messages, compressed in independent blocks of about BLOCK_SIZE bytes,
+ * followed by a block index. Used for the submitted ballots, which are mostly ElementModP values in proto
+ * messages, so that election records are smaller to store and to send to auditors.
+ * <p>
+ * Layout: the Deflater-compressed blocks, then the SubmittedBallotBlocks index, then the length of the index
+ * as 8 bytes big-endian, then MAGIC. Since the blocks are independent, a reader can start at any block, and
+ * a parallel stream decompresses the blocks on all cores.
+ */
+class CompressedProtoFile implements Closeable {
+  static final int BLOCK_SIZE = 1 << 20;
+  static final byte[] MAGIC = "EGZB".getBytes(StandardCharsets.US_ASCII);
+  private static final int TRAILER_SIZE = 8 + 4;
+
+  /** One compressed block. */
+  record Block(long offset, int compressedSize, int uncompressedSize, int nballots, long firstOrdinal) {}
+
+  /**
+   * Write the messages into a compressed file.
+   * @param level Deflater compression level, 0 (none) to 9 (smallest), or Deflater.DEFAULT_COMPRESSION.
+   * @return the number of messages written.
+   */
+  static long write(Path file, Iterable<? extends MessageLite> messages, int level) throws IOException {
+    return write(file, messages, level, BLOCK_SIZE);
+  }
+
+  /** Write the messages into a compressed file, starting a new block when one has at least blockSize bytes. */
+  static long write(Path file, Iterable<? extends MessageLite> messages, int level, int blockSize) throws IOException {
+    CiphertextBallotProto.SubmittedBallotBlocks.Builder index = CiphertextBallotProto.SubmittedBallotBlocks.newBuilder();
+    index.setCompressionLevel(level);
+    Deflater deflater = new Deflater(level);
+    long count = 0;
+    try (FileOutputStream out = new FileOutputStream(file.toFile())) {
+      BlockWriter writer = new BlockWriter(out, deflater, index);
+      ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize + blockSize / 4);
+      int nballots = 0;
+      for (MessageLite message : messages) {
+        message.writeDelimitedTo(block);
+        nballots++;
+        count++;
+        if (block.size() >= blockSize) {
+          writer.writeBlock(block, nballots);
+          nballots = 0;
+        }
+      }
+      if (nballots > 0) {
+        writer.writeBlock(block, nballots);
+      }
+      byte[] indexBytes = index.build().toByteArray();
+      out.write(indexBytes);
+      out.write(ByteBuffer.allocate(8).putLong(indexBytes.length).array());
+      out.write(MAGIC);
+      out.getFD().sync();
+    } finally {
+      deflater.end();
+    }
+    return count;
+  }
+
+  private static class BlockWriter {
+    private final OutputStream out;
+    private final Deflater deflater;
+    private final CiphertextBallotProto.SubmittedBallotBlocks.Builder index;
+    private final byte[] buffer = new byte[1 << 16];
+    private long offset;
+
+    BlockWriter(OutputStream out, Deflater deflater, CiphertextBallotProto.SubmittedBallotBlocks.Builder index) {
+      this.out = out;
+      this.deflater = deflater;
+      this.index = index;
+    }
+
+    void writeBlock(ByteArrayOutputStream block, int nballots) throws IOException {
+      deflater.reset();
+      deflater.setInput(block.toByteArray());
+      deflater.finish();
+      int compressedSize = 0;
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buffer);
+        out.write(buffer, 0, n);
+        compressedSize += n;
+      }
+      index.addBlocks(CiphertextBallotProto.SubmittedBallotBlock.newBuilder()
+              .setOffset(offset)
+              .setCompressedSize(compressedSize)
+              .setUncompressedSize(block.size())
+              .setNballots(nballots));
+      offset += compressedSize;
+      block.reset();
+    }
+  }
+
+  /** Open the file and read its block index. */
+  static CompressedProtoFile open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return new CompressedProtoFile(file, channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private final Path file;
+  private final FileChannel channel;
+  private final int compressionLevel;
+  private final ImmutableList<Block> blocks;
+  private final long nrecords;
+
+  private CompressedProtoFile(Path file, FileChannel channel) throws IOException {
+    this.file = file;
+    this.channel = channel;
+    long size = channel.size();
+    if (size < TRAILER_SIZE) {
+      throw new IOException(String.format("%s is not a compressed ballot file", file));
+    }
+    ByteBuffer trailer = read(size - TRAILER_SIZE, TRAILER_SIZE);
+    long indexSize = trailer.getLong();
+    byte[] magic = new byte[MAGIC.length];
+    trailer.get(magic);
+    if (!Arrays.equals(magic, MAGIC) || indexSize < 0 || indexSize > size - TRAILER_SIZE) {
+      throw new IOException(String.format("%s is not a compressed ballot file", file));
+    }
+    CiphertextBallotProto.SubmittedBallotBlocks index = CiphertextBallotProto.SubmittedBallotBlocks.parseFrom(
+            read(size - TRAILER_SIZE - indexSize, (int) indexSize));
+    this.compressionLevel = index.getCompressionLevel();
+    ImmutableList.Builder<Block> builder = ImmutableList.builder();
+    long ordinal = 0;
+    for (CiphertextBallotProto.SubmittedBallotBlock block : index.getBlocksList()) {
+      builder.add(new Block(block.getOffset(), block.getCompressedSize(), block.getUncompressedSize(), block.getNballots(), ordinal));
+      ordinal += block.getNballots();
+    }
+    this.blocks = builder.build();
+    this.nrecords = ordinal;
+  }
+
+  int compressionLevel() {
+    return compressionLevel;
+  }
+
+  List<Block> blocks() {
+    return blocks;
+  }
+
+  /** The number of records in the file. */
+  long nrecords() {
+    return nrecords;
+  }
+
+  /** Read and decompress the block. Thread-safe. */
+  byte[] inflate(Block block) throws IOException {
+    ByteBuffer compressed = read(block.offset(), block.compressedSize());
+    byte[] result = new byte[block.uncompressedSize()];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      int n = 0;
+      while (n < result.length && !inflater.finished()) {
+        int count = inflater.inflate(result, n, result.length - n);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n += count;
+      }
+      if (n != result.length) {
+        throw new IOException(String.format("%s block at offset %d is truncated", file, block.offset()));
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(String.format("%s block at offset %d is corrupt", file, block.offset()), e);
+    } finally {
+      inflater.end();
+    }
+    return result;
+  }
+
+  /** Positional read, so it is safe to call from several threads. */
+  private ByteBuffer read(long position, int size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException(String.format("%s is truncated", file));
+      }
+    }
+    return buffer.flip();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Iterate over the records, after skipping nskip, at most limit of them. Whole blocks are skipped without
+   * decompressing them.
+   * @param converter converts a record, or returns null to skip it.
+   */
+  <P, T> CloseableIterator<T> iterator(Parser<P> parser, Function<P, T> converter, long nskip, long limit) {
+    long from = Math.min(nskip, nrecords);
+    long to = (limit > nrecords - from) ? nrecords : from + limit;
+    return new BlockIterator<>(new BlockSpliterator<>(parser, converter, from, to));
+  }
+
+  /** Iterates sequentially over a BlockSpliterator, or hands it over whole to a stream. */
+  private class BlockIterator<T> extends AbstractIterator<T> implements CloseableIterator<T> {
+    private final BlockSpliterator<?, T> spliterator;
+    private boolean started;
+    private T next;
+
+    BlockIterator(BlockSpliterator<?, T> spliterator) {
+      this.spliterator = spliterator;
+    }
+
+    @Override
+    protected T computeNext() {
+      started = true;
+      return spliterator.tryAdvance(value -> next = value) ? next : endOfData();
+    }
+
+    /** Splits at block boundaries, if the iteration has not started, otherwise continues sequentially. */
+    @Override
+    public Spliterator<T> spliterator() {
+      if (started) {
+        return CloseableIterator.super.spliterator();
+      }
+      started = true;
+      return spliterator;
+    }
+
+    @Override
+    public void close() {
+      try {
+        CompressedProtoFile.this.close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  /** The records with ordinals from lo (inclusive) to hi (exclusive). Splits at block boundaries. */
+  private class BlockSpliterator<P, T> implements Spliterator<T> {
+    private final Parser<P> parser;
+    private final Function<P, T> converter;
+    private long lo;
+    private final long hi;
+    private CodedInputStream input; // positioned at record lo in the current block
+
+    BlockSpliterator(Parser<P> parser, Function<P, T> converter, long lo, long hi) {
+      this.parser = parser;
+      this.converter = converter;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      try {
+        while (lo < hi) {
+          if (input == null || input.isAtEnd()) {
+            Block block = blocks.get(blockOf(lo));
+            input = CodedInputStream.newInstance(inflate(block));
+            input.discardUnknownFields();
+            // the block array is never modified, so bytes fields can be views of it
+            input.enableAliasing(true);
+            for (long skip = block.firstOrdinal(); skip < lo; skip++) {
+              input.skipRawBytes(input.readRawVarint32());
+            }
+          }
+          int size = input.readRawVarint32();
+          int oldLimit = input.pushLimit(size);
+          P proto = parser.parseFrom(input);
+          input.popLimit(oldLimit);
+          lo++;
+          T value = converter.apply(proto);
+          if (value != null) {
+            action.accept(value);
+            return true;
+          }
+        }
+        input = null;
+        return false;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      if (input != null || hi - lo < 2) {
+        return null;
+      }
+      // split at the start of the block that holds the middle record
+      int first = blockOf(lo);
+      int last = blockOf(hi - 1);
+      if (last <= first) {
+        return null;
+      }
+      long mid = blocks.get((first + last + 1) >>> 1).firstOrdinal();
+      Spliterator<T> prefix = new BlockSpliterator<>(parser, converter, lo, mid);
+      lo = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return hi - lo;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL;
+    }
+  }
+
+  /** The index of the block that holds the record with this ordinal. */
+  private int blockOf(long ordinal) {
+    int lo = 0;
+    int hi = blocks.size() - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (blocks.get(mid).firstOrdinal() <= ordinal) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return lo;
+  }
+}
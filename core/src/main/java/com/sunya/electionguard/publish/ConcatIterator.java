@@ -0,0 +1,125 @@
+package com.sunya.electionguard.publish;
+
+import com.google.common.collect.AbstractIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Iterates over several CloseableIterators one after the other, eg the shards of the submitted ballots.
+ * The parts are opened one at a time. Its spliterator() first splits between the parts, then within them,
+ * so that stream().parallel() reads the parts at the same time.
+ */
+class ConcatIterator<T> extends AbstractIterator<T> implements CloseableIterator<T> {
+  private final List<Supplier<CloseableIterator<T>>> parts;
+  private final List<CloseableIterator<T>> opened = new ArrayList<>();
+  private int next; // the next part to open
+  private CloseableIterator<T> current;
+  private boolean split;
+
+  ConcatIterator(List<Supplier<CloseableIterator<T>>> parts) {
+    this.parts = parts;
+  }
+
+  @Override
+  protected T computeNext() {
+    while (true) {
+      if (current != null && current.hasNext()) {
+        return current.next();
+      }
+      if (current != null) {
+        current.close();
+        current = null;
+      }
+      if (split || next >= parts.size()) {
+        return endOfData();
+      }
+      current = open(next++);
+    }
+  }
+
+  private CloseableIterator<T> open(int part) {
+    CloseableIterator<T> iter = parts.get(part).get();
+    synchronized (opened) {
+      opened.add(iter);
+    }
+    return iter;
+  }
+
+  /** Splits between the parts, if the iteration has not started, otherwise continues sequentially. */
+  @Override
+  public Spliterator<T> spliterator() {
+    if (split || next > 0) {
+      return CloseableIterator.super.spliterator();
+    }
+    split = true;
+    List<Spliterator<T>> spliterators = new ArrayList<>();
+    for (int part = 0; part < parts.size(); part++) {
+      spliterators.add(open(part).spliterator());
+    }
+    return new ConcatSpliterator<>(spliterators, 0, spliterators.size());
+  }
+
+  @Override
+  public void close() {
+    synchronized (opened) {
+      opened.forEach(CloseableIterator::close);
+      opened.clear();
+    }
+    current = null;
+  }
+
+  private static class ConcatSpliterator<T> implements Spliterator<T> {
+    private final List<Spliterator<T>> parts;
+    private int lo; // the current part
+    private final int hi; // exclusive
+
+    ConcatSpliterator(List<Spliterator<T>> parts, int lo, int hi) {
+      this.parts = parts;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      while (lo < hi) {
+        if (parts.get(lo).tryAdvance(action)) {
+          return true;
+        }
+        lo++;
+      }
+      return false;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      if (hi - lo > 1) {
+        int mid = (lo + hi) >>> 1;
+        Spliterator<T> prefix = new ConcatSpliterator<>(parts, lo, mid);
+        lo = mid;
+        return prefix;
+      }
+      return (lo < hi) ? parts.get(lo).trySplit() : null;
+    }
+
+    @Override
+    public long estimateSize() {
+      long size = 0;
+      for (int part = lo; part < hi; part++) {
+        size += parts.get(part).estimateSize();
+        if (size < 0) {
+          return Long.MAX_VALUE;
+        }
+      }
+      return size;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL;
+    }
+  }
+}
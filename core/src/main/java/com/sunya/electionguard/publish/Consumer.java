@@ -1,20 +1,42 @@
 package com.sunya.electionguard.publish;
 
-import com.google.common.collect.AbstractIterator;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.Parser;
 import com.sunya.electionguard.*;
+import com.sunya.electionguard.core.UInt256;
 import com.sunya.electionguard.json.JsonConsumer;
+import com.sunya.electionguard.protoconvert.CiphertextTallyFromProto;
+import com.sunya.electionguard.protoconvert.CommonConvert;
 import com.sunya.electionguard.protoconvert.ElectionConfigConvert;
 import com.sunya.electionguard.protoconvert.ElectionInitializedConvert;
 import com.sunya.electionguard.protoconvert.ElectionResultsConvert;
 import com.sunya.electionguard.protoconvert.SubmittedBallotFromProto;
+import com.sunya.electionguard.protoconvert.SubmittedBallotIndexConvert;
 import com.sunya.electionguard.protoconvert.PlaintextBallotFromProto;
 import com.sunya.electionguard.protoconvert.PlaintextTallyFromProto;
 
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Formatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import electionguard.protogen.*;
 
@@ -23,9 +45,20 @@ import electionguard.protogen.*;
  * Use JsonConsumer for Json files. */
 public class Consumer {
   public final ElectionRecordPath path;
+  private final boolean memoryMapped;
+  private final Map<Path, SubmittedBallotIndex> ballotIndexes = new HashMap<>(); // keyed by ballot file
 
   public Consumer(String topDir) throws IOException {
-    path = new ElectionRecordPath(topDir);
+    this(topDir, false);
+  }
+
+  /**
+   * @param memoryMapped read the ballot files through memory-mapped buffers, rather than buffered streams.
+   *                     Faster on local disks; do not use for files on network shares that may be truncated while read.
+   */
+  public Consumer(String topDir, boolean memoryMapped) throws IOException {
+    this.path = new ElectionRecordPath(topDir);
+    this.memoryMapped = memoryMapped;
   }
 
   public boolean isValidElectionRecord(Formatter error) {
@@ -78,39 +111,279 @@ public class Consumer {
     return ElectionResultsConvert.importDecryptionResult(proto);
   }
 
+  public PartialCiphertextTally readPartialCiphertextTally(String shardId) throws IOException {
+    return readPartialCiphertextTally(path.partialTallyPath(shardId));
+  }
+
+  /** All the partial tallies in the top directory, sorted by filename. */
+  public List<PartialCiphertextTally> readPartialCiphertextTallies() throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.list(path.topDirPath())) {
+      files = paths.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(ElectionRecordPath.PARTIAL_TALLY_PREFIX) && name.endsWith(ElectionRecordPath.PROTO_SUFFIX);
+              })
+              .sorted()
+              .toList();
+    }
+    List<PartialCiphertextTally> result = new ArrayList<>();
+    for (Path file : files) {
+      result.add(readPartialCiphertextTally(file));
+    }
+    return result;
+  }
+
+  private PartialCiphertextTally readPartialCiphertextTally(Path file) throws IOException {
+    CiphertextTallyProto.PartialCiphertextTally proto;
+    try (FileInputStream inp = new FileInputStream(file.toString())) {
+      proto = CiphertextTallyProto.PartialCiphertextTally.parseFrom(inp);
+    }
+    return CiphertextTallyFromProto.importPartialCiphertextTally(proto);
+  }
+
+  /** The checkpoint of an accumulation in progress, or null if none. */
+  @Nullable
+  public CiphertextTallyBuilder.Checkpoint readTallyCheckpoint() throws IOException {
+    if (!Files.exists(path.tallyCheckpointPath())) {
+      return null;
+    }
+    CiphertextTallyProto.TallyCheckpoint proto;
+    try (FileInputStream inp = new FileInputStream(path.tallyCheckpointPath().toString())) {
+      proto = CiphertextTallyProto.TallyCheckpoint.parseFrom(inp);
+    }
+    // only the first ballot_ids_length bytes belong to completed checkpoints
+    List<String> ballotIds = new ArrayList<>();
+    if (proto.getBallotIdsLength() > 0) {
+      try (InputStream inp = ByteStreams.limit(new BufferedInputStream(
+              new FileInputStream(path.tallyCheckpointBallotsPath().toString())), proto.getBallotIdsLength())) {
+        CiphertextTallyProto.TallyCheckpointBallots ballots;
+        while ((ballots = CiphertextTallyProto.TallyCheckpointBallots.parseDelimitedFrom(inp)) != null) {
+          ballotIds.addAll(ballots.getBallotIdsList());
+        }
+      }
+    }
+    return CiphertextTallyFromProto.importTallyCheckpoint(proto, ballotIds);
+  }
+
   // all submitted ballots cast or spoiled
   public CloseableIterable<SubmittedBallot> iterateSubmittedBallots() {
+    return iterateSubmittedBallots(0);
+  }
+
+  // all submitted ballots cast or spoiled, after skipping the first nskip, eg to resume from a checkpoint
+  public CloseableIterable<SubmittedBallot> iterateSubmittedBallots(long nskip) {
+    return iterateSubmittedBallots(b -> true, nskip, Long.MAX_VALUE);
+  }
+
+  /**
+   * All submitted ballots cast or spoiled, without their proofs, after skipping the first nskip. Parsing skips the
+   * proofs, so this is much faster than iterateSubmittedBallots(), for the tally and ballot aggregation, which only
+   * need the ciphertexts.
+   */
+  public CloseableIterable<SubmittedBallot> iterateSubmittedBallotCiphertexts(long nskip) {
+    return iterateSubmittedBallots(CiphertextBallotProto.SubmittedBallotCiphertexts.parser(),
+            SubmittedBallotFromProto::translateFromProto, nskip, Long.MAX_VALUE);
+  }
+
+  /** All submitted ballots cast or spoiled, without their proofs. */
+  public CloseableIterable<SubmittedBallot> iterateSubmittedBallotCiphertexts() {
+    return iterateSubmittedBallotCiphertexts(0);
+  }
+
+  /** The ballot chaining fields of all the submitted ballots, in order. Parsing skips the contests. */
+  public CloseableIterable<BallotChainLink> iterateBallotChain() {
+    return iterateSubmittedBallots(CiphertextBallotProto.SubmittedBallotChain.parser(),
+            proto -> new BallotChainLink(
+                    proto.getBallotId(),
+                    CommonConvert.importUInt256toQ(proto.getCodeSeed()),
+                    proto.getTimestamp(),
+                    CommonConvert.importUInt256toQ(proto.getCryptoHash()),
+                    CommonConvert.importUInt256toQ(proto.getCode())),
+            0, Long.MAX_VALUE);
+  }
+
+  /** The fields of a submitted ballot that ballot chaining uses. */
+  public record BallotChainLink(String ballotId, Group.ElementModQ codeSeed, long timestamp,
+                                Group.ElementModQ cryptoHash, Group.ElementModQ code) {
+
+    public static BallotChainLink of(SubmittedBallot ballot) {
+      return new BallotChainLink(ballot.object_id(), ballot.code_seed, ballot.timestamp, ballot.crypto_hash, ballot.code);
+    }
+  }
+
+  /**
+   * A submitted ballot, and where its record is in the submitted ballot file.
+   * @param offset byte offset of the record.
+   * @param nextOffset byte offset of the following record.
+   */
+  public record SubmittedBallotRecord(SubmittedBallot ballot, long offset, long nextOffset) {}
+
+  // all submitted ballots cast or spoiled, starting with the record at byte offset, eg to verify only the new ballots.
+  // Only the single submitted ballot file, not the shards.
+  public CloseableIterable<SubmittedBallotRecord> iterateSubmittedBallotRecords(long offset) {
     if (Files.exists(path.submittedBallotPath())) {
-      return () -> new SubmittedBallotIterator(path.submittedBallotPath().toString(),
-              b -> true);
+      BallotFile file = singleBallotFile();
+      return () -> new DelimitedProtoIterator<>(file.ballots(), memoryMapped,
+              CiphertextBallotProto.SubmittedBallot.parser(),
+              (proto, recordOffset, nextOffset) -> new SubmittedBallotRecord(
+                      SubmittedBallotFromProto.translateFromProto(proto), recordOffset, nextOffset),
+              offset, 0, Long.MAX_VALUE, (f, o, nskip, limit) -> submittedBallotOffsets(file, o, nskip, limit));
     } else {
       return CloseableIterableAdapter.empty();
     }
   }
 
+  /** The shards of the submitted ballots, or EMPTY if the election record does not have them. */
+  public SubmittedBallotShards readSubmittedBallotShards() throws IOException {
+    Path shardsFile = path.submittedBallotShardsPath();
+    return Files.exists(shardsFile) ? SubmittedBallotIndexConvert.readShards(shardsFile) : SubmittedBallotShards.EMPTY;
+  }
+
+  /** Check that the shard files match the number of ballots, size and digest in the shard manifest. */
+  public boolean validateSubmittedBallotShards(Formatter error) throws IOException {
+    boolean ok = true;
+    for (SubmittedBallotShards.Shard shard : readSubmittedBallotShards().shards()) {
+      Path shardFile = path.submittedBallotShardPath(shard.shardId());
+      if (!Files.exists(shardFile)) {
+        error.format(" Shard %s: %s does not exist%n", shard.shardId(), shardFile);
+        ok = false;
+        continue;
+      }
+      if (Files.size(shardFile) != shard.fileSize()) {
+        error.format(" Shard %s: %s has size %d, expected %d%n", shard.shardId(), shardFile, Files.size(shardFile), shard.fileSize());
+        ok = false;
+        continue;
+      }
+      UInt256 digest = digest(shardFile);
+      if (!digest.equals(shard.digest())) {
+        error.format(" Shard %s: %s digest does not match the shard manifest%n", shard.shardId(), shardFile);
+        ok = false;
+      }
+      long nballots = DelimitedProtoReader.scanOffsets(shardFile, 0, 0, Long.MAX_VALUE).length;
+      if (nballots != shard.nballots()) {
+        error.format(" Shard %s: %s has %d ballots, expected %d%n", shard.shardId(), shardFile, nballots, shard.nballots());
+        ok = false;
+      }
+    }
+    return ok;
+  }
+
+  private static UInt256 digest(Path file) throws IOException {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      try (InputStream in = new DigestInputStream(Files.newInputStream(file), md)) {
+        in.transferTo(OutputStream.nullOutputStream());
+      }
+      return new UInt256(md.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The index of the single submitted ballot file. Read from the index file that Publisher wrote, or if that is
+   * missing or does not match the ballot file, made by reading the ballot file once.
+   */
+  public SubmittedBallotIndex readSubmittedBallotIndex() throws IOException {
+    return readIndex(singleBallotFile());
+  }
+
+  /** The submitted ballot with this id, if any. */
+  public Optional<SubmittedBallot> findSubmittedBallot(String ballotId) throws IOException {
+    for (BallotFile file : submittedBallotFiles()) {
+      if (file.compressed()) {
+        Optional<SubmittedBallot> found = searchCompressed(file, b -> b.getBallotId().equals(ballotId));
+        if (found.isPresent()) {
+          return found;
+        }
+        continue;
+      }
+      SubmittedBallotIndex.Entry entry = readIndex(file).find(ballotId);
+      if (entry != null) {
+        return Optional.of(readSubmittedBallot(file, entry.offset()));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** The submitted ballot with this confirmation code, if any. */
+  public Optional<SubmittedBallot> findSubmittedBallotByCode(Group.ElementModQ code) throws IOException {
+    for (BallotFile file : submittedBallotFiles()) {
+      if (file.compressed()) {
+        Optional<SubmittedBallot> found = searchCompressed(file, b -> CommonConvert.importUInt256toQ(b.getCode()).equals(code));
+        if (found.isPresent()) {
+          return found;
+        }
+        continue;
+      }
+      SubmittedBallotIndex.Entry entry = readIndex(file).findByCode(code);
+      if (entry != null) {
+        return Optional.of(readSubmittedBallot(file, entry.offset()));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** True if a ballot with this confirmation code was submitted. Only reads the indexes, except for a compressed file. */
+  public boolean hasBallotCode(Group.ElementModQ code) throws IOException {
+    for (BallotFile file : submittedBallotFiles()) {
+      if (file.compressed() ? searchCompressed(file, b -> CommonConvert.importUInt256toQ(b.getCode()).equals(code)).isPresent() :
+              readIndex(file).findByCode(code) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The submitted ballot with this ordinal, starting at 0, in the ballot file, the compressed file, then the shards. */
+  public SubmittedBallot getSubmittedBallot(int ordinal) throws IOException {
+    Preconditions.checkArgument(ordinal >= 0, "negative ordinal %s", ordinal);
+    int remaining = ordinal;
+    for (BallotFile file : submittedBallotFiles()) {
+      if (file.compressed()) {
+        long count = countBallots(file);
+        if (remaining < count) {
+          try (CloseableIterator<SubmittedBallot> iter = submittedBallotIterator(file, b -> true, remaining, 1)) {
+            return iter.next();
+          }
+        }
+        remaining -= (int) count;
+        continue;
+      }
+      SubmittedBallotIndex index = readIndex(file);
+      if (remaining < index.size()) {
+        return readSubmittedBallot(file, index.get(remaining).offset());
+      }
+      remaining -= index.size();
+    }
+    throw new IndexOutOfBoundsException(String.format("ballot %d does not exist; there are %d ballots", ordinal, ordinal - remaining));
+  }
+
+  // the submitted ballots with ordinals from (inclusive) to (exclusive)
+  public CloseableIterable<SubmittedBallot> iterateSubmittedBallots(int from, int to) throws IOException {
+    long nballots = 0;
+    for (BallotFile file : submittedBallotFiles()) {
+      nballots += countBallots(file);
+    }
+    Preconditions.checkPositionIndexes(from, to, (int) Math.min(nballots, Integer.MAX_VALUE));
+    return iterateSubmittedBallots(b -> true, from, to - from);
+  }
+
   // all submitted ballots cast only
   public CloseableIterable<SubmittedBallot> iterateCastBallots() {
-    if (Files.exists(path.submittedBallotPath())) {
-      return () -> new SubmittedBallotIterator(path.submittedBallotPath().toString(),
-              b -> b.getState() == CiphertextBallotProto.SubmittedBallot.BallotState.CAST);
-    } else {
-      return CloseableIterableAdapter.empty();
-    }
+    return iterateSubmittedBallots(b -> b.getState() == CiphertextBallotProto.SubmittedBallot.BallotState.CAST, 0, Long.MAX_VALUE);
   }
 
   // all submitted ballots spoiled only
   public CloseableIterable<SubmittedBallot> iterateSpoiledBallots() {
-    if (Files.exists(path.submittedBallotPath())) {
-      return () -> new SubmittedBallotIterator(path.submittedBallotPath().toString(),
-              b -> b.getState() == CiphertextBallotProto.SubmittedBallot.BallotState.SPOILED);
-    } else {
-      return CloseableIterableAdapter.empty();
-    }
+    return iterateSubmittedBallots(b -> b.getState() == CiphertextBallotProto.SubmittedBallot.BallotState.SPOILED, 0, Long.MAX_VALUE);
   }
 
   public CloseableIterable<PlaintextTally> iterateSpoiledBallotTallies() {
     if (Files.exists(path.spoiledBallotPath())) {
-      return () -> new PlaintextTallyIterator(path.spoiledBallotPath().toString());
+      return () -> new DelimitedProtoIterator<>(path.spoiledBallotPath(), memoryMapped,
+              PlaintextTallyProto.PlaintextTally.parser(),
+              (proto, offset, nextOffset) -> PlaintextTallyFromProto.importPlaintextTally(proto));
     } else {
       return CloseableIterableAdapter.empty();
     }
@@ -118,144 +391,209 @@ public class Consumer {
 
   public CloseableIterable<PlaintextBallot> iterateInputBallots(String ballotDir, Predicate<PlaintextBallot> filter) {
     if (Files.exists(path.inputBallotsFilePath(ballotDir))) {
-      return () -> new PlaintextBallotIterator(path.inputBallotsFilePath(ballotDir).toString(), filter);
+      return () -> new DelimitedProtoIterator<>(path.inputBallotsFilePath(ballotDir), memoryMapped,
+              PlaintextBallotProto.PlaintextBallot.parser(),
+              (proto, offset, nextOffset) -> {
+                PlaintextBallot ballot = PlaintextBallotFromProto.translateFromProto(proto);
+                return filter.test(ballot) ? ballot : null;
+              });
     } else {
       System.out.printf("Does not exist %s%n", path.inputBallotsFilePath(ballotDir).toAbsolutePath());
       return CloseableIterableAdapter.empty();
     }
   }
 
-  // These create iterators, so that we never have to read in all ballots at once.
-  // Making them Closeable makes sure that the FileInputStream gets closed.
+  /** A file of submitted ballots, and its index file; or a compressed file, which has its own block index. */
+  private record BallotFile(Path ballots, @Nullable Path index, @Nullable SubmittedBallotShards.Shard shard, boolean compressed) {}
+
+  private BallotFile singleBallotFile() {
+    return new BallotFile(path.submittedBallotPath(), path.submittedBallotIndexPath(), null, false);
+  }
 
-  private static class SubmittedBallotIterator extends AbstractIterator<SubmittedBallot>
-                                     implements CloseableIterator<SubmittedBallot> {
-    private final String filename;
-    private final Predicate<CiphertextBallotProto.SubmittedBallot> filter;
-    private FileInputStream input;
-    SubmittedBallotIterator(String filename, Predicate<CiphertextBallotProto.SubmittedBallot> filter) {
-      this.filename = filename;
-      this.filter = filter;
+  /**
+   * The single submitted ballot file if it exists, then the compressed ballot file if it exists,
+   * then the shards if any, in manifest order.
+   * The compressed file replaces the ballot file, so a record with both is rejected rather than read twice.
+   */
+  private List<BallotFile> submittedBallotFiles() throws IOException {
+    if (Files.exists(path.submittedBallotPath()) && Files.exists(path.submittedBallotCompressedPath())) {
+      throw new IOException(String.format("%s has both %s and %s, which would duplicate the ballots; remove one",
+              path.topDirPath(), ElectionRecordPath.SUBMITTED_BALLOT_PROTO, ElectionRecordPath.SUBMITTED_BALLOT_COMPRESSED));
+    }
+    List<BallotFile> result = new ArrayList<>();
+    if (Files.exists(path.submittedBallotPath())) {
+      result.add(singleBallotFile());
+    }
+    if (Files.exists(path.submittedBallotCompressedPath())) {
+      result.add(new BallotFile(path.submittedBallotCompressedPath(), null, null, true));
+    }
+    for (SubmittedBallotShards.Shard shard : readSubmittedBallotShards().shards()) {
+      result.add(new BallotFile(path.submittedBallotShardPath(shard.shardId()),
+              path.submittedBallotShardIndexPath(shard.shardId()), shard, false));
     }
+    return result;
+  }
+
+  /** The submitted ballots across the ballot file and the shards, after skipping nskip, at most limit. */
+  private CloseableIterable<SubmittedBallot> iterateSubmittedBallots(
+          Predicate<CiphertextBallotProto.SubmittedBallot> filter, long nskip, long limit) {
+    return iterateSubmittedBallots(CiphertextBallotProto.SubmittedBallot.parser(),
+            proto -> filter.test(proto) ? SubmittedBallotFromProto.translateFromProto(proto) : null, nskip, limit);
+  }
 
-    @Override
-    protected SubmittedBallot computeNext() {
+  /**
+   * The submitted ballot records across the ballot file and the shards, after skipping nskip, at most limit.
+   * @param parser parses a record as a SubmittedBallot, or as a projection of it that skips the fields not needed.
+   * @param converter converts a record, or returns null to skip it.
+   */
+  private <P, T> CloseableIterable<T> iterateSubmittedBallots(Parser<P> parser, Function<P, T> converter,
+                                                            long nskip, long limit) {
+    List<BallotFile> files;
+    try {
+      files = submittedBallotFiles();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    if (files.isEmpty()) {
+      return CloseableIterableAdapter.empty();
+    }
+    if (files.size() == 1) {
+      return () -> submittedBallotIterator(files.get(0), parser, converter, nskip, limit);
+    }
+    return () -> {
+      List<Supplier<CloseableIterator<T>>> parts = new ArrayList<>();
+      long skip = nskip;
+      long remaining = limit;
       try {
-        if (input == null) {
-          this.input = new FileInputStream(filename);
-        }
-        while (true) {
-          CiphertextBallotProto.SubmittedBallot ballotProto = CiphertextBallotProto.SubmittedBallot.parseDelimitedFrom(input);
-          if (ballotProto == null) {
-            input.close();
-            return endOfData();
+        for (BallotFile file : files) {
+          if (remaining <= 0) {
+            break;
           }
-          if (!filter.test(ballotProto)) {
-            continue; // skip it
+          long count = (skip > 0 || remaining < Long.MAX_VALUE) ? countBallots(file) : Long.MAX_VALUE;
+          if (skip >= count) {
+            skip -= count;
+            continue;
           }
-          return SubmittedBallotFromProto.translateFromProto(ballotProto);
+          long fileSkip = skip;
+          long fileLimit = remaining;
+          parts.add(() -> submittedBallotIterator(file, parser, converter, fileSkip, fileLimit));
+          if (remaining < Long.MAX_VALUE) {
+            remaining -= count - skip;
+          }
+          skip = 0;
         }
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
-    }
-
-    @Override
-    public void close() {
-      if (input != null) {
-        try {
-          input.close();
-          input = null;
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
-      }
-    }
+      return new ConcatIterator<>(parts);
+    };
   }
 
-  private static class PlaintextBallotIterator extends AbstractIterator<PlaintextBallot>
-          implements CloseableIterator<PlaintextBallot> {
-    private final String filename;
-    private final Predicate<PlaintextBallot> filter;
-    private FileInputStream input;
+  // These create iterators, so that we never have to read in all ballots at once.
+  // Making them Closeable makes sure that the file gets closed.
 
-    PlaintextBallotIterator(String filename, Predicate<PlaintextBallot> filter) {
-      this.filename = filename;
-      this.filter = filter;
-    }
+  private CloseableIterator<SubmittedBallot> submittedBallotIterator(
+          BallotFile file, Predicate<CiphertextBallotProto.SubmittedBallot> filter, long nskip, long limit) {
+    return submittedBallotIterator(file, CiphertextBallotProto.SubmittedBallot.parser(),
+            proto -> filter.test(proto) ? SubmittedBallotFromProto.translateFromProto(proto) : null, nskip, limit);
+  }
 
-    @Override
-    protected PlaintextBallot computeNext() {
+  private <P, T> CloseableIterator<T> submittedBallotIterator(
+          BallotFile file, Parser<P> parser, Function<P, T> converter, long nskip, long limit) {
+    if (file.compressed()) {
       try {
-        if (input == null) {
-          this.input = new FileInputStream(filename);
-        }
-        while (true) {
-          PlaintextBallotProto.PlaintextBallot ballotProto = PlaintextBallotProto.PlaintextBallot.parseDelimitedFrom(input);
-          if (ballotProto == null) {
-            input.close();
-            return endOfData();
-          }
-          PlaintextBallot ballot = PlaintextBallotFromProto.translateFromProto(ballotProto);
-          if (!filter.test(ballot)) {
-            continue; // skip it
-          }
-          return ballot;
-        }
+        return CompressedProtoFile.open(file.ballots()).iterator(parser, converter, nskip, limit);
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
     }
+    return new DelimitedProtoIterator<>(file.ballots(), memoryMapped, parser,
+            (proto, recordOffset, nextOffset) -> converter.apply(proto),
+            0, nskip, limit, (f, offset, skip, max) -> submittedBallotOffsets(file, offset, skip, max));
+  }
 
-    @Override
-    public void close() {
-      if (input != null) {
-        try {
-          input.close();
-          input = null;
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
+  /** Search a compressed file, which has no index, decompressing its blocks in parallel. */
+  private Optional<SubmittedBallot> searchCompressed(BallotFile file, Predicate<CiphertextBallotProto.SubmittedBallot> match) {
+    try (Stream<SubmittedBallot> stream = submittedBallotIterator(file, match, 0, Long.MAX_VALUE).stream()) {
+      return stream.parallel().findFirst();
+    }
+  }
+
+  private SubmittedBallot readSubmittedBallot(BallotFile file, long offset) throws IOException {
+    try (DelimitedProtoReader reader = DelimitedProtoReader.open(file.ballots(), offset, memoryMapped)) {
+      CiphertextBallotProto.SubmittedBallot ballotProto = reader.next(CiphertextBallotProto.SubmittedBallot.parser());
+      if (ballotProto == null) {
+        throw new IOException(String.format("%s has no ballot at offset %d; the index is stale", file.ballots(), offset));
       }
+      return SubmittedBallotFromProto.translateFromProto(ballotProto);
     }
   }
 
-  private static class PlaintextTallyIterator extends AbstractIterator<PlaintextTally>
-          implements CloseableIterator<PlaintextTally> {
-    private final String filename;
-    private FileInputStream input;
+  /** The number of ballots in the file, from the shard manifest or the index, otherwise by scanning the record lengths. */
+  private long countBallots(BallotFile file) throws IOException {
+    if (file.shard() != null) {
+      return file.shard().nballots();
+    }
+    if (file.compressed()) {
+      try (CompressedProtoFile compressed = CompressedProtoFile.open(file.ballots())) {
+        return compressed.nrecords();
+      }
+    }
+    SubmittedBallotIndex index = readIndexIfCurrent(file);
+    return (index != null) ? index.size() : DelimitedProtoReader.scanOffsets(file.ballots(), 0, 0, Long.MAX_VALUE).length;
+  }
 
-    PlaintextTallyIterator(String filename) {
-      this.filename = filename;
+  /** The index of the ballot file, made by reading the ballot file if there is no current index. */
+  private synchronized SubmittedBallotIndex readIndex(BallotFile file) throws IOException {
+    SubmittedBallotIndex index = readIndexIfCurrent(file);
+    if (index == null) {
+      index = Files.exists(file.ballots()) ? SubmittedBallotIndex.build(file.ballots()) : new SubmittedBallotIndex(0, List.of());
+      ballotIndexes.put(file.ballots(), index);
     }
+    return index;
+  }
 
-    @Override
-    protected PlaintextTally computeNext() {
-      try {
-        if (input == null) {
-          this.input = new FileInputStream(filename);
-        }
-        PlaintextTallyProto.PlaintextTally tallyProto = PlaintextTallyProto.PlaintextTally.parseDelimitedFrom(input);
-        if (tallyProto == null) {
-          input.close();
-          return endOfData();
-        }
-        return PlaintextTallyFromProto.importPlaintextTally(tallyProto);
-      } catch (IOException e) {
-        throw new RuntimeException(e);
+  /** The cached index or the index file, if it matches the ballot file, else null. */
+  @Nullable
+  private synchronized SubmittedBallotIndex readIndexIfCurrent(BallotFile file) throws IOException {
+    long fileSize = Files.exists(file.ballots()) ? Files.size(file.ballots()) : 0;
+    SubmittedBallotIndex index = ballotIndexes.get(file.ballots());
+    if (index == null || index.fileSize() != fileSize) {
+      index = Files.exists(file.index()) ? SubmittedBallotIndexConvert.read(file.index()) : null;
+      if (index != null && index.fileSize() == fileSize) {
+        ballotIndexes.put(file.ballots(), index);
+      } else {
+        ballotIndexes.remove(file.ballots());
+        index = null;
       }
     }
+    return index;
+  }
 
-    @Override
-    public void close() {
-      if (input != null) {
-        try {
-          input.close();
-          input = null;
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
+  /** The record offsets from the ballot index if it is up to date, otherwise from a scan of the record lengths. */
+  private long[] submittedBallotOffsets(BallotFile file, long offset, long nskip, long limit) throws IOException {
+    SubmittedBallotIndex index = readIndexIfCurrent(file);
+    if (index == null) {
+      return DelimitedProtoReader.scanOffsets(file.ballots(), offset, nskip, limit);
+    }
+    // the first record at or after offset
+    int lo = 0;
+    int hi = index.size();
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (index.get(mid).offset() < offset) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
       }
     }
+    long start = Math.min(lo + nskip, index.size());
+    // limit is often Long.MAX_VALUE, so don't add it to start
+    long end = start + Math.min(limit, index.size() - start);
+    long[] offsets = new long[(int) (end - start)];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = index.get((int) start + i).offset();
+    }
+    return offsets;
   }
 }
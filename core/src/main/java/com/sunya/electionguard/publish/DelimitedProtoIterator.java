@@ -0,0 +1,121 @@
+package com.sunya.electionguard.publish;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.protobuf.Parser;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Iterates over the records of a file of length-delimited protobuf messages, converting each one.
+ * Its spliterator() splits at record boundaries, so stream().parallel() reads and converts records on all cores.
+ */
+class DelimitedProtoIterator<P, T> extends AbstractIterator<T> implements CloseableIterator<T> {
+
+  /** Finds the byte offsets of the records from offset, after skipping nskip records, at most limit of them. */
+  interface RecordOffsets {
+    long[] find(Path file, long offset, long nskip, long limit) throws IOException;
+  }
+
+  private final Path file;
+  private final boolean memoryMapped;
+  private final Parser<P> parser;
+  private final DelimitedProtoSpliterator.RecordConverter<P, T> converter;
+  private final long offset;
+  private final long nskip;
+  private final long limit;
+  private final RecordOffsets recordOffsets;
+  private final Queue<DelimitedProtoReader> openReaders = new ConcurrentLinkedQueue<>();
+  private DelimitedProtoReader reader;
+  private long remaining;
+  private boolean started;
+
+  /** All the records in the file. */
+  DelimitedProtoIterator(Path file, boolean memoryMapped, Parser<P> parser,
+                         DelimitedProtoSpliterator.RecordConverter<P, T> converter) {
+    this(file, memoryMapped, parser, converter, 0, 0, Long.MAX_VALUE, DelimitedProtoReader::scanOffsets);
+  }
+
+  /**
+   * Start at the record at byte offset, skip nskip records, then read at most limit records.
+   * @param converter converts a record, or returns null to skip it.
+   * @param recordOffsets finds the record boundaries for spliterator().
+   */
+  DelimitedProtoIterator(Path file, boolean memoryMapped, Parser<P> parser,
+                         DelimitedProtoSpliterator.RecordConverter<P, T> converter,
+                         long offset, long nskip, long limit, RecordOffsets recordOffsets) {
+    this.file = file;
+    this.memoryMapped = memoryMapped;
+    this.parser = parser;
+    this.converter = converter;
+    this.offset = offset;
+    this.nskip = nskip;
+    this.limit = limit;
+    this.recordOffsets = recordOffsets;
+    this.remaining = limit;
+  }
+
+  @Override
+  protected T computeNext() {
+    try {
+      if (!started) {
+        started = true;
+        this.reader = DelimitedProtoReader.open(file, offset, memoryMapped);
+        if (!reader.skip(nskip)) {
+          close();
+          return endOfData();
+        }
+      }
+      while (reader != null && remaining > 0) {
+        long recordOffset = reader.offset();
+        P proto = reader.next(parser);
+        if (proto == null) {
+          break;
+        }
+        remaining--;
+        T value = converter.convert(proto, recordOffset, reader.offset());
+        if (value != null) {
+          return value;
+        }
+      }
+      close();
+      return endOfData();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Splits at record boundaries, if the iteration has not started, otherwise continues sequentially. */
+  @Override
+  public Spliterator<T> spliterator() {
+    if (started) {
+      return CloseableIterator.super.spliterator();
+    }
+    started = true;
+    try {
+      long[] offsets = recordOffsets.find(file, offset, nskip, limit);
+      return new DelimitedProtoSpliterator<>(file, memoryMapped, parser, converter, offsets, openReaders);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      if (reader != null) {
+        reader.close();
+        reader = null;
+      }
+      DelimitedProtoReader split;
+      while ((split = openReaders.poll()) != null) {
+        split.close();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
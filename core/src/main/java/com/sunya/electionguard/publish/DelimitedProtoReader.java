@@ -0,0 +1,245 @@
+package com.sunya.electionguard.publish;
+
+import com.google.common.primitives.ImmutableLongArray;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file of length-delimited protobuf messages, as written by writeDelimitedTo(), eg the submitted ballots.
+ * Keeps track of the byte offset of each record, so a later reader can start at any record.
+ * <p>
+ * The buffered reader reads the file in large blocks through a CodedInputStream. The memory-mapped reader maps the
+ * file in windows of up to MAP_WINDOW bytes and parses directly from the mapped pages, without copying the file
+ * into heap buffers; use it for files on local disk.
+ * <p>
+ * Unknown fields are skipped, not kept, so a parser for a message that declares only some of the fields of the
+ * record, eg SubmittedBallotChain for a SubmittedBallot record, reads just those fields.
+ * <p>
+ * Not thread-safe.
+ */
+abstract class DelimitedProtoReader implements Closeable {
+  static final int BUFFER_SIZE = 1 << 16;
+  static final long MAP_WINDOW = 1L << 30;
+
+  /**
+   * Open the file, positioned at the record that starts at offset.
+   * @param memoryMapped use the memory-mapped reader, otherwise the buffered reader.
+   */
+  static DelimitedProtoReader open(Path file, long offset, boolean memoryMapped) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return memoryMapped ? new Mapped(file, channel, offset) : new Buffered(file, channel, offset);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  final Path file;
+  final FileChannel channel;
+  long offset; // of the next record
+
+  private DelimitedProtoReader(Path file, FileChannel channel, long offset) {
+    this.file = file;
+    this.channel = channel;
+    this.offset = offset;
+  }
+
+  /** The byte offset of the next record. */
+  long offset() {
+    return offset;
+  }
+
+  /** Parse the next record, or return null at the end of the file. */
+  @Nullable
+  abstract <T> T next(Parser<T> parser) throws IOException;
+
+  /** Skip the next record without parsing it. Return false at the end of the file. */
+  abstract boolean skip() throws IOException;
+
+  /** Skip n records. Return false if the end of the file was reached first. */
+  boolean skip(long n) throws IOException {
+    for (long count = 0; count < n; count++) {
+      if (!skip()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * The byte offsets of the records starting at offset, after skipping nskip records, at most limit of them.
+   * Only reads the record lengths, so costs much less than reading the records.
+   */
+  static long[] scanOffsets(Path file, long offset, long nskip, long limit) throws IOException {
+    ImmutableLongArray.Builder result = ImmutableLongArray.builder();
+    try (DelimitedProtoReader reader = open(file, offset, true)) {
+      if (reader.skip(nskip)) {
+        for (long count = 0; count < limit; count++) {
+          long recordOffset = reader.offset();
+          if (!reader.skip()) {
+            break;
+          }
+          result.add(recordOffset);
+        }
+      }
+    }
+    return result.build().toArray();
+  }
+
+  static long recordLength(int size) {
+    return CodedOutputStream.computeUInt32SizeNoTag(size) + (long) size;
+  }
+
+  private static class Buffered extends DelimitedProtoReader {
+    private final CodedInputStream input;
+
+    Buffered(Path file, FileChannel channel, long offset) throws IOException {
+      super(file, channel, offset);
+      channel.position(offset);
+      InputStream stream = Channels.newInputStream(channel);
+      this.input = CodedInputStream.newInstance(stream, BUFFER_SIZE);
+      this.input.discardUnknownFields();
+    }
+
+    @Nullable
+    @Override
+    <T> T next(Parser<T> parser) throws IOException {
+      if (input.isAtEnd()) {
+        return null;
+      }
+      // the byte counters are ints, so reset them for each record of a multi-GB file
+      input.resetSizeCounter();
+      int size = input.readRawVarint32();
+      int oldLimit = input.pushLimit(size);
+      T message;
+      try {
+        message = parser.parseFrom(input);
+      } catch (InvalidProtocolBufferException e) {
+        throw new IOException(String.format("%s bad record at offset %d", file, offset), e);
+      }
+      input.popLimit(oldLimit);
+      offset += recordLength(size);
+      return message;
+    }
+
+    @Override
+    boolean skip() throws IOException {
+      if (input.isAtEnd()) {
+        return false;
+      }
+      input.resetSizeCounter();
+      int size = input.readRawVarint32();
+      input.skipRawBytes(size);
+      offset += recordLength(size);
+      return true;
+    }
+  }
+
+  private static class Mapped extends DelimitedProtoReader {
+    private final long fileSize;
+    private ByteBuffer window;
+    private long windowStart;
+
+    Mapped(Path file, FileChannel channel, long offset) throws IOException {
+      super(file, channel, offset);
+      this.fileSize = channel.size();
+      map(offset);
+    }
+
+    private void map(long start) throws IOException {
+      this.windowStart = start;
+      this.window = (start >= fileSize) ? ByteBuffer.allocate(0) :
+              channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW, fileSize - start));
+    }
+
+    /** The size of the record at offset, remapping the window so that it contains the whole record. Or -1 at the end. */
+    private int readSize() throws IOException {
+      if (offset >= fileSize) {
+        return -1;
+      }
+      // a varint32 is at most 5 bytes
+      if (offset + 5 > windowStart + window.limit() && windowStart + window.limit() < fileSize) {
+        map(offset);
+      }
+      int pos = (int) (offset - windowStart);
+      int size = 0;
+      int shift = 0;
+      while (true) {
+        if (pos >= window.limit()) {
+          throw new EOFException(String.format("%s truncated record at offset %d", file, offset));
+        }
+        byte b = window.get(pos++);
+        size |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          break;
+        }
+        shift += 7;
+        if (shift > 28) {
+          throw new IOException(String.format("%s bad record length at offset %d", file, offset));
+        }
+      }
+      // the fifth byte can set the sign bit; -1 is reserved for the end of the file
+      if (size < 0) {
+        throw new IOException(String.format("%s negative record length %d at offset %d", file, size, offset));
+      }
+      if (offset + recordLength(size) > fileSize) {
+        throw new EOFException(String.format("%s truncated record at offset %d", file, offset));
+      }
+      if (offset + recordLength(size) > windowStart + window.limit()) {
+        map(offset);
+      }
+      return size;
+    }
+
+    @Nullable
+    @Override
+    <T> T next(Parser<T> parser) throws IOException {
+      int size = readSize();
+      if (size < 0) {
+        return null;
+      }
+      int start = (int) (offset - windowStart + CodedOutputStream.computeUInt32SizeNoTag(size));
+      T message;
+      try {
+        CodedInputStream input = CodedInputStream.newInstance(window.slice(start, size));
+        input.discardUnknownFields();
+        // bytes fields are views of the mapped file, not copies; CommonConvert copies them out once
+        input.enableAliasing(true);
+        message = parser.parseFrom(input);
+      } catch (InvalidProtocolBufferException e) {
+        throw new IOException(String.format("%s bad record at offset %d", file, offset), e);
+      }
+      offset += recordLength(size);
+      return message;
+    }
+
+    @Override
+    boolean skip() throws IOException {
+      int size = readSize();
+      if (size < 0) {
+        return false;
+      }
+      offset += recordLength(size);
+      return true;
+    }
+  }
+}
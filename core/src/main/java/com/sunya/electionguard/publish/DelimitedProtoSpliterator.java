@@ -0,0 +1,117 @@
+package com.sunya.electionguard.publish;
+
+import com.google.protobuf.Parser;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A Spliterator over a file of length-delimited protobuf messages, that splits at record boundaries, so that a
+ * parallel stream parses and converts the records on all cores. Each split reads its records with its own
+ * DelimitedProtoReader. The record offsets come from the ballot index, or from DelimitedProtoReader.scanOffsets().
+ * <p>
+ * The readers are closed when their split is finished, and any still open are closed by the owning
+ * CloseableIterator, which closes the openReaders.
+ */
+class DelimitedProtoSpliterator<P, T> implements Spliterator<T> {
+  /** Don't split into pieces with fewer records than this. */
+  static final int MIN_SPLIT = 16;
+
+  /** Convert a record, or return null to skip it. */
+  interface RecordConverter<P, T> {
+    @Nullable
+    T convert(P proto, long offset, long nextOffset);
+  }
+
+  private final Path file;
+  private final boolean memoryMapped;
+  private final Parser<P> parser;
+  private final RecordConverter<P, T> converter;
+  private final long[] offsets;
+  private final Queue<DelimitedProtoReader> openReaders;
+  private int lo; // next record to read
+  private final int hi; // exclusive
+  private DelimitedProtoReader reader;
+
+  /**
+   * @param offsets the byte offsets of the records to read, in file order.
+   * @param openReaders the readers opened by all the splits, so they can be closed if the stream is abandoned.
+   */
+  DelimitedProtoSpliterator(Path file, boolean memoryMapped, Parser<P> parser, RecordConverter<P, T> converter,
+                            long[] offsets, Queue<DelimitedProtoReader> openReaders) {
+    this(file, memoryMapped, parser, converter, offsets, openReaders, 0, offsets.length);
+  }
+
+  private DelimitedProtoSpliterator(Path file, boolean memoryMapped, Parser<P> parser, RecordConverter<P, T> converter,
+                                    long[] offsets, Queue<DelimitedProtoReader> openReaders, int lo, int hi) {
+    this.file = file;
+    this.memoryMapped = memoryMapped;
+    this.parser = parser;
+    this.converter = converter;
+    this.offsets = offsets;
+    this.openReaders = openReaders;
+    this.lo = lo;
+    this.hi = hi;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    try {
+      while (lo < hi) {
+        if (reader == null) {
+          reader = DelimitedProtoReader.open(file, offsets[lo], memoryMapped);
+          openReaders.add(reader);
+        }
+        long offset = reader.offset();
+        P proto = reader.next(parser);
+        if (proto == null) {
+          throw new IOException(String.format("%s has no record at offset %d", file, offset));
+        }
+        long nextOffset = reader.offset();
+        lo++;
+        if (lo == hi) {
+          closeReader();
+        }
+        T value = converter.convert(proto, offset, nextOffset);
+        if (value != null) {
+          action.accept(value);
+          return true;
+        }
+      }
+      return false;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    if (reader != null || hi - lo < 2 * MIN_SPLIT) {
+      return null;
+    }
+    int mid = (lo + hi) >>> 1;
+    Spliterator<T> prefix = new DelimitedProtoSpliterator<>(file, memoryMapped, parser, converter, offsets, openReaders, lo, mid);
+    lo = mid;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return hi - lo;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL;
+  }
+
+  private void closeReader() throws IOException {
+    openReaders.remove(reader);
+    reader.close();
+    reader = null;
+  }
+}
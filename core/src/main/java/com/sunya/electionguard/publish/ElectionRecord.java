@@ -1,5 +1,6 @@
 package com.sunya.electionguard.publish;
 
+import com.google.common.collect.Iterables;
 import com.sunya.electionguard.AvailableGuardian;
 import com.sunya.electionguard.Manifest;
 import com.sunya.electionguard.SubmittedBallot;
@@ -23,6 +24,16 @@ public interface ElectionRecord extends ElectionContext {
   Iterable<PlaintextTally> spoiledBallotTallies(); // may be empty
   List<AvailableGuardian> availableGuardians(); // may be empty
 
+  /** The submitted ballots, possibly without their proofs, for the tally and ballot aggregation. */
+  default Iterable<SubmittedBallot> submittedBallotCiphertexts() {
+    return submittedBallots();
+  }
+
+  /** The ballot chaining fields of the submitted ballots. */
+  default Iterable<Consumer.BallotChainLink> ballotChain() {
+    return Iterables.transform(submittedBallots(), Consumer.BallotChainLink::of);
+  }
+
   /** The extended base hash, Qbar in the spec. */
   Group.ElementModQ extendedHash();
 
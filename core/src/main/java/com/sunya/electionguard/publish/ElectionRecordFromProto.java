@@ -156,6 +156,16 @@ public class ElectionRecordFromProto implements ElectionRecord {
     return this.consumer == null ? emptyList() : consumer.iterateSubmittedBallots();
   }
 
+  @Override
+  public Iterable<SubmittedBallot> submittedBallotCiphertexts() {
+    return this.consumer == null ? emptyList() : consumer.iterateSubmittedBallotCiphertexts();
+  }
+
+  @Override
+  public Iterable<Consumer.BallotChainLink> ballotChain() {
+    return this.consumer == null ? emptyList() : consumer.iterateBallotChain();
+  }
+
   @Override
   public Iterable<PlaintextTally> spoiledBallotTallies() {
     return this.consumer == null ? emptyList() : consumer.iterateSpoiledBallotTallies();
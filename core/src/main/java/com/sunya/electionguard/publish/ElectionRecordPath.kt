@@ -14,7 +14,16 @@ data class ElectionRecordPath(val topDir : String) {
         const val TALLY_RESULT_NAME = "tallyResult" + PROTO_SUFFIX
         const val DECRYPTION_RESULT_NAME = "decryptionResult" + PROTO_SUFFIX
         const val SUBMITTED_BALLOT_PROTO = "encryptedBallots" + PROTO_SUFFIX
+        const val SUBMITTED_BALLOT_INDEX = "encryptedBallotsIndex" + PROTO_SUFFIX
+        const val SUBMITTED_BALLOT_COMPRESSED = "encryptedBallotsCompressed" + PROTO_SUFFIX
+        const val SUBMITTED_BALLOT_SHARD_DIR = "encryptedBallots"
+        const val SUBMITTED_BALLOT_SHARD_PREFIX = "shard-"
+        const val SUBMITTED_BALLOT_SHARD_INDEX_SUFFIX = "-index" + PROTO_SUFFIX
+        const val SUBMITTED_BALLOT_SHARDS_FILE = "shards" + PROTO_SUFFIX
         const val SPOILED_BALLOT_FILE = "spoiledBallotsTally" + PROTO_SUFFIX
+        const val PARTIAL_TALLY_PREFIX = "partialTally-"
+        const val TALLY_CHECKPOINT_FILE = "tallyCheckpoint" + PROTO_SUFFIX
+        const val TALLY_CHECKPOINT_BALLOTS_FILE = "tallyCheckpointBallots" + PROTO_SUFFIX
 
         const val INPUT_BALLOTS_FILE = "inputBallots" + PROTO_SUFFIX
         const val INVALID_BALLOTS_FILE = "invalidBallots" + PROTO_SUFFIX
@@ -42,10 +51,46 @@ data class ElectionRecordPath(val topDir : String) {
         return Path.of("$topDir/$SUBMITTED_BALLOT_PROTO")
     }
 
+    fun submittedBallotIndexPath(): Path {
+        return Path.of("$topDir/$SUBMITTED_BALLOT_INDEX")
+    }
+
+    fun submittedBallotCompressedPath(): Path {
+        return Path.of("$topDir/$SUBMITTED_BALLOT_COMPRESSED")
+    }
+
+    fun submittedBallotShardDir(): Path {
+        return Path.of("$topDir/$SUBMITTED_BALLOT_SHARD_DIR")
+    }
+
+    fun submittedBallotShardPath(shardId: String): Path {
+        return submittedBallotShardDir().resolve("$SUBMITTED_BALLOT_SHARD_PREFIX$shardId$PROTO_SUFFIX")
+    }
+
+    fun submittedBallotShardIndexPath(shardId: String): Path {
+        return submittedBallotShardDir().resolve("$SUBMITTED_BALLOT_SHARD_PREFIX$shardId$SUBMITTED_BALLOT_SHARD_INDEX_SUFFIX")
+    }
+
+    fun submittedBallotShardsPath(): Path {
+        return submittedBallotShardDir().resolve(SUBMITTED_BALLOT_SHARDS_FILE)
+    }
+
     fun spoiledBallotPath(): Path {
         return Path.of("$topDir/$SPOILED_BALLOT_FILE")
     }
 
+    fun partialTallyPath(shardId: String): Path {
+        return Path.of("$topDir/$PARTIAL_TALLY_PREFIX$shardId$PROTO_SUFFIX")
+    }
+
+    fun tallyCheckpointPath(): Path {
+        return Path.of("$topDir/$TALLY_CHECKPOINT_FILE")
+    }
+
+    fun tallyCheckpointBallotsPath(): Path {
+        return Path.of("$topDir/$TALLY_CHECKPOINT_BALLOTS_FILE")
+    }
+
     fun decryptingTrusteeName(guardianId: String): String {
         return "$DECRYPTING_TRUSTEE_PREFIX$guardianId$PROTO_SUFFIX"
     }
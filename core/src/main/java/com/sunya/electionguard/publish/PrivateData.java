@@ -11,9 +11,10 @@ import electionguard.protogen.PlaintextBallotProto;
 import electionguard.protogen.TrusteeProto;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -139,7 +140,7 @@ public class PrivateData {
 
   public void writeInputBallots(Iterable<PlaintextBallot> original_ballots) throws IOException {
     Files.createDirectories(recordPath.topDirPath());
-    try (FileOutputStream out = new FileOutputStream(inputBallotsFilePath().toFile())) {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(inputBallotsFilePath().toFile()), DelimitedProtoReader.BUFFER_SIZE)) {
       for (PlaintextBallot ballot : original_ballots) {
         PlaintextBallotProto.PlaintextBallot ballotProto = PlaintextBallotToProto.publishPlaintextBallot(ballot);
         ballotProto.writeDelimitedTo(out);
@@ -160,11 +161,10 @@ public class PrivateData {
     File dir = fileOrDirPath.toFile();
     if (dir.getAbsolutePath().endsWith("protobuf")) {
       // multiple input ballots in a protobuf
-      try (FileInputStream input = new FileInputStream(dir.getAbsolutePath())) {
-      while (true) {
-          PlaintextBallotProto.PlaintextBallot ballotProto = PlaintextBallotProto.PlaintextBallot.parseDelimitedFrom(input);
+      try (DelimitedProtoReader input = DelimitedProtoReader.open(fileOrDirPath, 0, false)) {
+        while (true) {
+          PlaintextBallotProto.PlaintextBallot ballotProto = input.next(PlaintextBallotProto.PlaintextBallot.parser());
           if (ballotProto == null) {
-            input.close();
             break;
           }
           result.add(PlaintextBallotFromProto.translateFromProto(ballotProto));
@@ -176,7 +176,7 @@ public class PrivateData {
 
   public void writeInvalidBallots(Iterable<PlaintextBallot> invalid_ballots) throws IOException {
     Files.createDirectories(recordPath.topDirPath());
-    try (FileOutputStream out = new FileOutputStream(invalidBallotsFilePath().toFile())) {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(invalidBallotsFilePath().toFile()), DelimitedProtoReader.BUFFER_SIZE)) {
       for (PlaintextBallot ballot : invalid_ballots) {
         PlaintextBallotProto.PlaintextBallot ballotProto = PlaintextBallotToProto.publishPlaintextBallot(ballot);
         ballotProto.writeDelimitedTo(out);
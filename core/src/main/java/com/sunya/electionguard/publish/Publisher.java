@@ -1,28 +1,59 @@
 package com.sunya.electionguard.publish;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sunya.electionguard.CiphertextTallyBuilder;
+import com.sunya.electionguard.PartialCiphertextTally;
 import com.sunya.electionguard.PlaintextTally;
 import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.core.UInt256;
+import com.sunya.electionguard.protoconvert.CiphertextTallyToProto;
 import com.sunya.electionguard.protoconvert.ElectionConfigConvert;
 import com.sunya.electionguard.protoconvert.ElectionInitializedConvert;
 import com.sunya.electionguard.protoconvert.ElectionResultsConvert;
 import com.sunya.electionguard.protoconvert.PlaintextTallyToProto;
+import com.sunya.electionguard.protoconvert.SubmittedBallotIndexConvert;
 import com.sunya.electionguard.protoconvert.SubmittedBallotToProto;
 import electionguard.ballot.*;
 import electionguard.protogen.CiphertextBallotProto;
+import electionguard.protogen.CiphertextTallyProto;
 import electionguard.protogen.ElectionRecordProto;
 import electionguard.protogen.PlaintextTallyProto;
 
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Formatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 
 /**
  * Publishes the Manifest Record to Json or protobuf files.
  */
 public class Publisher {
+  private static final Pattern SHARD_ID = Pattern.compile("[A-Za-z0-9._-]+");
+  private static final Object SHARDS_LOCK = new Object();
+  public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofMillis(10);
+  public static final int DEFAULT_QUEUE_SIZE = 1000;
 
   public enum Mode {
     readonly,
@@ -34,6 +65,7 @@ public class Publisher {
   private Mode createPublisherMode;
   private ElectionRecordPath path;
   private Path electionRecordDir;
+  private SubmittedBallotAppender appender;
 
   public Publisher(String topDir, Mode publisherMode) throws IOException {
     this.createPublisherMode = publisherMode;
@@ -109,11 +141,148 @@ public class Publisher {
     }
   }
 
+  /**
+   * Write the ballots, and the index of the file that Consumer uses to find a ballot without reading them all.
+   * Any existing compressed ballot file is removed, so the ballots are not in the record twice.
+   */
   public void writeSubmittedBallots(Iterable<SubmittedBallot> ballots) throws IOException {
-    try (FileOutputStream out = new FileOutputStream(path.submittedBallotPath().toFile())) {
+    writeBallotsAndIndex(ballots, path.submittedBallotPath(), path.submittedBallotIndexPath(), null);
+    Files.deleteIfExists(path.submittedBallotCompressedPath());
+  }
+
+  /**
+   * Start appending submitted ballots to the ballot file as they are accepted, after any ballots already in it.
+   * The ballots are written by a background thread, which forces them to disk in groups.
+   *
+   * @param syncInterval how long a written ballot waits for others to share its fsync; zero to sync whenever
+   *   no more ballots are queued.
+   * @param queueSize the most ballots waiting to be written before appendSubmittedBallot() blocks.
+   * @throws IOException if the record has a compressed ballot file, which cannot be appended to.
+   */
+  public synchronized void openSubmittedBallots(Duration syncInterval, int queueSize) throws IOException {
+    Preconditions.checkState(appender == null, "submitted ballots are already open");
+    if (Files.exists(path.submittedBallotCompressedPath())) {
+      throw new IOException(String.format("%s has compressed submitted ballots, which cannot be appended to; " +
+              "remove %s or write to another directory", electionRecordDir, path.submittedBallotCompressedPath()));
+    }
+    appender = new SubmittedBallotAppender(path.submittedBallotPath(), path.submittedBallotIndexPath(), syncInterval, queueSize);
+  }
+
+  /** Remove the submitted ballots: the ballot file and its index, and the compressed ballot file. */
+  public synchronized void deleteSubmittedBallots() throws IOException {
+    Preconditions.checkState(appender == null, "submitted ballots are open");
+    Files.deleteIfExists(path.submittedBallotPath());
+    Files.deleteIfExists(path.submittedBallotIndexPath());
+    Files.deleteIfExists(path.submittedBallotCompressedPath());
+  }
+
+  /**
+   * Append a ballot to the ballot file, opening it with the default sync interval and queue size if needed.
+   * Thread-safe; blocks while the queue is full.
+   *
+   * @return a future that completes with the ballot's index entry when the ballot is on disk, or fails if it
+   *   could not be written.
+   */
+  public ListenableFuture<SubmittedBallotIndex.Entry> appendSubmittedBallot(SubmittedBallot ballot) throws IOException {
+    SubmittedBallotAppender current;
+    synchronized (this) {
+      if (appender == null) {
+        openSubmittedBallots(DEFAULT_SYNC_INTERVAL, DEFAULT_QUEUE_SIZE);
+      }
+      current = appender;
+    }
+    return current.append(ballot);
+  }
+
+  /**
+   * Wait until the appended ballots are on disk, then close the ballot file and write its index.
+   * @return the number of ballots in the file.
+   */
+  public synchronized int closeSubmittedBallots() throws IOException {
+    if (appender == null) {
+      return 0;
+    }
+    try {
+      appender.close();
+      return appender.size();
+    } finally {
+      appender = null;
+    }
+  }
+
+  /**
+   * Write the ballots into a compressed file of independent blocks with a block index, instead of the ballot file.
+   * Much smaller, and Consumer decompresses the blocks in parallel. There is no ballot index, so finding a ballot
+   * by id or code reads the whole file. Any existing ballot file and its index are removed, so the ballots are not
+   * in the record twice.
+   *
+   * @param level Deflater compression level, 1 (fastest) to 9 (smallest), or Deflater.DEFAULT_COMPRESSION.
+   */
+  public void writeSubmittedBallotsCompressed(Iterable<SubmittedBallot> ballots, int level) throws IOException {
+    Preconditions.checkArgument(level == Deflater.DEFAULT_COMPRESSION || (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+            "invalid compression level %s", level);
+    CompressedProtoFile.write(path.submittedBallotCompressedPath(),
+            Iterables.transform(ballots, SubmittedBallotToProto::translateToProto), level);
+    Files.deleteIfExists(path.submittedBallotPath());
+    Files.deleteIfExists(path.submittedBallotIndexPath());
+  }
+
+  /**
+   * Write the ballots from one encryption device or server as a shard of the submitted ballots, with its index,
+   * then add it to the shard manifest. Publishers in other threads or processes may write other shards into the
+   * same election record at the same time. Writing a shard id again replaces that shard.
+   *
+   * @param shardId identifies the device or server; letters, digits, '.', '_' and '-' only.
+   */
+  public void writeSubmittedBallotShard(String shardId, Iterable<SubmittedBallot> ballots) throws IOException {
+    Preconditions.checkArgument(SHARD_ID.matcher(shardId).matches(), "invalid shard id '%s'", shardId);
+    Files.createDirectories(path.submittedBallotShardDir());
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    SubmittedBallotIndex index = writeBallotsAndIndex(ballots,
+            path.submittedBallotShardPath(shardId), path.submittedBallotShardIndexPath(shardId), md);
+    addShard(new SubmittedBallotShards.Shard(shardId, index.size(), index.fileSize(), new UInt256(md.digest())));
+  }
+
+  /** Write the ballot file, forced to disk, then its index. If digest is not null, it digests the ballot file. */
+  private SubmittedBallotIndex writeBallotsAndIndex(Iterable<SubmittedBallot> ballots, Path ballotFile, Path indexFile,
+                                                    @Nullable MessageDigest digest) throws IOException {
+    List<SubmittedBallotIndex.Entry> entries = new ArrayList<>();
+    long offset = 0;
+    try (FileOutputStream fileOut = new FileOutputStream(ballotFile.toFile())) {
+      OutputStream out = new BufferedOutputStream(fileOut, DelimitedProtoReader.BUFFER_SIZE);
+      if (digest != null) {
+        out = new DigestOutputStream(out, digest);
+      }
       for (SubmittedBallot ballot : ballots) {
         CiphertextBallotProto.SubmittedBallot ballotProto = SubmittedBallotToProto.translateToProto(ballot);
         ballotProto.writeDelimitedTo(out);
+        entries.add(SubmittedBallotIndexConvert.importEntry(ballotProto, offset));
+        offset += DelimitedProtoReader.recordLength(ballotProto.getSerializedSize());
+      }
+      out.flush();
+      fileOut.getFD().sync();
+    }
+    SubmittedBallotIndex index = new SubmittedBallotIndex(offset, entries);
+    SubmittedBallotIndexConvert.write(index, indexFile);
+    return index;
+  }
+
+  /** Add the shard to the manifest, holding a file lock so that other processes can add shards at the same time. */
+  private void addShard(SubmittedBallotShards.Shard shard) throws IOException {
+    Path shardsFile = path.submittedBallotShardsPath();
+    Path lockFile = shardsFile.resolveSibling(shardsFile.getFileName() + ".lock");
+    // a FileLock is held by the JVM, so threads in this JVM must also take turns
+    synchronized (SHARDS_LOCK) {
+      try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+           FileLock lock = channel.lock()) {
+        SubmittedBallotShards shards = Files.exists(shardsFile) ?
+                SubmittedBallotIndexConvert.readShards(shardsFile) : SubmittedBallotShards.EMPTY;
+        SubmittedBallotIndexConvert.writeShards(shards.with(shard), shardsFile);
       }
     }
   }
@@ -125,6 +294,66 @@ public class Publisher {
     }
   }
 
+  public void writePartialCiphertextTally(PartialCiphertextTally partial) throws IOException {
+    CiphertextTallyProto.PartialCiphertextTally proto = CiphertextTallyToProto.publishPartialCiphertextTally(partial);
+    try (FileOutputStream out = new FileOutputStream(path.partialTallyPath(partial.shardId()).toFile())) {
+      proto.writeTo(out);
+    }
+  }
+
+  /**
+   * Append the checkpoint's new ballot ids to the ballot ids file and force it to disk. Then write the checkpoint,
+   * with the new length of the ballot ids file, to a temporary file, force it to disk, and rename it.
+   * So a crash while writing never leaves a partial checkpoint, and ids appended by a checkpoint that didn't
+   * complete are ignored, then overwritten by the next one.
+   */
+  public void writeTallyCheckpoint(CiphertextTallyBuilder.Checkpoint checkpoint) throws IOException {
+    Path dest = path.tallyCheckpointPath();
+    long ballotIdsLength = 0;
+    // if all the ids are new, this is the first checkpoint of a new accumulation
+    if (checkpoint.newBallotIds().size() < checkpoint.castBallotCount()) {
+      if (!Files.exists(dest)) {
+        throw new IOException("no previous checkpoint for " + checkpoint);
+      }
+      CiphertextTallyProto.TallyCheckpoint previous;
+      try (FileInputStream inp = new FileInputStream(dest.toFile())) {
+        previous = CiphertextTallyProto.TallyCheckpoint.parseFrom(inp);
+      }
+      if (previous.getBallotCount() + checkpoint.newBallotIds().size() != checkpoint.castBallotCount()) {
+        throw new IOException(String.format("checkpoint with %d new of %d ballots does not follow the previous one with %d",
+                checkpoint.newBallotIds().size(), checkpoint.castBallotCount(), previous.getBallotCount()));
+      }
+      ballotIdsLength = previous.getBallotIdsLength();
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CiphertextTallyToProto.publishTallyCheckpointBallots(checkpoint).writeDelimitedTo(bytes);
+    try (FileChannel channel = FileChannel.open(path.tallyCheckpointBallotsPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      channel.truncate(ballotIdsLength);
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, ballotIdsLength + buffer.position());
+      }
+      channel.force(false);
+    }
+    ballotIdsLength += bytes.size();
+
+    CiphertextTallyProto.TallyCheckpoint proto = CiphertextTallyToProto.publishTallyCheckpoint(checkpoint, ballotIdsLength);
+    Path temp = dest.resolveSibling(dest.getFileName() + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+      proto.writeTo(out);
+      out.getFD().sync();
+    }
+    Files.move(temp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Remove the checkpoint once the tally has been published. */
+  public void deleteTallyCheckpoint() throws IOException {
+    Files.deleteIfExists(path.tallyCheckpointPath());
+    Files.deleteIfExists(path.tallyCheckpointBallotsPath());
+  }
+
   public void writeDecryptionResults(DecryptionResult dresult) throws IOException {
     ElectionRecordProto.DecryptionResult proto = ElectionResultsConvert.publishDecryptionResult(dresult);
     try (FileOutputStream out = new FileOutputStream(path.decryptionResultPath().toFile())) {
@@ -132,12 +361,18 @@ public class Publisher {
     }
   }
 
+  /** Write the spoiled ballots. If ballots is a CloseableIterable, its iterator is closed, even if a write fails. */
   public void writeSpoiledBallots(Iterable<PlaintextTally> ballots) throws IOException {
-    try (FileOutputStream out = new FileOutputStream(path.spoiledBallotPath().toFile())) {
-      for (PlaintextTally ballot : ballots) {
-        PlaintextTallyProto.PlaintextTally ballotProto = PlaintextTallyToProto.publishPlaintextTally(ballot);
+    Iterator<PlaintextTally> iterator = ballots.iterator();
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(path.spoiledBallotPath().toFile()), DelimitedProtoReader.BUFFER_SIZE)) {
+      while (iterator.hasNext()) {
+        PlaintextTallyProto.PlaintextTally ballotProto = PlaintextTallyToProto.publishPlaintextTally(iterator.next());
         ballotProto.writeDelimitedTo(out);
       }
+    } finally {
+      if (iterator instanceof CloseableIterator<PlaintextTally> closeable) {
+        closeable.close();
+      }
     }
   }
 
@@ -145,12 +380,40 @@ public class Publisher {
     if (this.createPublisherMode == Publisher.Mode.readonly) {
       throw new UnsupportedOperationException("Trying to write to readonly election record");
     }
-    Path source = new ElectionRecordPath(inputDir).submittedBallotPath();
+    ElectionRecordPath sourcePath = new ElectionRecordPath(inputDir);
+    Path source = sourcePath.submittedBallotPath();
     Path dest = path.submittedBallotPath();
     if (source.equals(dest)) {
       return;
     }
-    System.out.printf("Copy AcceptedBallots from %s to %s%n", source, dest);
-    Files.copy(source, dest, StandardCopyOption.COPY_ATTRIBUTES);
+    Path sourceCompressed = sourcePath.submittedBallotCompressedPath();
+    if (Files.exists(sourceCompressed)) {
+      System.out.printf("Copy AcceptedBallots from %s to %s%n", sourceCompressed, path.submittedBallotCompressedPath());
+      Files.copy(sourceCompressed, path.submittedBallotCompressedPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+    if (Files.exists(source) || (!Files.exists(sourceCompressed) && !Files.exists(sourcePath.submittedBallotShardsPath()))) {
+      System.out.printf("Copy AcceptedBallots from %s to %s%n", source, dest);
+      Files.copy(source, dest, StandardCopyOption.COPY_ATTRIBUTES);
+      Path sourceIndex = sourcePath.submittedBallotIndexPath();
+      if (Files.exists(sourceIndex)) {
+        Files.copy(sourceIndex, path.submittedBallotIndexPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+      }
+    }
+    if (Files.exists(sourcePath.submittedBallotShardsPath())) {
+      System.out.printf("Copy AcceptedBallot shards from %s to %s%n", sourcePath.submittedBallotShardDir(), path.submittedBallotShardDir());
+      Files.createDirectories(path.submittedBallotShardDir());
+      SubmittedBallotShards shards = SubmittedBallotIndexConvert.readShards(sourcePath.submittedBallotShardsPath());
+      for (SubmittedBallotShards.Shard shard : shards.shards()) {
+        Files.copy(sourcePath.submittedBallotShardPath(shard.shardId()), path.submittedBallotShardPath(shard.shardId()),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        Path shardIndex = sourcePath.submittedBallotShardIndexPath(shard.shardId());
+        if (Files.exists(shardIndex)) {
+          Files.copy(shardIndex, path.submittedBallotShardIndexPath(shard.shardId()),
+                  StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+      }
+      // the manifest last, so that it never lists a shard that has not been copied
+      SubmittedBallotIndexConvert.writeShards(shards, path.submittedBallotShardsPath());
+    }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,254 @@
+package com.sunya.electionguard.publish;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.protoconvert.SubmittedBallotIndexConvert;
+import com.sunya.electionguard.protoconvert.SubmittedBallotToProto;
+import electionguard.protogen.CiphertextBallotProto;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Appends submitted ballots to the ballot file as they are accepted, for a live ballot box.
+ * <p>
+ * Callers translate their ballot to proto in their own thread and put it on a bounded queue, which blocks when
+ * the writer falls behind. A single writer thread writes the records through a buffer, and forces the file to disk
+ * once per group of ballots, syncInterval after the first unsynced ballot was written. The future of each ballot
+ * completes after the fsync that made it durable, so many ballots share one fsync. close() writes the ballot index.
+ * <p>
+ * Thread-safe.
+ */
+class SubmittedBallotAppender implements Closeable {
+  private static final Pending CLOSE = new Pending(null, null);
+
+  private record Pending(CiphertextBallotProto.SubmittedBallot proto, SettableFuture<SubmittedBallotIndex.Entry> future) {}
+
+  private final Path ballotFile;
+  private final Path indexFile;
+  private final long syncNanos;
+  private final BlockingQueue<Pending> queue;
+  private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+  private final FileOutputStream fileOut;
+  private final OutputStream out;
+  private final Thread writer;
+
+  // only used by the writer thread, until it has finished
+  private final List<SubmittedBallotIndex.Entry> entries = new ArrayList<>();
+  private final List<Pending> unsynced = new ArrayList<>();
+  private long offset;
+
+  private boolean closed; // guarded by closeLock
+  private volatile IOException failure;
+
+  /**
+   * Open the ballot file to append to, creating it if needed, and start the writer thread.
+   * The ballots already in the file are kept, and are in the index written by close().
+   * @param syncInterval how long a written ballot waits for others to share its fsync; zero to sync whenever the
+   *   queue is empty.
+   * @param queueSize the most ballots waiting to be written before append() blocks.
+   */
+  SubmittedBallotAppender(Path ballotFile, Path indexFile, Duration syncInterval, int queueSize) throws IOException {
+    Preconditions.checkArgument(!syncInterval.isNegative(), "negative syncInterval %s", syncInterval);
+    Preconditions.checkArgument(queueSize > 0, "queueSize must be > 0");
+    this.ballotFile = ballotFile;
+    this.indexFile = indexFile;
+    this.syncNanos = syncInterval.toNanos();
+    this.queue = new ArrayBlockingQueue<>(queueSize);
+    SubmittedBallotIndex existing = readExisting(ballotFile, indexFile);
+    this.entries.addAll(existing.entries());
+    this.offset = existing.fileSize();
+    this.fileOut = new FileOutputStream(ballotFile.toFile(), true);
+    this.out = new BufferedOutputStream(fileOut, DelimitedProtoReader.BUFFER_SIZE);
+    this.writer = new Thread(this::run, "SubmittedBallotAppender-" + ballotFile.getFileName());
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Queue the ballot to be written, blocking while the queue is full.
+   * @return a future that completes with the ballot's index entry once the ballot is on disk,
+   *   or fails with the IOException that stopped the writer.
+   */
+  ListenableFuture<SubmittedBallotIndex.Entry> append(SubmittedBallot ballot) {
+    SettableFuture<SubmittedBallotIndex.Entry> future = SettableFuture.create();
+    IOException failed = failure;
+    if (failed != null) {
+      future.setException(failed);
+      return future;
+    }
+    Pending pending = new Pending(SubmittedBallotToProto.translateToProto(ballot), future);
+    closeLock.readLock().lock();
+    try {
+      Preconditions.checkState(!closed, "%s is closed", ballotFile);
+      queue.put(pending);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.setException(e);
+    } finally {
+      closeLock.readLock().unlock();
+    }
+    return future;
+  }
+
+  /**
+   * The index of the ballots already in the file: the index file if it is current, else made by reading the file.
+   * A partial record at the end, left by a crash while writing, is cut off, so that appended ballots can be read.
+   */
+  private static SubmittedBallotIndex readExisting(Path ballotFile, Path indexFile) throws IOException {
+    if (!Files.exists(ballotFile)) {
+      return new SubmittedBallotIndex(0, List.of());
+    }
+    long fileSize = Files.size(ballotFile);
+    if (Files.exists(indexFile)) {
+      SubmittedBallotIndex index = SubmittedBallotIndexConvert.read(indexFile);
+      if (index.fileSize() == fileSize) {
+        return index;
+      }
+    }
+    List<SubmittedBallotIndex.Entry> entries = new ArrayList<>();
+    long end = 0;
+    try (DelimitedProtoReader reader = DelimitedProtoReader.open(ballotFile, 0, true)) {
+      CiphertextBallotProto.SubmittedBallot ballot;
+      while ((ballot = reader.next(CiphertextBallotProto.SubmittedBallot.parser())) != null) {
+        entries.add(SubmittedBallotIndexConvert.importEntry(ballot, end));
+        end = reader.offset();
+      }
+    } catch (EOFException e) {
+      try (FileChannel channel = FileChannel.open(ballotFile, StandardOpenOption.WRITE)) {
+        channel.truncate(end);
+      }
+    }
+    return new SubmittedBallotIndex(end, entries);
+  }
+
+  /** Number of ballots in the file. Only accurate after close(). */
+  int size() {
+    return entries.size();
+  }
+
+  private void run() {
+    long deadline = 0;
+    try {
+      while (true) {
+        Pending pending;
+        if (unsynced.isEmpty()) {
+          pending = queue.take();
+        } else {
+          pending = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        if (pending == CLOSE) {
+          sync();
+          return;
+        }
+        if (pending != null) {
+          if (unsynced.isEmpty()) {
+            deadline = System.nanoTime() + syncNanos;
+          }
+          write(pending);
+        }
+        if (pending == null || System.nanoTime() - deadline >= 0 || (syncNanos == 0 && queue.isEmpty())) {
+          sync();
+        }
+      }
+    } catch (IOException e) {
+      fail(e);
+    } catch (InterruptedException e) {
+      fail(new IOException("SubmittedBallotAppender was interrupted", e));
+    }
+  }
+
+  private void write(Pending pending) throws IOException {
+    pending.proto().writeDelimitedTo(out);
+    entries.add(SubmittedBallotIndexConvert.importEntry(pending.proto(), offset));
+    offset += DelimitedProtoReader.recordLength(pending.proto().getSerializedSize());
+    unsynced.add(pending);
+  }
+
+  /** Flush and fsync, then complete the futures of the ballots written since the last sync. */
+  private void sync() throws IOException {
+    if (unsynced.isEmpty()) {
+      return;
+    }
+    out.flush();
+    fileOut.getFD().sync();
+    int first = entries.size() - unsynced.size();
+    for (int i = 0; i < unsynced.size(); i++) {
+      unsynced.get(i).future().set(entries.get(first + i));
+    }
+    unsynced.clear();
+  }
+
+  /** Fail the unsynced ballots and everything still queued, and any later append. */
+  private void fail(IOException e) {
+    failure = e;
+    unsynced.forEach(p -> p.future().setException(e));
+    unsynced.clear();
+    // drain until CLOSE, so that appenders blocked on a full queue get through
+    while (true) {
+      Pending pending;
+      try {
+        pending = queue.take();
+      } catch (InterruptedException ie) {
+        return;
+      }
+      if (pending == CLOSE) {
+        return;
+      }
+      pending.future().setException(e);
+    }
+  }
+
+  /**
+   * Wait for the queued ballots to be written and synced, stop the writer thread, close the file,
+   * and write the index of the ballot file.
+   * @throws IOException if a write failed; the ballots whose futures completed are on disk.
+   */
+  @Override
+  public void close() throws IOException {
+    closeLock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      queue.put(CLOSE);
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while closing " + ballotFile, e);
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+    try {
+      out.close();
+    } catch (IOException e) {
+      if (failure == null) {
+        throw e;
+      }
+    }
+    IOException failed = failure;
+    if (failed != null) {
+      throw new IOException("failed to write " + ballotFile, failed);
+    }
+    SubmittedBallotIndexConvert.write(new SubmittedBallotIndex(offset, entries), indexFile);
+  }
+}
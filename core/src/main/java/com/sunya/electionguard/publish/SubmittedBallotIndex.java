@@ -0,0 +1,102 @@
+package com.sunya.electionguard.publish;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sunya.electionguard.BallotBox;
+import com.sunya.electionguard.Group;
+import com.sunya.electionguard.protoconvert.SubmittedBallotIndexConvert;
+import electionguard.protogen.CiphertextBallotProto;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the submitted ballot file: for each ballot, the byte offset of its record, its state, style and code.
+ * Publisher writes it next to the ballot file. Finding a ballot by id or code, or by its ordinal in the file,
+ * is a hash or array lookup and a read of one record.
+ */
+public class SubmittedBallotIndex {
+
+  /** One ballot in the index. */
+  public record Entry(String ballotId, long offset, BallotBox.State state, String ballotStyleId, Group.ElementModQ code) {}
+
+  private final long fileSize;
+  private final ImmutableList<Entry> entries;
+  private final ImmutableMap<String, Integer> byId;
+  private final ImmutableMap<Group.ElementModQ, Integer> byCode;
+
+  /**
+   * @param fileSize size of the submitted ballot file that was indexed.
+   * @param entries in file order.
+   */
+  public SubmittedBallotIndex(long fileSize, List<Entry> entries) {
+    this.fileSize = fileSize;
+    this.entries = ImmutableList.copyOf(entries);
+    // ballot ids and codes are unique in a valid election record; if not, the first one wins
+    Map<String, Integer> ids = new HashMap<>();
+    Map<Group.ElementModQ, Integer> codes = new HashMap<>();
+    for (int i = 0; i < entries.size(); i++) {
+      ids.putIfAbsent(entries.get(i).ballotId(), i);
+      codes.putIfAbsent(entries.get(i).code(), i);
+    }
+    this.byId = ImmutableMap.copyOf(ids);
+    this.byCode = ImmutableMap.copyOf(codes);
+  }
+
+  /** Size of the submitted ballot file that was indexed. */
+  public long fileSize() {
+    return fileSize;
+  }
+
+  /** Number of ballots. */
+  public int size() {
+    return entries.size();
+  }
+
+  /** All the entries, in file order. */
+  public List<Entry> entries() {
+    return entries;
+  }
+
+  /** The ballot with the given ordinal in the file, starting at 0. */
+  public Entry get(int ordinal) {
+    return entries.get(ordinal);
+  }
+
+  /** The ordinal of the ballot with this id, or -1 if not found. */
+  public int indexOf(String ballotId) {
+    return byId.getOrDefault(ballotId, -1);
+  }
+
+  @Nullable
+  public Entry find(String ballotId) {
+    Integer ordinal = byId.get(ballotId);
+    return ordinal == null ? null : entries.get(ordinal);
+  }
+
+  @Nullable
+  public Entry findByCode(Group.ElementModQ code) {
+    Integer ordinal = byCode.get(code);
+    return ordinal == null ? null : entries.get(ordinal);
+  }
+
+  /** Index a submitted ballot file that has no index, by reading all of it. */
+  public static SubmittedBallotIndex build(Path ballotFile) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    try (DelimitedProtoReader reader = DelimitedProtoReader.open(ballotFile, 0, false)) {
+      while (true) {
+        long offset = reader.offset();
+        CiphertextBallotProto.SubmittedBallot ballot = reader.next(CiphertextBallotProto.SubmittedBallot.parser());
+        if (ballot == null) {
+          return new SubmittedBallotIndex(reader.offset(), entries);
+        }
+        entries.add(SubmittedBallotIndexConvert.importEntry(ballot, offset));
+      }
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.sunya.electionguard.publish;
+
+import com.google.common.collect.ImmutableList;
+import com.sunya.electionguard.core.UInt256;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The manifest of a sharded submitted ballot layout, where each encryption device or server publishes its ballots
+ * into its own shard file, so that they can write into one election record at the same time.
+ *
+ * @param shards in the order they were added.
+ */
+public record SubmittedBallotShards(List<Shard> shards) {
+  public static final SubmittedBallotShards EMPTY = new SubmittedBallotShards(List.of());
+
+  public SubmittedBallotShards {
+    shards = ImmutableList.copyOf(shards);
+  }
+
+  /**
+   * One shard.
+   * @param nballots the number of ballots in it.
+   * @param fileSize the size of the shard file.
+   * @param digest SHA-256 of the shard file.
+   */
+  public record Shard(String shardId, long nballots, long fileSize, UInt256 digest) {}
+
+  /** The total number of ballots. */
+  public long nballots() {
+    return shards.stream().mapToLong(Shard::nballots).sum();
+  }
+
+  /** Add the shard, or replace the one with the same id. */
+  public SubmittedBallotShards with(Shard shard) {
+    List<Shard> result = new ArrayList<>(shards);
+    result.removeIf(s -> s.shardId().equals(shard.shardId()));
+    result.add(shard);
+    return new SubmittedBallotShards(result);
+  }
+}
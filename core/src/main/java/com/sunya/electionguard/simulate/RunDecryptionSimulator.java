@@ -11,7 +11,6 @@ import com.sunya.electionguard.Group;
 import com.sunya.electionguard.InternalManifest;
 import com.sunya.electionguard.Manifest;
 import com.sunya.electionguard.PlaintextTally;
-import com.sunya.electionguard.Scheduler;
 import com.sunya.electionguard.decrypting.DecryptingTrustee;
 import com.sunya.electionguard.input.ManifestInputValidation;
 import com.sunya.electionguard.publish.Consumer;
@@ -120,9 +119,6 @@ public class RunDecryptionSimulator {
       System.out.printf("*** RunDecryptingSimulator FAILURE%n");
       t.printStackTrace();
       System.exit(4);
-
-    } finally {
-      Scheduler.shutdown();
     }
   }
 
@@ -188,7 +184,7 @@ public class RunDecryptionSimulator {
     System.out.printf("%nAccumulate tally%n");
     InternalManifest metadata = new InternalManifest(this.election);
     CiphertextTallyBuilder ciphertextTally = new CiphertextTallyBuilder("RunDecryptingSimulator", metadata, electionRecord);
-    int nballots = ciphertextTally.batch_append(electionRecord.submittedBallots());
+    int nballots = ciphertextTally.batch_append(electionRecord.submittedBallotCiphertexts());
     this.encryptedTally = ciphertextTally.build();
     System.out.printf(" done accumulating %d ballots in the tally%n", nballots);
   }
@@ -2,7 +2,6 @@ package com.sunya.electionguard.simulate;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
 import com.sunya.electionguard.BallotBox;
 import com.sunya.electionguard.CiphertextBallot;
@@ -10,13 +9,17 @@ import com.sunya.electionguard.CiphertextContest;
 import com.sunya.electionguard.CiphertextSelection;
 import com.sunya.electionguard.CiphertextTally;
 import com.sunya.electionguard.DecryptionShare;
+import com.sunya.electionguard.ElGamal;
 import com.sunya.electionguard.Group;
+import com.sunya.electionguard.SelectionBatches;
 import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.TaskExecutor;
 import com.sunya.electionguard.decrypting.DecryptingTrusteeIF;
 import com.sunya.electionguard.decrypting.DecryptionProofRecovery;
 import com.sunya.electionguard.publish.ElectionContext;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,7 +39,8 @@ public class TrusteeDecryptions {
   // decryption shares
 
   /**
-   * Compute a decryption share for a guardian. Parallizable over each of the tally's contests.
+   * Compute a decryption share for a guardian.
+   * All the selections of the tally are sent to the guardian in one call, and the proofs are checked in batches.
    * <p>
    * @param guardian: The guardian who will partially decrypt the tally
    * @param tally: The election tally to decrypt
@@ -48,138 +52,106 @@ public class TrusteeDecryptions {
           CiphertextTally tally,
           ElectionContext context) {
 
-    Map<String, CiphertextDecryptionContest> contests = new HashMap<>();
-    for (CiphertextTally.Contest tallyContest : tally.contests.values()) {
-      Optional<CiphertextDecryptionContest> contest =
-              compute_decryption_share_for_contest(guardian, CiphertextContest.createFrom(tallyContest), context);
-      if (contest.isEmpty()) {
-        return Optional.empty();
-      }
-      contests.put(tallyContest.object_id(), contest.get());
-    }
-
-    return Optional.of(new DecryptionShare(
-            tally.object_id(),
-            guardian.id(),
-            guardian.electionPublicKey(),
-            contests));
+    List<CiphertextContest> contests = tally.contests.values().stream().map(CiphertextContest::createFrom).toList();
+    return compute_decryption_shares(guardian, List.of(tally.object_id()), List.of(contests), context).get(0);
   }
 
-  /** Compute the DecryptionShare for a list of ballots for a guardian. */
+  /**
+   * Compute the DecryptionShare for a list of ballots for a guardian.
+   * All the selections of all the ballots are sent to the guardian in one call.
+   */
   public static Optional<Map<String, DecryptionShare>> compute_decryption_share_for_ballots(
           DecryptingTrusteeIF guardian,
           Iterable<SubmittedBallot> ballots,
           ElectionContext context) {
 
-  Map<String, DecryptionShare> shares = new HashMap<>();
-
+    List<String> ballotIds = new ArrayList<>();
+    List<List<CiphertextContest>> ballotContests = new ArrayList<>();
     for (SubmittedBallot ballot : ballots) {
-      Optional<DecryptionShare> ballot_share = compute_decryption_share_for_ballot(
-              guardian, ballot, context);
-      if (ballot_share.isEmpty()) {
+      ballotIds.add(ballot.object_id());
+      ballotContests.add(ballot.contests.stream().map(CiphertextContest::createFrom).toList());
+    }
+    List<Optional<DecryptionShare>> ballot_shares = compute_decryption_shares(guardian, ballotIds, ballotContests, context);
+
+    Map<String, DecryptionShare> shares = new HashMap<>();
+    for (int i = 0; i < ballotIds.size(); i++) {
+      if (ballot_shares.get(i).isEmpty()) {
         return Optional.empty();
       }
-      shares.put(ballot.object_id(), ballot_share.get());
+      shares.put(ballotIds.get(i), ballot_shares.get(i).get());
     }
-
     return Optional.of(shares);
   }
 
-  /** Compute the DecryptionShare for a single ballot for a guardian. */
-  private static Optional<DecryptionShare> compute_decryption_share_for_ballot(
-          DecryptingTrusteeIF guardian,
-          SubmittedBallot ballot,
-          ElectionContext context) {
-
-    // Map(CONTEST_ID, CiphertextDecryptionContest)
-    Map<String, CiphertextDecryptionContest> contests = new HashMap<>();
-
-    for (CiphertextBallot.Contest contest : ballot.contests) {
-      Optional<CiphertextDecryptionContest> contest_share = compute_decryption_share_for_contest(
-              guardian,
-              CiphertextContest.createFrom(contest),
-              context);
-        if (contest_share.isEmpty()) {
-          logger.atInfo().log("could not compute ballot share for guardian %s contest %s",
-                  guardian.id(), contest.contestId);
-          return Optional.empty();
-        }
-        contests.put(contest.contestId, contest_share.get());
-    }
-    return Optional.of(new DecryptionShare(
-            ballot.object_id(),
-            guardian.id(),
-            guardian.electionPublicKey(),
-            contests));
-  }
-
   /**
-   * Compute the decryption for all of the contests in the Ciphertext Tally for a specific guardian.
-   * Parallizable over each of the tally's contests.
-   * @return Map(CONTEST_ID, CiphertextDecryptionContest)
+   * Compute the decryption shares of tallies or ballots, flattening all of their selections into one list,
+   * so there is no barrier between contests.
+   * @return a DecryptionShare for each owner, in order, or empty if any of its selections fail.
    */
-  private static Optional<CiphertextDecryptionContest> compute_decryption_share_for_contest(
+  private static List<Optional<DecryptionShare>> compute_decryption_shares(
           DecryptingTrusteeIF guardian,
-          CiphertextContest ciphertextContest,
+          List<String> ownerIds,
+          List<List<CiphertextContest>> owners,
           ElectionContext context) {
 
-    Map<String, CiphertextDecryptionSelection> selections = new HashMap<>();
-
-    for (CiphertextSelection selection : ciphertextContest.selections) {
-      Optional<CiphertextDecryptionSelection> decryption =
-              compute_decryption_share_for_selection(guardian, selection, context);
+    List<SelectionBatches.Item> items = SelectionBatches.flatten(owners);
+    List<ElGamal.Ciphertext> texts = items.stream().map(item -> item.selection().ciphertext()).toList();
+    List<BallotBox.DecryptionProofTuple> results;
+    try {
+      results = texts.isEmpty() ? List.of() : guardian.partialDecrypt(texts, context.extendedHash(), null);
+    } catch (Throwable t) {
+      logger.atWarning().withCause(t).log("guardian %s partialDecrypt failed", guardian.id());
+      results = List.of();
+    }
+    if (results.size() != texts.size()) {
+      logger.atWarning().log("guardian %s partialDecrypt returned %d results for %d texts",
+              guardian.id(), results.size(), texts.size());
+      return failed(owners.size());
+    }
 
-      // verify the decryptions are received and add them to the collection
-      // for (Optional<CiphertextDecryptionSelection> decryption : selection_decryptions) {
-      if (decryption.isEmpty()) {
-        logger.atWarning().log("could not compute share for guardian %s contest %s",
-                guardian.id(), ciphertextContest.object_id);
-        return Optional.empty();
+    List<BallotBox.DecryptionProofTuple> tuples = results;
+    List<Optional<CiphertextDecryptionSelection>> decryptions = TaskExecutor.getDefault().process(
+            items.size(), i -> make_decryption_share_for_selection(guardian, items.get(i).selection(), tuples.get(i), context));
+    List<Optional<Map<String, Map<String, CiphertextDecryptionSelection>>>> grouped =
+            SelectionBatches.group(owners.size(), items, decryptions);
+
+    List<Optional<DecryptionShare>> result = new ArrayList<>();
+    for (int owner = 0; owner < owners.size(); owner++) {
+      if (grouped.get(owner).isEmpty()) {
+        logger.atWarning().log("could not compute share for guardian %s for %s", guardian.id(), ownerIds.get(owner));
+        result.add(Optional.empty());
+        continue;
+      }
+      // Map(CONTEST_ID, Map(SELECTION_ID, CiphertextDecryptionSelection))
+      Map<String, Map<String, CiphertextDecryptionSelection>> selections = grouped.get(owner).get();
+      Map<String, CiphertextDecryptionContest> contests = new HashMap<>();
+      for (CiphertextContest contest : owners.get(owner)) {
+        contests.put(contest.object_id, new CiphertextDecryptionContest(contest.object_id, guardian.id(),
+                contest.description_hash, selections.getOrDefault(contest.object_id, Map.of())));
       }
-      selections.put(decryption.get().selectionId(), decryption.get());
+      result.add(Optional.of(new DecryptionShare(ownerIds.get(owner), guardian.id(), guardian.electionPublicKey(), contests)));
     }
-
-    return Optional.of(new CiphertextDecryptionContest(
-            ciphertextContest.object_id, guardian.id(), ciphertextContest.description_hash, selections));
+    return result;
   }
 
-  /**
-   * Compute a partial decryption for a specific selection and guardian.
-   * @param guardian: The guardian who will partially decrypt the selection
-   * @param selection: The specific selection to decrypt
-   * @param context: The public election encryption context
-   * @return a `CiphertextDecryptionSelection` or `None` if there is an error
-   */
-  // @VisibleForTesting
-  private static Optional<CiphertextDecryptionSelection> compute_decryption_share_for_selection(
+  /** Check the proof of the guardian's partial decryption of a selection, and make the share. */
+  private static Optional<CiphertextDecryptionSelection> make_decryption_share_for_selection(
           DecryptingTrusteeIF guardian,
           CiphertextSelection selection,
+          BallotBox.DecryptionProofTuple tuple,
           ElectionContext context) {
 
-    try {
-      List<BallotBox.DecryptionProofTuple> results = guardian.partialDecrypt(ImmutableList.of(selection.ciphertext()),
-              context.extendedHash(), null);
-      if (results.isEmpty()) {
-        logger.atWarning().log("compute_decryption_share_for_selection guardian.partialDecrypt failed",
-                guardian.id(), selection.object_id());
-        return Optional.empty();
-      }
-      BallotBox.DecryptionProofTuple tuple = results.get(0);
-      if (tuple.proof.is_valid(selection.ciphertext(), guardian.electionPublicKey(),
-              tuple.decryption, context.extendedHash())) {
-        return Optional.of(DecryptionShare.create_ciphertext_decryption_selection(
-                selection.object_id(),
-                guardian.id(),
-                tuple.decryption,
-                Optional.of(tuple.proof),
-                Optional.empty()));
-      } else {
-        logger.atWarning().log("compute decryption share proof failed for %s %s with invalid proof",
-                guardian.id(), selection.object_id());
-        return Optional.empty();
-      }
-    } catch (Throwable t) {
-      t.printStackTrace();
+    if (tuple.proof.is_valid(selection.ciphertext(), guardian.electionPublicKey(),
+            tuple.decryption, context.extendedHash())) {
+      return Optional.of(DecryptionShare.create_ciphertext_decryption_selection(
+              selection.object_id(),
+              guardian.id(),
+              tuple.decryption,
+              Optional.of(tuple.proof),
+              Optional.empty()));
+    } else {
+      logger.atWarning().log("compute decryption share proof failed for %s %s with invalid proof",
+              guardian.id(), selection.object_id());
       return Optional.empty();
     }
   }
@@ -189,6 +161,7 @@ public class TrusteeDecryptions {
 
   /**
    * Compute a compensated decryptions share for a guardian.
+   * All the selections of the tally are sent to the guardian in one call, and the proofs are checked in batches.
    * <p>
    * @param guardian: The guardian who will partially decrypt the tally
    * @param missing_guardian_id: the missing guardian id to compensate
@@ -202,122 +175,96 @@ public class TrusteeDecryptions {
           CiphertextTally tally,
           ElectionContext context) {
 
-    Map<String, CiphertextCompensatedDecryptionContest> contests = new HashMap<>();
-
-    for (CiphertextTally.Contest contest : tally.contests.values()) {
-      Optional<CiphertextCompensatedDecryptionContest> dcontest = compute_compensated_decryption_share_for_contest(
-              guardian, missing_guardian_id, CiphertextContest.createFrom(contest), context);
-      if (dcontest.isEmpty()) {
-        return Optional.empty();
-      }
-      contests.put(contest.object_id(), dcontest.get());
-    }
-
-    return Optional.of(new CompensatedDecryptionShare(
-            tally.object_id(),
-            guardian.id(),
-            missing_guardian_id,
-            guardian.electionPublicKey(),
-            contests));
+    List<CiphertextContest> contests = tally.contests.values().stream().map(CiphertextContest::createFrom).toList();
+    return compute_compensated_decryption_shares(guardian, missing_guardian_id,
+            List.of(tally.object_id()), List.of(contests), context).get(0);
   }
 
-  /**
-   * Compute the compensated decryption for all of the cast contests in the Ciphertext Tally.
-   * Parallizable over each of the tally's contests.
-   */
-  private static Optional<CiphertextCompensatedDecryptionContest> compute_compensated_decryption_share_for_contest(
+  /** Compute the compensated decryption for a single ballot. */
+  @VisibleForTesting
+  static Optional<CompensatedDecryptionShare> compute_compensated_decryption_share_for_ballot(
           DecryptingTrusteeIF guardian,
           String missing_guardian_id,
-          CiphertextContest contest,
+          SubmittedBallot ballot,
           ElectionContext context) {
 
-      Map<String, CiphertextCompensatedDecryptionSelection> selections = new HashMap<>();
-
-      for (CiphertextSelection selection : contest.selections) {
-        Optional<CiphertextCompensatedDecryptionSelection> decryption =
-             compute_compensated_decryption_share_for_selection(guardian, missing_guardian_id, selection, context);
-        if (decryption.isEmpty()) {
-          logger.atWarning().log("could not compute share for guardian %s contest %s", guardian.id(), contest.object_id);
-          continue;
-          // return Optional.empty();
-        }
-        selections.put(decryption.get().selectionId(), decryption.get());
-      }
-
-      return Optional.of(new CiphertextCompensatedDecryptionContest(
-              contest.object_id,
-              guardian.id(),
-              missing_guardian_id,
-              contest.description_hash,
-              selections));
+    List<CiphertextContest> contests = ballot.contests.stream().map(CiphertextContest::createFrom).toList();
+    return compute_compensated_decryption_shares(guardian, missing_guardian_id,
+            List.of(ballot.object_id()), List.of(contests), context).get(0);
   }
 
   /**
-   * Compute the compensated decryption for a single ballot.
-   * Parallizable over each of the ballot's selections.
+   * Compute the compensated decryption shares of tallies or ballots, flattening all of their selections into one list,
+   * so there is no barrier between contests.
+   * @return a CompensatedDecryptionShare for each owner, in order, or empty if any of its selections fail.
    */
-  @VisibleForTesting
-  static Optional<CompensatedDecryptionShare> compute_compensated_decryption_share_for_ballot(
+  private static List<Optional<CompensatedDecryptionShare>> compute_compensated_decryption_shares(
           DecryptingTrusteeIF guardian,
           String missing_guardian_id,
-          SubmittedBallot ballot,
+          List<String> ownerIds,
+          List<List<CiphertextContest>> owners,
           ElectionContext context) {
 
-    Map<String, CiphertextCompensatedDecryptionContest> contests = new HashMap<>();
+    List<SelectionBatches.Item> items = SelectionBatches.flatten(owners);
+    List<ElGamal.Ciphertext> texts = items.stream().map(item -> item.selection().ciphertext()).toList();
+    List<DecryptionProofRecovery> results;
+    try {
+      results = texts.isEmpty() ? List.of() :
+              guardian.compensatedDecrypt(missing_guardian_id, texts, context.extendedHash(), null);
+    } catch (Throwable t) {
+      logger.atWarning().withCause(t).log("guardian %s compensatedDecrypt failed missing: %s", guardian.id(), missing_guardian_id);
+      results = List.of();
+    }
+    if (results.size() != texts.size()) {
+      logger.atWarning().log("compute compensated decryption share failed for %s missing: %s; %d results for %d texts",
+              guardian.id(), missing_guardian_id, results.size(), texts.size());
+      return failed(owners.size());
+    }
 
-    for (CiphertextBallot.Contest contest : ballot.contests) {
-      Optional<CiphertextCompensatedDecryptionContest> contest_share =
-              compute_compensated_decryption_share_for_contest(
-              guardian,
+    List<DecryptionProofRecovery> recoveries = results;
+    List<Optional<CiphertextCompensatedDecryptionSelection>> decryptions = TaskExecutor.getDefault().process(items.size(),
+            i -> make_compensated_decryption_share_for_selection(guardian, missing_guardian_id,
+                    items.get(i).selection(), recoveries.get(i), context));
+    List<Optional<Map<String, Map<String, CiphertextCompensatedDecryptionSelection>>>> grouped =
+            SelectionBatches.group(owners.size(), items, decryptions);
+
+    List<Optional<CompensatedDecryptionShare>> result = new ArrayList<>();
+    for (int owner = 0; owner < owners.size(); owner++) {
+      if (grouped.get(owner).isEmpty()) {
+        logger.atWarning().log("could not compute compensated share for guardian %s missing: %s for %s",
+                guardian.id(), missing_guardian_id, ownerIds.get(owner));
+        result.add(Optional.empty());
+        continue;
+      }
+      // Map(CONTEST_ID, Map(SELECTION_ID, CiphertextCompensatedDecryptionSelection))
+      Map<String, Map<String, CiphertextCompensatedDecryptionSelection>> selections = grouped.get(owner).get();
+      Map<String, CiphertextCompensatedDecryptionContest> contests = new HashMap<>();
+      for (CiphertextContest contest : owners.get(owner)) {
+        contests.put(contest.object_id, new CiphertextCompensatedDecryptionContest(
+                contest.object_id,
+                guardian.id(),
+                missing_guardian_id,
+                contest.description_hash,
+                selections.getOrDefault(contest.object_id, Map.of())));
+      }
+      result.add(Optional.of(new CompensatedDecryptionShare(
+              ownerIds.get(owner),
+              guardian.id(),
               missing_guardian_id,
-              CiphertextContest.createFrom(contest),
-              context);
-         if (contest_share.isEmpty()) {
-          logger.atWarning().log("could not compute compensated spoiled ballot share for guardian %s missing: %s contest %s",
-                  guardian.id(), missing_guardian_id, contest.contestId);
-          return Optional.empty();
-        }
-      contests.put(contest.contestId, contest_share.get());
+              guardian.electionPublicKey(),
+              contests)));
     }
-
-    return Optional.of(new CompensatedDecryptionShare(
-            ballot.object_id(),
-            guardian.id(),
-            missing_guardian_id,
-            guardian.electionPublicKey(),
-            contests));
+    return result;
   }
 
-  /**
-   * Compute a compensated decryption share for a specific selection using the
-   * available guardians' share of the missing guardian's private key polynomial.
-   * <p>
-   * @param guardian: The available guardian that will partially decrypt the selection
-   * @param missing_guardian_id: The id of the guardian that is missing
-   * @param selection: The specific selection to decrypt
-   * @param context: The public election encryption context
-   * @return a `CiphertextCompensatedDecryptionSelection` or `None` if there is an error
-   */
-  // @VisibleForTesting
-  private  static Optional<CiphertextCompensatedDecryptionSelection> compute_compensated_decryption_share_for_selection(
+  /** Check the proof of the guardian's compensated decryption of a selection, and make the share. */
+  private static Optional<CiphertextCompensatedDecryptionSelection> make_compensated_decryption_share_for_selection(
           DecryptingTrusteeIF guardian,
           String missing_guardian_id,
           CiphertextSelection selection,
+          DecryptionProofRecovery tuple,
           ElectionContext context) {
 
-    List<DecryptionProofRecovery> compensated = guardian.compensatedDecrypt(
-            missing_guardian_id,
-            ImmutableList.of(selection.ciphertext()),
-            context.extendedHash(),
-            null);
-
-    if (compensated.isEmpty()) {
-      logger.atWarning().log("compute compensated decryption share failed for %s missing: %s %s",
-              guardian.id(), missing_guardian_id, selection.object_id());
-      return Optional.empty();
-    }
-    DecryptionProofRecovery tuple = compensated.get(0);
-
     if (tuple.proof().is_valid(
             selection.ciphertext(),
             tuple.recoveryPublicKey(),
@@ -339,6 +286,10 @@ public class TrusteeDecryptions {
     }
   }
 
+  private static <T> List<Optional<T>> failed(int n) {
+    return new ArrayList<>(Collections.nCopies(n, Optional.empty()));
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////////////////
 
   /**
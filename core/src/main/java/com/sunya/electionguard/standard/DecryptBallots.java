@@ -10,7 +10,6 @@ import com.sunya.electionguard.Manifest;
 import com.sunya.electionguard.InternalManifest;
 import com.sunya.electionguard.PlaintextTally;
 import com.sunya.electionguard.CiphertextTally;
-import com.sunya.electionguard.Scheduler;
 import com.sunya.electionguard.input.ManifestInputValidation;
 import com.sunya.electionguard.publish.Consumer;
 import com.sunya.electionguard.json.PublisherOld;
@@ -135,9 +134,6 @@ public class DecryptBallots {
       System.out.printf("*** DecryptBallots FAILURE%n");
       t.printStackTrace();
       System.exit(4);
-
-    } finally {
-      Scheduler.shutdown();
     }
   }
 
@@ -184,7 +180,7 @@ public class DecryptBallots {
     System.out.printf("%nAccumulate tally%n");
     InternalManifest metadata = new InternalManifest(this.election);
     CiphertextTallyBuilder ciphertextTally = new CiphertextTallyBuilder("DecryptBallots", metadata, electionRecord);
-    int nballots = ciphertextTally.batch_append(electionRecord.submittedBallots());
+    int nballots = ciphertextTally.batch_append(electionRecord.submittedBallotCiphertexts());
     this.encryptedTally = ciphertextTally.build();
     System.out.printf(" done accumulating %d ballots in the tally%n", nballots);
   }
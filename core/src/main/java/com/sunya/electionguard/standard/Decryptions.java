@@ -2,7 +2,6 @@ package com.sunya.electionguard.standard;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Streams;
 import com.google.common.flogger.FluentLogger;
 import com.sunya.electionguard.BallotBox;
 import com.sunya.electionguard.ChaumPedersen;
@@ -15,8 +14,9 @@ import com.sunya.electionguard.DecryptionShare;
 import com.sunya.electionguard.ElGamal;
 import com.sunya.electionguard.ElectionPolynomial;
 import com.sunya.electionguard.Group;
-import com.sunya.electionguard.Scheduler;
+import com.sunya.electionguard.SelectionBatches;
 import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.TaskExecutor;
 import com.sunya.electionguard.publish.ElectionContext;
 
 import javax.annotation.Nullable;
@@ -26,7 +26,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Callable;
 
 import static com.sunya.electionguard.DecryptionShare.CiphertextCompensatedDecryptionContest;
 import static com.sunya.electionguard.DecryptionShare.CiphertextCompensatedDecryptionSelection;
@@ -43,7 +42,8 @@ public class Decryptions {
   // decryption shares
 
   /**
-   * Compute a decryption share for a guardian. Parallizable over each of the tally's contests.
+   * Compute a decryption share for a guardian.
+   * The selections of all the tally's contests are computed together, in batches in the TaskExecutor.
    * <p>
    * @param guardian_keys: The guardian's election key pair
    * @param tally: The election tally to decrypt
@@ -53,43 +53,55 @@ public class Decryptions {
           KeyCeremony.ElectionKeyPair guardian_keys,
           CiphertextTally tally,
           ElectionContext context) {
+    return compute_decryption_share(guardian_keys, tally, context, TaskExecutor.getDefault());
+  }
 
-    Map<String, CiphertextDecryptionContest> contests = new HashMap<>();
-    for (CiphertextTally.Contest tallyContest : tally.contests.values()) {
-      Optional<CiphertextDecryptionContest> contest_share =
-              compute_decryption_share_for_contest(guardian_keys,
-                      CiphertextContest.createFrom(tallyContest),
-                      context);
-      if (contest_share.isEmpty()) {
-        return Optional.empty();
-      }
-      contests.put(tallyContest.object_id(), contest_share.get());
-    }
+  /** Same as compute_decryption_share, using the given executor. */
+  public static Optional<DecryptionShare> compute_decryption_share(
+          KeyCeremony.ElectionKeyPair guardian_keys,
+          CiphertextTally tally,
+          ElectionContext context,
+          TaskExecutor executor) {
 
-    return Optional.of(new DecryptionShare(
-            tally.object_id(),
-            guardian_keys.owner_id(),
-            guardian_keys.share().key(),
-            contests));
+    List<CiphertextContest> contests = tally.contests.values().stream().map(CiphertextContest::createFrom).toList();
+    return compute_decryption_shares(guardian_keys, guardian_keys.share().key(),
+            List.of(tally.object_id()), List.of(contests), context, executor).get(0);
   }
 
-  /** Compute the DecryptionShare for a list of ballots for a guardian. */
+  /**
+   * Compute the DecryptionShare for a list of ballots for a guardian.
+   * The selections of all the ballots are computed together, in batches in the TaskExecutor.
+   */
   static Optional<Map<String, DecryptionShare>> compute_decryption_share_for_ballots(
           KeyCeremony.ElectionKeyPair guardian_keys,
           Iterable<SubmittedBallot> ballots,
           ElectionContext context) {
+    return compute_decryption_share_for_ballots(guardian_keys, ballots, context, TaskExecutor.getDefault());
+  }
 
-  Map<String, DecryptionShare> shares = new HashMap<>();
+  /** Same as compute_decryption_share_for_ballots, using the given executor. */
+  static Optional<Map<String, DecryptionShare>> compute_decryption_share_for_ballots(
+          KeyCeremony.ElectionKeyPair guardian_keys,
+          Iterable<SubmittedBallot> ballots,
+          ElectionContext context,
+          TaskExecutor executor) {
 
+    List<String> ballotIds = new ArrayList<>();
+    List<List<CiphertextContest>> ballotContests = new ArrayList<>();
     for (SubmittedBallot ballot : ballots) {
-      Optional<DecryptionShare> ballot_share = compute_decryption_share_for_ballot(
-              guardian_keys, ballot, context);
-      if (ballot_share.isEmpty()) {
+      ballotIds.add(ballot.object_id());
+      ballotContests.add(ballot.contests.stream().map(CiphertextContest::createFrom).toList());
+    }
+    List<Optional<DecryptionShare>> ballot_shares = compute_decryption_shares(guardian_keys,
+            guardian_keys.key_pair().public_key(), ballotIds, ballotContests, context, executor);
+
+    Map<String, DecryptionShare> shares = new HashMap<>();
+    for (int i = 0; i < ballotIds.size(); i++) {
+      if (ballot_shares.get(i).isEmpty()) {
         return Optional.empty();
       }
-      shares.put(ballot.object_id(), ballot_share.get());
+      shares.put(ballotIds.get(i), ballot_shares.get(i).get());
     }
-
     return Optional.of(shares);
   }
 
@@ -99,73 +111,48 @@ public class Decryptions {
           SubmittedBallot ballot,
           ElectionContext context) {
 
-    // Map(CONTEST_ID, CiphertextDecryptionContest)
-    Map<String, CiphertextDecryptionContest> contests = new HashMap<>();
-
-    for (CiphertextBallot.Contest contest : ballot.contests) {
-      Optional<CiphertextDecryptionContest> contest_share = compute_decryption_share_for_contest(
-              guardian_keys,
-              CiphertextContest.createFrom(contest),
-              context);
-        if (contest_share.isEmpty()) {
-          logger.atInfo().log("could not compute ballot share for guardian %s contest %s",
-                  guardian_keys.owner_id(), contest.contestId);
-          return Optional.empty();
-        }
-        contests.put(contest.contestId, contest_share.get());
-    }
-    return Optional.of(new DecryptionShare(
-            ballot.object_id(),
-            guardian_keys.owner_id(),
-            guardian_keys.key_pair().public_key(),
-            contests));
+    List<CiphertextContest> contests = ballot.contests.stream().map(CiphertextContest::createFrom).toList();
+    return compute_decryption_shares(guardian_keys, guardian_keys.key_pair().public_key(),
+            List.of(ballot.object_id()), List.of(contests), context, TaskExecutor.getDefault()).get(0);
   }
 
-  /** Compute the decryption share for a single contest. */
-  private static Optional<CiphertextDecryptionContest> compute_decryption_share_for_contest(
+  /**
+   * Compute the decryption shares of tallies or ballots, flattening all of their selections into one list,
+   * so there is no barrier between contests.
+   * @return a DecryptionShare for each owner, in order, or empty if any of its selections fail.
+   */
+  private static List<Optional<DecryptionShare>> compute_decryption_shares(
           KeyCeremony.ElectionKeyPair guardian_keys,
-          CiphertextContest ciphertextContest,
-          ElectionContext context) {
-
-    Map<String, CiphertextDecryptionSelection> selections = new HashMap<>();
-
-    List<RunComputeDecryptionShareForSelection> tasks =
-            Streams.stream(ciphertextContest.selections)
-                    .map(selection -> new RunComputeDecryptionShareForSelection(guardian_keys, selection, context))
-                    .toList();
-
-    Scheduler<Optional<CiphertextDecryptionSelection>> scheduler = new Scheduler<>();
-    List<Optional<CiphertextDecryptionSelection>> selection_decryptions = scheduler.schedule(tasks, true);
-
-    // verify the decryptions are received and add them to the collection
-    for (Optional<CiphertextDecryptionSelection> decryption : selection_decryptions) {
-      if (decryption.isEmpty()) {
-        logger.atWarning().log("could not compute share for guardian %s contest %s",
-                guardian_keys.owner_id(), ciphertextContest.object_id);
-        return Optional.empty();
+          Group.ElementModP public_key,
+          List<String> ownerIds,
+          List<List<CiphertextContest>> owners,
+          ElectionContext context,
+          TaskExecutor executor) {
+
+    List<SelectionBatches.Item> items = SelectionBatches.flatten(owners);
+    List<Optional<CiphertextDecryptionSelection>> decryptions = executor.process(items.size(),
+            i -> compute_decryption_share_for_selection(guardian_keys, items.get(i).selection(), context));
+    List<Optional<Map<String, Map<String, CiphertextDecryptionSelection>>>> grouped =
+            SelectionBatches.group(owners.size(), items, decryptions);
+
+    List<Optional<DecryptionShare>> result = new ArrayList<>();
+    for (int owner = 0; owner < owners.size(); owner++) {
+      if (grouped.get(owner).isEmpty()) {
+        logger.atWarning().log("could not compute share for guardian %s for %s",
+                guardian_keys.owner_id(), ownerIds.get(owner));
+        result.add(Optional.empty());
+        continue;
       }
-      selections.put(decryption.get().selectionId(), decryption.get());
-    }
-
-    return Optional.of(new CiphertextDecryptionContest(
-            ciphertextContest.object_id, guardian_keys.owner_id(), ciphertextContest.description_hash, selections));
-  }
-
-  private static class RunComputeDecryptionShareForSelection implements Callable<Optional<CiphertextDecryptionSelection>> {
-    final KeyCeremony.ElectionKeyPair guardian_keys;
-    private final CiphertextSelection selection;
-    private final ElectionContext context;
-
-    RunComputeDecryptionShareForSelection(KeyCeremony.ElectionKeyPair guardian_keys, CiphertextSelection selection, ElectionContext context) {
-      this.guardian_keys = Preconditions.checkNotNull(guardian_keys);
-      this.selection = Preconditions.checkNotNull(selection);
-      this.context = Preconditions.checkNotNull(context);
-    }
-
-    @Override
-    public Optional<CiphertextDecryptionSelection> call() {
-      return compute_decryption_share_for_selection(guardian_keys, selection, context);
+      // Map(CONTEST_ID, Map(SELECTION_ID, CiphertextDecryptionSelection))
+      Map<String, Map<String, CiphertextDecryptionSelection>> selections = grouped.get(owner).get();
+      Map<String, CiphertextDecryptionContest> contests = new HashMap<>();
+      for (CiphertextContest contest : owners.get(owner)) {
+        contests.put(contest.object_id, new CiphertextDecryptionContest(contest.object_id, guardian_keys.owner_id(),
+                contest.description_hash, selections.getOrDefault(contest.object_id, Map.of())));
+      }
+      result.add(Optional.of(new DecryptionShare(ownerIds.get(owner), guardian_keys.owner_id(), public_key, contests)));
     }
+    return result;
   }
 
   /**
@@ -209,6 +196,7 @@ public class Decryptions {
 
   /**
    * Compute a compensated decryptions share for a guardian.
+   * The selections of all the tally's contests are computed together, in batches in the TaskExecutor.
    * <p>
    * @param guardian_key: Guardian's election public key
    * @param missing_guardian_key: Missing guardian's election public key
@@ -223,73 +211,27 @@ public class Decryptions {
           KeyCeremony.ElectionPartialKeyBackup missing_guardian_backup,
           CiphertextTally tally,
           ElectionCryptoContext context) {
-
-    Map<String, CiphertextCompensatedDecryptionContest> contests = new HashMap<>();
-
-    for (CiphertextTally.Contest contest : tally.contests.values()) {
-      Optional<CiphertextCompensatedDecryptionContest> dcontest = compute_compensated_decryption_share_for_contest(
-              guardian_key,
-              missing_guardian_key,
-              missing_guardian_backup,
-              CiphertextContest.createFrom(contest),
-              context);
-      if (dcontest.isEmpty()) {
-        return Optional.empty();
-      }
-      contests.put(contest.object_id(), dcontest.get());
-    }
-
-    return Optional.of(new CompensatedDecryptionShare(
-            tally.object_id(),
-            guardian_key.owner_id(),
-            missing_guardian_key.owner_id(),
-            guardian_key.key(),
-            contests));
+    return compute_compensated_decryption_share(guardian_key, missing_guardian_key, missing_guardian_backup,
+            tally, context, TaskExecutor.getDefault());
   }
 
-  /**
-   * Compute the compensated decryption share for a single contest.
-   */
-  private static Optional<CiphertextCompensatedDecryptionContest>
-  compute_compensated_decryption_share_for_contest(
+  /** Same as compute_compensated_decryption_share, using the given executor. */
+  public static Optional<CompensatedDecryptionShare> compute_compensated_decryption_share(
           KeyCeremony.ElectionPublicKey guardian_key,
           KeyCeremony.ElectionPublicKey missing_guardian_key,
           KeyCeremony.ElectionPartialKeyBackup missing_guardian_backup,
-          CiphertextContest contest,
-          ElectionCryptoContext context) {
-
-      Map<String, CiphertextCompensatedDecryptionSelection> selections = new HashMap<>();
-
-      List<RunComputeCompensatedDecryptionShareForSelection> tasks =
-          Streams.stream(contest.selections)
-                  .map(selection -> new RunComputeCompensatedDecryptionShareForSelection(
-                          guardian_key, missing_guardian_key, missing_guardian_backup, selection, context))
-                  .toList();
-
-      Scheduler<Optional<CiphertextCompensatedDecryptionSelection>> scheduler = new Scheduler<>();
-      List<Optional<CiphertextCompensatedDecryptionSelection>>
-              selection_decryptions = scheduler.schedule(tasks, true);
-
-      // verify the decryptions are received and add them to the collection
-      for (Optional<CiphertextCompensatedDecryptionSelection> decryption : selection_decryptions) {
-        if (decryption.isEmpty()) {
-          logger.atWarning().log("could not compute share for missing guardian %s contest %s", 
-                  missing_guardian_key.owner_id(), contest.object_id);
-          return Optional.empty();
-        }
-        selections.put(decryption.get().selectionId(), decryption.get());
-      }
+          CiphertextTally tally,
+          ElectionCryptoContext context,
+          TaskExecutor executor) {
 
-      return Optional.of(new CiphertextCompensatedDecryptionContest(
-              contest.object_id,
-              guardian_key.owner_id(),
-              missing_guardian_key.owner_id(),
-              contest.description_hash,
-              selections));
+    List<CiphertextContest> contests = tally.contests.values().stream().map(CiphertextContest::createFrom).toList();
+    return compute_compensated_decryption_shares(guardian_key, missing_guardian_key, missing_guardian_backup,
+            List.of(tally.object_id()), List.of(contests), context, executor).get(0);
   }
 
   /**
    * Compute the compensated decryption for the given ballots, for a specific guardian.
+   * The selections of all the ballots are computed together, in batches in the TaskExecutor.
    * @return Map(BALLOT_ID, CompensatedDecryptionShare)
    */
   static Optional<Map<String, CompensatedDecryptionShare>> compute_compensated_decryption_share_for_ballots(
@@ -298,24 +240,35 @@ public class Decryptions {
           KeyCeremony.ElectionPartialKeyBackup missing_guardian_backup,
           Iterable<SubmittedBallot> ballots,
           ElectionCryptoContext context) {
+    return compute_compensated_decryption_share_for_ballots(guardian_key, missing_guardian_key, missing_guardian_backup,
+            ballots, context, TaskExecutor.getDefault());
+  }
 
-    Map<String, CompensatedDecryptionShare> decrypted_ballots = new HashMap<>();
+  /** Same as compute_compensated_decryption_share_for_ballots, using the given executor. */
+  static Optional<Map<String, CompensatedDecryptionShare>> compute_compensated_decryption_share_for_ballots(
+          KeyCeremony.ElectionPublicKey guardian_key,
+          KeyCeremony.ElectionPublicKey missing_guardian_key,
+          KeyCeremony.ElectionPartialKeyBackup missing_guardian_backup,
+          Iterable<SubmittedBallot> ballots,
+          ElectionCryptoContext context,
+          TaskExecutor executor) {
 
-    for (SubmittedBallot spoiled_ballot : ballots) {
-      Optional<CompensatedDecryptionShare> compensated_ballot = compute_compensated_decryption_share_for_ballot(
-              guardian_key,
-              missing_guardian_key,
-              missing_guardian_backup,
-              spoiled_ballot,
-              context);
+    List<String> ballotIds = new ArrayList<>();
+    List<List<CiphertextContest>> ballotContests = new ArrayList<>();
+    for (SubmittedBallot ballot : ballots) {
+      ballotIds.add(ballot.object_id());
+      ballotContests.add(ballot.contests.stream().map(CiphertextContest::createFrom).toList());
+    }
+    List<Optional<CompensatedDecryptionShare>> compensated_ballots = compute_compensated_decryption_shares(
+            guardian_key, missing_guardian_key, missing_guardian_backup, ballotIds, ballotContests, context, executor);
 
-      if (compensated_ballot.isPresent()) {
-        decrypted_ballots.put(spoiled_ballot.object_id(), compensated_ballot.get());
-      } else {
+    Map<String, CompensatedDecryptionShare> decrypted_ballots = new HashMap<>();
+    for (int i = 0; i < ballotIds.size(); i++) {
+      if (compensated_ballots.get(i).isEmpty()) {
         return Optional.empty();
       }
+      decrypted_ballots.put(ballotIds.get(i), compensated_ballots.get(i).get());
     }
-
     return Optional.of(decrypted_ballots);
   }
 
@@ -327,58 +280,62 @@ public class Decryptions {
           SubmittedBallot ballot,
           ElectionCryptoContext context) {
 
-    Map<String, CiphertextCompensatedDecryptionContest> contests = new HashMap<>();
-
-    for (CiphertextBallot.Contest contest : ballot.contests) {
-      Optional<CiphertextCompensatedDecryptionContest> contest_share =
-              compute_compensated_decryption_share_for_contest(
-                      guardian_key,
-                      missing_guardian_key,
-                      missing_guardian_backup,
-                      CiphertextContest.createFrom(contest),
-                      context);
-         if (contest_share.isEmpty()) {
-          logger.atWarning().log("could not compute compensated spoiled ballot share for guardian %s missing: %s contest %s",
-                  guardian_key.owner_id(), missing_guardian_key.owner_id(), contest.contestId);
-          return Optional.empty();
-        }
-      contests.put(contest.contestId, contest_share.get());
-    }
-
-    return Optional.of(new CompensatedDecryptionShare(
-            ballot.object_id(),
-            guardian_key.owner_id(),
-            missing_guardian_key.owner_id(),
-            guardian_key.key(),
-            contests));
+    List<CiphertextContest> contests = ballot.contests.stream().map(CiphertextContest::createFrom).toList();
+    return compute_compensated_decryption_shares(guardian_key, missing_guardian_key, missing_guardian_backup,
+            List.of(ballot.object_id()), List.of(contests), context, TaskExecutor.getDefault()).get(0);
   }
 
-  private static class RunComputeCompensatedDecryptionShareForSelection implements
-          Callable<Optional<CiphertextCompensatedDecryptionSelection>> {
-    final KeyCeremony.ElectionPublicKey guardian_key;
-    final KeyCeremony.ElectionPublicKey missing_guardian_key;
-    final KeyCeremony.ElectionPartialKeyBackup missing_guardian_backup;
-    final CiphertextSelection selection;
-    final ElectionCryptoContext context;
-
-    RunComputeCompensatedDecryptionShareForSelection(
-            KeyCeremony.ElectionPublicKey guardian_key,
-            KeyCeremony.ElectionPublicKey missing_guardian_key,
-            KeyCeremony.ElectionPartialKeyBackup missing_guardian_backup,
-            CiphertextSelection selection,
-            ElectionCryptoContext context) {
-      this.guardian_key = guardian_key;
-      this.missing_guardian_key = missing_guardian_key;
-      this.missing_guardian_backup = missing_guardian_backup;
-      this.selection = selection;
-      this.context = context;
-    }
+  /**
+   * Compute the compensated decryption shares of tallies or ballots, flattening all of their selections into one list,
+   * so there is no barrier between contests.
+   * @return a CompensatedDecryptionShare for each owner, in order, or empty if any of its selections fail.
+   */
+  private static List<Optional<CompensatedDecryptionShare>> compute_compensated_decryption_shares(
+          KeyCeremony.ElectionPublicKey guardian_key,
+          KeyCeremony.ElectionPublicKey missing_guardian_key,
+          KeyCeremony.ElectionPartialKeyBackup missing_guardian_backup,
+          List<String> ownerIds,
+          List<List<CiphertextContest>> owners,
+          ElectionCryptoContext context,
+          TaskExecutor executor) {
+
+    // the same for every selection
+    Group.ElementModP recovery_public_key = compute_recovery_public_key(guardian_key, missing_guardian_key);
 
-    @Override
-    public Optional<CiphertextCompensatedDecryptionSelection> call() {
-      return compute_compensated_decryption_share_for_selection(
-              guardian_key, missing_guardian_key, missing_guardian_backup, selection, context);
+    List<SelectionBatches.Item> items = SelectionBatches.flatten(owners);
+    List<Optional<CiphertextCompensatedDecryptionSelection>> decryptions = executor.process(items.size(),
+            i -> compute_compensated_decryption_share_for_selection(guardian_key, missing_guardian_key,
+                    missing_guardian_backup, recovery_public_key, items.get(i).selection(), context));
+    List<Optional<Map<String, Map<String, CiphertextCompensatedDecryptionSelection>>>> grouped =
+            SelectionBatches.group(owners.size(), items, decryptions);
+
+    List<Optional<CompensatedDecryptionShare>> result = new ArrayList<>();
+    for (int owner = 0; owner < owners.size(); owner++) {
+      if (grouped.get(owner).isEmpty()) {
+        logger.atWarning().log("could not compute compensated share for guardian %s missing: %s for %s",
+                guardian_key.owner_id(), missing_guardian_key.owner_id(), ownerIds.get(owner));
+        result.add(Optional.empty());
+        continue;
+      }
+      // Map(CONTEST_ID, Map(SELECTION_ID, CiphertextCompensatedDecryptionSelection))
+      Map<String, Map<String, CiphertextCompensatedDecryptionSelection>> selections = grouped.get(owner).get();
+      Map<String, CiphertextCompensatedDecryptionContest> contests = new HashMap<>();
+      for (CiphertextContest contest : owners.get(owner)) {
+        contests.put(contest.object_id, new CiphertextCompensatedDecryptionContest(
+                contest.object_id,
+                guardian_key.owner_id(),
+                missing_guardian_key.owner_id(),
+                contest.description_hash,
+                selections.getOrDefault(contest.object_id, Map.of())));
+      }
+      result.add(Optional.of(new CompensatedDecryptionShare(
+              ownerIds.get(owner),
+              guardian_key.owner_id(),
+              missing_guardian_key.owner_id(),
+              guardian_key.key(),
+              contests)));
     }
+    return result;
   }
 
   /**
@@ -400,6 +357,18 @@ public class Decryptions {
           CiphertextSelection selection,
           ElectionCryptoContext context) {
 
+    return compute_compensated_decryption_share_for_selection(guardian_key, missing_guardian_key, missing_guardian_backup,
+            compute_recovery_public_key(guardian_key, missing_guardian_key), selection, context);
+  }
+
+  private static Optional<CiphertextCompensatedDecryptionSelection> compute_compensated_decryption_share_for_selection(
+          KeyCeremony.ElectionPublicKey guardian_key,
+          KeyCeremony.ElectionPublicKey missing_guardian_key,
+          KeyCeremony.ElectionPartialKeyBackup missing_guardian_backup,
+          Group.ElementModP recovery_public_key,
+          CiphertextSelection selection,
+          ElectionCryptoContext context) {
+
     Optional<BallotBox.DecryptionProofTuple> compensated = compensate_decrypt(
             missing_guardian_backup,
             selection.ciphertext(),
@@ -412,8 +381,6 @@ public class Decryptions {
     }
     BallotBox.DecryptionProofTuple tuple = compensated.get();
 
-    Group.ElementModP recovery_public_key = compute_recovery_public_key(guardian_key, missing_guardian_key);
-
     if (tuple.proof.is_valid(
             selection.ciphertext(),
             recovery_public_key,
@@ -549,15 +516,8 @@ public class Decryptions {
           KeyCeremony.ElectionPublicKey guardian_key,
           KeyCeremony.ElectionPublicKey missing_guardian_key) {
 
-    int index = 0;
-    Group.ElementModP pub_key = Group.ONE_MOD_P;
-    for (Group.ElementModP commitment : missing_guardian_key.coefficient_commitments()) {
-      Group.ElementModQ exponent = Group.pow_q(BigInteger.valueOf(guardian_key.sequence_order()), BigInteger.valueOf(index));
-      pub_key = Group.mult_p(pub_key, Group.pow_p(commitment, exponent));
-      index++;
-    }
-    
-    return pub_key;
+    return ElectionPolynomial.compute_gPcoordinate(
+            BigInteger.valueOf(guardian_key.sequence_order()), missing_guardian_key.coefficient_commitments());
   }
 
 
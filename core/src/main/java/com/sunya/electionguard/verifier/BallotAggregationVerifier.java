@@ -10,7 +10,11 @@ import com.sunya.electionguard.SubmittedBallot;
 import com.sunya.electionguard.CiphertextBallot;
 import com.sunya.electionguard.ElGamal;
 
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This verifies specification section "7 Correctness of Ballot Aggregation"
@@ -21,10 +25,21 @@ public class BallotAggregationVerifier {
 
   final Iterable<SubmittedBallot> acceptedBallots;
   final CiphertextTally encryptedTally;
+  private final VerifierEngine engine;
+  private final Formatter out;
+  final List<String> failedKeys = new ArrayList<>(); // the selections whose product does not match the tally
 
   public BallotAggregationVerifier(Iterable<SubmittedBallot> acceptedBallots, CiphertextTally encryptedTally) {
+    this(acceptedBallots, encryptedTally, VerifierEngine.getDefault(), new Formatter(System.out));
+  }
+
+  /** The selection products are computed in parallel in engine, and messages are written to out. */
+  BallotAggregationVerifier(Iterable<SubmittedBallot> acceptedBallots, CiphertextTally encryptedTally,
+                            VerifierEngine engine, Formatter out) {
     this.acceptedBallots = acceptedBallots;
     this.encryptedTally = encryptedTally;
+    this.engine = engine;
+    this.out = out;
   }
 
   /**
@@ -33,13 +48,22 @@ public class BallotAggregationVerifier {
    * in the election record.
    */
   boolean verify_ballot_aggregation() {
-    boolean error = false;
-    SelectionAggregator agg = new SelectionAggregator(acceptedBallots);
     if (encryptedTally == null) {
-      System.out.printf("  Encrypted Tally does not exist%n");
+      out.format("  Encrypted Tally does not exist%n");
       return false;
     }
+    SelectionAggregator agg = new SelectionAggregator();
+    engine.forEachBatch(acceptedBallots, agg::addBatch);
+    return verify(agg);
+  }
 
+  /** Compare the accumulated products of agg to the encrypted tally. */
+  boolean verify(SelectionAggregator agg) {
+    boolean error = false;
+    if (encryptedTally == null) {
+      out.format("  Encrypted Tally does not exist%n");
+      return false;
+    }
     int ncontests = 0;
     int nselections = 0;
     for (CiphertextTally.Contest contest : encryptedTally.contests.values()) {
@@ -47,33 +71,36 @@ public class BallotAggregationVerifier {
       for (CiphertextTally.Selection selection : contest.selections.values()) {
         nselections++;
         String key = contest.object_id() + "." + selection.object_id();
-        List<ElGamal.Ciphertext> encryptions = agg.selectionEncryptions.get(key);
+        ElGamal.Ciphertext product = agg.selectionProducts.get(key);
         // LOOK its possible no ballots voted one way or another
-        if (!encryptions.isEmpty()) {
-          ElGamal.Ciphertext product = ElGamal.elgamal_add(Iterables.toArray(encryptions, ElGamal.Ciphertext.class));
+        if (product != null) {
           if (!product.equals(selection.ciphertext())) {
-            System.out.printf(" 7. Ballot Aggregation Validation failed for %s.%n", key);
+            out.format(" 7. Ballot Aggregation Validation failed for %s.%n", key);
+            failedKeys.add(key);
             error = true;
           }
         } else {
-          System.out.printf("  No ballots for talley key %s%n", key);
+          out.format("  No ballots for talley key %s%n", key);
         }
       }
     }
 
     if (error) {
-      System.out.printf(" ***Ballot Aggregation Validation failed.%n");
+      out.format(" ***Ballot Aggregation Validation failed.%n");
     } else {
-      System.out.printf(" Ballot Aggregation Validation success on %d cast ballots and %d contests and %d selections.%n",
+      out.format(" Ballot Aggregation Validation success on %d cast ballots and %d contests and %d selections.%n",
               agg.nballotsCast, ncontests, nselections);
     }
     return !error;
   }
 
-  private static class SelectionAggregator {
-    ListMultimap<String, ElGamal.Ciphertext> selectionEncryptions = ArrayListMultimap.create();
+  /** Keeps a running product for each selection, so only one batch of ballots is in memory at a time. */
+  class SelectionAggregator {
+    final Map<String, ElGamal.Ciphertext> selectionProducts = new HashMap<>();
     int nballotsCast = 0;
-    SelectionAggregator(Iterable<SubmittedBallot> ballots) {
+
+    void addBatch(List<SubmittedBallot> ballots) {
+      ListMultimap<String, ElGamal.Ciphertext> selectionEncryptions = ArrayListMultimap.create();
       for (SubmittedBallot ballot : ballots) {
         if (ballot.state == BallotBox.State.CAST) {
           nballotsCast++;
@@ -85,6 +112,21 @@ public class BallotAggregationVerifier {
           }
         }
       }
+
+      // multiply each selection's encryptions in parallel, then fold into the running products
+      List<String> keys = new ArrayList<>(selectionEncryptions.keySet());
+      List<ElGamal.Ciphertext> products = engine.process(keys.size(), i -> {
+        String key = keys.get(i);
+        List<ElGamal.Ciphertext> encryptions = new ArrayList<>(selectionEncryptions.get(key));
+        ElGamal.Ciphertext previous = selectionProducts.get(key);
+        if (previous != null) {
+          encryptions.add(previous);
+        }
+        return ElGamal.elgamal_add(Iterables.toArray(encryptions, ElGamal.Ciphertext.class));
+      });
+      for (int i = 0; i < keys.size(); i++) {
+        selectionProducts.put(keys.get(i), products.get(i));
+      }
     }
   }
 }
@@ -2,11 +2,14 @@ package com.sunya.electionguard.verifier;
 
 import com.sunya.electionguard.Hash;
 
+import java.util.Formatter;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.sunya.electionguard.SubmittedBallot;
 import com.sunya.electionguard.publish.ElectionRecord;
+import com.sunya.electionguard.publish.Consumer.BallotChainLink;
 
 import static com.sunya.electionguard.Group.ElementModQ;
 
@@ -16,40 +19,72 @@ import static com.sunya.electionguard.Group.ElementModQ;
  */
 public class BallotChainingVerifier {
   private final ElectionRecord electionRecord;
+  private final VerifierEngine engine;
+  private final Formatter out;
 
   BallotChainingVerifier(ElectionRecord electionRecord) {
+    this(electionRecord, VerifierEngine.getDefault(), new Formatter(System.out));
+  }
+
+  /** The ballot hashes are computed in parallel in engine, and messages are written to out. */
+  BallotChainingVerifier(ElectionRecord electionRecord, VerifierEngine engine, Formatter out) {
     this.electionRecord = electionRecord;
+    this.engine = engine;
+    this.out = out;
   }
 
   boolean verify_all_ballots() {
-    boolean error = false;
-    int countFail = 0;
-    Set<ElementModQ> prev_hashes = new HashSet<>();
-    Set<ElementModQ> curr_hashes = new HashSet<>();
-
+    ChainTotals totals = new ChainTotals();
     // LOOK this assumes that the ballots are in the correct order. Why would they be?
-    int nballots = 0;
-    for (SubmittedBallot ballot : electionRecord.submittedBallots()) {
-      nballots++;
-        // 6.B For each ballot Bi , Hi = H(Hi−1, D, T, Bi) is satisfied. // LOOK what is D? is B_i == crypto_hash?
-        ElementModQ hashChain = Hash.hash_elems(ballot.code_seed, ballot.timestamp, ballot.crypto_hash);
-        if (!ballot.code.equals(hashChain)) {
-          error = true;
-          countFail++;
-        }
-        // ballot chaining
-      if (ballot.code_seed != null) {
-        prev_hashes.add(ballot.code_seed);
-      }
-      curr_hashes.add(ballot.code);
-    }
+    engine.verifyInOrder(electionRecord.ballotChain(), (ballot, messages) -> verifyBallot(ballot), out, totals);
+    return report(totals);
+  }
 
-    if (error) {
-      System.out.printf(" ***Ballot Chaining failed on %d ballots.%n", countFail);
+  /** Write the summary of all the ballots' checks to out. */
+  boolean report(ChainTotals totals) {
+    if (totals.countFail > 0) {
+      out.format(" ***Ballot Chaining failed on %d ballots.%n", totals.countFail);
     } else {
-      System.out.printf(" Ballot Chaining success for %d ballots.%n", nballots);
+      out.format(" Ballot Chaining success for %d ballots.%n", totals.nballots);
+    }
+    return totals.countFail == 0;
+  }
+
+  record ChainCheck(boolean ok, ElementModQ codeSeed, ElementModQ code) {}
+
+  /** Check the hash chain of one ballot. Thread-safe. */
+  ChainCheck verifyBallot(SubmittedBallot ballot) {
+    return verifyBallot(BallotChainLink.of(ballot));
+  }
+
+  /** Check the hash chain of one ballot, from only the chaining fields. Thread-safe. */
+  ChainCheck verifyBallot(BallotChainLink ballot) {
+    // 6.B For each ballot Bi , Hi = H(Hi−1, D, T, Bi) is satisfied. // LOOK what is D? is B_i == crypto_hash?
+    ElementModQ hashChain = Hash.hash_elems(ballot.codeSeed(), ballot.timestamp(), ballot.cryptoHash());
+    return new ChainCheck(ballot.code().equals(hashChain), ballot.codeSeed(), ballot.code());
+  }
+
+  /** Accumulates the ChainChecks, in ballot order. Not thread-safe. */
+  static class ChainTotals implements Consumer<ChainCheck> {
+    final Set<ElementModQ> prev_hashes = new HashSet<>();
+    final Set<ElementModQ> curr_hashes = new HashSet<>();
+    int nballots;
+    int countFail;
+    ElementModQ head; // the code of the last ballot
+
+    @Override
+    public void accept(ChainCheck ballot) {
+      nballots++;
+      head = ballot.code();
+      if (!ballot.ok()) {
+        countFail++;
+      }
+      // ballot chaining
+      if (ballot.codeSeed() != null) {
+        prev_hashes.add(ballot.codeSeed());
+      }
+      curr_hashes.add(ballot.code());
     }
-    return !error;
   }
 
 }
@@ -0,0 +1,131 @@
+package com.sunya.electionguard.verifier;
+
+import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.publish.ElectionRecord;
+
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Verifies boxes 4, 5, 6 and 7 in a single pass over the submitted ballots.
+ * Each ballot is read once and given to the selection encryption, vote limits and chaining checks, and the
+ * box 7 selection products are accumulated one batch at a time. Each box's messages are kept separately,
+ * so the output is the same as running the four verifiers one after another.
+ * <p>
+ * Use a new instance for each verification.
+ */
+class BallotStreamVerifier {
+  private final ElectionRecord electionRecord;
+  private final VerifierEngine engine;
+
+  private final StringBuilder encryptionMessages = new StringBuilder();
+  private final StringBuilder limitsMessages = new StringBuilder();
+  private final StringBuilder chainingMessages = new StringBuilder();
+  private final StringBuilder aggregationMessages = new StringBuilder();
+  private final Formatter encryptionOut = new Formatter(encryptionMessages);
+  private final Formatter limitsOut = new Formatter(limitsMessages);
+
+  private final SelectionEncryptionVerifier sev;
+  private final ContestVoteLimitsVerifier cvlv;
+  private final BallotChainingVerifier bcv;
+  private final BallotAggregationVerifier bav;
+
+  // the running state, which may be started from an earlier verification
+  final VerifierEngine.BallotTotals encryptionTotals = new VerifierEngine.BallotTotals();
+  final VerifierEngine.BallotTotals limitsTotals = new VerifierEngine.BallotTotals();
+  final BallotChainingVerifier.ChainTotals chainTotals = new BallotChainingVerifier.ChainTotals();
+  final BallotAggregationVerifier.SelectionAggregator agg;
+  private long nchecked;
+  private final List<String> encryptionFailures = new ArrayList<>();
+  private final List<String> limitsFailures = new ArrayList<>();
+  private final List<String> chainingFailures = new ArrayList<>();
+
+  BallotStreamVerifier(ElectionRecord electionRecord, VerifierEngine engine) {
+    this.electionRecord = electionRecord;
+    this.engine = engine;
+    this.sev = new SelectionEncryptionVerifier(electionRecord, engine, encryptionOut);
+    this.cvlv = new ContestVoteLimitsVerifier(electionRecord, engine, limitsOut);
+    this.bcv = new BallotChainingVerifier(electionRecord, engine, new Formatter(chainingMessages));
+    // box 7 does not read the ballots itself: agg is fed the full ballots of this pass, which boxes 4 and 5 need the
+    // proofs of, so reading the proofless projection here would only read the ballot file twice
+    this.bav = new BallotAggregationVerifier(electionRecord.submittedBallots(), electionRecord.ciphertextTally(),
+            engine, new Formatter(aggregationMessages));
+    this.agg = bav.new SelectionAggregator();
+  }
+
+  /**
+   * The result and messages of one box.
+   * @param items the number of ballots checked in this pass.
+   * @param failedIds the first ballots (or box 7 selections) that failed, at most BoxContext.MAX_FAILED_IDS.
+   */
+  record BoxResult(boolean ok, String messages, long items, List<String> failedIds) {}
+
+  /** The results of the per-ballot checks of one ballot. */
+  record BallotChecks(VerifierEngine.BallotCheck encryption, StringBuilder encryptionMessages,
+                      VerifierEngine.BallotCheck limits, StringBuilder limitsMessages,
+                      BallotChainingVerifier.ChainCheck chain) {}
+
+  /**
+   * Read the ballots once, and verify boxes 4, 5, 6 and 7.
+   * @return the results of boxes 4, 5, 6 and 7, in that order.
+   */
+  List<BoxResult> verify() {
+    engine.forEachBatch(electionRecord.submittedBallots(), this::addBatch);
+    return finish();
+  }
+
+  /**
+   * Check a batch of ballots in parallel, and add them to the running state in ballot order.
+   * @return the checks of each ballot, in the same order as the batch.
+   */
+  List<BallotChecks> addBatch(List<SubmittedBallot> batch) {
+    List<BallotChecks> results = engine.process(batch.size(), i -> checkBallot(batch.get(i)));
+    for (int i = 0; i < batch.size(); i++) {
+      BallotChecks checks = results.get(i);
+      String ballotId = batch.get(i).object_id();
+      encryptionOut.format("%s", checks.encryptionMessages());
+      encryptionTotals.accept(checks.encryption());
+      addFailure(encryptionFailures, checks.encryption().ok(), ballotId);
+      limitsOut.format("%s", checks.limitsMessages());
+      limitsTotals.accept(checks.limits());
+      addFailure(limitsFailures, checks.limits().ok(), ballotId);
+      chainTotals.accept(checks.chain());
+      addFailure(chainingFailures, checks.chain().ok(), ballotId);
+    }
+    nchecked += batch.size();
+    agg.addBatch(batch);
+    return results;
+  }
+
+  /**
+   * Write the summaries once all the ballots have been added.
+   * @return the results of boxes 4, 5, 6 and 7, in that order.
+   */
+  List<BoxResult> finish() {
+    boolean sevOk = sev.report(encryptionTotals);
+    boolean cvlvOk = cvlv.report(limitsTotals);
+    boolean bcvOk = bcv.report(chainTotals);
+    boolean bavOk = bav.verify(agg);
+    return List.of(
+            new BoxResult(sevOk, encryptionMessages.toString(), nchecked, encryptionFailures),
+            new BoxResult(cvlvOk, limitsMessages.toString(), nchecked, limitsFailures),
+            new BoxResult(bcvOk, chainingMessages.toString(), nchecked, chainingFailures),
+            new BoxResult(bavOk, aggregationMessages.toString(), nchecked, bav.failedKeys));
+  }
+
+  private static void addFailure(List<String> failures, boolean ok, String id) {
+    if (!ok && failures.size() < VerifierEngine.BoxContext.MAX_FAILED_IDS) {
+      failures.add(id);
+    }
+  }
+
+  private BallotChecks checkBallot(SubmittedBallot ballot) {
+    StringBuilder encryption = new StringBuilder();
+    StringBuilder limits = new StringBuilder();
+    return new BallotChecks(
+            sev.verifyBallot(ballot, new Formatter(encryption)), encryption,
+            cvlv.verifyBallot(ballot, new Formatter(limits)), limits,
+            bcv.verifyBallot(ballot));
+  }
+}
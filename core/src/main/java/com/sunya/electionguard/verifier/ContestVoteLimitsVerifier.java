@@ -8,6 +8,7 @@ import com.sunya.electionguard.Group;
 import com.sunya.electionguard.Hash;
 
 import java.math.BigInteger;
+import java.util.Formatter;
 import java.util.List;
 
 import com.sunya.electionguard.Manifest;
@@ -27,38 +28,51 @@ public class ContestVoteLimitsVerifier {
   private static final boolean show = false;
 
   private final ElectionRecord electionRecord;
+  private final VerifierEngine engine;
+  private final Formatter out;
 
   ContestVoteLimitsVerifier(ElectionRecord electionRecord) {
+    this(electionRecord, VerifierEngine.getDefault(), new Formatter(System.out));
+  }
+
+  /** The ballots are checked in parallel in engine, and messages are written to out. */
+  ContestVoteLimitsVerifier(ElectionRecord electionRecord, VerifierEngine engine, Formatter out) {
     this.electionRecord = electionRecord;
+    this.engine = engine;
+    this.out = out;
   }
 
   boolean verify_all_accepted_ballots() {
-    boolean error = false;
+    VerifierEngine.BallotTotals totals = new VerifierEngine.BallotTotals();
+    engine.verifyInOrder(electionRecord.submittedBallots(), this::verifyBallot, out, totals);
+    return report(totals);
+  }
 
-    int nballots  = 0;
-    int ncontests  = 0;
-    int nselections  = 0;
-    for (SubmittedBallot ballot : electionRecord.submittedBallots()) {
-      nballots++;
-      if (show) System.out.printf("Ballot %s.%n", ballot.object_id());
-      for (Contest contest : ballot.contests) {
-        ncontests++;
-        nselections += contest.selections.size();
-        if (show) System.out.printf(" Contest %s.%n", contest.contestId);
-        ContestVerifier cv = new ContestVerifier(contest);
-        if (!cv.verifyContest()) {
-          error = true;
-        }
-      }
+  /** Write the summary of all the ballots' checks to out. */
+  boolean report(VerifierEngine.BallotTotals totals) {
+    if (totals.nfailed > 0) {
+      out.format(" ***Adherence to Vote Limits failure.%n");
+    } else {
+      out.format(" Adherence to Vote Limits for %d ballots, %d contests, %d selections: success.%n",
+              totals.nballots, totals.ncontests, totals.nselections);
     }
+    return totals.nfailed == 0;
+  }
 
-    if (error) {
-      System.out.printf(" ***Adherence to Vote Limits failure.%n");
-    } else {
-      System.out.printf(" Adherence to Vote Limits for %d ballots, %d contests, %d selections: success.%n",
-              nballots, ncontests, nselections);
+  /** Verify the contests of one ballot, writing messages to messages. */
+  VerifierEngine.BallotCheck verifyBallot(SubmittedBallot ballot, Formatter messages) {
+    boolean error = false;
+    int nselections = 0;
+    if (show) messages.format("Ballot %s.%n", ballot.object_id());
+    for (Contest contest : ballot.contests) {
+      nselections += contest.selections.size();
+      if (show) messages.format(" Contest %s.%n", contest.contestId);
+      ContestVerifier cv = new ContestVerifier(contest, messages);
+      if (!cv.verifyContest()) {
+        error = true;
+      }
     }
-    return !error;
+    return new VerifierEngine.BallotCheck(!error, ballot.contests.size(), nselections);
   }
 
   class ContestVerifier {
@@ -70,9 +84,11 @@ public class ContestVoteLimitsVerifier {
     final ElementModQ contest_challenge;
     final String contest_id;
     final ElGamal.Ciphertext ciphertextAccumulation;
+    final Formatter out;
 
-    ContestVerifier(Contest contest) {
+    ContestVerifier(Contest contest, Formatter out) {
       this.contest = contest;
+      this.out = out;
       this.proof = contest.proof.orElseThrow();
       this.contest_response = proof.response;
       this.contest_challenge = proof.challenge;
@@ -90,7 +106,7 @@ public class ContestVoteLimitsVerifier {
 
       // 5.C The given value V is in Z q
       if (!proof.response.is_in_bounds()) {
-        System.out.printf(" 5.C V not in Zq for contest %s.%n", contest);
+        out.format(" 5.C V not in Zq for contest %s.%n", contest);
         limit_error = true;
       }
 
@@ -99,7 +115,7 @@ public class ContestVoteLimitsVerifier {
       ElementModP selection_beta_product = Group.ONE_MOD_P;
 
       for (Selection selection : contest.selections) {
-        if (show) System.out.printf("   Selection %s.%n", selection.object_id());
+        if (show) out.format("   Selection %s.%n", selection.object_id());
         ElementModP alpha = selection.ciphertext().pad();
         ElementModP beta = selection.ciphertext().data();
 
@@ -107,19 +123,19 @@ public class ContestVoteLimitsVerifier {
         selection_alpha_product = Group.mult_p(selection_alpha_product, alpha);
         selection_beta_product = Group.mult_p(selection_beta_product, beta);
         if (show) {
-          System.out.printf("     alpha %s%n", alpha);
-          System.out.printf("     beta %s%n", beta);
-          System.out.printf("     accum_alpha %s%n", selection_alpha_product);
-          System.out.printf("     accum_beta %s%n", selection_beta_product);
+          out.format("     alpha %s%n", alpha);
+          out.format("     beta %s%n", beta);
+          out.format("     accum_alpha %s%n", selection_alpha_product);
+          out.format("     accum_beta %s%n", selection_beta_product);
         }
 
         // 5.D The given values a and b are each in Zr_p.
         if (!alpha.is_valid_residue()) {
-          System.out.printf(" 5.D alpha not in Zr_p for selection %s.%n", selection.object_id());
+          out.format(" 5.D alpha not in Zr_p for selection %s.%n", selection.object_id());
           limit_error = true;
         }
         if (!beta.is_valid_residue()) {
-          System.out.printf(" 5.D beta not in Zr_p for selection %s.%n", selection.object_id());
+          out.format(" 5.D beta not in Zr_p for selection %s.%n", selection.object_id());
           limit_error = true;
         }
 
@@ -135,7 +151,7 @@ public class ContestVoteLimitsVerifier {
       Integer vote_limit = mcontest.votesAllowed();
       Preconditions.checkNotNull(vote_limit);
       if (vote_limit != placeholder_count) {
-        System.out.printf(" 5.A Contest placeholder %d != %d vote limit for contest %s.%n", placeholder_count,
+        out.format(" 5.A Contest placeholder %d != %d vote limit for contest %s.%n", placeholder_count,
                 vote_limit, contest.contestId);
         limit_error = true;
       }
@@ -143,11 +159,11 @@ public class ContestVoteLimitsVerifier {
       // 5.B The contest total (A, B) satisfies A = ∏ αi mod p and B = ∏ βi mod p where the (αi, βi)
       // represent all possible selections (including placeholder selections) for the contest.
       if (!this.contest_alpha.equals(selection_alpha_product)) {
-        System.out.printf(" 5.B Contest total A fails verification for contest %s.%n", contest.contestId);
+        out.format(" 5.B Contest total A fails verification for contest %s.%n", contest.contestId);
         limit_error = true;
       }
       if (!this.contest_beta.equals(selection_beta_product)) {
-        System.out.printf(" 5.B Contest total B fails verification for contest %s.%n", contest.contestId);
+        out.format(" 5.B Contest total B fails verification for contest %s.%n", contest.contestId);
         limit_error = true;
       }
 
@@ -169,7 +185,7 @@ public class ContestVoteLimitsVerifier {
                         selection_alpha_product,
                         selection_beta_product, a, b);
         if (!challenge_computed.equals(this.contest_challenge)) {
-          System.out.printf(" 5.E Challenge fails verification for contest %s.%n", contest.contestId);
+          out.format(" 5.E Challenge fails verification for contest %s.%n", contest.contestId);
           proofOk = false;
         }
 
@@ -196,7 +212,7 @@ public class ContestVoteLimitsVerifier {
       ElementModP right = Group.mult_p(this.proof.pad, Group.pow_p(alpha_product, this.contest_challenge));
 
       if (!left.equals(right)) {
-        System.out.printf(" 5.F fails.%n");
+        out.format(" 5.F fails.%n");
         return false;
       }
       return true;
@@ -218,7 +234,7 @@ public class ContestVoteLimitsVerifier {
       ElementModP right = Group.mult_p(this.proof.data, Group.pow_p(beta_product, this.contest_challenge));
 
       if (!left.equals(right)) {
-        System.out.printf(" 5.G fails.%n");
+        out.format(" 5.G fails.%n");
         return false;
       }
       return true;
@@ -10,6 +10,7 @@ import com.sunya.electionguard.PlaintextTally;
 import com.sunya.electionguard.publish.ElectionRecord;
 import electionguard.ballot.Guardian;
 
+import java.util.Formatter;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -33,8 +34,15 @@ public class DecryptionVerifier {
 
   final ElectionRecord electionRecord;
   final PlaintextTally decryptedTally;
+  private final Formatter out;
 
   DecryptionVerifier(ElectionRecord electionRecord, PlaintextTally decryptedTally) {
+    this(electionRecord, decryptedTally, new Formatter(System.out));
+  }
+
+  /** Messages are written to out. */
+  DecryptionVerifier(ElectionRecord electionRecord, PlaintextTally decryptedTally, Formatter out) {
+    this.out = out;
     this.electionRecord = electionRecord;
     this.decryptedTally = decryptedTally;
   }
@@ -46,20 +54,20 @@ public class DecryptionVerifier {
    */
   boolean verify_spoiled_tallies(Iterable<PlaintextTally> talliesIterable) {
     if (decryptedTally == null) {
-      System.out.printf("  Decrypted Tally dpes not exist%n");
+      out.format("  Decrypted Tally dpes not exist%n");
       return false;
     }
 
     AtomicBoolean valid = new AtomicBoolean(true);
     for (PlaintextTally tally : talliesIterable) {
-        System.out.printf("Spoiled tally %s %n", tally.tallyId);
+        out.format("Spoiled tally %s %n", tally.tallyId);
         boolean ok = this.make_all_contest_verification(tally.tallyId, tally.contests);
         valid.compareAndSet(true, ok); // AND
     }
     if (!valid.get()) {
-      System.out.printf(" *** 12.A Spoiled ballot decryption failure. %n");
+      out.format(" *** 12.A Spoiled ballot decryption failure. %n");
     } else {
-      System.out.printf(" 12.A Spoiled ballot decryption success. %n");
+      out.format(" 12.A Spoiled ballot decryption success. %n");
     }
     return valid.get();
   }
@@ -71,9 +79,9 @@ public class DecryptionVerifier {
   boolean verify_election_tally() {
     boolean error = !this.make_all_contest_verification(this.decryptedTally.tallyId, this.decryptedTally.contests);
     if (error) {
-      System.out.printf(" ***Decryptions of cast ballots failure. %n");
+      out.format(" ***Decryptions of cast ballots failure. %n");
     } else {
-      System.out.printf(" Decryptions of cast ballots success. %n");
+      out.format(" Decryptions of cast ballots success. %n");
     }
     return !error;
   }
@@ -83,7 +91,7 @@ public class DecryptionVerifier {
     for (PlaintextTally.Contest contest : contests.values()) {
       DecryptionContestVerifier tcv = new DecryptionContestVerifier(contest);
       if (!tcv.verify_a_contest()) {
-        System.out.printf(" Contest %s decryption failure for %s. %n", contest.contestId(), name);
+        out.format(" Contest %s decryption failure for %s. %n", contest.contestId(), name);
         error = true;
       }
     }
@@ -103,7 +111,7 @@ public class DecryptionVerifier {
         String id = contest.contestId() + "/" + selection.selectionId();
         DecryptionSelectionVerifier tsv = new DecryptionSelectionVerifier(id, selection);
         if (!tsv.verify_a_selection()) {
-          System.out.printf("  Selection %s decryption failure.%n", id);
+          out.format("  Selection %s decryption failure.%n", id);
           error = true;
         }
       }
@@ -161,16 +169,16 @@ public class DecryptionVerifier {
         if (share.proof().isPresent()) {
           if (!this.verify_share_guardian_present(share, curr_public_key)) {
             error = true;
-            System.out.printf("8. ShareVerifier verify present Guardian %s failed for %s.%n", share.guardianId(), id);
+            out.format("8. ShareVerifier verify present Guardian %s failed for %s.%n", share.guardianId(), id);
           }
         } else if (share.recoveredParts().isPresent()) {
           if (!this.verify_share_guardian_missing(share)) {
             error = true;
-            System.out.printf("9. ShareVerifier verify missing Guardian %s failed for %s.%n", share.guardianId(), id);
+            out.format("9. ShareVerifier verify missing Guardian %s failed for %s.%n", share.guardianId(), id);
           }
         } else {
           error = true;
-          System.out.printf("ShareVerifier Guardian %s has no proof or recovery for %s.%n", share.guardianId(), id);
+          out.format("ShareVerifier Guardian %s has no proof or recovery for %s.%n", share.guardianId(), id);
         }
       }
       return !error;
@@ -201,17 +209,17 @@ public class DecryptionVerifier {
 
         // 9.A check if the response vi is in the set Zq
         if (!response.is_in_bounds()) {
-          System.out.printf("  9.A response not in Zq for missing_guardian %s for %s%n", missing_guardian_id, this.id);
+          out.format("  9.A response not in Zq for missing_guardian %s for %s%n", missing_guardian_id, this.id);
           error = true;
         }
 
         // 9.B check if the given ai, bi are both in set Zr_p
         if (!pad.is_valid_residue()) {
-          System.out.printf("  9.B ai not in Zr_p for missing_guardian %s for %s%n", missing_guardian_id, this.id);
+          out.format("  9.B ai not in Zr_p for missing_guardian %s for %s%n", missing_guardian_id, this.id);
           error = true;
         }
         if (!data.is_valid_residue()) {
-          System.out.printf("  9.B bi not in Zr_p for missing_guardian %s for %s%n", missing_guardian_id, this.id);
+          out.format("  9.B bi not in Zr_p for missing_guardian %s for %s%n", missing_guardian_id, this.id);
           error = true;
         }
 
@@ -219,19 +227,19 @@ public class DecryptionVerifier {
         ElementModQ challenge_computed = Hash.hash_elems(electionRecord.extendedHash(),
                 this.message.pad(), this.message.data(), pad, data, partial_decryption);
         if (!challenge_computed.equals(challenge)) {
-          System.out.printf("  9.C ci != H(Q-bar, (A,B), (ai, bi), M_i,l) for missing_guardian %s for %s%n", missing_guardian_id, this.id);
+          out.format("  9.C ci != H(Q-bar, (A,B), (ai, bi), M_i,l) for missing_guardian %s for %s%n", missing_guardian_id, this.id);
           error = true;
         }
 
         // 9.D g^vi mod p = ai * Ki^ci mod p
         if (!this.check_equation1(response, pad, challenge, recovery_key)) {
-          System.out.printf("  9.D g^vi mod p != ai * Ki^ci mod p for missing_guardian %s for %s%n", missing_guardian_id, this.id);
+          out.format("  9.D g^vi mod p != ai * Ki^ci mod p for missing_guardian %s for %s%n", missing_guardian_id, this.id);
           error = true;
         }
 
         // 9.E A^vi mod p = bi * M_i,l ^ ci mod p
         if (!this.check_equation2(response, data, challenge, partial_decryption)) {
-          System.out.printf("  9.E A^vi mod p = bi * M_i,l ^ ci mod p for missing_guardian %s for %s%n", missing_guardian_id, this.id);
+          out.format("  9.E A^vi mod p = bi * M_i,l ^ ci mod p for missing_guardian %s for %s%n", missing_guardian_id, this.id);
           error = true;
         }
       }
@@ -260,9 +268,9 @@ public class DecryptionVerifier {
               electionRecord.extendedHash()
       );
       if (error) {
-        System.out.printf(" **8.C guardian %s %s: FAIL%n", guardian_id, this.id);
+        out.format(" **8.C guardian %s %s: FAIL%n", guardian_id, this.id);
       } else {
-        System.out.printf("   8.C guardian %s %s: OK%n", guardian_id, this.id);
+        out.format("   8.C guardian %s %s: OK%n", guardian_id, this.id);
       }
 
       /*
@@ -283,17 +291,17 @@ public class DecryptionVerifier {
 
         // 8.A check if the response vi is in the set Zq
         if (!response.is_in_bounds()) {
-          System.out.printf("  8.A response not in Zq for guardian %s for %s%n", guardian_id, this.id);
+          out.format("  8.A response not in Zq for guardian %s for %s%n", guardian_id, this.id);
           error = true;
         }
 
         // 8.B check if the given ai, bi are both in set Zr_p
         if (!pad.is_valid_residue()) {
-          System.out.printf("  8.B ai not in Zr_p for guardian %s for %s%n", guardian_id, this.id);
+          out.format("  8.B ai not in Zr_p for guardian %s for %s%n", guardian_id, this.id);
           error = true;
         }
         if (!data.is_valid_residue()) {
-          System.out.printf("  8.B bi not in Zr_p for guardian %s for %s%n", guardian_id, this.id);
+          out.format("  8.B bi not in Zr_p for guardian %s for %s%n", guardian_id, this.id);
           error = true;
         }
 
@@ -308,28 +316,28 @@ public class DecryptionVerifier {
                 data,
                 partial_decryption);
         if (!challenge_computed.equals(challenge)) {
-          System.out.printf("**8.C guardian %s %s: FAIL%n", guardian_id, this.id);
+          out.format("**8.C guardian %s %s: FAIL%n", guardian_id, this.id);
           if (show) {
-            System.out.printf("**8.C guardian %s %s: challenge_computed %s != challenge %s%n", guardian_id, this.id, challenge_computed, challenge);
-            System.out.printf("      message.pad(%s), message.data(%s), pad(%s), data(%s), partial_decryption(%s)%n",
+            out.format("**8.C guardian %s %s: challenge_computed %s != challenge %s%n", guardian_id, this.id, challenge_computed, challenge);
+            out.format("      message.pad(%s), message.data(%s), pad(%s), data(%s), partial_decryption(%s)%n",
                     this.message.pad(), this.message.data(), pad, data, partial_decryption);
           }
           error = true;
         } else if (show) {
-          System.out.printf("  8.C guardian %s %s: challenge_computed %s == challenge %s%n", guardian_id, this.id , challenge_computed, challenge);
-          System.out.printf("      message.pad(%s), message.data(%s), pad(%s), data(%s), partial_decryption(%s)%n",
+          out.format("  8.C guardian %s %s: challenge_computed %s == challenge %s%n", guardian_id, this.id , challenge_computed, challenge);
+          out.format("      message.pad(%s), message.data(%s), pad(%s), data(%s), partial_decryption(%s)%n",
                   this.message.pad(), this.message.data(), pad, data, partial_decryption);
         }
 
         // 8.D g^vi mod p = ai * Ki^ci mod p
         if (!this.check_equation1(response, pad, challenge, public_key)) {
-          System.out.printf("  8.D g^vi mod p != ai * Ki^ci mod p for guardian %s for %s%n", guardian_id, this.id);
+          out.format("  8.D g^vi mod p != ai * Ki^ci mod p for guardian %s for %s%n", guardian_id, this.id);
           error = true;
         }
 
         // 8.E A^vi mod p = bi * Mi ^ ci mod p
         if (!this.check_equation2(response, data, challenge, partial_decryption)) {
-          System.out.printf("  8.E A^vi mod p = bi * Mi ^ ci mod p for guardian %s for %s%n", guardian_id, this.id);
+          out.format("  8.E A^vi mod p = bi * Mi ^ ci mod p for guardian %s for %s%n", guardian_id, this.id);
           error = true;
         }
       } */
@@ -8,6 +8,7 @@ import electionguard.ballot.Guardian;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Formatter;
 import java.util.List;
 
 import static com.sunya.electionguard.Group.ElementModP;
@@ -19,8 +20,15 @@ import static com.sunya.electionguard.Group.ElementModQ;
  */
 public class ElectionPublicKeyVerifier {
   private final ElectionRecord electionRecord;
+  private final Formatter out;
 
   ElectionPublicKeyVerifier(ElectionRecord electionRecord) {
+    this(electionRecord, new Formatter(System.out));
+  }
+
+  /** Messages are written to out. */
+  ElectionPublicKeyVerifier(ElectionRecord electionRecord, Formatter out) {
+    this.out = out;
     this.electionRecord = electionRecord;
   }
 
@@ -30,7 +38,7 @@ public class ElectionPublicKeyVerifier {
 
     // Equation 3.A
     if (!public_key.equals(expected_public_key)) {
-      System.out.printf(" ***3.A Public key does not match expected.%n");
+      out.format(" ***3.A Public key does not match expected.%n");
       return false;
     }
 
@@ -46,10 +54,10 @@ public class ElectionPublicKeyVerifier {
     ElementModQ expectedExtendedHash = Hash.hash_elems(this.electionRecord.baseHash(), commitment_hash);
 
     if (!this.electionRecord.extendedHash().equals(expectedExtendedHash)) {
-      System.out.printf(" ***3.B. extended hash does not match expected.%n");
+      out.format(" ***3.B. extended hash does not match expected.%n");
       return false;
     }
-    System.out.printf(" Manifest public key validation for %d guardians success.%n", this.electionRecord.guardians().size());
+    out.format(" Manifest public key validation for %d guardians success.%n", this.electionRecord.guardians().size());
     return true;
   }
 
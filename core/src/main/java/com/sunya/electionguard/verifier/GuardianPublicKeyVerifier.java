@@ -5,6 +5,8 @@ import com.sunya.electionguard.SchnorrProof;
 import com.sunya.electionguard.publish.ElectionRecord;
 import electionguard.ballot.Guardian;
 
+import java.util.Formatter;
+
 import static com.sunya.electionguard.Group.ElementModQ;
 import static com.sunya.electionguard.Group.ElementModP;
 
@@ -14,8 +16,15 @@ import static com.sunya.electionguard.Group.ElementModP;
  */
 public class GuardianPublicKeyVerifier {
   private final ElectionRecord electionRecord;
+  private final Formatter out;
 
   GuardianPublicKeyVerifier(ElectionRecord electionRecord) {
+    this(electionRecord, new Formatter(System.out));
+  }
+
+  /** Messages are written to out. */
+  GuardianPublicKeyVerifier(ElectionRecord electionRecord, Formatter out) {
+    this.out = out;
     this.electionRecord = electionRecord;
   }
 
@@ -28,13 +37,13 @@ public class GuardianPublicKeyVerifier {
       boolean res = this.verifyGuardian(gr);
       if (!res) {
         error = true;
-        System.out.printf(" Guardian %d key generation verification failure. %n", count);
+        out.format(" Guardian %d key generation verification failure. %n", count);
       }
       count++;
     }
 
     if (!error) {
-      System.out.printf(" Guardians (%d) key generation verification success. %n",
+      out.format(" Guardians (%d) key generation verification success. %n",
               this.electionRecord.guardians().size());
     }
     return !error;
@@ -54,7 +63,7 @@ public class GuardianPublicKeyVerifier {
       }
       if (!proofOk) {
         error = true;
-        System.out.printf("Guardian %s coefficient_proof %d: validation failed.%n", guardian.getGuardianId(), count);
+        out.format("Guardian %s coefficient_proof %d: validation failed.%n", guardian.getGuardianId(), count);
       }
       count++;
     }
@@ -0,0 +1,252 @@
+package com.sunya.electionguard.verifier;
+
+import com.google.common.base.Supplier;
+import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.core.UInt256;
+import com.sunya.electionguard.protoconvert.VerificationStateConvert;
+import com.sunya.electionguard.publish.CloseableIterator;
+import com.sunya.electionguard.publish.Consumer;
+import com.sunya.electionguard.publish.ElectionRecord;
+import com.sunya.electionguard.publish.ElectionRecordPath;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verifies an election record that grows, eg during early voting, keeping the state of the verification in a file.
+ * The ballots verified in an earlier run are not read again: the box 4, 5, 6 totals and the box 7 selection products
+ * start from the saved state, and only the ballots after the saved file offset are verified.
+ * The other boxes are skipped if the files they read have not changed and they succeeded before.
+ * <p>
+ * If the ballot file was rewritten, rather than appended to, everything is verified again. That is detected by
+ * the SHA-256 of the verified part of the ballot file, and by the first new ballot not chaining to the last
+ * verified one. Only works on protobuf election records.
+ */
+class IncrementalVerifier {
+  private final Consumer consumer;
+  private final ElectionRecord electionRecord;
+  private final boolean skip10;
+  private final VerifierEngine engine;
+  private final Path statePath;
+
+  // SHA-256 of the ballot file up to the previous state's nextOffset, extended to the new one when the state is saved
+  private MessageDigest ballotFileDigest;
+
+  IncrementalVerifier(Consumer consumer, ElectionRecord electionRecord, boolean skip10, VerifierEngine engine, Path statePath) {
+    this.consumer = consumer;
+    this.electionRecord = electionRecord;
+    this.skip10 = skip10;
+    this.engine = engine;
+    this.statePath = statePath;
+  }
+
+  /** Verify the new ballots and the changed artifacts, and save the state. */
+  VerificationReport verify() throws IOException {
+    VerificationState previous = readPreviousState();
+
+    BallotStreamVerifier stream = new BallotStreamVerifier(electionRecord, engine);
+    for (VerificationState.BallotResult ballot : previous.ballots()) {
+      stream.encryptionTotals.accept(new VerifierEngine.BallotCheck(ballot.encryptionOk(), ballot.ncontests(), ballot.nselections()));
+      stream.limitsTotals.accept(new VerifierEngine.BallotCheck(ballot.limitsOk(), ballot.ncontests(), ballot.nselections()));
+      stream.chainTotals.accept(new BallotChainingVerifier.ChainCheck(ballot.chainOk(), null, ballot.code()));
+      if (!ballot.encryptionOk() || !ballot.limitsOk() || !ballot.chainOk()) {
+        System.out.printf(" Ballot %s failed verification in an earlier run%n", ballot.ballotId());
+      }
+    }
+    stream.agg.selectionProducts.putAll(previous.selectionProducts());
+    stream.agg.nballotsCast = previous.ncast();
+
+    List<VerificationState.BallotResult> ballots = new ArrayList<>(previous.ballots());
+    long[] nextOffset = {previous.nextOffset()};
+    Supplier<List<BallotStreamVerifier.BoxResult>> ballotStream = () -> {
+      engine.forEachBatch(consumer.iterateSubmittedBallotRecords(previous.nextOffset()), batch -> {
+        List<SubmittedBallot> batchBallots = batch.stream().map(Consumer.SubmittedBallotRecord::ballot).toList();
+        List<BallotStreamVerifier.BallotChecks> checks = stream.addBatch(batchBallots);
+        for (int i = 0; i < batch.size(); i++) {
+          Consumer.SubmittedBallotRecord record = batch.get(i);
+          BallotStreamVerifier.BallotChecks check = checks.get(i);
+          ballots.add(new VerificationState.BallotResult(
+                  record.ballot().object_id(),
+                  record.offset(),
+                  record.ballot().code,
+                  check.encryption().ok(),
+                  check.limits().ok(),
+                  check.chain().ok(),
+                  check.encryption().ncontests(),
+                  check.encryption().nselections()));
+          nextOffset[0] = record.nextOffset();
+        }
+      });
+      return stream.finish();
+    };
+    System.out.printf(" Incremental verification: %d ballots were verified in an earlier run%n", previous.ballots().size());
+
+    Map<String, VerificationState.ArtifactResult> artifacts = new ConcurrentHashMap<>();
+    List<VerifierEngine.Box> boxes = new ArrayList<>();
+    for (VerifierEngine.Box box : VerifyElectionRecord.makeBoxes(electionRecord, skip10, ballotStream)) {
+      List<Path> inputs = artifactInputs(box.id());
+      boxes.add(inputs == null ? box : skipIfUnchanged(box, inputs, previous.artifacts().get(box.id()), artifacts));
+    }
+    VerificationReport report = engine.run(boxes, System.out);
+
+    Path ballotFile = consumer.path.submittedBallotPath();
+    if (nextOffset[0] > previous.nextOffset()) {
+      updateDigest(ballotFileDigest, ballotFile, previous.nextOffset(), nextOffset[0]);
+    }
+    VerificationState state = new VerificationState(
+            nextOffset[0],
+            nextOffset[0] > 0 ? new UInt256(ballotFileDigest.digest()) : null,
+            ballots,
+            stream.agg.selectionProducts,
+            stream.agg.nballotsCast,
+            stream.chainTotals.head,
+            artifacts);
+    VerificationStateConvert.write(state, statePath);
+    System.out.printf(" Verified %d new ballots, wrote state to %s%n", ballots.size() - previous.ballots().size(), statePath);
+    VerifyElectionRecord.printAllOk(report);
+    return report;
+  }
+
+  /** The files that a box reads, or null if it reads the ballots. */
+  private List<Path> artifactInputs(String boxId) {
+    ElectionRecordPath path = consumer.path;
+    return switch (boxId) {
+      case "1", "2", "3" -> List.of(path.electionConfigPath(), path.electionInitializedPath());
+      case "8", "10", "pti", "11" -> List.of(path.electionInitializedPath(), path.tallyResultPath(), path.decryptionResultPath());
+      case "12" -> List.of(path.electionInitializedPath(), path.decryptionResultPath(), path.spoiledBallotPath());
+      default -> null;
+    };
+  }
+
+  private VerifierEngine.Box skipIfUnchanged(VerifierEngine.Box box, List<Path> inputs,
+                                             VerificationState.ArtifactResult previous,
+                                             Map<String, VerificationState.ArtifactResult> artifacts) {
+    return new VerifierEngine.Box(box.id(), box.header(), context -> {
+      UInt256 digest = digest(box.id(), inputs);
+      if (previous != null && previous.ok() && digest.equals(previous.digest())) {
+        context.out().format("  unchanged since the last verification: success%n");
+        artifacts.put(box.id(), previous);
+        return true;
+      }
+      boolean ok = box.check().apply(context);
+      artifacts.put(box.id(), new VerificationState.ArtifactResult(digest, ok));
+      return ok;
+    });
+  }
+
+  /** SHA-256 of the box id, the skip10 flag, and the contents of the files. */
+  private UInt256 digest(String boxId, List<Path> inputs) {
+    try {
+      MessageDigest md = sha256();
+      md.update((boxId + ":" + skip10).getBytes(StandardCharsets.UTF_8));
+      for (Path input : inputs) {
+        md.update(input.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+        if (Files.exists(input)) {
+          try (InputStream in = new DigestInputStream(Files.newInputStream(input), md)) {
+            in.transferTo(OutputStream.nullOutputStream());
+          }
+        }
+      }
+      return new UInt256(md.digest());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * The saved state, or EMPTY if there is none, or the ballot file no longer matches it.
+   * Leaves ballotFileDigest with the digest of the part of the ballot file in the returned state.
+   */
+  private VerificationState readPreviousState() throws IOException {
+    ballotFileDigest = sha256();
+    if (!Files.exists(statePath)) {
+      return VerificationState.EMPTY;
+    }
+    VerificationState state = VerificationStateConvert.read(statePath);
+    if (state.ballots().isEmpty()) {
+      return state;
+    }
+    Path ballotFile = consumer.path.submittedBallotPath();
+    if (!Files.exists(ballotFile) || Files.size(ballotFile) < state.nextOffset()) {
+      System.out.printf(" %s is shorter than when last verified; verifying all ballots%n", ballotFile);
+      return VerificationState.EMPTY;
+    }
+
+    // the verified part of the ballot file must not have changed
+    updateDigest(ballotFileDigest, ballotFile, 0, state.nextOffset());
+    if (!digestSoFar(ballotFileDigest).equals(state.ballotFileDigest())) {
+      System.out.printf(" %s was rewritten since last verified; verifying all ballots%n", ballotFile);
+      ballotFileDigest = sha256();
+      return VerificationState.EMPTY;
+    }
+
+    // and the first new ballot must chain to the last verified one
+    try (CloseableIterator<Consumer.SubmittedBallotRecord> iter =
+                 consumer.iterateSubmittedBallotRecords(state.nextOffset()).iterator()) {
+      if (iter.hasNext()) {
+        SubmittedBallot first = iter.next().ballot();
+        if (!first.code_seed.equals(state.chainHead())) {
+          System.out.printf(" %s ballot %s does not chain to the last verified ballot; verifying all ballots%n",
+                  ballotFile, first.object_id());
+          ballotFileDigest = sha256();
+          return VerificationState.EMPTY;
+        }
+      }
+    } catch (RuntimeException e) {
+      System.out.printf(" %s cannot be read after the last verified ballot (%s); verifying all ballots%n", ballotFile, e.getMessage());
+      ballotFileDigest = sha256();
+      return VerificationState.EMPTY;
+    }
+    return state;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** The digest of what has been added to md so far, leaving md to be added to. */
+  private static UInt256 digestSoFar(MessageDigest md) {
+    try {
+      return new UInt256(((MessageDigest) md.clone()).digest());
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Add the bytes [start, end) of the file to md. */
+  private static void updateDigest(MessageDigest md, Path file, long start, long end) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long pos = start;
+      while (pos < end) {
+        buffer.clear().limit((int) Math.min(buffer.capacity(), end - pos));
+        int n = channel.read(buffer, pos);
+        if (n < 0) {
+          throw new EOFException(String.format("%s ends before %d", file, end));
+        }
+        buffer.flip();
+        md.update(buffer);
+        pos += n;
+      }
+    }
+  }
+}
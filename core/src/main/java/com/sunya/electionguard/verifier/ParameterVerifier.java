@@ -5,6 +5,7 @@ import com.sunya.electionguard.Group;
 import com.sunya.electionguard.publish.ElectionRecord;
 
 import java.math.BigInteger;
+import java.util.Formatter;
 
 /**
  * This verifies specification section "1 Parameter Validation".
@@ -13,8 +14,15 @@ import java.math.BigInteger;
  */
 public class ParameterVerifier {
   private final ElectionRecord electionRecord;
+  private final Formatter out;
 
   ParameterVerifier(ElectionRecord electionRecord) {
+    this(electionRecord, new Formatter(System.out));
+  }
+
+  /** Messages are written to out. */
+  ParameterVerifier(ElectionRecord electionRecord, Formatter out) {
+    this.out = out;
     this.electionRecord = electionRecord;
   }
 
@@ -25,46 +33,46 @@ public class ParameterVerifier {
 
     // check if p, q, g are the expected values
     if (!electionRecord.largePrime().equals(primes.largePrime)) {
-      System.out.printf(" Large prime value not equal to P. %s%n", electionRecord.largePrime());
+      out.format(" Large prime value not equal to P. %s%n", electionRecord.largePrime());
       error = true;
     }
     if (!electionRecord.smallPrime().equals(primes.smallPrime)) {
       error = true;
-      System.out.printf(" Small prime value not equal to Q. %n");
+      out.format(" Small prime value not equal to Q. %n");
     }
     if (!electionRecord.generator().equals(primes.generator)) {
       error = true;
-      System.out.printf(" Generator value not equal to G. %n");
+      out.format(" Generator value not equal to G. %n");
     }
     if (!electionRecord.cofactor().equals(primes.cofactor)) {
       error = true;
-      System.out.printf(" cofactor value not equal to R. %n");
+      out.format(" cofactor value not equal to R. %n");
     }
 
     // check equation p - 1 = q * r
     BigInteger cofactor = electionRecord.cofactor();
     if (!(electionRecord.largePrime().subtract(BigInteger.ONE)).equals(electionRecord.smallPrime().multiply(cofactor))) {
       error = true;
-      System.out.printf(" p - 1 is not equal to r * q.%n");
+      out.format(" p - 1 is not equal to r * q.%n");
     }
 
     // check q is not a divisor of r
     if (Group.is_divisor(electionRecord.smallPrime(), cofactor)) {
       error = true;
-      System.out.printf(" q is a divisor of r.%n");
+      out.format(" q is a divisor of r.%n");
     }
 
     // check g is in Z^r_p
     Group.ElementModP generator = electionRecord.generatorP();
     if (!generator.is_valid_residue()) {
       error = true;
-      System.out.printf(" g is not in the range of 1 to p. %n");
+      out.format(" g is not in the range of 1 to p. %n");
     }
 
     if (error) {
-      System.out.printf(" ***Baseline parameter check failure%n");
+      out.format(" ***Baseline parameter check failure%n");
     } else {
-      System.out.printf(" Baseline parameter check success%n");
+      out.format(" Baseline parameter check success%n");
     }
     return !error;
   }
@@ -9,6 +9,7 @@ import com.sunya.electionguard.publish.ElectionRecord;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Formatter;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -30,8 +31,15 @@ public class PartialDecryptionVerifier {
 
   // Map(AVAILABLE_GUARDIAN_ID, ElementModQ)
   final Map<String, Group.ElementModQ> lagrange_coefficients;
+  private final Formatter out;
 
   PartialDecryptionVerifier(ElectionRecord electionRecord, PlaintextTally decryptedTally) {
+    this(electionRecord, decryptedTally, new Formatter(System.out));
+  }
+
+  /** Messages are written to out. */
+  PartialDecryptionVerifier(ElectionRecord electionRecord, PlaintextTally decryptedTally, Formatter out) {
+    this.out = out;
     this.electionRecord = electionRecord;
     this.decryptedTally = decryptedTally;
     this.lagrange_coefficients = electionRecord.availableGuardians().stream().collect(
@@ -41,12 +49,12 @@ public class PartialDecryptionVerifier {
   /** Verify 10.A for available guardians, if there are missing guardians. */
   boolean verify_replacement_partial_decryptions() {
     if (decryptedTally == null) {
-      System.out.printf("  Decrypted Tally does not exist%n");
+      out.format("  Decrypted Tally does not exist%n");
       return false;
     }
 
     if (this.lagrange_coefficients.size() == 0) {
-      System.out.printf(" ***Replacement Partial Decryptions failure : lagrange_coefficients not found in election record. %n");
+      out.format(" ***Replacement Partial Decryptions failure : lagrange_coefficients not found in election record. %n");
       return false;
     }
     // Verify 10.A for available guardians, if there are missing guardians.
@@ -56,9 +64,9 @@ public class PartialDecryptionVerifier {
     error |= !this.make_all_contest_verification(this.decryptedTally.contests);
 
     if (error) {
-      System.out.printf(" ***Replacement Partial Decryptions failure. %n");
+      out.format(" ***Replacement Partial Decryptions failure. %n");
     } else {
-      System.out.printf(" Replacement Partial Decryptions success. %n");
+      out.format(" Replacement Partial Decryptions success. %n");
     }
     return !error;
   }
@@ -79,7 +87,7 @@ public class PartialDecryptionVerifier {
     }
 
     if (error) {
-      System.out.printf(" *** 10.A Lagrange coefficients failure. %n");
+      out.format(" *** 10.A Lagrange coefficients failure. %n");
     }
     return !error;
   }
@@ -120,7 +128,7 @@ public class PartialDecryptionVerifier {
         String id = contest.contestId() + "-" + selection.selectionId();
         DecryptionSelectionVerifier tsv = new DecryptionSelectionVerifier(id, selection);
         if (!tsv.verify_a_selection()) {
-          System.out.printf("  Selection %s decryption failure.%n", id);
+          out.format("  Selection %s decryption failure.%n", id);
           error = true;
         }
       }
@@ -149,7 +157,7 @@ public class PartialDecryptionVerifier {
       ShareVerifier sv = new ShareVerifier(this.id, shares, this.pad, this.data);
       boolean res = sv.verify_all_shares();
       if (!res) {
-        System.out.printf(" '%s' tally verification error.%n", this.selection_id);
+        out.format(" '%s' tally verification error.%n", this.selection_id);
       }
       return res;
     }
@@ -175,7 +183,7 @@ public class PartialDecryptionVerifier {
         if (share.recoveredParts().isPresent()) {
           if (!this.verify_share_replacement_lagrange(share)) {
             error = true;
-            System.out.printf(" 10. ShareVerifier verify replacement lagrangian Guardian %s failed for %s.%n",
+            out.format(" 10. ShareVerifier verify replacement lagrangian Guardian %s failed for %s.%n",
                     share.guardianId(), id);
           }
         }
@@ -3,6 +3,8 @@ package com.sunya.electionguard.verifier;
 import com.sunya.electionguard.*;
 import com.sunya.electionguard.publish.ElectionRecord;
 
+import java.util.Formatter;
+
 import static com.sunya.electionguard.Group.ElementModQ;
 import static com.sunya.electionguard.Group.ElementModP;
 
@@ -12,48 +14,65 @@ import static com.sunya.electionguard.Group.ElementModP;
  */
 public class SelectionEncryptionVerifier {
   private final ElectionRecord electionRecord;
+  private final VerifierEngine engine;
+  private final Formatter out;
 
   SelectionEncryptionVerifier(ElectionRecord electionRecord) {
+    this(electionRecord, VerifierEngine.getDefault(), new Formatter(System.out));
+  }
+
+  /** Messages are written to out. The ballots are verified in parallel by the engine. */
+  SelectionEncryptionVerifier(ElectionRecord electionRecord, VerifierEngine engine, Formatter out) {
     this.electionRecord = electionRecord;
+    this.engine = engine;
+    this.out = out;
   }
 
   boolean verify_all_selections() {
-    boolean error = false;
+    VerifierEngine.BallotTotals totals = new VerifierEngine.BallotTotals();
+    engine.verifyInOrder(electionRecord.submittedBallots(), this::verifyBallot, out, totals);
+    return report(totals);
+  }
 
-    int nballots  = 0;
-    int ncontests  = 0;
-    int nselections  = 0;
-    for (SubmittedBallot ballot : electionRecord.submittedBallots()) {
-      nballots++;
-      for (CiphertextBallot.Contest contest : ballot.contests) {
-        ncontests++;
-        for (CiphertextBallot.Selection selection : contest.selections) {
-          nselections++;
-          SelectionVerifier sv = new SelectionVerifier(selection);
-          // check validity of a selection
-          if (!sv.verifySelection()) {
-            error = true;
-          }
-        }
-      }
+  /** Write the summary of all the ballots' checks to out. */
+  boolean report(VerifierEngine.BallotTotals totals) {
+    if (totals.nfailed > 0) {
+      out.format(" ***Selection Encryptions failure.%n");
+    } else {
+      out.format(" All Selection Encryptions validate for %d ballots, %d contests, %d selections: success.%n",
+              totals.nballots, totals.ncontests, totals.nselections);
     }
+    return totals.nfailed == 0;
+  }
 
-    if (error) {
-      System.out.printf(" ***Selection Encryptions failure.%n");
-    } else {
-      System.out.printf(" All Selection Encryptions validate for %d ballots, %d contests, %d selections: success.%n",
-              nballots, ncontests, nselections);
+  /** Check validity of all the selections of one ballot. Thread-safe. */
+  VerifierEngine.BallotCheck verifyBallot(SubmittedBallot ballot, Formatter messages) {
+    boolean error = false;
+    int ncontests = 0;
+    int nselections = 0;
+    for (CiphertextBallot.Contest contest : ballot.contests) {
+      ncontests++;
+      for (CiphertextBallot.Selection selection : contest.selections) {
+        nselections++;
+        SelectionVerifier sv = new SelectionVerifier(selection, messages);
+        // check validity of a selection
+        if (!sv.verifySelection()) {
+          error = true;
+        }
+      }
     }
-    return !error;
+    return new VerifierEngine.BallotCheck(!error, ncontests, nselections);
   }
 
   public class SelectionVerifier {
     final CiphertextBallot.Selection selection;
     final ElementModP alpha;
     final ElementModP beta;
+    final Formatter out;
 
-    SelectionVerifier(CiphertextBallot.Selection selection) {
+    SelectionVerifier(CiphertextBallot.Selection selection, Formatter out) {
       this.selection = selection;
+      this.out = out;
       this.alpha = selection.ciphertext().pad();
       this.beta = selection.ciphertext().data();
     }
@@ -96,14 +115,14 @@ public class SelectionEncryptionVerifier {
       ElementModQ computedChallenge = Hash.hash_elems(electionRecord.extendedHash(),
               this.alpha, this.beta, a0, b0, a1, b1);
       if (!challenge.equals(computedChallenge)) {
-        System.out.printf("4.B selection challenge failed for %s.%n", selection.object_id());
+        out.format("4.B selection challenge failed for %s.%n", selection.object_id());
         error = true;
       }
 
       // 4.D:  c = (c0 + c1) mod q
       ElementModQ expected = Group.add_q(c0, c1);
       if (!challenge.equals(expected)) {
-        System.out.printf("4.D c = (c0 + c1) mod q failed for %s.%n", selection.object_id());
+        out.format("4.D c = (c0 + c1) mod q failed for %s.%n", selection.object_id());
         error = true;
       }
 
@@ -111,7 +130,7 @@ public class SelectionEncryptionVerifier {
       ElementModP equE_left = Group.pow_p(electionRecord.generatorP(), v0);
       ElementModP equE_right = Group.mult_p(a0, Group.pow_p(alpha, c0));
       if (!equE_left.equals(equE_right)) {
-        System.out.printf("4.E check chaum-pedersen zero proof failed for %s.%n", selection.object_id());
+        out.format("4.E check chaum-pedersen zero proof failed for %s.%n", selection.object_id());
         error = true;
       }
 
@@ -119,7 +138,7 @@ public class SelectionEncryptionVerifier {
       ElementModP equF_left = Group.pow_p(electionRecord.generatorP(), v1);
       ElementModP equF_right = Group.mult_p(a1, Group.pow_p(alpha, c1));
       if (!equF_left.equals(equF_right)) {
-        System.out.printf("4.F check chaum-pedersen one proof failed for %s.%n", selection.object_id());
+        out.format("4.F check chaum-pedersen one proof failed for %s.%n", selection.object_id());
         error = true;
       }
 
@@ -128,7 +147,7 @@ public class SelectionEncryptionVerifier {
       ElementModP equG_left = Group.pow_p(K, v0);
       ElementModP equG_right = Group.mult_p(b0, Group.pow_p(beta, c0));
       if (!equG_left.equals(equG_right)) {
-        System.out.printf("4.G check chaum-pedersen zero proof failed for %s.%n", selection.object_id());
+        out.format("4.G check chaum-pedersen zero proof failed for %s.%n", selection.object_id());
         error = true;
       }
 
@@ -137,7 +156,7 @@ public class SelectionEncryptionVerifier {
               Group.pow_p(electionRecord.electionPublicKey(), v1));
       ElementModP equH_right = Group.mult_p(b1, Group.pow_p(beta, c1));
       if (!equH_left.equals(equH_right)) {
-        System.out.printf("4.H check chaum-pedersen one proof failed for %s.%n", selection.object_id());
+        out.format("4.H check chaum-pedersen one proof failed for %s.%n", selection.object_id());
         error = true;
       }
 
@@ -146,7 +165,7 @@ public class SelectionEncryptionVerifier {
       boolean isValid = proof.is_valid(selection.ciphertext(), K, electionRecord.extendedHash());
 
       if (error) {
-        System.out.printf("%s validity verification failure.%n", selection_id);
+        out.format("%s validity verification failure.%n", selection_id);
       }
       return !error;
     }
@@ -5,6 +5,7 @@ import com.sunya.electionguard.Manifest;
 import com.sunya.electionguard.PlaintextTally;
 import com.sunya.electionguard.publish.ElectionRecord;
 
+import java.util.Formatter;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -23,8 +24,15 @@ public class SpoiledBallotVerifier {
   final ElectionRecord electionRecord;
   // Map<CONTEST_ID, SET<SELECTION_ID>>
   final Map<String, Set<String>> names = new HashMap<>();
+  private final Formatter out;
 
   SpoiledBallotVerifier(ElectionRecord electionRecord) {
+    this(electionRecord, new Formatter(System.out));
+  }
+
+  /** Messages are written to out. */
+  SpoiledBallotVerifier(ElectionRecord electionRecord, Formatter out) {
+    this.out = out;
     this.electionRecord = electionRecord;
     for (Manifest.ContestDescription contest : electionRecord.manifest().contests()) {
       HashSet<String> selectionNames = new HashSet<>();
@@ -42,7 +50,7 @@ public class SpoiledBallotVerifier {
         for (PlaintextTally.Contest contest : ballot.contests.values()) {
           Set<String> selectionNames = names.get(contest.contestId());
           if (selectionNames == null) {
-            System.out.printf(" ***Ballot Contest id (%s) not contained in ballot coding file.%n", contest.contestId());
+            out.format(" ***Ballot Contest id (%s) not contained in ballot coding file.%n", contest.contestId());
             valid.set(false);
             continue;
           }
@@ -51,7 +59,7 @@ public class SpoiledBallotVerifier {
               continue;
             }
             if (!selectionNames.contains(selection.selectionId())) {
-              System.out.printf(" ***Ballot Selection id (%s) not contained in contest (%s).%n", selection.selectionId(), contest.contestId());
+              out.format(" ***Ballot Selection id (%s) not contained in contest (%s).%n", selection.selectionId(), contest.contestId());
               valid.set(false);
             }
           }
@@ -59,9 +67,9 @@ public class SpoiledBallotVerifier {
     }
 
     if (!valid.get()) {
-      System.out.printf(" ***12.B Spoiled PlaintextTally Names Validation failed.%n");
+      out.format(" ***12.B Spoiled PlaintextTally Names Validation failed.%n");
     } else {
-      System.out.printf(" 12.B Spoiled PlaintextTally Names Validation success.%n");
+      out.format(" 12.B Spoiled PlaintextTally Names Validation success.%n");
     }
     return valid.get();
   }
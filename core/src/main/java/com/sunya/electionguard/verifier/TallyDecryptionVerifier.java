@@ -11,6 +11,7 @@ import com.sunya.electionguard.PlaintextTally;
 import com.sunya.electionguard.publish.ElectionRecord;
 import electionguard.ballot.Guardian;
 
+import java.util.Formatter;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -28,8 +29,15 @@ public class TallyDecryptionVerifier {
   final Group.ElementModQ qbar;
   final InternalManifest manifest;
   final PlaintextTally decryptedTally;
+  private final Formatter out;
 
   TallyDecryptionVerifier(ElectionRecord electionRecord, Manifest manifest, PlaintextTally tally) {
+    this(electionRecord, manifest, tally, new Formatter(System.out));
+  }
+
+  /** Messages are written to out. */
+  TallyDecryptionVerifier(ElectionRecord electionRecord, Manifest manifest, PlaintextTally tally, Formatter out) {
+    this.out = out;
     this.electionRecord = electionRecord;
     this.qbar = electionRecord.extendedHash();
     this.manifest = new InternalManifest(manifest);
@@ -57,12 +65,12 @@ public class TallyDecryptionVerifier {
     for (PlaintextTally.Contest contest : decryptedTally.contests.values()) {
       InternalManifest.ContestWithPlaceholders manifestContest = manifest.getContestById(contest.contestId()).orElse(null);
       if (manifestContest == null) {
-        System.out.printf(" 11.C Tally Decryption contains contest (%s) not in manifest%n", contest.contestId());
+        out.format(" 11.C Tally Decryption contains contest (%s) not in manifest%n", contest.contestId());
         error = true;
       }
       for (PlaintextTally.Selection selection : contest.selections().values()) {
         if (manifestContest != null && manifestContest.getSelectionById(selection.selectionId()).isEmpty()) {
-          System.out.printf(" 11.C Tally Decryption contest (%s) contains selection (%s) not in manifest%n",
+          out.format(" 11.C Tally Decryption contest (%s) contains selection (%s) not in manifest%n",
                   contest.contestId(), selection.selectionId());
           error = true;
         }
@@ -76,7 +84,7 @@ public class TallyDecryptionVerifier {
                     guardian.publicKey(),
                     share.share(),
                     qbar)) {
-              System.out.printf(" 11.A Tally Decryption proof failed for %s.%n", proof);
+              out.format(" 11.A Tally Decryption proof failed for %s.%n", proof);
             }
           });
         }
@@ -89,22 +97,22 @@ public class TallyDecryptionVerifier {
         ElementModP M = selection.value();
         ElementModP B = selection.message().data();
         if (!B.equals(Group.mult_p(M, productMi))) {
-          System.out.printf(" 11.A Tally Decryption failed for %s.%n", key);
+          out.format(" 11.A Tally Decryption failed for %s.%n", key);
           error = true;
         }
 
         /* ElementModP t = Group.int_to_p_unchecked(BigInteger.valueOf(selection.tally()));
         if (!M.equals(Group.g_pow_p(t))) {
-          System.out.printf(" 11.B Tally Decryption failed for %s.%n", key);
+          out.format(" 11.B Tally Decryption failed for %s.%n", key);
           error = true;
         } */
       }
     }
 
     if (error) {
-      System.out.printf(" ***Tally Decryption Validation failed.%n");
+      out.format(" ***Tally Decryption Validation failed.%n");
     } else {
-      System.out.printf(" Tally Decryption Validation success.%n");
+      out.format(" Tally Decryption Validation success.%n");
     }
     return !error;
   }
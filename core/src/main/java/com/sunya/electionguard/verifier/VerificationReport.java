@@ -0,0 +1,93 @@
+package com.sunya.electionguard.verifier;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The results of verifying an election record: for each box, success or failure, the ids of the items that failed,
+ * the number of items verified, the wall and CPU time, and the throughput.
+ *
+ * @param boxes one for each box, in box order.
+ * @param wall the wall time of the whole verification.
+ * @param parallelism the number of threads that the verification used.
+ */
+public record VerificationReport(List<BoxReport> boxes, Duration wall, int parallelism) {
+
+  public VerificationReport {
+    boxes = ImmutableList.copyOf(boxes);
+  }
+
+  /**
+   * The results of one box.
+   *
+   * @param id identifies the box, eg "4".
+   * @param name the header printed for the box.
+   * @param ok true if the box succeeded.
+   * @param items the number of items verified, eg ballots; 0 if the box does not count them.
+   * @param nfailed the number of items that failed.
+   * @param failedIds the ids of the first items that failed, at most BoxContext.MAX_FAILED_IDS.
+   * @param wall wall time from start to finish.
+   * @param cpu CPU time, including the parallel work it started.
+   */
+  public record BoxReport(String id, String name, boolean ok, long items, long nfailed, List<String> failedIds,
+                          Duration wall, Duration cpu) {
+
+    public BoxReport {
+      failedIds = ImmutableList.copyOf(failedIds);
+    }
+
+    /** The items verified per second of wall time, or 0 if none. */
+    public double itemsPerSecond() {
+      return (items == 0 || wall.isZero()) ? 0.0 : items * 1.0e9 / wall.toNanos();
+    }
+  }
+
+  /** True if all the boxes succeeded. */
+  public boolean ok() {
+    return boxes.stream().allMatch(BoxReport::ok);
+  }
+
+  /** The sum of the CPU time of the boxes. */
+  public Duration cpu() {
+    return boxes.stream().map(BoxReport::cpu).reduce(Duration.ZERO, Duration::plus);
+  }
+
+  public String toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty("ok", ok());
+    json.addProperty("wallMillis", wall.toMillis());
+    json.addProperty("cpuMillis", cpu().toMillis());
+    json.addProperty("parallelism", parallelism);
+    JsonArray boxesJson = new JsonArray();
+    for (BoxReport box : boxes) {
+      JsonObject boxJson = new JsonObject();
+      boxJson.addProperty("id", box.id());
+      boxJson.addProperty("name", box.name());
+      boxJson.addProperty("ok", box.ok());
+      boxJson.addProperty("items", box.items());
+      boxJson.addProperty("nfailed", box.nfailed());
+      JsonArray failedIds = new JsonArray();
+      box.failedIds().forEach(failedIds::add);
+      boxJson.add("failedIds", failedIds);
+      boxJson.addProperty("wallMillis", box.wall().toMillis());
+      boxJson.addProperty("cpuMillis", box.cpu().toMillis());
+      boxJson.addProperty("itemsPerSecond", box.itemsPerSecond());
+      boxesJson.add(boxJson);
+    }
+    json.add("boxes", boxesJson);
+    return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+  }
+
+  public void writeJson(Path file) throws IOException {
+    Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+  }
+}
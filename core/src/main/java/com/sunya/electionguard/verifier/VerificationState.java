@@ -0,0 +1,58 @@
+package com.sunya.electionguard.verifier;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sunya.electionguard.ElGamal;
+import com.sunya.electionguard.core.UInt256;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+
+import static com.sunya.electionguard.Group.ElementModQ;
+
+/**
+ * The state of a verification of an election record, so that the next verification only needs to
+ * check the ballots submitted since, and the artifacts that have changed.
+ *
+ * @param nextOffset byte offset in the submitted ballot file of the first record not yet verified.
+ * @param ballotFileDigest SHA-256 of the first nextOffset bytes of the submitted ballot file, or null if none.
+ * @param ballots the verified ballots, in file order.
+ * @param selectionProducts the box 7 running products over the verified cast ballots, keyed by "contestId.selectionId".
+ * @param ncast the number of cast ballots in selectionProducts.
+ * @param chainHead the box 6 code of the last verified ballot, or null if none.
+ * @param artifacts the results of the boxes that do not read the ballots, keyed by box id.
+ */
+public record VerificationState(
+        long nextOffset,
+        @Nullable UInt256 ballotFileDigest,
+        List<BallotResult> ballots,
+        Map<String, ElGamal.Ciphertext> selectionProducts,
+        int ncast,
+        @Nullable ElementModQ chainHead,
+        Map<String, ArtifactResult> artifacts) {
+
+  public static final VerificationState EMPTY = new VerificationState(0, null, List.of(), Map.of(), 0, null, Map.of());
+
+  public VerificationState {
+    ballots = ImmutableList.copyOf(ballots);
+    selectionProducts = ImmutableMap.copyOf(selectionProducts);
+    artifacts = ImmutableMap.copyOf(artifacts);
+  }
+
+  /** The results of the box 4, 5 and 6 checks of one ballot. */
+  public record BallotResult(
+          String ballotId,
+          long offset, // byte offset of its record in the submitted ballot file
+          ElementModQ code, // to detect that the ballot file was rewritten
+          boolean encryptionOk,
+          boolean limitsOk,
+          boolean chainOk,
+          int ncontests,
+          int nselections) {
+  }
+
+  /** The result of a box that does not read the ballots, and the hash of the files that it read. */
+  public record ArtifactResult(UInt256 digest, boolean ok) {
+  }
+}
@@ -0,0 +1,31 @@
+package com.sunya.electionguard.verifier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** A Java Flight Recorder event for each verifier box. Costs nothing unless a recording is running. */
+@Name("electionguard.VerifierBox")
+@Label("Verifier Box")
+@Category({"ElectionGuard", "Verifier"})
+@Description("The verification of one box of the election record")
+class VerifierBoxEvent extends Event {
+  @Label("Box")
+  String box;
+
+  @Label("Success")
+  boolean ok;
+
+  @Label("Items")
+  long items;
+
+  @Label("Failed Items")
+  long failed;
+
+  @Label("CPU Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long cpuTime;
+}
@@ -0,0 +1,271 @@
+package com.sunya.electionguard.verifier;
+
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sunya.electionguard.TaskExecutor;
+import com.sunya.electionguard.publish.CloseableIterator;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Runs the verifier boxes concurrently, and the per-ballot checks within a box in parallel.
+ * Each box writes its messages to its own Formatter, and the boxes are printed in order,
+ * so the output is the same as when the boxes are run one after another.
+ * The wall and CPU time, and the number of items and failures, of each box are collected in a VerificationReport.
+ * Ballots are streamed in batches, so they are never all in memory at once.
+ */
+class VerifierEngine {
+  static final int BATCH_SIZE = 1000;
+
+  private static VerifierEngine defaultEngine;
+
+  /** Uses TaskExecutor.getDefault(). */
+  static synchronized VerifierEngine getDefault() {
+    if (defaultEngine == null) {
+      defaultEngine = new VerifierEngine(TaskExecutor.getDefault());
+    }
+    return defaultEngine;
+  }
+
+  private final TaskExecutor executor;
+  private final int batchSize;
+
+  VerifierEngine(TaskExecutor executor) {
+    this(executor, BATCH_SIZE);
+  }
+
+  VerifierEngine(TaskExecutor executor, int batchSize) {
+    this.executor = executor;
+    this.batchSize = batchSize;
+  }
+
+  TaskExecutor executor() {
+    return executor;
+  }
+
+  /**
+   * One verification box.
+   * @param id identifies the box, eg "4".
+   * @param header printed before the box's messages.
+   * @param check runs the verification, writing its messages to BoxContext.out(). Returns true on success.
+   */
+  record Box(String id, String header, Function<BoxContext, Boolean> check) {}
+
+  /** Where a running box writes its messages and counts its items and failures. Thread-safe. */
+  static class BoxContext {
+    static final int MAX_FAILED_IDS = 100;
+
+    private final StringBuilder output = new StringBuilder();
+    private final Formatter out = new Formatter(output);
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong nfailed = new AtomicLong();
+    private final List<String> failedIds = new ArrayList<>();
+    private final AtomicLong cpuNanos = new AtomicLong();
+    private volatile Thread boxThread; // its CPU time is measured as a whole
+
+    /** The box's messages. Only use from the box's own thread. */
+    Formatter out() {
+      return out;
+    }
+
+    /** Count the items that the box verified, eg ballots. */
+    void addItems(long n) {
+      items.addAndGet(n);
+    }
+
+    /** Record an item that failed. Only the first MAX_FAILED_IDS ids are kept. */
+    void addFailure(String id) {
+      nfailed.incrementAndGet();
+      synchronized (failedIds) {
+        if (failedIds.size() < MAX_FAILED_IDS) {
+          failedIds.add(id);
+        }
+      }
+    }
+
+    private VerificationReport.BoxReport report(Box box, boolean ok, long wallNanos) {
+      synchronized (failedIds) {
+        return new VerificationReport.BoxReport(box.id(), name(box.header()), ok, items.get(), nfailed.get(),
+                failedIds, Duration.ofNanos(wallNanos), Duration.ofNanos(cpuNanos.get()));
+      }
+    }
+  }
+
+  /** The last line of the header, without the dashes. */
+  private static String name(String header) {
+    String stripped = header.strip();
+    String last = stripped.substring(stripped.lastIndexOf('\n') + 1);
+    return last.replaceAll("^[-= ]+|[-= ]+$", "");
+  }
+
+  /** The context of the box running in this thread, so that the parallel work it starts is counted in that box. */
+  private static final ThreadLocal<BoxContext> currentBox = new ThreadLocal<>();
+
+  /**
+   * Run all the boxes concurrently. Each box's header and messages are printed to printer as soon as that box
+   * and all the boxes before it have finished.
+   * If a box throws an exception, the first one in box order is rethrown after the boxes before it are printed.
+   * Each box is also recorded as a VerifierBoxEvent, when Java Flight Recorder is recording.
+   *
+   * @return the report, with the result of each box in the same order as the boxes.
+   */
+  VerificationReport run(List<Box> boxes, PrintStream printer) {
+    long start = System.nanoTime();
+    List<BoxContext> contexts = new ArrayList<>();
+    List<ListenableFuture<VerificationReport.BoxReport>> futures = new ArrayList<>();
+    for (Box box : boxes) {
+      BoxContext context = new BoxContext();
+      contexts.add(context);
+      futures.add(executor.executor().submit(() -> runBox(box, context)));
+    }
+
+    List<VerificationReport.BoxReport> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < boxes.size(); i++) {
+        VerificationReport.BoxReport result = futures.get(i).get();
+        printer.print(boxes.get(i).header());
+        printer.print(contexts.get(i).output);
+        results.add(result);
+      }
+    } catch (InterruptedException e) {
+      futures.forEach(f -> f.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      futures.forEach(f -> f.cancel(true));
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw new RuntimeException(e.getCause());
+    }
+    printer.flush();
+    return new VerificationReport(results, Duration.ofNanos(System.nanoTime() - start), executor.parallelism());
+  }
+
+  private VerificationReport.BoxReport runBox(Box box, BoxContext context) {
+    VerifierBoxEvent event = new VerifierBoxEvent();
+    event.begin();
+    long start = System.nanoTime();
+    long cpuStart = threadCpuNanos();
+    currentBox.set(context);
+    context.boxThread = Thread.currentThread();
+    boolean ok;
+    try {
+      ok = box.check().apply(context);
+    } finally {
+      currentBox.remove();
+      context.cpuNanos.addAndGet(threadCpuNanos() - cpuStart);
+    }
+    VerificationReport.BoxReport report = context.report(box, ok, System.nanoTime() - start);
+    event.end();
+    if (event.shouldCommit()) {
+      event.box = box.id();
+      event.ok = ok;
+      event.items = report.items();
+      event.failed = report.nfailed();
+      event.cpuTime = report.cpu().toNanos();
+      event.commit();
+    }
+    return report;
+  }
+
+  /** CPU time of the current thread, or 0 if the JVM does not measure it. */
+  private static long threadCpuNanos() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+  }
+
+  /**
+   * Check each item in parallel, reading the items in batches.
+   * Each check writes its messages to its own Formatter. The messages are copied to out, and the results are
+   * passed to collect, in the order of the items and in the calling thread, so collect does not need to be thread-safe.
+   */
+  <T, R> void verifyInOrder(Iterable<T> items, BiFunction<T, Formatter, R> check, Formatter out, Consumer<R> collect) {
+    forEachBatch(items, batch -> {
+      List<Checked<R>> results = process(batch.size(), i -> {
+        StringBuilder messages = new StringBuilder();
+        R result = check.apply(batch.get(i), new Formatter(messages));
+        return new Checked<>(result, messages);
+      });
+      for (Checked<R> checked : results) {
+        if (checked.messages().length() > 0) {
+          out.format("%s", checked.messages());
+        }
+        collect.accept(checked.result());
+      }
+    });
+  }
+
+  /** Read the items in batches, and pass each batch to process in the calling thread. */
+  <T> void forEachBatch(Iterable<T> items, Consumer<List<T>> process) {
+    Iterator<T> iterator = items.iterator();
+    try {
+      Iterator<List<T>> batches = Iterators.partition(iterator, batchSize);
+      while (batches.hasNext()) {
+        process.accept(batches.next());
+      }
+    } finally {
+      if (iterator instanceof CloseableIterator<T> closeable) {
+        closeable.close();
+      }
+    }
+  }
+
+  /**
+   * Compute task(i) for i in [0, n) in parallel. Results are in index order.
+   * The CPU time of the tasks is counted in the box that calls this.
+   */
+  <R> List<R> process(int n, IntFunction<R> task) {
+    BoxContext context = currentBox.get();
+    if (context == null) {
+      return executor.process(n, task);
+    }
+    return executor.process(n, i -> {
+      if (Thread.currentThread() == context.boxThread) {
+        return task.apply(i);
+      }
+      long cpuStart = threadCpuNanos();
+      try {
+        return task.apply(i);
+      } finally {
+        context.cpuNanos.addAndGet(threadCpuNanos() - cpuStart);
+      }
+    });
+  }
+
+  private record Checked<R>(R result, StringBuilder messages) {}
+
+  /** The result of checking one ballot. */
+  record BallotCheck(boolean ok, int ncontests, int nselections) {}
+
+  /** Accumulates the BallotChecks of a box. Not thread-safe; verifyInOrder calls it from one thread. */
+  static class BallotTotals implements Consumer<BallotCheck> {
+    int nballots;
+    int ncontests;
+    int nselections;
+    int nfailed;
+
+    @Override
+    public void accept(BallotCheck check) {
+      nballots++;
+      ncontests += check.ncontests();
+      nselections += check.nselections();
+      if (!check.ok()) {
+        nfailed++;
+      }
+    }
+  }
+}
@@ -3,13 +3,19 @@ package com.sunya.electionguard.verifier;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
+import com.google.common.base.Supplier;
 import com.sunya.electionguard.Group;
+import com.sunya.electionguard.TaskExecutor;
 import com.sunya.electionguard.input.ManifestInputValidation;
 import com.sunya.electionguard.input.PlaintextTallyInputValidation;
 import com.sunya.electionguard.publish.Consumer;
 import com.sunya.electionguard.publish.ElectionRecord;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Formatter;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -38,6 +44,17 @@ public class VerifyElectionRecord {
     @Parameter(names = {"-skip10"}, order = 2, description = "Skip Box 10 validation")
     boolean skip10 = false;
 
+    @Parameter(names = {"-nthreads"}, order = 1, description = "Number of threads to verify with, default is number of processors")
+    int nthreads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = {"-state"}, order = 1,
+            description = "File to keep the verification state in, to verify only what has changed since the last verification")
+    String statePath;
+
+    @Parameter(names = {"-report"}, order = 1,
+            description = "Write a JSON report with the result, item counts and timing of each box to this file")
+    String reportPath;
+
     @Parameter(names = {"-usePrimes"}, order = 2, description = "use constants as primes")
     boolean usePrimes = false;
 
@@ -81,6 +98,11 @@ public class VerifyElectionRecord {
         System.out.printf("*** ElectionInputValidation FAILED on %s%n%s", cmdLine.inputDir, errors);
         System.exit(1);
       }
+      Formatter shardErrors = new Formatter();
+      if (!consumer.validateSubmittedBallotShards(shardErrors)) {
+        System.out.printf("*** Submitted ballot shards do not match the shard manifest in %s%n%s", cmdLine.inputDir, shardErrors);
+        System.exit(1);
+      }
       System.out.printf(" VerifyElectionRecord read from %s%n", cmdLine.inputDir);
       //if (cmdLine.usePrimes) {
       //  Group.setPrimes(electionRecord.constants);
@@ -88,7 +110,31 @@ public class VerifyElectionRecord {
       //    System.out.printf(" Use primes from electionRecord = %s%n", electionRecord.constants);
       //  }
       //}
-      boolean ok = verifyElectionRecord(electionRecord, cmdLine.skip10);
+      TaskExecutor executor = TaskExecutor.builder().setName("VerifyElectionRecord").setParallelism(cmdLine.nthreads).build();
+      VerificationReport report;
+      if (cmdLine.statePath != null) {
+        if (!Files.exists(consumer.path.electionConfigPath())) {
+          System.out.printf("*** Incremental verification needs a protobuf election record, %s is not one%n", cmdLine.inputDir);
+          System.exit(1);
+        }
+        if (!consumer.readSubmittedBallotShards().shards().isEmpty()) {
+          System.out.printf("*** Incremental verification does not support sharded submitted ballots%n");
+          System.exit(1);
+        }
+        if (Files.exists(consumer.path.submittedBallotCompressedPath())) {
+          System.out.printf("*** Incremental verification does not support compressed submitted ballots%n");
+          System.exit(1);
+        }
+        IncrementalVerifier incremental = new IncrementalVerifier(consumer, electionRecord, cmdLine.skip10,
+                new VerifierEngine(executor), Path.of(cmdLine.statePath));
+        report = incremental.verify();
+      } else {
+        report = verifyWithReport(electionRecord, cmdLine.skip10, executor);
+      }
+      if (cmdLine.reportPath != null) {
+        report.writeJson(Path.of(cmdLine.reportPath));
+        System.out.printf(" Wrote verification report to %s%n", cmdLine.reportPath);
+      }
     } catch (Throwable t) {
       t.printStackTrace();
       System.exit(2);
@@ -98,77 +144,120 @@ public class VerifyElectionRecord {
   }
 
   public static boolean verifyElectionRecord(ElectionRecord electionRecord, boolean skip10) {
-    System.out.println("============ Ballot Verification =========================");
-    System.out.println("------------ [box 1] Parameter Validation ------------");
-    ParameterVerifier blv = new ParameterVerifier(electionRecord);
-    boolean blvOk = blv.verify_all_params();
-
-    System.out.println("------------ [box 2] Guardian Public-Key Validation ------------");
-    GuardianPublicKeyVerifier gpkv = new GuardianPublicKeyVerifier(electionRecord);
-    boolean gpkvOk = gpkv.verify_all_guardians();
-
-    System.out.println("------------ [box 3] Election Public-Key Validation ------------");
-    ElectionPublicKeyVerifier epkv = new ElectionPublicKeyVerifier(electionRecord);
-    boolean epkvOk = epkv.verify_public_keys();
-
-    System.out.println("------------ [box 4] Selection Encryption Validation ------------");
-    SelectionEncryptionVerifier sev = new SelectionEncryptionVerifier(electionRecord);
-    boolean sevOk = sev.verify_all_selections();
-
-    System.out.println("------------ [box 5] Contest Vote Limits Validation ------------");
-    ContestVoteLimitsVerifier cvlv = new ContestVoteLimitsVerifier(electionRecord);
-    boolean cvlvOk = cvlv.verify_all_accepted_ballots();
-
-    System.out.println("------------ [box 6] Ballot Chaining Validation ------------");
-    BallotChainingVerifier bcv = new BallotChainingVerifier(electionRecord);
-    boolean bcvOk = bcv.verify_all_ballots();
-
-    System.out.println("\n============ Decryption Verification =========================");
-    System.out.println("------------ [box 7] Ballot Aggregation Validation ------------");
-    BallotAggregationVerifier bav = new BallotAggregationVerifier(electionRecord.submittedBallots(), electionRecord.ciphertextTally());
-    boolean bavOk = bav.verify_ballot_aggregation();
-
-    System.out.println("------------ [box 8, 9] Correctness of Decryptions ------------");
-    DecryptionVerifier dv = new DecryptionVerifier(electionRecord, electionRecord.decryptedTally());
-    boolean dvOk = dv.verify_election_tally();
-
-    System.out.println("------------ [box 10] Correctness of Replacement Partial Decryptions ------------");
-    boolean pdvOk = true;
-    if (Objects.equals(electionRecord.numberOfGuardians(), electionRecord.quorum())) {
-      System.out.println("  not needed since there are no missing guardians");
-    } else {
-      PartialDecryptionVerifier pdv = new PartialDecryptionVerifier(electionRecord, electionRecord.decryptedTally());
-      pdvOk = pdv.verify_replacement_partial_decryptions();
-    }
+    return verifyElectionRecord(electionRecord, skip10, TaskExecutor.getDefault());
+  }
 
-    System.out.println("------------ PlaintextTallyInputValidation ------------");
-    PlaintextTallyInputValidation validator = new PlaintextTallyInputValidation(
-            electionRecord.manifest(),
-            electionRecord.ciphertextTally(),
-            electionRecord.numberOfGuardians(),
-            electionRecord.availableGuardians().size());
-    Formatter errors = new Formatter();
-    boolean ptiValid = true;
-    if (!validator.validateTally(electionRecord.decryptedTally(), errors)) {
-      System.out.printf("*** PlaintextTallyInputValidation FAILED on electionRecord%n%s", errors);
-      ptiValid = false;
-    }
+  /**
+   * Verify the election record, running the boxes concurrently in executor.
+   * The output is printed in box order, the same as if the boxes were run one after another.
+   */
+  public static boolean verifyElectionRecord(ElectionRecord electionRecord, boolean skip10, TaskExecutor executor) {
+    return verifyWithReport(electionRecord, skip10, executor).ok();
+  }
 
-    System.out.println("------------ [box 11] Correct Decryption of Tallies ------------");
-    TallyDecryptionVerifier tdv = new TallyDecryptionVerifier(electionRecord,
-            electionRecord.manifest(), electionRecord.decryptedTally());
-    boolean tdvOk = tdv.verify_tally_decryption();
+  /**
+   * Verify the election record, running the boxes concurrently in executor.
+   * @return the results, item counts and timing of each box.
+   */
+  public static VerificationReport verifyWithReport(ElectionRecord electionRecord, boolean skip10, TaskExecutor executor) {
+    VerifierEngine engine = new VerifierEngine(executor);
+    Supplier<List<BallotStreamVerifier.BoxResult>> ballotStream =
+            () -> new BallotStreamVerifier(electionRecord, engine).verify();
+    VerificationReport report = engine.run(makeBoxes(electionRecord, skip10, ballotStream), System.out);
+    printAllOk(report);
+    return report;
+  }
+
+  /**
+   * The boxes to verify, in order. Boxes 4 to 7 share one pass over the ballots, so they are run and timed as
+   * one box "4-7", which calls ballotStream once and prints the results of each of them under its own header.
+   */
+  static List<VerifierEngine.Box> makeBoxes(ElectionRecord electionRecord, boolean skip10,
+                                            Supplier<List<BallotStreamVerifier.BoxResult>> ballotStream) {
+    List<VerifierEngine.Box> boxes = new ArrayList<>();
+
+    boxes.add(new VerifierEngine.Box("1",
+            "============ Ballot Verification =========================\n" +
+            "------------ [box 1] Parameter Validation ------------\n",
+            box -> new ParameterVerifier(electionRecord, box.out()).verify_all_params()));
+
+    boxes.add(new VerifierEngine.Box("2", "------------ [box 2] Guardian Public-Key Validation ------------\n",
+            box -> {
+              box.addItems(electionRecord.guardians().size());
+              return new GuardianPublicKeyVerifier(electionRecord, box.out()).verify_all_guardians();
+            }));
+
+    boxes.add(new VerifierEngine.Box("3", "------------ [box 3] Election Public-Key Validation ------------\n",
+            box -> new ElectionPublicKeyVerifier(electionRecord, box.out()).verify_public_keys()));
+
+    boxes.add(new VerifierEngine.Box("4-7", "------------ [box 4, 5, 6, 7] Ballot Validation ------------\n",
+            box -> {
+              List<BallotStreamVerifier.BoxResult> results = ballotStream.get();
+              List<String> headers = List.of(
+                      "------------ [box 4] Selection Encryption Validation ------------\n",
+                      "------------ [box 5] Contest Vote Limits Validation ------------\n",
+                      "------------ [box 6] Ballot Chaining Validation ------------\n",
+                      "\n============ Decryption Verification =========================\n" +
+                      "------------ [box 7] Ballot Aggregation Validation ------------\n");
+              boolean ok = true;
+              for (int i = 0; i < results.size(); i++) {
+                BallotStreamVerifier.BoxResult result = results.get(i);
+                box.out().format("%s%s", headers.get(i), result.messages());
+                result.failedIds().forEach(box::addFailure);
+                ok &= result.ok();
+              }
+              // each ballot is read once for all four boxes
+              box.addItems(results.get(0).items());
+              return ok;
+            }));
 
-    System.out.println("------------ [box 12] Correct Decryption of Spoiled Ballots ------------");
-    boolean dvsOk = dv.verify_spoiled_tallies(electionRecord.spoiledBallotTallies());
+    boxes.add(new VerifierEngine.Box("8", "------------ [box 8, 9] Correctness of Decryptions ------------\n",
+            box -> new DecryptionVerifier(electionRecord, electionRecord.decryptedTally(), box.out()).verify_election_tally()));
 
-    // 12B
-    SpoiledBallotVerifier pbv = new SpoiledBallotVerifier(electionRecord);
-    boolean pbvOk = pbv.verifySpoiledBallot();
+    boxes.add(new VerifierEngine.Box("10", "------------ [box 10] Correctness of Replacement Partial Decryptions ------------\n",
+            box -> {
+              if (Objects.equals(electionRecord.numberOfGuardians(), electionRecord.quorum())) {
+                box.out().format("  not needed since there are no missing guardians%n");
+                return true;
+              }
+              PartialDecryptionVerifier pdv = new PartialDecryptionVerifier(electionRecord, electionRecord.decryptedTally(), box.out());
+              return pdv.verify_replacement_partial_decryptions() || skip10;
+            }));
+
+    boxes.add(new VerifierEngine.Box("pti", "------------ PlaintextTallyInputValidation ------------\n",
+            box -> {
+              PlaintextTallyInputValidation validator = new PlaintextTallyInputValidation(
+                      electionRecord.manifest(),
+                      electionRecord.ciphertextTally(),
+                      electionRecord.numberOfGuardians(),
+                      electionRecord.availableGuardians().size());
+              Formatter errors = new Formatter();
+              if (!validator.validateTally(electionRecord.decryptedTally(), errors)) {
+                box.out().format("*** PlaintextTallyInputValidation FAILED on electionRecord%n%s", errors);
+                return false;
+              }
+              return true;
+            }));
+
+    boxes.add(new VerifierEngine.Box("11", "------------ [box 11] Correct Decryption of Tallies ------------\n",
+            box -> new TallyDecryptionVerifier(electionRecord, electionRecord.manifest(),
+                    electionRecord.decryptedTally(), box.out()).verify_tally_decryption()));
+
+    boxes.add(new VerifierEngine.Box("12", "------------ [box 12] Correct Decryption of Spoiled Ballots ------------\n",
+            box -> {
+              DecryptionVerifier dv = new DecryptionVerifier(electionRecord, electionRecord.decryptedTally(), box.out());
+              boolean dvsOk = dv.verify_spoiled_tallies(electionRecord.spoiledBallotTallies());
+              // 12B
+              SpoiledBallotVerifier pbv = new SpoiledBallotVerifier(electionRecord, box.out());
+              boolean pbvOk = pbv.verifySpoiledBallot();
+              return dvsOk && pbvOk;
+            }));
+
+    return boxes;
+  }
 
-    boolean allOk = (blvOk && gpkvOk && epkvOk && sevOk && cvlvOk && bcvOk && bavOk && dvOk && ptiValid &&
-            (pdvOk || skip10) &&
-            tdvOk && dvsOk && pbvOk);
+  static boolean printAllOk(VerificationReport report) {
+    boolean allOk = report.ok();
     if (allOk) {
       System.out.printf("%n===== ALL OK! ===== %n");
     } else {
@@ -0,0 +1,121 @@
+package com.sunya.electionguard.workflow;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.sunya.electionguard.CiphertextTallyBuilder;
+import com.sunya.electionguard.InternalManifest;
+import com.sunya.electionguard.PartialCiphertextTally;
+import com.sunya.electionguard.input.ManifestInputValidation;
+import com.sunya.electionguard.publish.Consumer;
+import com.sunya.electionguard.publish.ElectionRecord;
+import com.sunya.electionguard.publish.Publisher;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Formatter;
+
+/**
+ * A command line program to accumulate one shard of the encrypted ballots into a partial tally.
+ * The partial tallies from all the shards are combined with RunMergePartialTallies.
+ * <p>
+ * For command line help:
+ * <strong>
+ * <pre>
+ *  java -classpath electionguard-java-all.jar com.sunya.electionguard.workflow.RunAccumulatePartialTally --help
+ * </pre>
+ * </strong>
+ */
+public class RunAccumulatePartialTally {
+
+  private static class CommandLine {
+    @Parameter(names = {"-in"}, order = 0,
+            description = "Directory containing input election record and the ballot encryptions for this shard", required = true)
+    String encryptDir;
+
+    @Parameter(names = {"-shard"}, order = 1,
+            description = "Unique name of this shard, eg the precinct", required = true)
+    String shardId;
+
+    @Parameter(names = {"-out"}, order = 3,
+            description = "Directory where partial tally is published", required = true)
+    String outputDir;
+
+    @Parameter(names = {"-h", "--help"},  order = 4, description = "Display this help and exit", help = true)
+    boolean help = false;
+
+    private final JCommander jc;
+
+    public CommandLine(String progName, String[] args) throws ParameterException {
+      this.jc = new JCommander(this);
+      this.jc.parse(args);
+      jc.setProgramName(String.format("java -classpath electionguard-java-all.jar %s", progName));
+    }
+
+    public void printUsage() {
+      jc.usage();
+    }
+  }
+
+  public static void main(String[] args) {
+    String progName = RunAccumulatePartialTally.class.getName();
+    CommandLine cmdLine = null;
+
+    try {
+      cmdLine = new CommandLine(progName, args);
+      if (cmdLine.help) {
+        cmdLine.printUsage();
+        return;
+      }
+    } catch (ParameterException e) {
+      System.err.println(e.getMessage());
+      System.err.printf("Try '%s --help' for more information.%n", progName);
+      System.exit(1);
+    }
+
+    try {
+      Consumer consumer = new Consumer(cmdLine.encryptDir);
+      ElectionRecord electionRecord = consumer.readElectionRecord();
+      ManifestInputValidation validator = new ManifestInputValidation(electionRecord.manifest());
+      Formatter errors = new Formatter();
+      if (!validator.validateElection(errors)) {
+        System.out.printf("*** ElectionInputValidation FAILED on %s%n%s", cmdLine.encryptDir, errors);
+        System.exit(1);
+      }
+
+      System.out.printf(" AccumulatePartialTally shard '%s' read from %s%n Write to %s%n",
+              cmdLine.shardId, cmdLine.encryptDir, cmdLine.outputDir);
+      PartialCiphertextTally partial = accumulate(electionRecord, cmdLine.shardId);
+      if (partial == null) {
+        System.out.printf("*** AccumulatePartialTally FAILURE: the ballots could not be accumulated%n");
+        System.exit(3);
+      }
+      boolean ok = publish(cmdLine.outputDir, partial);
+      System.out.printf("*** AccumulatePartialTally %s%n", ok ? "SUCCESS" : "FAILURE");
+
+    } catch (Throwable t) {
+      System.out.printf("*** AccumulatePartialTally FAILURE%n");
+      t.printStackTrace();
+      System.exit(4);
+    }
+  }
+
+  /** @return the partial tally, or null if the accumulation failed. */
+  @Nullable
+  static PartialCiphertextTally accumulate(ElectionRecord electionRecord, String shardId) {
+    InternalManifest manifest = new InternalManifest(electionRecord.manifest());
+    CiphertextTallyBuilder ciphertextTally = new CiphertextTallyBuilder("accumulateTally", manifest, electionRecord);
+    int nballots = ciphertextTally.batch_append(electionRecord.submittedBallotCiphertexts());
+    if (nballots < 0) {
+      return null;
+    }
+    System.out.printf(" done accumulating %d ballots in shard '%s'%n", nballots, shardId);
+    return ciphertextTally.buildPartial(shardId);
+  }
+
+  static boolean publish(String publishDir, PartialCiphertextTally partial) throws IOException {
+    Publisher publisher = new Publisher(publishDir, Publisher.Mode.createIfMissing);
+    publisher.writePartialCiphertextTally(partial);
+    return true;
+  }
+}
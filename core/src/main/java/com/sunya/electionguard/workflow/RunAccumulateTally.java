@@ -7,7 +7,7 @@ import com.sunya.electionguard.CiphertextTally;
 import com.sunya.electionguard.CiphertextTallyBuilder;
 import com.sunya.electionguard.InternalManifest;
 import com.sunya.electionguard.Manifest;
-import com.sunya.electionguard.Scheduler;
+import com.sunya.electionguard.TaskExecutor;
 import com.sunya.electionguard.input.ManifestInputValidation;
 import com.sunya.electionguard.publish.Consumer;
 import com.sunya.electionguard.publish.Publisher;
@@ -42,7 +42,19 @@ public class RunAccumulateTally {
             description = "Directory where encrypted tally is published", required = true)
     String outputDir;
 
-    @Parameter(names = {"-h", "--help"},  order = 4, description = "Display this help and exit", help = true)
+    @Parameter(names = {"-checkpoint"}, order = 4,
+            description = "Save a checkpoint in the output directory after this many ballots (0 = no checkpoints)")
+    int checkpointInterval = 0;
+
+    @Parameter(names = {"-resume"}, order = 5,
+            description = "Resume from the checkpoint in the output directory, if any")
+    boolean resume = false;
+
+    @Parameter(names = {"-nthreads"}, order = 6,
+            description = "Number of threads for accumulating (default = number of processors)")
+    int nthreads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = {"-h", "--help"},  order = 7, description = "Display this help and exit", help = true)
     boolean help = false;
 
     private final JCommander jc;
@@ -91,8 +103,20 @@ public class RunAccumulateTally {
       // }
 
       System.out.printf(" AccumulateTally read from %s%n Write to %s%n", cmdLine.encryptDir, cmdLine.outputDir);
-      decryptor = new RunAccumulateTally(consumer, electionRecord);
-      decryptor.accumulateTally();
+      TaskExecutor executor = TaskExecutor.builder().setName("AccumulateTally").setParallelism(cmdLine.nthreads).build();
+      decryptor = new RunAccumulateTally(consumer, electionRecord, executor);
+      boolean accumulated;
+      if (cmdLine.checkpointInterval > 0 || cmdLine.resume) {
+        accumulated = decryptor.accumulateTallyWithCheckpoints(cmdLine.outputDir, cmdLine.checkpointInterval, cmdLine.resume);
+      } else {
+        accumulated = decryptor.accumulateTally();
+      }
+      System.out.printf(" %s%n", executor);
+      if (!accumulated) {
+        // dont publish a partial tally, and keep the last checkpoint to resume from
+        System.out.printf("*** AccumulateTally FAILURE: the ballots could not be accumulated%n");
+        System.exit(3);
+      }
       boolean ok = decryptor.publish(cmdLine.encryptDir, cmdLine.outputDir, electionIntialized);
       System.out.printf("*** AccumulateTally %s%n", ok ? "SUCCESS" : "FAILURE");
 
@@ -100,9 +124,6 @@ public class RunAccumulateTally {
       System.out.printf("*** AccumulateTally FAILURE%n");
       t.printStackTrace();
       System.exit(4);
-
-    } finally {
-      Scheduler.shutdown();
     }
   }
 
@@ -111,22 +132,63 @@ public class RunAccumulateTally {
   final ElectionRecord electionRecord;
   final Manifest election;
 
+  final TaskExecutor executor;
+
   CiphertextTally encryptedTally;
 
   public RunAccumulateTally(Consumer consumer, ElectionRecord electionRecord) {
+    this(consumer, electionRecord, TaskExecutor.getDefault());
+  }
+
+  public RunAccumulateTally(Consumer consumer, ElectionRecord electionRecord, TaskExecutor executor) {
     this.consumer = consumer;
+    this.executor = executor;
     this.electionRecord = electionRecord;
     this.election = electionRecord.manifest();
     System.out.printf("%nReady to accumulate%n");
   }
 
-  void accumulateTally() {
+  /** @return false if the accumulation failed. */
+  boolean accumulateTally() {
     System.out.printf("%nAccumulate tally%n");
     InternalManifest manifest = new InternalManifest(electionRecord.manifest());
-    CiphertextTallyBuilder ciphertextTally = new CiphertextTallyBuilder("accumulateTally", manifest, electionRecord);
-    int nballots = ciphertextTally.batch_append(electionRecord.submittedBallots());
+    CiphertextTallyBuilder ciphertextTally = new CiphertextTallyBuilder("accumulateTally", manifest, electionRecord, executor);
+    int nballots = ciphertextTally.batch_append(electionRecord.submittedBallotCiphertexts());
+    if (nballots < 0) {
+      return false;
+    }
     this.encryptedTally = ciphertextTally.build();
     System.out.printf(" done accumulating %d ballots in the tally%n", nballots);
+    return true;
+  }
+
+  /** @return false if the accumulation failed or a checkpoint could not be written; the last checkpoint is kept. */
+  boolean accumulateTallyWithCheckpoints(String outputDir, int checkpointInterval, boolean resume) throws IOException {
+    InternalManifest manifest = new InternalManifest(electionRecord.manifest());
+    Publisher publisher = new Publisher(outputDir, Publisher.Mode.createIfMissing);
+    CiphertextTallyBuilder.Checkpoint checkpoint = resume ? new Consumer(outputDir).readTallyCheckpoint() : null;
+
+    CiphertextTallyBuilder ciphertextTally;
+    long nskip = 0;
+    if (checkpoint == null) {
+      System.out.printf("%nAccumulate tally, checkpoint every %d ballots%n", checkpointInterval);
+      ciphertextTally = new CiphertextTallyBuilder("accumulateTally", manifest, electionRecord, executor);
+    } else {
+      nskip = checkpoint.ballotsRead();
+      System.out.printf("%nResume accumulate tally after %d ballots read, %d in the tally%n",
+              nskip, checkpoint.castBallotCount());
+      ciphertextTally = new CiphertextTallyBuilder("accumulateTally", manifest, electionRecord, checkpoint, executor);
+    }
+
+    int nballots = ciphertextTally.batch_append(consumer.iterateSubmittedBallotCiphertexts(nskip), checkpointInterval,
+            publisher::writeTallyCheckpoint);
+    if (nballots < 0) {
+      return false;
+    }
+    this.encryptedTally = ciphertextTally.build();
+    System.out.printf(" done accumulating %d ballots in the tally (%d in this run)%n",
+            ciphertextTally.castBallotCount(), nballots);
+    return true;
   }
 
   boolean publish(String inputDir, String publishDir, ElectionInitialized electionIntialized) throws IOException {
@@ -140,6 +202,7 @@ public class RunAccumulateTally {
     Publisher publisher = new Publisher(publishDir, Publisher.Mode.createIfMissing);
     publisher.writeTallyResult(tally);
     publisher.copyAcceptedBallots(inputDir);
+    publisher.deleteTallyCheckpoint();
     return true;
   }
 }
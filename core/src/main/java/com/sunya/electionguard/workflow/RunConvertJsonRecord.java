@@ -8,7 +8,6 @@ import com.sunya.electionguard.ElectionConstants;
 import com.sunya.electionguard.ElectionCryptoContext;
 import com.sunya.electionguard.Manifest;
 import com.sunya.electionguard.PlaintextTally;
-import com.sunya.electionguard.Scheduler;
 import com.sunya.electionguard.core.UInt256;
 import com.sunya.electionguard.json.JsonConsumer;
 import com.sunya.electionguard.publish.ElectionRecordPath;
@@ -93,9 +92,6 @@ public class RunConvertJsonRecord {
       System.out.printf("*** RunConvertJsonRecord FAILURE%n");
       t.printStackTrace();
       System.exit(4);
-
-    } finally {
-      Scheduler.shutdown();
     }
   }
 
@@ -3,6 +3,9 @@ package com.sunya.electionguard.workflow;
 import com.beust.jcommander.*;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.sunya.electionguard.BallotBox;
 import com.sunya.electionguard.InternalManifest;
 import com.sunya.electionguard.SubmittedBallot;
@@ -15,6 +18,7 @@ import com.sunya.electionguard.input.ManifestInputValidation;
 import com.sunya.electionguard.publish.Consumer;
 import com.sunya.electionguard.publish.PrivateData;
 import com.sunya.electionguard.publish.Publisher;
+import com.sunya.electionguard.publish.SubmittedBallotIndex;
 import com.sunya.electionguard.publish.ElectionRecord;
 import electionguard.ballot.ElectionInitialized;
 
@@ -26,6 +30,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A command line program to encrypt a collection of ballots.
@@ -130,13 +135,23 @@ public class RunEncryptBallots {
     }
     System.out.printf("   Write to %s%n", cmdLine.encryptDir);
     RunEncryptBallots encryptor = new RunEncryptBallots(electionRecord, cmdLine.deviceName);
+    // write each ballot as soon as it is accepted, replacing the ballots of any earlier run
+    Publisher publisher = new Publisher(cmdLine.encryptDir, Publisher.Mode.createIfMissing);
+    publisher.writeElectionInitialized(electionInit);
+    publisher.deleteSubmittedBallots();
+    publisher.openSubmittedBallots(Publisher.DEFAULT_SYNC_INTERVAL, Publisher.DEFAULT_QUEUE_SIZE);
     Stopwatch stopwatch = Stopwatch.createStarted();
 
     BallotInputValidation ballotValidator = new BallotInputValidation(electionRecord.manifest());
     List<PlaintextBallot> originalBallots = new ArrayList<>();
     List<PlaintextBallot> invalidBallots = new ArrayList<>();
+    // the first ballot that could not be written; stop encrypting rather than find out at close
+    AtomicReference<Throwable> writeFailure = new AtomicReference<>();
     try {
       for (PlaintextBallot ballot : ballotProvider.ballots()) {
+        if (writeFailure.get() != null) {
+          throw new IOException("failed to write a submitted ballot", writeFailure.get());
+        }
         Formatter problems = new Formatter();
         if (ballotValidator.validateBallot(ballot, problems)) {
           Optional<CiphertextBallot> encrypted_ballot = encryptor.encryptBallot(ballot);
@@ -146,6 +161,16 @@ public class RunEncryptBallots {
               System.out.printf("***castOrSpoil failed%n");
             } else {
               System.out.printf("***castOrSpoil success %s%n", encrypted_ballot.get().ballotId);
+              Futures.addCallback(publisher.appendSubmittedBallot(accepted.get()), new FutureCallback<>() {
+                @Override
+                public void onSuccess(SubmittedBallotIndex.Entry entry) {
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                  writeFailure.compareAndSet(null, t);
+                }
+              }, MoreExecutors.directExecutor());
             }
           } else {
             System.out.printf("***Encryption failed%n");
@@ -166,7 +191,7 @@ public class RunEncryptBallots {
 
     try {
       // publish
-      Publisher publish = encryptor.publish(cmdLine.encryptDir, electionInit);
+      encryptor.publish(publisher);
       encryptor.saveInvalidBallots(cmdLine.encryptDir, invalidBallots);
       if (cmdLine.save) {
         encryptor.saveOriginalBallots(cmdLine.encryptDir, originalBallots);
@@ -232,17 +257,14 @@ public class RunEncryptBallots {
     }
   }
 
-  Publisher publish(String publishDir, ElectionInitialized electionInit) throws IOException {
+  /** Wait for the appended ballots to be on disk, and write the ballot index. */
+  void publish(Publisher publisher) throws IOException {
+    int nwritten = publisher.closeSubmittedBallots();
     int ncast = Iterables.size(this.ballotBox.getCastBallots());
     int nspoiled = Iterables.size(this.ballotBox.getSpoiledBallots());
     int failed = originalBallotsCount - ncast - nspoiled;
-    System.out.printf("%nPublish cast = %d spoiled = %d failed = %d total = %d%n%n",
-            ncast, nspoiled, failed, originalBallotsCount);
-
-    Publisher publisher = new Publisher(publishDir, Publisher.Mode.createIfMissing);
-    publisher.writeElectionInitialized(electionInit);
-    publisher.writeSubmittedBallots(this.ballotBox.getAllBallots());
-    return publisher;
+    System.out.printf("%nPublish cast = %d spoiled = %d failed = %d total = %d written = %d%n%n",
+            ncast, nspoiled, failed, originalBallotsCount, nwritten);
   }
 
   void saveOriginalBallots(String outputDir, List<PlaintextBallot> ballots) throws IOException {
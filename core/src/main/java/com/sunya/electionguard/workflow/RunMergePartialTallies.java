@@ -0,0 +1,132 @@
+package com.sunya.electionguard.workflow;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.sunya.electionguard.CiphertextTally;
+import com.sunya.electionguard.CiphertextTallyBuilder;
+import com.sunya.electionguard.InternalManifest;
+import com.sunya.electionguard.PartialCiphertextTally;
+import com.sunya.electionguard.publish.Consumer;
+import com.sunya.electionguard.publish.ElectionRecord;
+import com.sunya.electionguard.publish.Publisher;
+import electionguard.ballot.ElectionInitialized;
+import electionguard.ballot.TallyResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * A command line program to merge the partial tallies made by RunAccumulatePartialTally into the encrypted tally.
+ * Fails if any ballot appears in more than one partial tally.
+ * <p>
+ * For command line help:
+ * <strong>
+ * <pre>
+ *  java -classpath electionguard-java-all.jar com.sunya.electionguard.workflow.RunMergePartialTallies --help
+ * </pre>
+ * </strong>
+ */
+public class RunMergePartialTallies {
+
+  private static class CommandLine {
+    @Parameter(names = {"-in"}, order = 0,
+            description = "Directory containing input election record", required = true)
+    String inputDir;
+
+    @Parameter(names = {"-partials"}, order = 1, variableArity = true,
+            description = "Directories containing the partial tallies to merge", required = true)
+    List<String> partialDirs = new ArrayList<>();
+
+    @Parameter(names = {"-out"}, order = 3,
+            description = "Directory where encrypted tally is published", required = true)
+    String outputDir;
+
+    @Parameter(names = {"-h", "--help"},  order = 4, description = "Display this help and exit", help = true)
+    boolean help = false;
+
+    private final JCommander jc;
+
+    public CommandLine(String progName, String[] args) throws ParameterException {
+      this.jc = new JCommander(this);
+      this.jc.parse(args);
+      jc.setProgramName(String.format("java -classpath electionguard-java-all.jar %s", progName));
+    }
+
+    public void printUsage() {
+      jc.usage();
+    }
+  }
+
+  public static void main(String[] args) {
+    String progName = RunMergePartialTallies.class.getName();
+    CommandLine cmdLine = null;
+
+    try {
+      cmdLine = new CommandLine(progName, args);
+      if (cmdLine.help) {
+        cmdLine.printUsage();
+        return;
+      }
+    } catch (ParameterException e) {
+      System.err.println(e.getMessage());
+      System.err.printf("Try '%s --help' for more information.%n", progName);
+      System.exit(1);
+    }
+
+    try {
+      Consumer consumer = new Consumer(cmdLine.inputDir);
+      ElectionRecord electionRecord = consumer.readElectionRecord();
+      ElectionInitialized electionInitialized = consumer.readElectionInitialized();
+
+      System.out.printf(" MergePartialTallies read from %s%n Write to %s%n", cmdLine.partialDirs, cmdLine.outputDir);
+      List<PartialCiphertextTally> partials = new ArrayList<>();
+      for (String partialDir : cmdLine.partialDirs) {
+        partials.addAll(new Consumer(partialDir).readPartialCiphertextTallies());
+      }
+
+      CiphertextTally merged = merge(electionRecord, partials);
+      boolean ok = merged != null && publish(cmdLine.outputDir, electionInitialized, merged);
+      System.out.printf("*** MergePartialTallies %s%n", ok ? "SUCCESS" : "FAILURE");
+      if (!ok) {
+        System.exit(2);
+      }
+
+    } catch (Throwable t) {
+      System.out.printf("*** MergePartialTallies FAILURE%n");
+      t.printStackTrace();
+      System.exit(4);
+    }
+  }
+
+  /** Merge the partial tallies, return null on failure. */
+  static CiphertextTally merge(ElectionRecord electionRecord, List<PartialCiphertextTally> partials) {
+    InternalManifest manifest = new InternalManifest(electionRecord.manifest());
+    CiphertextTallyBuilder ciphertextTally = new CiphertextTallyBuilder("accumulateTally", manifest, electionRecord);
+    for (PartialCiphertextTally partial : partials) {
+      if (!ciphertextTally.merge(partial)) {
+        System.out.printf(" *** failed to merge shard '%s'%n", partial.shardId());
+        return null;
+      }
+      System.out.printf(" merged shard '%s' with %d ballots%n", partial.shardId(), partial.ballotCount());
+    }
+    System.out.printf(" done merging %d shards with %d ballots in the tally%n", partials.size(), ciphertextTally.castBallotCount());
+    return ciphertextTally.build();
+  }
+
+  static boolean publish(String publishDir, ElectionInitialized electionInitialized, CiphertextTally encryptedTally) throws IOException {
+    TallyResult tally = new TallyResult(
+            electionInitialized,
+            encryptedTally,
+            emptyList(),
+            emptyList()
+    );
+
+    Publisher publisher = new Publisher(publishDir, Publisher.Mode.createIfMissing);
+    publisher.writeTallyResult(tally);
+    return true;
+  }
+}
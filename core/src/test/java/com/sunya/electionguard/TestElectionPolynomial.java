@@ -44,4 +44,21 @@ public class TestElectionPolynomial {
     Group.ElementModP value = ElectionPolynomial.compute_gPcoordinate(BigInteger.ZERO, polynomial.coefficient_commitments);
     assertThat(value).isEqualTo(polynomial.coefficient_commitments.get(0));
   }
+
+  @Example
+  public void test_compute_gPcoordinate_matches_product() {
+    ElectionPolynomial polynomial = generate_polynomial(TEST_POLYNOMIAL_DEGREE, null);
+    for (int x = 1; x < 10; x++) {
+      BigInteger coordinate = BigInteger.valueOf(x);
+      ElementModP expected = ONE_MOD_P;
+      for (int j = 0; j < TEST_POLYNOMIAL_DEGREE; j++) {
+        expected = mult_p(expected, pow_p(polynomial.coefficient_commitments.get(j), pow_q(coordinate, BigInteger.valueOf(j))));
+      }
+      assertThat(compute_gPcoordinate(coordinate, polynomial.coefficient_commitments)).isEqualTo(expected);
+      // cached
+      assertThat(compute_gPcoordinate(coordinate, polynomial.coefficient_commitments)).isEqualTo(expected);
+      assertThat(compute_gPcoordinate(coordinate, polynomial.coefficient_commitments))
+              .isEqualTo(g_pow_p(compute_polynomial_coordinate(coordinate, polynomial)));
+    }
+  }
 }
@@ -182,9 +182,8 @@ public class TestElgamalProperties extends TestProperties {
       tasks.add(new TestKeypairFromSecret(nonces.get(i)));
     }
 
-    Scheduler<KeyPair> subject = new Scheduler<>();
     Stopwatch stopwatch = Stopwatch.createStarted();
-    List<KeyPair> keypairs = subject.schedule(tasks, false);
+    List<KeyPair> keypairs = TaskExecutor.getDefault().invokeAll(tasks);
     double ptime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
     System.out.printf("Parallel %.3f%n", ptime);
 
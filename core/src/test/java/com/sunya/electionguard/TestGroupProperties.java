@@ -58,6 +58,18 @@ public class TestGroupProperties extends TestProperties {
     assertThat(mult_p(p_no_zero, inv)).isEqualTo(ONE_MOD_P);
   }
 
+  @Property(tries = 10)
+  public void test_mult_inv_pi(
+          @ForAll("elements_mod_p_no_zero") ElementModP p1,
+          @ForAll("elements_mod_p_no_zero") ElementModP p2,
+          @ForAll("elements_mod_p_no_zero") ElementModP p3) {
+    BigInteger[] inverses = mult_inv_pi(new BigInteger[] {p1.elem, p2.elem, p3.elem});
+    assertThat(inverses[0]).isEqualTo(mult_inv_p(p1).elem);
+    assertThat(inverses[1]).isEqualTo(mult_inv_p(p2).elem);
+    assertThat(inverses[2]).isEqualTo(mult_inv_p(p3).elem);
+    assertThat(mult_inv_pi(new BigInteger[0])).isEmpty();
+  }
+
   @Property
   public void test_mult_identity(@ForAll("elements_mod_p") ElementModP p) {
     assertThat(p).isEqualTo(mult_p(p));
@@ -0,0 +1,68 @@
+package com.sunya.electionguard;
+
+import net.jqwik.api.Example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestSelectionBatches {
+
+  @Example
+  public void testProcessKeepsOrder() {
+    List<Integer> sequential = SelectionBatches.process(null, 1000, i -> i * i);
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      List<Integer> parallel = SelectionBatches.process(pool, 1000, i -> i * i);
+      assertThat(parallel).containsExactlyElementsIn(sequential).inOrder();
+      assertThat(SelectionBatches.process(pool, 0, i -> i)).isEmpty();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Example
+  public void testFlattenAndGroup() {
+    ElGamal.Ciphertext text = new ElGamal.Ciphertext(Group.ONE_MOD_P, Group.ONE_MOD_P);
+    List<List<CiphertextContest>> owners = new ArrayList<>();
+    for (int owner = 0; owner < 3; owner++) {
+      List<CiphertextContest> contests = new ArrayList<>();
+      for (int c = 0; c < 2; c++) {
+        List<CiphertextSelection> selections = new ArrayList<>();
+        for (int s = 0; s < 4; s++) {
+          selections.add(new CiphertextSelection("selection" + s, s, Group.ONE_MOD_Q, text, false));
+        }
+        contests.add(new CiphertextContest("contest" + c, Group.ONE_MOD_Q, selections));
+      }
+      owners.add(contests);
+    }
+
+    List<SelectionBatches.Item> items = SelectionBatches.flatten(owners);
+    assertThat(items).hasSize(3 * 2 * 4);
+
+    // fail one selection of owner 1
+    List<Optional<String>> results;
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      results = SelectionBatches.process(pool, items.size(), i -> {
+        SelectionBatches.Item item = items.get(i);
+        boolean fail = item.owner() == 1 && item.contest().object_id.equals("contest1") && item.selection().object_id().equals("selection2");
+        return fail ? Optional.empty() : Optional.of(item.owner() + ":" + item.contest().object_id + ":" + item.selection().object_id());
+      });
+    } finally {
+      pool.shutdown();
+    }
+
+    List<Optional<Map<String, Map<String, String>>>> grouped = SelectionBatches.group(owners.size(), items, results);
+    assertThat(grouped).hasSize(3);
+    assertThat(grouped.get(1)).isEqualTo(Optional.empty());
+    Map<String, Map<String, String>> owner2 = grouped.get(2).orElseThrow();
+    assertThat(owner2.keySet()).containsExactly("contest0", "contest1");
+    assertThat(owner2.get("contest1")).hasSize(4);
+    assertThat(owner2.get("contest1").get("selection3")).isEqualTo("2:contest1:selection3");
+  }
+}
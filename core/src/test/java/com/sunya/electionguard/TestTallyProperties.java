@@ -1,10 +1,22 @@
 package com.sunya.electionguard;
 
+import com.sunya.electionguard.protoconvert.CiphertextTallyFromProto;
+import com.sunya.electionguard.protoconvert.CiphertextTallyToProto;
+import com.sunya.electionguard.publish.Consumer;
+import com.sunya.electionguard.publish.Publisher;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
 import net.jqwik.api.ForAll;
 import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
 import net.jqwik.api.ShrinkingMode;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -76,6 +88,156 @@ public class TestTallyProperties extends TestProperties {
     }
   }
 
+  @Property(tries = 3, shrinking = ShrinkingMode.OFF)
+  public void test_tally_merge_partial_tallies(
+          @ForAll("elections_and_ballots") ElectionTestHelper.EverythingTuple everything) {
+
+    Map<String, Integer> plaintext_tallies = TallyTestHelper.accumulate_plaintext_ballots(everything.ballots);
+
+    // encrypt and cast each ballot, alternating between two shards
+    List<SubmittedBallot> shard0 = new ArrayList<>();
+    List<SubmittedBallot> shard1 = new ArrayList<>();
+    Group.ElementModQ seed_hash = Encrypt.createDeviceForTest("Location").get_hash();
+    int count = 0;
+    for (PlaintextBallot ballot : everything.ballots) {
+      Optional<CiphertextBallot> encrypted_ballotO = Encrypt.encrypt_ballot(
+              ballot, everything.metadata, everything.context, seed_hash, Optional.empty(), true);
+      assertThat(encrypted_ballotO).isPresent();
+      CiphertextBallot encrypted_ballot = encrypted_ballotO.get();
+      seed_hash = encrypted_ballot.code;
+      SubmittedBallot cast = encrypted_ballot.acceptWithState(BallotBox.State.CAST);
+      (count++ % 2 == 0 ? shard0 : shard1).add(cast);
+    }
+
+    CiphertextTallyBuilder builder0 = new CiphertextTallyBuilder("whatever", everything.metadata, everything.context);
+    builder0.batch_append(shard0);
+    PartialCiphertextTally partial0 = builder0.buildPartial("shard0");
+    assertThat(partial0.ballotCount()).isEqualTo(shard0.size());
+
+    CiphertextTallyBuilder builder1 = new CiphertextTallyBuilder("whatever", everything.metadata, everything.context);
+    builder1.batch_append(shard1);
+    PartialCiphertextTally partial1 = builder1.buildPartial("shard1");
+
+    // roundtrip through proto
+    PartialCiphertextTally roundtrip = CiphertextTallyFromProto.importPartialCiphertextTally(
+            CiphertextTallyToProto.publishPartialCiphertextTally(partial1));
+    assertThat(roundtrip).isEqualTo(partial1);
+    assertThat(roundtrip.ballotIdsDigest).isEqualTo(partial1.ballotIdsDigest);
+
+    CiphertextTallyBuilder merged = new CiphertextTallyBuilder("whatever", everything.metadata, everything.context);
+    assertThat(merged.merge(partial0)).isTrue();
+    assertThat(merged.merge(roundtrip)).isTrue();
+    assertThat(merged.castBallotCount()).isEqualTo(everything.ballots.size());
+
+    // a shard cannot be merged twice
+    assertThat(merged.merge(partial0)).isFalse();
+
+    Map<String, Integer> decrypted_tallies = this.decrypt_with_secret(merged, everything.secret_key);
+    assertThat(plaintext_tallies).isEqualTo(decrypted_tallies);
+  }
+
+  @Property(tries = 3, shrinking = ShrinkingMode.OFF)
+  public void test_tally_resume_from_checkpoint(
+          @ForAll("elections_and_ballots") ElectionTestHelper.EverythingTuple everything) throws IOException {
+
+    Map<String, Integer> plaintext_tallies = TallyTestHelper.accumulate_plaintext_ballots(everything.ballots);
+
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    Group.ElementModQ seed_hash = Encrypt.createDeviceForTest("Location").get_hash();
+    for (PlaintextBallot ballot : everything.ballots) {
+      Optional<CiphertextBallot> encrypted_ballotO = Encrypt.encrypt_ballot(
+              ballot, everything.metadata, everything.context, seed_hash, Optional.empty(), true);
+      assertThat(encrypted_ballotO).isPresent();
+      CiphertextBallot encrypted_ballot = encrypted_ballotO.get();
+      seed_hash = encrypted_ballot.code;
+      ballots.add(encrypted_ballot.acceptWithState(BallotBox.State.CAST));
+    }
+
+    // checkpoint after every ballot, and crash after the middle one
+    Path topdir = Files.createTempDirectory("test_tally_resume_from_checkpoint");
+    Publisher publisher = new Publisher(topdir.toString(), Publisher.Mode.createIfMissing);
+    int crashAfter = ballots.size() / 2;
+    List<CiphertextTallyBuilder.Checkpoint> checkpoints = new ArrayList<>();
+    CiphertextTallyBuilder first = new CiphertextTallyBuilder("whatever", everything.metadata, everything.context);
+    assertThat(first.batch_append(ballots, 1, checkpoint -> {
+      if (checkpoint.ballotsRead() > crashAfter) {
+        throw new IOException("crash");
+      }
+      publisher.writeTallyCheckpoint(checkpoint);
+      checkpoints.add(checkpoint);
+    })).isEqualTo(-1);
+    // each checkpoint has only the ballot added since the previous one
+    assertThat(checkpoints).hasSize(crashAfter);
+    for (CiphertextTallyBuilder.Checkpoint checkpoint : checkpoints) {
+      assertThat(checkpoint.newBallotIds()).hasSize(1);
+    }
+
+    CiphertextTallyBuilder.Checkpoint middle = new Consumer(topdir.toString()).readTallyCheckpoint();
+    int nread = (int) middle.ballotsRead();
+    assertThat(nread).isEqualTo(crashAfter);
+    assertThat(middle.newBallotIds()).containsExactlyElementsIn(
+            ballots.subList(0, nread).stream().map(SubmittedBallot::object_id).toList()).inOrder();
+
+    CiphertextTallyBuilder resumed = new CiphertextTallyBuilder("whatever", everything.metadata, everything.context, middle);
+    assertThat(resumed.batch_append(ballots.subList(nread, ballots.size()), 2, publisher::writeTallyCheckpoint))
+            .isEqualTo(ballots.size() - nread);
+    assertThat(resumed.castBallotCount()).isEqualTo(ballots.size());
+    CiphertextTallyBuilder.Checkpoint last = new Consumer(topdir.toString()).readTallyCheckpoint();
+    assertThat(last.castBallotCount()).isEqualTo(ballots.size());
+    assertThat(last.newBallotIds()).containsExactlyElementsIn(
+            ballots.stream().map(SubmittedBallot::object_id).toList()).inOrder();
+
+    Map<String, Integer> decrypted_tallies = this.decrypt_with_secret(resumed, everything.secret_key);
+    assertThat(plaintext_tallies).isEqualTo(decrypted_tallies);
+  }
+
+  /** More ballots than the smallest chunk that the fork-join accumulation splits, so that it splits several times. */
+  @Provide
+  Arbitrary<ElectionTestHelper.EverythingTuple> elections_and_many_ballots() {
+    ElectionTestHelper helper = new ElectionTestHelper(random);
+    return Arbitraries.of(helper.elections_and_ballots(50 + random.nextInt(10)));
+  }
+
+  @Property(tries = 1, shrinking = ShrinkingMode.OFF)
+  public void test_tally_batch_append_equals_append(
+          @ForAll("elections_and_many_ballots") ElectionTestHelper.EverythingTuple everything) {
+
+    // cast most of the ballots, spoil some
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    Group.ElementModQ seed_hash = Encrypt.createDeviceForTest("Location").get_hash();
+    for (PlaintextBallot ballot : everything.ballots) {
+      Optional<CiphertextBallot> encrypted_ballotO = Encrypt.encrypt_ballot(
+              ballot, everything.metadata, everything.context, seed_hash, Optional.empty(), true);
+      assertThat(encrypted_ballotO).isPresent();
+      CiphertextBallot encrypted_ballot = encrypted_ballotO.get();
+      seed_hash = encrypted_ballot.code;
+      BallotBox.State state = (ballots.size() % 5 == 4) ? BallotBox.State.SPOILED : BallotBox.State.CAST;
+      ballots.add(encrypted_ballot.acceptWithState(state));
+    }
+    int ncast = (int) ballots.stream().filter(b -> b.state == BallotBox.State.CAST).count();
+
+    CiphertextTallyBuilder sequential = new CiphertextTallyBuilder("whatever", everything.metadata, everything.context);
+    for (SubmittedBallot ballot : ballots) {
+      assertThat(sequential.append(ballot)).isTrue();
+    }
+    assertThat(sequential.castBallotCount()).isEqualTo(ncast);
+
+    TaskExecutor executor = TaskExecutor.builder().setName("test_tally_batch_append_equals_append").setParallelism(3).build();
+    try {
+      // one batch, which is split into chunks
+      CiphertextTallyBuilder oneBatch = new CiphertextTallyBuilder("whatever", everything.metadata, everything.context, executor);
+      assertThat(oneBatch.batch_append(ballots)).isEqualTo(ncast);
+      assertThat(oneBatch.build()).isEqualTo(sequential.build());
+
+      // batches smaller than a chunk
+      CiphertextTallyBuilder smallBatches = new CiphertextTallyBuilder("whatever", everything.metadata, everything.context, executor);
+      assertThat(smallBatches.batch_append(ballots, 7, null)).isEqualTo(ncast);
+      assertThat(smallBatches.build()).isEqualTo(sequential.build());
+    } finally {
+      executor.close();
+    }
+  }
+
   // LOOK this assumes mutability, must be rewritten
   @Property(tries = 3, shrinking = ShrinkingMode.OFF)
   public void test_tally_ballot_invalid_input_fails(
@@ -0,0 +1,86 @@
+package com.sunya.electionguard;
+
+import net.jqwik.api.Example;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestTaskExecutor {
+
+  @Example
+  public void testInvokeAllKeepsOrder() {
+    try (TaskExecutor subject = TaskExecutor.builder().setName("testOrder").setParallelism(3).build()) {
+      List<Callable<Integer>> tasks = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        int value = i;
+        tasks.add(() -> value);
+      }
+      List<Integer> results = subject.invokeAll(tasks);
+      for (int i = 0; i < 100; i++) {
+        assertThat(results.get(i)).isEqualTo(i);
+      }
+
+      TaskExecutor.Metrics metrics = subject.metrics();
+      assertThat(metrics.completed()).isEqualTo(100);
+      assertThat(metrics.failed()).isEqualTo(0);
+      assertThat(metrics.queued()).isEqualTo(0);
+      assertThat(metrics.running()).isEqualTo(0);
+    }
+  }
+
+  @Example
+  public void testProcess() {
+    try (TaskExecutor subject = TaskExecutor.builder().setName("testProcess").setParallelism(2).build()) {
+      List<Integer> results = subject.process(1000, i -> 2 * i);
+      assertThat(results).hasSize(1000);
+      assertThat(results.get(999)).isEqualTo(1998);
+      assertThat(subject.metrics().completed()).isEqualTo(1000);
+    }
+  }
+
+  @Example
+  public void testTimeoutCancels() {
+    CountDownLatch never = new CountDownLatch(1);
+    try (TaskExecutor subject = TaskExecutor.builder().setName("testTimeout").setParallelism(2).build()) {
+      List<Callable<Boolean>> tasks = List.of(() -> never.await() || true);
+      try {
+        subject.invokeAll(tasks, Duration.ofMillis(100));
+        fail();
+      } catch (RuntimeException e) {
+        assertThat(e.getMessage()).contains("did not finish");
+      }
+    }
+  }
+
+  @Example
+  public void testTaskFails() {
+    try (TaskExecutor subject = TaskExecutor.builder().setName("testFails").setParallelism(2).build()) {
+      List<Callable<Integer>> tasks = List.of(() -> 1, () -> {
+        throw new IllegalStateException("bad");
+      });
+      try {
+        subject.invokeAll(tasks);
+        fail();
+      } catch (IllegalStateException e) {
+        assertThat(e.getMessage()).isEqualTo("bad");
+      }
+      assertThat(subject.metrics().failed()).isEqualTo(1);
+    }
+  }
+
+  @Example
+  public void testVirtualThreadsFallback() {
+    try (TaskExecutor subject = TaskExecutor.builder().setName("testVirtual").setVirtualThreads(true).build()) {
+      // virtual threads need Java 21, otherwise platform threads are used
+      assertThat(subject.usesVirtualThreads()).isEqualTo(Runtime.version().feature() >= 21);
+      List<Callable<Integer>> tasks = List.of(() -> 42);
+      assertThat(subject.invokeAll(tasks)).containsExactly(42);
+    }
+  }
+}
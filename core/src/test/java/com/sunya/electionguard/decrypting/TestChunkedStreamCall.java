@@ -0,0 +1,163 @@
+package com.sunya.electionguard.decrypting;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sunya.electionguard.ElGamal;
+import com.sunya.electionguard.Group;
+import com.sunya.electionguard.protoconvert.CommonConvert;
+import electionguard.protogen.DecryptingTrusteeProto;
+import electionguard.protogen.DecryptingTrusteeServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import net.jqwik.api.Example;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Test ChunkedStreamCall against an in-process server that answers each chunk with one response. */
+public class TestChunkedStreamCall {
+
+  /**
+   * Responds to each request with the number of texts it had, in the error field so the response is easy to check.
+   * Fails the call after failAfter requests.
+   */
+  private static class EchoService extends DecryptingTrusteeServiceGrpc.DecryptingTrusteeServiceImplBase {
+    final int failAfter;
+
+    EchoService(int failAfter) {
+      this.failAfter = failAfter;
+    }
+
+    @Override
+    public StreamObserver<DecryptingTrusteeProto.PartialDecryptionRequest> partialDecryptStream(
+            StreamObserver<DecryptingTrusteeProto.PartialDecryptionResponse> responseObserver) {
+      return new StreamObserver<>() {
+        int count;
+        boolean failed;
+
+        @Override
+        public void onNext(DecryptingTrusteeProto.PartialDecryptionRequest request) {
+          if (failed) {
+            return;
+          }
+          if (++count > failAfter) {
+            failed = true;
+            responseObserver.onError(Status.INTERNAL.withDescription("failed").asRuntimeException());
+            return;
+          }
+          responseObserver.onNext(DecryptingTrusteeProto.PartialDecryptionResponse.newBuilder()
+                  .setError(Integer.toString(request.getTextCount()))
+                  .build());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+          if (!failed) {
+            responseObserver.onCompleted();
+          }
+        }
+      };
+    }
+  }
+
+  private static DecryptingTrusteeProto.PartialDecryptionRequest makeRequest(int ntexts) {
+    ElGamal.Ciphertext text = new ElGamal.Ciphertext(Group.TWO_MOD_P, Group.TWO_MOD_P);
+    DecryptingTrusteeProto.PartialDecryptionRequest.Builder builder = DecryptingTrusteeProto.PartialDecryptionRequest.newBuilder();
+    for (int i = 0; i < ntexts; i++) {
+      builder.addText(CommonConvert.publishCiphertext(text));
+    }
+    return builder.build();
+  }
+
+  private static List<DecryptingTrusteeProto.PartialDecryptionRequest> makeRequests(int nchunks) {
+    return IntStream.rangeClosed(1, nchunks).mapToObj(TestChunkedStreamCall::makeRequest).toList();
+  }
+
+  private <T> T withServer(EchoService service, Function<DecryptingTrusteeServiceGrpc.DecryptingTrusteeServiceStub, T> test) throws Exception {
+    String name = InProcessServerBuilder.generateName();
+    Server server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+    ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    try {
+      return test.apply(DecryptingTrusteeServiceGrpc.newStub(channel));
+    } finally {
+      channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+      server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Example
+  public void testResponsesInOrder() throws Exception {
+    List<DecryptingTrusteeProto.PartialDecryptionResponse> responses = withServer(new EchoService(Integer.MAX_VALUE),
+            stub -> getUnchecked(ChunkedStreamCall.start(makeRequests(50).iterator(), stub::partialDecryptStream)));
+    assertThat(responses).hasSize(50);
+    for (int i = 0; i < responses.size(); i++) {
+      assertThat(responses.get(i).getError()).isEqualTo(Integer.toString(i + 1));
+    }
+  }
+
+  @Example
+  public void testNoChunks() throws Exception {
+    List<DecryptingTrusteeProto.PartialDecryptionResponse> responses = withServer(new EchoService(Integer.MAX_VALUE),
+            stub -> getUnchecked(ChunkedStreamCall.start(makeRequests(0).iterator(), stub::partialDecryptStream)));
+    assertThat(responses).isEmpty();
+  }
+
+  @Example
+  public void testServerFails() throws Exception {
+    ExecutionException e = withServer(new EchoService(3), stub -> {
+      ListenableFuture<List<DecryptingTrusteeProto.PartialDecryptionResponse>> result =
+              ChunkedStreamCall.start(makeRequests(10).iterator(), stub::partialDecryptStream);
+      return assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    });
+    assertThat(Status.fromThrowable(e.getCause()).getCode()).isEqualTo(Status.Code.INTERNAL);
+  }
+
+  @Example
+  public void testMakingRequestFails() throws Exception {
+    List<DecryptingTrusteeProto.PartialDecryptionRequest> requests = makeRequests(3);
+    Iterator<DecryptingTrusteeProto.PartialDecryptionRequest> chunks = new Iterator<>() {
+      int count;
+
+      @Override
+      public boolean hasNext() {
+        return true;
+      }
+
+      @Override
+      public DecryptingTrusteeProto.PartialDecryptionRequest next() {
+        if (count >= requests.size()) {
+          throw new IllegalStateException("cannot make request");
+        }
+        return requests.get(count++);
+      }
+    };
+    ExecutionException e = withServer(new EchoService(Integer.MAX_VALUE), stub -> {
+      ListenableFuture<List<DecryptingTrusteeProto.PartialDecryptionResponse>> result =
+              ChunkedStreamCall.start(chunks, stub::partialDecryptStream);
+      return assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    });
+    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+  }
+
+  private static <T> T getUnchecked(ListenableFuture<T> future) {
+    try {
+      return future.get(5, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package com.sunya.electionguard.decrypting;
 
 import com.google.common.base.Stopwatch;
+import com.sunya.electionguard.DecryptWithShares;
+import com.sunya.electionguard.DecryptionShare;
 import com.sunya.electionguard.Group;
 import com.sunya.electionguard.PlaintextBallot;
 import com.sunya.electionguard.PlaintextTally;
@@ -16,11 +18,13 @@ import net.jqwik.api.Example;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -125,6 +129,28 @@ public class TestDecryptingMediator extends TestProperties {
     checkDecrypted(spoiledBallots);
   }
 
+  @Example
+  public void testDecryptTallyParallel() {
+    Map<String, DecryptionShare> shares = new HashMap<>();
+    for (DecryptingTrusteeIF trustee : this.trustees) {
+      shares.put(trustee.id(), RemoteDecryptions.computeDecryptionShareForTally(
+              trustee, this.electionRecord.ciphertextTally(), this.electionRecord));
+    }
+
+    PlaintextTally sequential = DecryptWithShares.decrypt_tally(
+            this.electionRecord.ciphertextTally(), shares, this.electionRecord, null).orElseThrow();
+    PlaintextTally parallel;
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      parallel = DecryptWithShares.decrypt_tally(
+              this.electionRecord.ciphertextTally(), shares, this.electionRecord, pool).orElseThrow();
+    } finally {
+      pool.shutdown();
+    }
+    assertThat(parallel).isEqualTo(sequential);
+    assertThat(this.convertToCounts(parallel)).isEqualTo(this.expectedTally);
+  }
+
   @Example
   public void testCompensateMissingGuardian() throws IOException {
     DecryptingMediator mediator = makeDecryptingMediator();
@@ -147,6 +173,46 @@ public class TestDecryptingMediator extends TestProperties {
     System.out.printf("  decrypt_spoiled_ballots took %s for %d spoiled ballots%n", stopwatch, spoiledBallots.size());
   }
 
+  @Example
+  public void testDecryptSpoiledInBatches() throws IOException {
+    DecryptingMediator mediator = makeDecryptingMediator();
+    assertThat(mediator.announce(this.trustees.get(0))).isTrue();
+    assertThat(mediator.announce(this.trustees.get(1))).isTrue();
+    assertThat(mediator.announce(this.trustees.get(3))).isTrue();
+
+    List<PlaintextTally> batched = new ArrayList<>();
+    mediator.decrypt_spoiled_ballots(2).forEach(batched::add);
+    checkDecrypted(batched);
+
+    List<PlaintextTally> all = mediator.decrypt_spoiled_ballots().orElseThrow();
+    assertThat(batched).containsExactlyElementsIn(all).inOrder();
+  }
+
+  @Example
+  public void testProgressEachTrustee() {
+    List<String> completed = Collections.synchronizedList(new ArrayList<>());
+    DecryptingMediator mediator = new DecryptingMediator(this.electionRecord,
+            this.electionRecord.ciphertextTally(),
+            this.spoiledBallots,
+            this.guardianPublicKeys,
+            (trusteeId, what, elapsed) -> completed.add(trusteeId + " " + what));
+    assertThat(mediator.announce(this.trustees.get(0))).isTrue();
+    assertThat(mediator.announce(this.trustees.get(1))).isTrue();
+    assertThat(mediator.announce(this.trustees.get(3))).isTrue();
+
+    Optional<PlaintextTally> decrypted_tallies = mediator.get_plaintext_tally();
+    assertThat(decrypted_tallies).isPresent();
+    assertThat(this.convertToCounts(decrypted_tallies.get())).isEqualTo(this.expectedTally);
+
+    // each available trustee computes its own share, and compensates for the missing one in another request
+    assertThat(completed).hasSize(6);
+    assertThat(completed).contains("remoteTrustee1 tally share");
+    assertThat(completed).contains("remoteTrustee4 tally shares compensating for [remoteTrustee3]");
+
+    // cannot announce once decryption has started
+    assertThat(mediator.announce(this.trustees.get(2))).isFalse();
+  }
+
   private void checkDecrypted(List<PlaintextTally> decrypteds) throws IOException {
     PrivateData pdata = new PrivateData(DECRYPTING_DATA_DIR, false, true);
     List<PlaintextBallot> inputBallots = pdata.readInputBallots();
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.List;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /** Test DecryptingRemoteTrustee. Needs one to be running on 17771. */
@@ -83,6 +84,37 @@ public class TestDecryptingRemoteTrustee {
     assertThat(response.getResultsCount()).isEqualTo(texts.size());
   }
 
+  @Example
+  public void testPartialDecryptStream() throws IOException {
+    DecryptingRemoteTrustee remote1 = makeDecryptingRemoteTrustee();
+
+    List<CommonProto.ElGamalCiphertext> texts = this.tally.contests.values().stream()
+            .flatMap(c -> c.selections.values().stream())
+            .map(s -> CommonConvert.publishCiphertext(s.ciphertext()))
+            .toList();
+    int half = texts.size() / 2;
+
+    StreamObserver<DecryptingTrusteeProto.PartialDecryptionRequest> requests = remote1.partialDecryptStream(observePartialDecryption);
+    requests.onNext(DecryptingTrusteeProto.PartialDecryptionRequest.newBuilder()
+            .addAllText(texts.subList(0, half))
+            .setExtendedBaseHash(CommonConvert.publishElementModQ(this.extendedHash))
+            .build());
+    requests.onNext(DecryptingTrusteeProto.PartialDecryptionRequest.newBuilder()
+            .addAllText(texts.subList(half, texts.size()))
+            .setExtendedBaseHash(CommonConvert.publishElementModQ(this.extendedHash))
+            .build());
+    requests.onCompleted();
+
+    verify(observePartialDecryption).onCompleted();
+    verify(observePartialDecryption, times(2)).onNext(capturePartialDecryption.capture());
+    List<DecryptingTrusteeProto.PartialDecryptionResponse> responses = capturePartialDecryption.getAllValues();
+
+    assertThat(responses.get(0).getError()).isEmpty();
+    assertThat(responses.get(0).getResultsCount()).isEqualTo(half);
+    assertThat(responses.get(1).getError()).isEmpty();
+    assertThat(responses.get(1).getResultsCount()).isEqualTo(texts.size() - half);
+  }
+
   @Example
   public void testPartialDecryptFakeText() throws IOException {
     DecryptingRemoteTrustee remote1 = makeDecryptingRemoteTrustee();
@@ -1,10 +1,16 @@
 package com.sunya.electionguard.decrypting;
 
+import com.sunya.electionguard.BallotBox;
+import com.sunya.electionguard.ElGamal;
+import com.sunya.electionguard.Group;
 import com.sunya.electionguard.protoconvert.TrusteeFromProto;
 import com.sunya.electionguard.publish.ElectionRecordPath;
 import net.jqwik.api.Example;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -27,4 +33,30 @@ public class TestDecryptingTrustee {
     assertThat(trustee1.guardianCommittments().size()).isEqualTo(NGUARDIANS);
     assertThat(trustee1.otherGuardianPartialKeyBackups().size()).isEqualTo(NGUARDIANS-1);
   }
+
+  @Example
+  public void testPartialDecryptParallel() {
+    List<ElGamal.Ciphertext> texts = new ArrayList<>();
+    for (int i = 0; i < 11; i++) {
+      texts.add(ElGamal.elgamal_encrypt_ver1(i % 2, Group.rand_range_q(Group.ONE_MOD_Q), trustee1.electionPublicKey()).orElseThrow());
+    }
+    Group.ElementModQ hash = Group.rand_q();
+    Group.ElementModQ seed = Group.rand_q();
+
+    List<BallotBox.DecryptionProofTuple> sequential = trustee1.partialDecrypt(texts, hash, seed,
+            new DecryptingTrustee.DecryptOptions(null, 1.0));
+    List<BallotBox.DecryptionProofTuple> parallel;
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      parallel = trustee1.partialDecrypt(texts, hash, seed, new DecryptingTrustee.DecryptOptions(pool, 0.0));
+    } finally {
+      pool.shutdown();
+    }
+
+    assertThat(parallel).hasSize(texts.size());
+    for (int i = 0; i < texts.size(); i++) {
+      assertThat(parallel.get(i).decryption).isEqualTo(sequential.get(i).decryption);
+      assertThat(parallel.get(i).proof.is_valid(texts.get(i), trustee1.electionPublicKey(), parallel.get(i).decryption, hash)).isTrue();
+    }
+  }
 }
@@ -36,7 +36,8 @@ public class TestKeyCeremonyRemote {
 
   private KeyCeremonyRemote makeRemote() throws IOException {
     ElectionConfig config = new ElectionConfig(this.manifest, NGUARDIANS, QUORUM);
-    return new KeyCeremonyRemote(config, "/home/snake/tmp/electionguard/publishKeyCeremonyRemote");
+    return new KeyCeremonyRemote(config, "/home/snake/tmp/electionguard/publishKeyCeremonyRemote",
+            KeyCeremonyRemoteTrusteeProxy.DEFAULT_DEADLINE);
   }
 
   @Example
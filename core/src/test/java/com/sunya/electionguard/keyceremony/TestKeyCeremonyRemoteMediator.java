@@ -3,11 +3,16 @@ package com.sunya.electionguard.keyceremony;
 import com.google.common.collect.ImmutableList;
 import com.sunya.electionguard.Group;
 import com.sunya.electionguard.Manifest;
+import com.sunya.electionguard.TaskExecutor;
 import com.sunya.electionguard.input.ManifestInputBuilder;
 import com.sunya.electionguard.simulate.KeyCeremonyTrusteeSimulator;
 import net.jqwik.api.Example;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
@@ -130,6 +135,43 @@ public class TestKeyCeremonyRemoteMediator {
     assertThat(mediator.context).isNull();
   }
 
+  @Example
+  public void testRound2IsConcurrent() {
+    // each backup waits until all the backups have been requested, so this only succeeds if they are concurrent
+    int nbackups = QUORUM * (QUORUM - 1);
+    CountDownLatch allStarted = new CountDownLatch(nbackups);
+    List<KeyCeremonyTrusteeIF> trustees = new ArrayList<>();
+    for (KeyCeremonyTrustee trustee : ImmutableList.of(
+            new KeyCeremonyTrustee(GUARDIAN1_ID, GUARDIAN1_X_COORDINATE, QUORUM, null),
+            new KeyCeremonyTrustee(GUARDIAN2_ID, GUARDIAN2_X_COORDINATE, QUORUM, null),
+            new KeyCeremonyTrustee(GUARDIAN3_ID, GUARDIAN3_X_COORDINATE, QUORUM, null))) {
+      trustees.add(new KeyCeremonyTrusteeSimulator(trustee) {
+        @Override
+        public Optional<KeyCeremony2.PartialKeyBackup> sendPartialKeyBackup(String otherId) {
+          allStarted.countDown();
+          try {
+            if (!allStarted.await(10, TimeUnit.SECONDS)) {
+              return Optional.empty();
+            }
+          } catch (InterruptedException e) {
+            return Optional.empty();
+          }
+          return super.sendPartialKeyBackup(otherId);
+        }
+      });
+    }
+
+    try (TaskExecutor executor = TaskExecutor.builder().setName("testRound2").setParallelism(nbackups).build()) {
+      KeyCeremonyRemoteMediator mediator = new KeyCeremonyRemoteMediator(this.manifest, QUORUM, trustees, executor);
+      assertThat(mediator.round1()).isTrue();
+      ArrayList<KeyCeremony2.PartialKeyVerification> failures = new ArrayList<>();
+      assertThat(mediator.round2(failures)).isTrue();
+      assertThat(failures).isEmpty();
+      assertThat(mediator.round4()).isTrue();
+      assertThat(mediator.jointKey).isNotNull();
+    }
+  }
+
   @Example
   public void testRound3() {
     KeyCeremonyRemoteMediator mediator = makeMediator();
@@ -0,0 +1,67 @@
+package com.sunya.electionguard.protoconvert;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.sunya.electionguard.Group;
+import com.sunya.electionguard.core.UInt256;
+import electionguard.protogen.CommonProto;
+import net.jqwik.api.Example;
+
+import java.math.BigInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestCommonConvert {
+
+  @Example
+  public void testElementRoundtrip() throws InvalidProtocolBufferException {
+    for (int i = 0; i < 10; i++) {
+      Group.ElementModQ q = Group.rand_q();
+      Group.ElementModP p = Group.g_pow_p(q);
+      CommonProto.ElementModP protoP = CommonConvert.publishElementModP(p);
+      CommonProto.ElementModQ protoQ = CommonConvert.publishElementModQ(q);
+      // the encoding is unchanged
+      assertThat(protoP.getValue()).isEqualTo(ByteString.copyFrom(p.getBigInt().toByteArray()));
+      assertThat(protoQ.getValue()).isEqualTo(ByteString.copyFrom(q.getBigInt().toByteArray()));
+      assertThat(CommonConvert.importElementModP(protoP)).isEqualTo(p);
+      assertThat(CommonConvert.importElementModQ(protoQ)).isEqualTo(q);
+      // and survives serialization
+      assertThat(CommonConvert.importElementModP(CommonProto.ElementModP.parseFrom(protoP.toByteArray()))).isEqualTo(p);
+    }
+  }
+
+  @Example
+  public void testEdgeValues() {
+    Group.ElementModP zero = Group.int_to_p_unchecked(BigInteger.ZERO);
+    assertThat(CommonConvert.importElementModP(CommonConvert.publishElementModP(zero))).isEqualTo(zero);
+    Group.ElementModP max = Group.int_to_p_unchecked(Group.getPrimes().largePrime.subtract(BigInteger.ONE));
+    assertThat(CommonConvert.importElementModP(CommonConvert.publishElementModP(max))).isEqualTo(max);
+
+    UInt256 uint = UInt256.fromModQ(Group.rand_q());
+    assertThat(CommonConvert.importUInt256(CommonConvert.publishUInt256(uint))).isEqualTo(uint);
+  }
+
+  @Example
+  public void testPublishUInt256Copies() {
+    byte[] bytes = new byte[32];
+    bytes[31] = 1;
+    UInt256 uint = new UInt256(bytes);
+    CommonProto.UInt256 proto = CommonConvert.publishUInt256(uint);
+    bytes[31] = 2;
+    assertThat(proto.getValue().byteAt(31)).isEqualTo((byte) 1);
+  }
+
+  @Example
+  public void testImportBigInteger() {
+    // a view into a larger ByteString
+    ByteString whole = ByteString.copyFrom(new byte[] {9, 9, 1, 2, 3, 9});
+    assertThat(CommonConvert.importBigInteger(whole.substring(2, 5))).isEqualTo(BigInteger.valueOf(0x010203));
+    // larger than the scratch array
+    BigInteger big = BigInteger.ONE.shiftLeft(20_000).subtract(BigInteger.ONE);
+    assertThat(CommonConvert.importBigInteger(ByteString.copyFrom(big.toByteArray()))).isEqualTo(big);
+    // the scratch array is reused, and stale bytes must not leak into a shorter value
+    assertThat(CommonConvert.importBigInteger(ByteString.copyFrom(new byte[] {(byte) 0xff, (byte) 0xff}))).isEqualTo(BigInteger.valueOf(0xffff));
+    assertThat(CommonConvert.importBigInteger(ByteString.copyFrom(new byte[] {7}))).isEqualTo(BigInteger.valueOf(7));
+    assertThat(CommonConvert.importBigInteger(ByteString.EMPTY)).isEqualTo(BigInteger.ZERO);
+  }
+}
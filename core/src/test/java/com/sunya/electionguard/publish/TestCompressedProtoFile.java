@@ -0,0 +1,132 @@
+package com.sunya.electionguard.publish;
+
+import com.google.common.collect.Iterables;
+import com.sunya.electionguard.BallotBox;
+import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.protoconvert.SubmittedBallotFromProto;
+import com.sunya.electionguard.protoconvert.SubmittedBallotToProto;
+import com.sunya.electionguard.verifier.TestParameterVerifier;
+import electionguard.protogen.CiphertextBallotProto;
+import net.jqwik.api.Example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestCompressedProtoFile {
+
+  private static List<SubmittedBallot> readBallots(int ncopies) throws IOException {
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    new Consumer(TestParameterVerifier.topdirProto).iterateSubmittedBallots().forEach(ballots::add);
+    List<SubmittedBallot> result = new ArrayList<>();
+    for (int i = 0; i < ncopies; i++) {
+      result.addAll(ballots);
+    }
+    return result;
+  }
+
+  @Example
+  public void testBlocks() throws IOException {
+    List<SubmittedBallot> ballots = readBallots(5);
+    Path file = Files.createTempFile("TestCompressedProtoFile", ".protobuf");
+    // small blocks, so there are several
+    long count = CompressedProtoFile.write(file,
+            Iterables.transform(ballots, SubmittedBallotToProto::translateToProto), Deflater.BEST_SPEED, 20_000);
+    assertThat(count).isEqualTo(ballots.size());
+
+    try (CompressedProtoFile compressed = CompressedProtoFile.open(file)) {
+      assertThat(compressed.nrecords()).isEqualTo(ballots.size());
+      assertThat(compressed.compressionLevel()).isEqualTo(Deflater.BEST_SPEED);
+      assertThat(compressed.blocks().size()).isGreaterThan(2);
+    }
+
+    for (long nskip : new long[] {0, 1, 17, ballots.size() - 1, ballots.size()}) {
+      List<SubmittedBallot> expected = ballots.subList((int) nskip, ballots.size());
+      try (CloseableIterator<SubmittedBallot> iter = CompressedProtoFile.open(file).iterator(
+              CiphertextBallotProto.SubmittedBallot.parser(), SubmittedBallotFromProto::translateFromProto, nskip, Long.MAX_VALUE)) {
+        List<SubmittedBallot> sequential = new ArrayList<>();
+        iter.forEachRemaining(sequential::add);
+        assertThat(sequential).isEqualTo(expected);
+      }
+      try (Stream<SubmittedBallot> stream = CompressedProtoFile.open(file).iterator(
+              CiphertextBallotProto.SubmittedBallot.parser(), SubmittedBallotFromProto::translateFromProto, nskip, Long.MAX_VALUE).stream()) {
+        assertThat(stream.parallel().collect(Collectors.toList())).isEqualTo(expected);
+      }
+    }
+
+    try (CloseableIterator<SubmittedBallot> iter = CompressedProtoFile.open(file).iterator(
+            CiphertextBallotProto.SubmittedBallot.parser(), SubmittedBallotFromProto::translateFromProto, 10, 20)) {
+      Spliterator<SubmittedBallot> split = iter.spliterator();
+      assertThat(split.estimateSize()).isEqualTo(20);
+      List<SubmittedBallot> result = new ArrayList<>();
+      Spliterator<SubmittedBallot> prefix = split.trySplit();
+      assertThat(prefix).isNotNull();
+      prefix.forEachRemaining(result::add);
+      split.forEachRemaining(result::add);
+      assertThat(result).isEqualTo(ballots.subList(10, 30));
+    }
+  }
+
+  @Example
+  public void testConsumer() throws IOException {
+    List<SubmittedBallot> ballots = readBallots(3);
+    Path topdir = Files.createTempDirectory("TestCompressedProtoFile");
+    Publisher publisher = new Publisher(topdir.toString(), Publisher.Mode.createIfMissing);
+    publisher.writeSubmittedBallotsCompressed(ballots, Deflater.DEFAULT_COMPRESSION);
+    publisher.writeSubmittedBallots(ballots);
+    Consumer consumer = new Consumer(topdir.toString());
+    assertThat(Files.size(consumer.path.submittedBallotCompressedPath())).isLessThan(Files.size(consumer.path.submittedBallotPath()));
+    Files.delete(consumer.path.submittedBallotPath());
+
+    List<SubmittedBallot> result = new ArrayList<>();
+    consumer.iterateSubmittedBallots().forEach(result::add);
+    assertThat(result).isEqualTo(ballots);
+    try (Stream<SubmittedBallot> stream = consumer.iterateCastBallots().iterator().stream()) {
+      assertThat(stream.parallel().count()).isEqualTo(ballots.stream().filter(b -> b.state == BallotBox.State.CAST).count());
+    }
+    SubmittedBallot last = ballots.get(ballots.size() - 1);
+    assertThat(consumer.getSubmittedBallot(ballots.size() - 1)).isEqualTo(last);
+    assertThat(consumer.findSubmittedBallot(last.object_id())).isPresent();
+    assertThat(consumer.hasBallotCode(last.code)).isTrue();
+  }
+
+  @Example
+  public void testReplacesBallotFile() throws IOException {
+    List<SubmittedBallot> ballots = readBallots(1);
+    Path topdir = Files.createTempDirectory("TestCompressedProtoFile");
+    Publisher publisher = new Publisher(topdir.toString(), Publisher.Mode.createIfMissing);
+    publisher.writeSubmittedBallots(ballots);
+    publisher.writeSubmittedBallotsCompressed(ballots, Deflater.DEFAULT_COMPRESSION);
+    Consumer consumer = new Consumer(topdir.toString());
+    assertThat(Files.exists(consumer.path.submittedBallotPath())).isFalse();
+    assertThat(Files.exists(consumer.path.submittedBallotIndexPath())).isFalse();
+    List<SubmittedBallot> result = new ArrayList<>();
+    consumer.iterateSubmittedBallots().forEach(result::add);
+    assertThat(result).isEqualTo(ballots);
+
+    // the compressed file cannot be appended to
+    assertThrows(IOException.class, () -> publisher.openSubmittedBallots(Publisher.DEFAULT_SYNC_INTERVAL, Publisher.DEFAULT_QUEUE_SIZE));
+
+    // writing the ballot file replaces the compressed one
+    Path compressed = Files.copy(consumer.path.submittedBallotCompressedPath(), topdir.resolve("saved"));
+    publisher.writeSubmittedBallots(ballots);
+    assertThat(Files.exists(consumer.path.submittedBallotCompressedPath())).isFalse();
+    List<SubmittedBallot> plain = new ArrayList<>();
+    consumer.iterateSubmittedBallots().forEach(plain::add);
+    assertThat(plain).isEqualTo(ballots);
+
+    // a record with both would have every ballot twice
+    Files.copy(compressed, consumer.path.submittedBallotCompressedPath());
+    assertThrows(RuntimeException.class, () -> consumer.iterateSubmittedBallots().forEach(result::add));
+    assertThrows(IOException.class, () -> consumer.getSubmittedBallot(0));
+  }
+}
@@ -0,0 +1,124 @@
+package com.sunya.electionguard.publish;
+
+import com.sunya.electionguard.BallotBox;
+import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.verifier.TestParameterVerifier;
+import electionguard.protogen.CiphertextBallotProto;
+import net.jqwik.api.Example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestDelimitedProtoReader {
+
+  @Example
+  public void testBufferedAndMappedAgree() throws IOException {
+    Path file = new ElectionRecordPath(TestParameterVerifier.topdirProto).submittedBallotPath();
+    List<Long> offsets = new ArrayList<>();
+    List<CiphertextBallotProto.SubmittedBallot> buffered = new ArrayList<>();
+    try (DelimitedProtoReader reader = DelimitedProtoReader.open(file, 0, false)) {
+      offsets.add(reader.offset());
+      CiphertextBallotProto.SubmittedBallot ballot;
+      while ((ballot = reader.next(CiphertextBallotProto.SubmittedBallot.parser())) != null) {
+        buffered.add(ballot);
+        offsets.add(reader.offset());
+      }
+    }
+    assertThat(buffered).hasSize(11);
+    assertThat(offsets.get(offsets.size() - 1)).isEqualTo(Files.size(file));
+
+    try (DelimitedProtoReader reader = DelimitedProtoReader.open(file, 0, true)) {
+      for (int i = 0; i < buffered.size(); i++) {
+        assertThat(reader.offset()).isEqualTo(offsets.get(i));
+        assertThat(reader.next(CiphertextBallotProto.SubmittedBallot.parser())).isEqualTo(buffered.get(i));
+      }
+      assertThat(reader.next(CiphertextBallotProto.SubmittedBallot.parser())).isNull();
+    }
+  }
+
+  @Example
+  public void testSkipAndOffset() throws IOException {
+    Path file = new ElectionRecordPath(TestParameterVerifier.topdirProto).submittedBallotPath();
+    for (boolean memoryMapped : new boolean[] {false, true}) {
+      long offset;
+      CiphertextBallotProto.SubmittedBallot third;
+      try (DelimitedProtoReader reader = DelimitedProtoReader.open(file, 0, memoryMapped)) {
+        assertThat(reader.skip(2)).isTrue();
+        offset = reader.offset();
+        third = reader.next(CiphertextBallotProto.SubmittedBallot.parser());
+        assertThat(reader.skip(100)).isFalse();
+      }
+      try (DelimitedProtoReader reader = DelimitedProtoReader.open(file, offset, memoryMapped)) {
+        assertThat(reader.next(CiphertextBallotProto.SubmittedBallot.parser())).isEqualTo(third);
+      }
+    }
+  }
+
+  @Example
+  public void testParallelStream() throws IOException {
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    new Consumer(TestParameterVerifier.topdirProto).iterateSubmittedBallots().forEach(ballots::add);
+    List<SubmittedBallot> many = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      many.addAll(ballots);
+    }
+    Path topdir = Files.createTempDirectory("TestDelimitedProtoReader");
+    new Publisher(topdir.toString(), Publisher.Mode.createIfMissing).writeSubmittedBallots(many);
+    Consumer consumer = new Consumer(topdir.toString());
+
+    // with the index, then with a scan of the record lengths
+    for (int pass = 0; pass < 2; pass++) {
+      try (CloseableIterator<SubmittedBallot> iter = consumer.iterateSubmittedBallots().iterator()) {
+        Spliterator<SubmittedBallot> split = iter.spliterator();
+        assertThat(split.estimateSize()).isEqualTo(many.size());
+        assertThat(split.trySplit()).isNotNull();
+      }
+      try (Stream<SubmittedBallot> stream = consumer.iterateSubmittedBallots().iterator().stream()) {
+        assertThat(stream.parallel().collect(Collectors.toList())).isEqualTo(many);
+      }
+      try (Stream<SubmittedBallot> stream = consumer.iterateSubmittedBallots(25).iterator().stream()) {
+        assertThat(stream.parallel().map(SubmittedBallot::object_id).collect(Collectors.toList()))
+                .isEqualTo(many.subList(25, many.size()).stream().map(SubmittedBallot::object_id).collect(Collectors.toList()));
+      }
+      try (Stream<SubmittedBallot> stream = consumer.iterateSubmittedBallots(25, 80).iterator().stream()) {
+        assertThat(stream.parallel().map(SubmittedBallot::object_id).collect(Collectors.toList()))
+                .isEqualTo(many.subList(25, 80).stream().map(SubmittedBallot::object_id).collect(Collectors.toList()));
+      }
+      try (Stream<SubmittedBallot> stream = consumer.iterateCastBallots().iterator().stream()) {
+        assertThat(stream.parallel().count()).isEqualTo(many.stream().filter(b -> b.state == BallotBox.State.CAST).count());
+      }
+      Files.delete(consumer.path.submittedBallotIndexPath());
+      consumer = new Consumer(topdir.toString());
+    }
+  }
+
+  @Example
+  public void testNegativeRecordLength() throws IOException {
+    // varint32 of 0xffffffff, which is -1 as an int, then some bytes for it to be a record of
+    byte[] bytes = new byte[20];
+    bytes[0] = (byte) 0xff;
+    bytes[1] = (byte) 0xff;
+    bytes[2] = (byte) 0xff;
+    bytes[3] = (byte) 0xff;
+    bytes[4] = (byte) 0x0f;
+    Path file = Files.createTempFile("TestDelimitedProtoReader", ".protobuf");
+    Files.write(file, bytes);
+    for (boolean memoryMapped : new boolean[] {false, true}) {
+      try (DelimitedProtoReader reader = DelimitedProtoReader.open(file, 0, memoryMapped)) {
+        assertThrows(IOException.class, () -> reader.next(CiphertextBallotProto.SubmittedBallot.parser()));
+      }
+      try (DelimitedProtoReader reader = DelimitedProtoReader.open(file, 0, memoryMapped)) {
+        assertThrows(IOException.class, reader::skip);
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.sunya.electionguard.publish;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.verifier.TestParameterVerifier;
+import net.jqwik.api.Example;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestSubmittedBallotAppender {
+
+  @Example
+  public void testAppendIsDurable() throws Exception {
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    new Consumer(TestParameterVerifier.topdirProto).iterateSubmittedBallots().forEach(ballots::add);
+    assertThat(ballots).hasSize(11);
+
+    Path topdir = Files.createTempDirectory("TestSubmittedBallotAppender");
+    Publisher publisher = new Publisher(topdir.toString(), Publisher.Mode.createIfMissing);
+    publisher.openSubmittedBallots(Duration.ofMillis(50), 2);
+    List<ListenableFuture<SubmittedBallotIndex.Entry>> futures = new ArrayList<>();
+    for (SubmittedBallot ballot : ballots) {
+      futures.add(publisher.appendSubmittedBallot(ballot));
+    }
+    // each future completes once its ballot is on disk, before the file is closed
+    long offset = 0;
+    for (int i = 0; i < ballots.size(); i++) {
+      SubmittedBallotIndex.Entry entry = futures.get(i).get();
+      assertThat(entry.ballotId()).isEqualTo(ballots.get(i).object_id());
+      assertThat(entry.offset()).isAtLeast(offset);
+      offset = entry.offset();
+    }
+    List<SubmittedBallot> beforeClose = new ArrayList<>();
+    new Consumer(topdir.toString()).iterateSubmittedBallots().forEach(beforeClose::add);
+    assertThat(beforeClose).isEqualTo(ballots);
+
+    assertThat(publisher.closeSubmittedBallots()).isEqualTo(11);
+    Consumer consumer = new Consumer(topdir.toString());
+    SubmittedBallotIndex index = consumer.readSubmittedBallotIndex();
+    assertThat(index.size()).isEqualTo(11);
+    assertThat(index.fileSize()).isEqualTo(Files.size(topdir.resolve(ElectionRecordPath.SUBMITTED_BALLOT_PROTO)));
+    for (int i = 0; i < ballots.size(); i++) {
+      assertThat(index.get(i)).isEqualTo(futures.get(i).get());
+    }
+  }
+
+  @Example
+  public void testConcurrentAppend() throws Exception {
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    new Consumer(TestParameterVerifier.topdirProto).iterateSubmittedBallots().forEach(ballots::add);
+
+    Path topdir = Files.createTempDirectory("TestSubmittedBallotAppender");
+    Publisher publisher = new Publisher(topdir.toString(), Publisher.Mode.createIfMissing);
+    publisher.openSubmittedBallots(Duration.ZERO, 3);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<SubmittedBallotIndex.Entry>> futures = new ArrayList<>();
+    for (SubmittedBallot ballot : ballots) {
+      futures.add(executor.submit(() -> publisher.appendSubmittedBallot(ballot).get()));
+    }
+    for (Future<SubmittedBallotIndex.Entry> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertThat(publisher.closeSubmittedBallots()).isEqualTo(11);
+
+    // any order, each ballot once
+    List<String> ids = new ArrayList<>();
+    new Consumer(topdir.toString()).iterateSubmittedBallots().forEach(b -> ids.add(b.object_id()));
+    assertThat(ids).containsExactlyElementsIn(ballots.stream().map(SubmittedBallot::object_id).toList());
+    Consumer consumer = new Consumer(topdir.toString());
+    for (SubmittedBallot ballot : ballots) {
+      assertThat(consumer.findSubmittedBallot(ballot.object_id()).orElseThrow()).isEqualTo(ballot);
+    }
+  }
+
+  @Example
+  public void testReopen() throws Exception {
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    new Consumer(TestParameterVerifier.topdirProto).iterateSubmittedBallots().forEach(ballots::add);
+    Path topdir = Files.createTempDirectory("TestSubmittedBallotAppender");
+    Path ballotFile = topdir.resolve(ElectionRecordPath.SUBMITTED_BALLOT_PROTO);
+    Publisher publisher = new Publisher(topdir.toString(), Publisher.Mode.createIfMissing);
+
+    appendAll(publisher, ballots.subList(0, 4));
+    assertThat(publisher.closeSubmittedBallots()).isEqualTo(4);
+    // reopen with a current index
+    appendAll(publisher, ballots.subList(4, 7));
+    assertThat(publisher.closeSubmittedBallots()).isEqualTo(7);
+    // reopen without an index, after a crash left a partial record
+    Path indexFile = topdir.resolve(ElectionRecordPath.SUBMITTED_BALLOT_INDEX);
+    Files.delete(indexFile);
+    long size = Files.size(ballotFile);
+    Files.write(ballotFile, new byte[] {(byte) 0x80, 0x10, 1, 2, 3}, StandardOpenOption.APPEND);
+    appendAll(publisher, ballots.subList(7, ballots.size()));
+    assertThat(publisher.closeSubmittedBallots()).isEqualTo(ballots.size());
+
+    Consumer consumer = new Consumer(topdir.toString());
+    List<SubmittedBallot> readBack = new ArrayList<>();
+    consumer.iterateSubmittedBallots().forEach(readBack::add);
+    assertThat(readBack).isEqualTo(ballots);
+    SubmittedBallotIndex index = consumer.readSubmittedBallotIndex();
+    assertThat(index.size()).isEqualTo(ballots.size());
+    assertThat(index.fileSize()).isEqualTo(Files.size(ballotFile));
+    assertThat(index.get(7).offset()).isEqualTo(size);
+    for (int i = 0; i < ballots.size(); i++) {
+      assertThat(index.get(i).ballotId()).isEqualTo(ballots.get(i).object_id());
+      if (i > 0) {
+        assertThat(index.get(i).offset()).isGreaterThan(index.get(i - 1).offset());
+      }
+    }
+    assertThat(SubmittedBallotIndex.build(ballotFile).entries()).isEqualTo(index.entries());
+
+    // start over
+    publisher.deleteSubmittedBallots();
+    appendAll(publisher, ballots.subList(0, 2));
+    assertThat(publisher.closeSubmittedBallots()).isEqualTo(2);
+  }
+
+  private static void appendAll(Publisher publisher, List<SubmittedBallot> ballots) throws Exception {
+    publisher.openSubmittedBallots(Duration.ZERO, 2);
+    for (SubmittedBallot ballot : ballots) {
+      publisher.appendSubmittedBallot(ballot);
+    }
+  }
+
+  @Example
+  public void testOpenTwice() throws Exception {
+    Path topdir = Files.createTempDirectory("TestSubmittedBallotAppender");
+    Publisher publisher = new Publisher(topdir.toString(), Publisher.Mode.createIfMissing);
+    publisher.openSubmittedBallots(Publisher.DEFAULT_SYNC_INTERVAL, Publisher.DEFAULT_QUEUE_SIZE);
+    assertThrows(IllegalStateException.class,
+            () -> publisher.openSubmittedBallots(Publisher.DEFAULT_SYNC_INTERVAL, Publisher.DEFAULT_QUEUE_SIZE));
+    assertThat(publisher.closeSubmittedBallots()).isEqualTo(0);
+    assertThat(publisher.closeSubmittedBallots()).isEqualTo(0);
+    assertThat(new Consumer(topdir.toString()).readSubmittedBallotIndex().size()).isEqualTo(0);
+  }
+}
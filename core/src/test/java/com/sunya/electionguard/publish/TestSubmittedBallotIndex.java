@@ -0,0 +1,58 @@
+package com.sunya.electionguard.publish;
+
+import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.verifier.TestParameterVerifier;
+import net.jqwik.api.Example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestSubmittedBallotIndex {
+
+  @Example
+  public void testWriteAndLookup() throws IOException {
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    new Consumer(TestParameterVerifier.topdirProto).iterateSubmittedBallots().forEach(ballots::add);
+    assertThat(ballots).hasSize(11);
+
+    Path topdir = Files.createTempDirectory("TestSubmittedBallotIndex");
+    Publisher publisher = new Publisher(topdir.toString(), Publisher.Mode.createIfMissing);
+    publisher.writeSubmittedBallots(ballots);
+    Consumer consumer = new Consumer(topdir.toString());
+    assertThat(Files.exists(consumer.path.submittedBallotIndexPath())).isTrue();
+
+    SubmittedBallotIndex index = consumer.readSubmittedBallotIndex();
+    assertThat(index.size()).isEqualTo(ballots.size());
+    assertThat(index.fileSize()).isEqualTo(Files.size(consumer.path.submittedBallotPath()));
+    assertThat(index.entries()).isEqualTo(SubmittedBallotIndex.build(consumer.path.submittedBallotPath()).entries());
+
+    for (int i = 0; i < ballots.size(); i++) {
+      SubmittedBallot ballot = ballots.get(i);
+      assertThat(consumer.getSubmittedBallot(i)).isEqualTo(ballot);
+      assertThat(consumer.findSubmittedBallot(ballot.object_id())).hasValue(ballot);
+      assertThat(consumer.findSubmittedBallotByCode(ballot.code)).hasValue(ballot);
+      assertThat(consumer.hasBallotCode(ballot.code)).isTrue();
+      assertThat(index.get(i).state()).isEqualTo(ballot.state);
+      assertThat(index.get(i).ballotStyleId()).isEqualTo(ballot.ballotStyleId);
+    }
+    assertThat(consumer.findSubmittedBallot("nonexistent")).isEmpty();
+
+    List<SubmittedBallot> range = new ArrayList<>();
+    consumer.iterateSubmittedBallots(3, 7).forEach(range::add);
+    assertThat(range).isEqualTo(ballots.subList(3, 7));
+  }
+
+  @Example
+  public void testWithoutIndexFile() throws IOException {
+    Consumer consumer = new Consumer(TestParameterVerifier.topdirProto);
+    SubmittedBallotIndex index = consumer.readSubmittedBallotIndex();
+    assertThat(index.size()).isEqualTo(11);
+    SubmittedBallot last = consumer.getSubmittedBallot(10);
+    assertThat(consumer.findSubmittedBallot(last.object_id())).hasValue(last);
+  }
+}
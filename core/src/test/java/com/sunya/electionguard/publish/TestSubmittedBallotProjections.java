@@ -0,0 +1,75 @@
+package com.sunya.electionguard.publish;
+
+import com.sunya.electionguard.CiphertextBallot;
+import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.verifier.TestParameterVerifier;
+import net.jqwik.api.Example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestSubmittedBallotProjections {
+
+  @Example
+  public void testProjections() throws IOException {
+    checkProjections(new Consumer(TestParameterVerifier.topdirProto));
+    checkProjections(new Consumer(TestParameterVerifier.topdirProto, true));
+  }
+
+  @Example
+  public void testCompressedProjections() throws IOException {
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    new Consumer(TestParameterVerifier.topdirProto).iterateSubmittedBallots().forEach(ballots::add);
+    Path topdir = Files.createTempDirectory("TestSubmittedBallotProjections");
+    new Publisher(topdir.toString(), Publisher.Mode.createIfMissing).writeSubmittedBallotsCompressed(ballots, Deflater.BEST_SPEED);
+    checkProjections(new Consumer(topdir.toString()));
+  }
+
+  private void checkProjections(Consumer consumer) throws IOException {
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    consumer.iterateSubmittedBallots().forEach(ballots::add);
+    assertThat(ballots).isNotEmpty();
+
+    List<SubmittedBallot> ciphertexts = new ArrayList<>();
+    consumer.iterateSubmittedBallotCiphertexts().forEach(ciphertexts::add);
+    assertThat(ciphertexts).hasSize(ballots.size());
+    for (int i = 0; i < ballots.size(); i++) {
+      SubmittedBallot expected = ballots.get(i);
+      SubmittedBallot projected = ciphertexts.get(i);
+      assertThat(projected.object_id()).isEqualTo(expected.object_id());
+      assertThat(projected.state).isEqualTo(expected.state);
+      assertThat(projected.code).isEqualTo(expected.code);
+      assertThat(projected.contests).hasSize(expected.contests.size());
+      for (int c = 0; c < expected.contests.size(); c++) {
+        CiphertextBallot.Contest contest = projected.contests.get(c);
+        assertThat(contest.contestId).isEqualTo(expected.contests.get(c).contestId);
+        assertThat(contest.proof).isEmpty();
+        for (int s = 0; s < contest.selections.size(); s++) {
+          CiphertextBallot.Selection selection = contest.selections.get(s);
+          assertThat(selection.ciphertext()).isEqualTo(expected.contests.get(c).selections.get(s).ciphertext());
+          assertThat(selection.proof).isEmpty();
+        }
+      }
+    }
+
+    List<SubmittedBallot> skipped = new ArrayList<>();
+    consumer.iterateSubmittedBallotCiphertexts(3).forEach(skipped::add);
+    assertThat(skipped).isEqualTo(ciphertexts.subList(3, ciphertexts.size()));
+
+    List<Consumer.BallotChainLink> expectedChain = ballots.stream().map(Consumer.BallotChainLink::of).toList();
+    List<Consumer.BallotChainLink> chain = new ArrayList<>();
+    consumer.iterateBallotChain().forEach(chain::add);
+    assertThat(chain).isEqualTo(expectedChain);
+    try (Stream<Consumer.BallotChainLink> stream = consumer.iterateBallotChain().iterator().stream()) {
+      assertThat(stream.parallel().collect(Collectors.toList())).isEqualTo(expectedChain);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.sunya.electionguard.publish;
+
+import com.sunya.electionguard.SubmittedBallot;
+import com.sunya.electionguard.verifier.TestParameterVerifier;
+import net.jqwik.api.Example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestSubmittedBallotShards {
+
+  @Example
+  public void testConcurrentShards() throws Exception {
+    List<SubmittedBallot> ballots = new ArrayList<>();
+    new Consumer(TestParameterVerifier.topdirProto).iterateSubmittedBallots().forEach(ballots::add);
+    assertThat(ballots).hasSize(11);
+
+    Path topdir = Files.createTempDirectory("TestSubmittedBallotShards");
+    Publisher publisher = new Publisher(topdir.toString(), Publisher.Mode.createIfMissing);
+    List<List<SubmittedBallot>> shards = List.of(ballots.subList(0, 4), ballots.subList(4, 5), ballots.subList(5, 11));
+    ExecutorService executor = Executors.newFixedThreadPool(shards.size());
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      String shardId = Integer.toString(i);
+      List<SubmittedBallot> shard = shards.get(i);
+      futures.add(executor.submit(() -> {
+        publisher.writeSubmittedBallotShard(shardId, shard);
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    Consumer consumer = new Consumer(topdir.toString());
+    SubmittedBallotShards manifest = consumer.readSubmittedBallotShards();
+    assertThat(manifest.shards()).hasSize(3);
+    assertThat(manifest.nballots()).isEqualTo(11);
+    Formatter errors = new Formatter();
+    assertThat(consumer.validateSubmittedBallotShards(errors)).isTrue();
+
+    // the shards may have been added in any order
+    List<SubmittedBallot> expected = new ArrayList<>();
+    for (SubmittedBallotShards.Shard shard : manifest.shards()) {
+      expected.addAll(shards.get(Integer.parseInt(shard.shardId())));
+    }
+    List<SubmittedBallot> sequential = new ArrayList<>();
+    consumer.iterateSubmittedBallots().forEach(sequential::add);
+    assertThat(sequential).isEqualTo(expected);
+    try (Stream<SubmittedBallot> stream = consumer.iterateSubmittedBallots().iterator().stream()) {
+      assertThat(stream.parallel().collect(Collectors.toList())).isEqualTo(expected);
+    }
+    List<SubmittedBallot> skipped = new ArrayList<>();
+    consumer.iterateSubmittedBallots(5).forEach(skipped::add);
+    assertThat(skipped).isEqualTo(expected.subList(5, 11));
+    // skips into the second shard, so its index is read from an offset after the start
+    try (Stream<SubmittedBallot> stream = consumer.iterateSubmittedBallots(5).iterator().stream()) {
+      assertThat(stream.parallel().collect(Collectors.toList())).isEqualTo(expected.subList(5, 11));
+    }
+    try (Stream<SubmittedBallot> stream = consumer.iterateSubmittedBallots(2).iterator().stream()) {
+      assertThat(stream.parallel().collect(Collectors.toList())).isEqualTo(expected.subList(2, 11));
+    }
+    List<SubmittedBallot> range = new ArrayList<>();
+    consumer.iterateSubmittedBallots(3, 9).forEach(range::add);
+    assertThat(range).isEqualTo(expected.subList(3, 9));
+    try (Stream<SubmittedBallot> stream = consumer.iterateSubmittedBallots(3, 9).iterator().stream()) {
+      assertThat(stream.parallel().collect(Collectors.toList())).isEqualTo(expected.subList(3, 9));
+    }
+
+    for (int i = 0; i < expected.size(); i++) {
+      SubmittedBallot ballot = expected.get(i);
+      assertThat(consumer.getSubmittedBallot(i)).isEqualTo(ballot);
+      assertThat(consumer.findSubmittedBallot(ballot.object_id())).hasValue(ballot);
+      assertThat(consumer.hasBallotCode(ballot.code)).isTrue();
+    }
+
+    // corrupt a shard
+    SubmittedBallotShards.Shard first = manifest.shards().get(0);
+    Files.write(consumer.path.submittedBallotShardPath(first.shardId()), new byte[] {0}, StandardOpenOption.APPEND);
+    assertThat(consumer.validateSubmittedBallotShards(new Formatter())).isFalse();
+  }
+}
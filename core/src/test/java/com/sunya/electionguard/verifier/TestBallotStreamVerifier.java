@@ -0,0 +1,29 @@
+package com.sunya.electionguard.verifier;
+
+import com.sunya.electionguard.publish.Consumer;
+import com.sunya.electionguard.publish.ElectionRecord;
+import net.jqwik.api.Example;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestBallotStreamVerifier {
+
+  @Example
+  public void testVerifyBallotStreamProto() throws IOException {
+    Consumer consumer = new Consumer(TestParameterVerifier.topdirProto);
+    ElectionRecord electionRecord = consumer.readElectionRecord();
+    BallotStreamVerifier subject = new BallotStreamVerifier(electionRecord, VerifierEngine.getDefault());
+    List<BallotStreamVerifier.BoxResult> results = subject.verify();
+    assertThat(results).hasSize(4);
+    for (BallotStreamVerifier.BoxResult result : results) {
+      assertThat(result.ok()).isTrue();
+    }
+    assertThat(results.get(0).messages()).contains("All Selection Encryptions validate");
+    assertThat(results.get(1).messages()).contains("Adherence to Vote Limits");
+    assertThat(results.get(2).messages()).contains("Ballot Chaining success");
+    assertThat(results.get(3).messages()).contains("Ballot Aggregation Validation success");
+  }
+}
@@ -0,0 +1,141 @@
+package com.sunya.electionguard.verifier;
+
+import com.sunya.electionguard.core.UInt256;
+import com.sunya.electionguard.protoconvert.VerificationStateConvert;
+import com.sunya.electionguard.publish.Consumer;
+import com.sunya.electionguard.publish.ElectionRecord;
+import com.sunya.electionguard.publish.ElectionRecordPath;
+import net.jqwik.api.Example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestIncrementalVerifier {
+
+  @Example
+  public void testSecondRunVerifiesNothingNew() throws IOException {
+    Consumer consumer = new Consumer(TestParameterVerifier.topdirProto);
+    ElectionRecord electionRecord = consumer.readElectionRecord();
+    File file = File.createTempFile("verificationState", null);
+    file.deleteOnExit();
+    Path statePath = file.toPath();
+    Files.delete(statePath);
+
+    IncrementalVerifier first = new IncrementalVerifier(consumer, electionRecord, false, VerifierEngine.getDefault(), statePath);
+    assertThat(first.verify().ok()).isTrue();
+    VerificationState state1 = VerificationStateConvert.read(statePath);
+    assertThat(state1.ballots()).isNotEmpty();
+    assertThat(state1.nextOffset()).isEqualTo(Files.size(consumer.path.submittedBallotPath()));
+    assertThat(state1.chainHead()).isNotNull();
+    assertThat(state1.artifacts()).containsKey("11");
+
+    IncrementalVerifier second = new IncrementalVerifier(consumer, electionRecord, false, VerifierEngine.getDefault(), statePath);
+    VerificationReport report = second.verify();
+    assertThat(report.ok()).isTrue();
+    assertThat(report.boxes().get(3).items()).isEqualTo(0); // no new ballots
+    VerificationState state2 = VerificationStateConvert.read(statePath);
+    assertThat(state2.ballots()).isEqualTo(state1.ballots());
+    assertThat(state2.selectionProducts()).isEqualTo(state1.selectionProducts());
+    assertThat(state2.artifacts()).isEqualTo(state1.artifacts());
+  }
+
+  @Example
+  public void testAppendedBallots() throws Exception {
+    Path topdir = copyRecord();
+    Path ballotFile = topdir.resolve(ElectionRecordPath.SUBMITTED_BALLOT_PROTO);
+    byte[] full = Files.readAllBytes(ballotFile);
+    List<Consumer.SubmittedBallotRecord> records = readRecords(topdir);
+    int nfirst = records.size() / 2;
+    long split = records.get(nfirst).offset();
+
+    // verify the first half of the ballots
+    Files.write(ballotFile, Arrays.copyOfRange(full, 0, (int) split));
+    Files.deleteIfExists(topdir.resolve(ElectionRecordPath.SUBMITTED_BALLOT_INDEX));
+    Path statePath = topdir.resolve("verificationState.protobuf");
+    verify(topdir, statePath);
+    VerificationState state1 = VerificationStateConvert.read(statePath);
+    assertThat(state1.ballots()).hasSize(nfirst);
+    assertThat(state1.nextOffset()).isEqualTo(split);
+
+    // then only the appended ones
+    Files.write(ballotFile, Arrays.copyOfRange(full, (int) split, full.length), StandardOpenOption.APPEND);
+    VerificationReport report = verify(topdir, statePath);
+    assertThat(report.ok()).isTrue();
+    assertThat(report.boxes().get(3).items()).isEqualTo(records.size() - nfirst);
+    VerificationState state2 = VerificationStateConvert.read(statePath);
+    assertThat(state2.ballots().subList(0, nfirst)).isEqualTo(state1.ballots());
+    assertThat(state2.ballots().stream().map(VerificationState.BallotResult::ballotId).toList())
+            .isEqualTo(records.stream().map(r -> r.ballot().object_id()).toList());
+    assertThat(state2.nextOffset()).isEqualTo(full.length);
+    assertThat(state2.ballotFileDigest()).isEqualTo(new UInt256(MessageDigest.getInstance("SHA-256").digest(full)));
+  }
+
+  @Example
+  public void testRewrittenBallotFile() throws Exception {
+    Path topdir = copyRecord();
+    Path ballotFile = topdir.resolve(ElectionRecordPath.SUBMITTED_BALLOT_PROTO);
+    byte[] full = Files.readAllBytes(ballotFile);
+    List<Consumer.SubmittedBallotRecord> records = readRecords(topdir);
+    Path statePath = topdir.resolve("verificationState.protobuf");
+    verify(topdir, statePath);
+
+    // the same ballots in the opposite order, so the file has the same length
+    ByteArrayOutputStream reversed = new ByteArrayOutputStream();
+    for (int i = records.size() - 1; i >= 0; i--) {
+      Consumer.SubmittedBallotRecord record = records.get(i);
+      reversed.write(full, (int) record.offset(), (int) (record.nextOffset() - record.offset()));
+    }
+    Files.write(ballotFile, reversed.toByteArray());
+    Files.deleteIfExists(topdir.resolve(ElectionRecordPath.SUBMITTED_BALLOT_INDEX));
+    VerificationReport report = verify(topdir, statePath);
+    assertThat(report.boxes().get(3).items()).isEqualTo(records.size()); // all verified again
+    VerificationState state = VerificationStateConvert.read(statePath);
+    assertThat(state.ballots().get(0).ballotId()).isEqualTo(records.get(records.size() - 1).ballot().object_id());
+
+    // a ballot appended that does not chain to the last one
+    Consumer.SubmittedBallotRecord last = records.get(0);
+    Files.write(ballotFile, Arrays.copyOfRange(full, (int) last.offset(), (int) last.nextOffset()), StandardOpenOption.APPEND);
+    report = verify(topdir, statePath);
+    assertThat(report.boxes().get(3).items()).isEqualTo(records.size() + 1); // all verified again
+  }
+
+  private static VerificationReport verify(Path topdir, Path statePath) throws IOException {
+    Consumer consumer = new Consumer(topdir.toString());
+    return new IncrementalVerifier(consumer, consumer.readElectionRecord(), false, VerifierEngine.getDefault(), statePath).verify();
+  }
+
+  private static List<Consumer.SubmittedBallotRecord> readRecords(Path topdir) {
+    List<Consumer.SubmittedBallotRecord> records = new ArrayList<>();
+    new Consumer(topdir.toString()).iterateSubmittedBallotRecords(0).forEach(records::add);
+    assertThat(records.size()).isAtLeast(2);
+    return records;
+  }
+
+  /** Copy the test election record, so that its ballot file can be changed. */
+  private static Path copyRecord() throws IOException {
+    Path source = Path.of(TestParameterVerifier.topdirProto);
+    Path topdir = Files.createTempDirectory("TestIncrementalVerifier");
+    try (Stream<Path> files = Files.walk(source)) {
+      for (Path file : files.toList()) {
+        Path dest = topdir.resolve(source.relativize(file).toString());
+        if (Files.isDirectory(file)) {
+          Files.createDirectories(dest);
+        } else {
+          Files.copy(file, dest);
+        }
+      }
+    }
+    return topdir;
+  }
+}
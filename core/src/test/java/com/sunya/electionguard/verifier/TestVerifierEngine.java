@@ -0,0 +1,80 @@
+package com.sunya.electionguard.verifier;
+
+import com.sunya.electionguard.TaskExecutor;
+import net.jqwik.api.Example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TestVerifierEngine {
+
+  @Example
+  public void testBoxesRunConcurrentlyAndPrintInOrder() {
+    // box 0 can only finish after box 1 has started, so they must run at the same time
+    CountDownLatch started = new CountDownLatch(1);
+    try (TaskExecutor executor = TaskExecutor.builder().setName("testBoxes").setParallelism(2).build()) {
+      VerifierEngine engine = new VerifierEngine(executor);
+      List<VerifierEngine.Box> boxes = List.of(
+              new VerifierEngine.Box("0", "box0\n", box -> {
+                box.out().format("first\n");
+                try {
+                  return started.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                  throw new RuntimeException(e);
+                }
+              }),
+              new VerifierEngine.Box("1", "box1\n", box -> {
+                started.countDown();
+                box.out().format("second\n");
+                box.addItems(3);
+                box.addFailure("ballot2");
+                return false;
+              }));
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      VerificationReport report = engine.run(boxes, new PrintStream(bytes, true));
+      assertThat(report.ok()).isFalse();
+      assertThat(report.boxes()).hasSize(2);
+      assertThat(report.boxes().get(0).ok()).isTrue();
+      VerificationReport.BoxReport box1 = report.boxes().get(1);
+      assertThat(box1.ok()).isFalse();
+      assertThat(box1.name()).isEqualTo("box1");
+      assertThat(box1.items()).isEqualTo(3);
+      assertThat(box1.nfailed()).isEqualTo(1);
+      assertThat(box1.failedIds()).containsExactly("ballot2");
+      assertThat(report.toJson()).contains("\"ballot2\"");
+      assertThat(bytes.toString()).isEqualTo("box0\nfirst\nbox1\nsecond\n");
+    }
+  }
+
+  @Example
+  public void testVerifyInOrder() {
+    try (TaskExecutor executor = TaskExecutor.builder().setName("testInOrder").setParallelism(4).build()) {
+      VerifierEngine engine = new VerifierEngine(executor, 7);
+      List<Integer> items = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        items.add(i);
+      }
+      StringBuilder messages = new StringBuilder();
+      List<Integer> collected = new ArrayList<>();
+      engine.verifyInOrder(items, (item, out) -> {
+        out.format("%d,", item);
+        return 2 * item;
+      }, new Formatter(messages), collected::add);
+
+      assertThat(collected).hasSize(100);
+      for (int i = 0; i < 100; i++) {
+        assertThat(collected.get(i)).isEqualTo(2 * i);
+      }
+      assertThat(messages.toString()).startsWith("0,1,2,3,4,5,6,7,8,9,");
+      assertThat(messages.toString()).endsWith("98,99,");
+    }
+  }
+}